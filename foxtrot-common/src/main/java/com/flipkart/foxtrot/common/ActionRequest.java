@@ -32,6 +32,10 @@ public abstract class ActionRequest {
 
     private List<Filter> filters;
 
+    private CacheControl cache;
+
+    private Long timeoutMs;
+
     protected ActionRequest(String opcode) {
         this.opcode = opcode;
     }
@@ -53,4 +57,26 @@ public abstract class ActionRequest {
         this.filters = filters;
     }
 
+    /**
+     * @return how the result cache is to be used for this request, null for {@link CacheControl#DEFAULT}
+     */
+    public CacheControl getCache() {
+        return cache;
+    }
+
+    public void setCache(CacheControl cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @return time budget for the request in milliseconds, null for no limit
+     */
+    public Long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public void setTimeoutMs(Long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
 }
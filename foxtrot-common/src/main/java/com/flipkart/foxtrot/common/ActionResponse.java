@@ -15,6 +15,7 @@
  */
 package com.flipkart.foxtrot.common;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.flipkart.foxtrot.common.count.CountResponse;
@@ -46,6 +47,9 @@ public abstract class ActionResponse {
 
     private final String opcode;
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean partial;
+
     protected ActionResponse(String opcode) {
         this.opcode = opcode;
     }
@@ -54,6 +58,18 @@ public abstract class ActionResponse {
         return opcode;
     }
 
+    /**
+     * @return true if elasticsearch ran out of time or lost shards and the result covers only part of the data,
+     * null otherwise
+     */
+    public Boolean getPartial() {
+        return partial;
+    }
+
+    public void setPartial(Boolean partial) {
+        this.partial = partial;
+    }
+
     public abstract void accept(ResponseVisitor visitor);
 
 }
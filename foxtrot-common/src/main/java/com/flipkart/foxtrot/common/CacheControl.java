@@ -0,0 +1,58 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.common;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * How a request uses the result cache of its action
+ */
+public enum CacheControl {
+    /**
+     * Serve from the cache if possible, store the result otherwise
+     */
+    DEFAULT("default"),
+    /**
+     * Skip the cache, neither read nor store the result
+     */
+    BYPASS("bypass"),
+    /**
+     * Skip reading the cache but store the fresh result
+     */
+    REFRESH("refresh");
+
+    private final String value;
+
+    CacheControl(String value) {
+        this.value = value;
+    }
+
+    @JsonValue
+    public String getValue() {
+        return value;
+    }
+
+    @JsonCreator
+    public static CacheControl fromValue(String value) {
+        for (CacheControl cacheControl : values()) {
+            if (cacheControl.value.equalsIgnoreCase(value)) {
+                return cacheControl;
+            }
+        }
+        throw new IllegalArgumentException("Unknown cache control: " + value);
+    }
+}
@@ -1,5 +1,7 @@
 package com.flipkart.foxtrot.common.stats;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
 import java.util.Map;
 
 /**
@@ -26,6 +28,7 @@ public class StatsValue {
         return percentiles;
     }
 
+    @JsonDeserialize(keyAs = Double.class)
     public void setPercentiles(Map<Number, Number> percentiles) {
         this.percentiles = percentiles;
     }
@@ -25,7 +25,22 @@ import com.flipkart.foxtrot.common.ActionResponse;
 public interface Cache {
     public ActionResponse put(final String key, ActionResponse data);
 
+    /**
+     * Stores a response that was computed from the state of the data at computedAt
+     */
+    public ActionResponse put(final String key, ActionResponse data, long computedAt);
+
+    /**
+     * Stores a response along with the time it took to compute, which is used to rank it against other entries
+     */
+    public ActionResponse put(final String key, ActionResponse data, long computedAt, long costMillis);
+
     public ActionResponse get(final String key);
 
+    /**
+     * @return cached response along with the time it was computed at, null if not present
+     */
+    public CachedResponse getEntry(final String key);
+
     public boolean has(final String key);
 }
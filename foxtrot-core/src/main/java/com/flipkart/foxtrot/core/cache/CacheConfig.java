@@ -0,0 +1,291 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.cache;
+
+import com.flipkart.foxtrot.core.cache.impl.DistributedCache;
+
+import javax.validation.constraints.Min;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Configuration for the action response caches
+ */
+public class CacheConfig {
+
+    /**
+     * Keep deserialized responses in a local tier in front of the distributed cache
+     */
+    private boolean localEnabled = true;
+
+    /**
+     * Budget of the local tier of each cache, measured in encoded response bytes
+     */
+    @Min(1)
+    private long localMaxSizeBytes = 32 * 1024 * 1024;
+
+    @Min(1)
+    private int localTtlSeconds = 10;
+
+    /**
+     * Responses with a larger encoded (compressed) size are not cached
+     */
+    @Min(1)
+    private int maxValueSizeBytes = DistributedCache.DEFAULT_MAX_VALUE_SIZE_BYTES;
+
+    /**
+     * Overrides of maxValueSizeBytes by action opcode
+     */
+    private Map<String, Integer> opcodeMaxValueSizeBytes = Collections.emptyMap();
+
+    /**
+     * Cache finalized buckets of trend, histogram and stats trend results, so that repeated queries over a moving
+     * time range only fetch the newest buckets
+     */
+    private boolean bucketCacheEnabled = true;
+
+    /**
+     * Total number of buckets kept in the bucket cache
+     */
+    @Min(1)
+    private long bucketCacheMaxBuckets = 1000000;
+
+    @Min(1)
+    private int bucketCacheExpireAfterAccessSeconds = 3600;
+
+    /**
+     * Buckets are considered final only this long after their end, to allow for late documents
+     */
+    @Min(0)
+    private int bucketSettleSeconds = 60;
+
+    /**
+     * Keep cached responses until a write lands in their time range, instead of expiring them after a few seconds
+     */
+    private boolean writeInvalidationEnabled = true;
+
+    /**
+     * Upper bound on the life of a cached response when write invalidation is enabled
+     */
+    @Min(1)
+    private int writeInvalidationTtlSeconds = 3600;
+
+    /**
+     * Writes up to this long before a response was computed still invalidate it, to allow for index refresh and
+     * clock differences between nodes
+     */
+    @Min(0)
+    private long writeWatermarkMarginMillis = 5000;
+
+    /**
+     * Interval at which locally recorded writes are published to the cluster
+     */
+    @Min(1)
+    private long writeWatermarkFlushMillis = 1000;
+
+    /**
+     * Rank cached responses by execution time saved per byte, and keep the entries each node writes into a cache
+     * within a memory budget
+     */
+    private boolean costAwareEvictionEnabled = true;
+
+    /**
+     * Budget of the encoded size of the entries each node writes into a cache, or keeps in it when off heap
+     */
+    @Min(1)
+    private long maxSizeBytes = 64 * 1024 * 1024;
+
+    /**
+     * Overrides of maxSizeBytes by action opcode
+     */
+    private Map<String, Long> opcodeMaxSizeBytes = Collections.emptyMap();
+
+    /**
+     * Keep responses in node local direct memory instead of hazelcast. Results of async requests can then only be
+     * fetched from the node that ran them. -XX:MaxDirectMemorySize has to cover the budgets of all caches.
+     */
+    private boolean offHeapEnabled = false;
+
+    /**
+     * Size of each direct buffer allocated for off heap caches, responses can not be larger than this
+     */
+    @Min(65536)
+    private int offHeapPageSizeBytes = 1024 * 1024;
+
+    public CacheConfig() {
+    }
+
+    public boolean isLocalEnabled() {
+        return localEnabled;
+    }
+
+    public void setLocalEnabled(boolean localEnabled) {
+        this.localEnabled = localEnabled;
+    }
+
+    public long getLocalMaxSizeBytes() {
+        return localMaxSizeBytes;
+    }
+
+    public void setLocalMaxSizeBytes(long localMaxSizeBytes) {
+        this.localMaxSizeBytes = localMaxSizeBytes;
+    }
+
+    public int getLocalTtlSeconds() {
+        return localTtlSeconds;
+    }
+
+    public void setLocalTtlSeconds(int localTtlSeconds) {
+        this.localTtlSeconds = localTtlSeconds;
+    }
+
+    public int getMaxValueSizeBytes() {
+        return maxValueSizeBytes;
+    }
+
+    public void setMaxValueSizeBytes(int maxValueSizeBytes) {
+        this.maxValueSizeBytes = maxValueSizeBytes;
+    }
+
+    public Map<String, Integer> getOpcodeMaxValueSizeBytes() {
+        return opcodeMaxValueSizeBytes;
+    }
+
+    public void setOpcodeMaxValueSizeBytes(Map<String, Integer> opcodeMaxValueSizeBytes) {
+        this.opcodeMaxValueSizeBytes = opcodeMaxValueSizeBytes;
+    }
+
+    public boolean isBucketCacheEnabled() {
+        return bucketCacheEnabled;
+    }
+
+    public void setBucketCacheEnabled(boolean bucketCacheEnabled) {
+        this.bucketCacheEnabled = bucketCacheEnabled;
+    }
+
+    public long getBucketCacheMaxBuckets() {
+        return bucketCacheMaxBuckets;
+    }
+
+    public void setBucketCacheMaxBuckets(long bucketCacheMaxBuckets) {
+        this.bucketCacheMaxBuckets = bucketCacheMaxBuckets;
+    }
+
+    public int getBucketCacheExpireAfterAccessSeconds() {
+        return bucketCacheExpireAfterAccessSeconds;
+    }
+
+    public void setBucketCacheExpireAfterAccessSeconds(int bucketCacheExpireAfterAccessSeconds) {
+        this.bucketCacheExpireAfterAccessSeconds = bucketCacheExpireAfterAccessSeconds;
+    }
+
+    public int getBucketSettleSeconds() {
+        return bucketSettleSeconds;
+    }
+
+    public void setBucketSettleSeconds(int bucketSettleSeconds) {
+        this.bucketSettleSeconds = bucketSettleSeconds;
+    }
+
+    public boolean isWriteInvalidationEnabled() {
+        return writeInvalidationEnabled;
+    }
+
+    public void setWriteInvalidationEnabled(boolean writeInvalidationEnabled) {
+        this.writeInvalidationEnabled = writeInvalidationEnabled;
+    }
+
+    public int getWriteInvalidationTtlSeconds() {
+        return writeInvalidationTtlSeconds;
+    }
+
+    public void setWriteInvalidationTtlSeconds(int writeInvalidationTtlSeconds) {
+        this.writeInvalidationTtlSeconds = writeInvalidationTtlSeconds;
+    }
+
+    public long getWriteWatermarkMarginMillis() {
+        return writeWatermarkMarginMillis;
+    }
+
+    public void setWriteWatermarkMarginMillis(long writeWatermarkMarginMillis) {
+        this.writeWatermarkMarginMillis = writeWatermarkMarginMillis;
+    }
+
+    public long getWriteWatermarkFlushMillis() {
+        return writeWatermarkFlushMillis;
+    }
+
+    public void setWriteWatermarkFlushMillis(long writeWatermarkFlushMillis) {
+        this.writeWatermarkFlushMillis = writeWatermarkFlushMillis;
+    }
+
+    public boolean isCostAwareEvictionEnabled() {
+        return costAwareEvictionEnabled;
+    }
+
+    public void setCostAwareEvictionEnabled(boolean costAwareEvictionEnabled) {
+        this.costAwareEvictionEnabled = costAwareEvictionEnabled;
+    }
+
+    public long getMaxSizeBytes() {
+        return maxSizeBytes;
+    }
+
+    public void setMaxSizeBytes(long maxSizeBytes) {
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    public Map<String, Long> getOpcodeMaxSizeBytes() {
+        return opcodeMaxSizeBytes;
+    }
+
+    public void setOpcodeMaxSizeBytes(Map<String, Long> opcodeMaxSizeBytes) {
+        this.opcodeMaxSizeBytes = opcodeMaxSizeBytes;
+    }
+
+    public boolean isOffHeapEnabled() {
+        return offHeapEnabled;
+    }
+
+    public void setOffHeapEnabled(boolean offHeapEnabled) {
+        this.offHeapEnabled = offHeapEnabled;
+    }
+
+    public int getOffHeapPageSizeBytes() {
+        return offHeapPageSizeBytes;
+    }
+
+    public void setOffHeapPageSizeBytes(int offHeapPageSizeBytes) {
+        this.offHeapPageSizeBytes = offHeapPageSizeBytes;
+    }
+
+    public int maxValueSizeBytesFor(String opcode) {
+        Integer maxValueSize = (null != opcodeMaxValueSizeBytes) ? opcodeMaxValueSizeBytes.get(opcode) : null;
+        return (null != maxValueSize) ? maxValueSize : maxValueSizeBytes;
+    }
+
+    public long maxSizeBytesFor(String opcode) {
+        Long maxSize = (null != opcodeMaxSizeBytes) ? opcodeMaxSizeBytes.get(opcode) : null;
+        return (null != maxSize) ? maxSize : maxSizeBytes;
+    }
+
+    /**
+     * @return time to live of entries in the distributed cache maps
+     */
+    public int distributedTtlSeconds() {
+        return writeInvalidationEnabled ? writeInvalidationTtlSeconds : DistributedCache.DEFAULT_TTL_SECONDS;
+    }
+}
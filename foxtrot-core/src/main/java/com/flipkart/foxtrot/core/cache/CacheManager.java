@@ -11,9 +11,25 @@ public class CacheManager {
 
     private final Map<String, Cache> cacheMap = new HashMap<>();
     private CacheFactory cacheFactory;
+    private final SingleFlight singleFlight = new SingleFlight();
+    private final TimeSeriesCache timeSeriesCache;
+    private final TableWatermarks tableWatermarks;
 
     public CacheManager(CacheFactory cacheFactory) {
+        this(cacheFactory, new CacheConfig());
+    }
+
+    public CacheManager(CacheFactory cacheFactory, CacheConfig cacheConfig) {
+        this(cacheFactory, cacheConfig, null);
+    }
+
+    /**
+     * @param tableWatermarks Used to validate cached responses against writes, null to rely on expiry alone
+     */
+    public CacheManager(CacheFactory cacheFactory, CacheConfig cacheConfig, TableWatermarks tableWatermarks) {
         this.cacheFactory = cacheFactory;
+        this.timeSeriesCache = cacheConfig.isBucketCacheEnabled() ? new TimeSeriesCache(cacheConfig) : null;
+        this.tableWatermarks = tableWatermarks;
     }
 
     public void create(String name) {
@@ -23,4 +39,22 @@ public class CacheManager {
     public Cache getCacheFor(String name) {
         return cacheMap.get(name);
     }
+
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * @return bucket cache for time series actions, null if disabled
+     */
+    public TimeSeriesCache getTimeSeriesCache() {
+        return timeSeriesCache;
+    }
+
+    /**
+     * @return write watermarks of tables, null if cached responses are not validated against writes
+     */
+    public TableWatermarks getTableWatermarks() {
+        return tableWatermarks;
+    }
 }
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.cache;
+
+import com.flipkart.foxtrot.common.ActionResponse;
+
+/**
+ * A cached response along with the time it was computed at
+ */
+public class CachedResponse {
+    private final ActionResponse response;
+    private final long computedAt;
+
+    public CachedResponse(ActionResponse response, long computedAt) {
+        this.response = response;
+        this.computedAt = computedAt;
+    }
+
+    public ActionResponse getResponse() {
+        return response;
+    }
+
+    public long getComputedAt() {
+        return computedAt;
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.cache;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission and eviction for the entries a node writes into one cache, within a memory budget. Entries are ranked
+ * by the work they save per byte: execution time of the query times how often the key is looked up, divided by the
+ * encoded size. Once the budget is exceeded the lowest ranked entries are evicted, and new entries ranked below the
+ * last evicted one are not admitted.
+ */
+public class CostAwarePolicy {
+    private static final long PURGE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    // Evict down to this fraction of the budget, so that a sweep is not needed on every put
+    private static final double SWEEP_TARGET = 0.9;
+
+    private final long budgetBytes;
+    private final long ttlMillis;
+    private final FrequencySketch sketch = new FrequencySketch(1 << 16);
+    private final ConcurrentMap<String, EntryCost> entries = new ConcurrentHashMap<>();
+    private final AtomicLong usedBytes = new AtomicLong();
+    private volatile double admissionThreshold = 0;
+    private volatile long nextPurge = 0;
+
+    /**
+     * @param budgetBytes Budget of the encoded size of the entries tracked
+     * @param ttlMillis   Time after which the cache expires an entry by itself
+     */
+    public CostAwarePolicy(long budgetBytes, long ttlMillis) {
+        this.budgetBytes = budgetBytes;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @return policy for the named cache, null if cost aware eviction is disabled
+     */
+    public static CostAwarePolicy forCache(CacheConfig cacheConfig, String name) {
+        if (!cacheConfig.isCostAwareEvictionEnabled()) {
+            return null;
+        }
+        return new CostAwarePolicy(cacheConfig.maxSizeBytesFor(name),
+                TimeUnit.SECONDS.toMillis(cacheConfig.distributedTtlSeconds()));
+    }
+
+    /**
+     * Records a lookup of the key, whether it was found or not
+     */
+    public void recordAccess(String key) {
+        sketch.increment(key.hashCode());
+    }
+
+    /**
+     * Stops tracking an entry that is no longer in the cache
+     */
+    public void remove(String key) {
+        EntryCost removed = entries.remove(key);
+        if (null != removed) {
+            usedBytes.addAndGet(-removed.size);
+        }
+    }
+
+    /**
+     * Decides whether an entry is to be stored and tracks it if so.
+     *
+     * @return keys to be removed from the cache to stay within the budget, null if the entry is not to be stored
+     */
+    public List<String> admit(String key, int size, long costMillis) {
+        final long now = System.currentTimeMillis();
+        if (now >= nextPurge) {
+            purgeExpired(now);
+        }
+        if (size > budgetBytes) {
+            return null;
+        }
+        final boolean full = usedBytes.get() + size > budgetBytes;
+        if (full && score(key, size, costMillis) < admissionThreshold) {
+            return null;
+        }
+        EntryCost previous = entries.put(key, new EntryCost(size, costMillis, now + ttlMillis));
+        usedBytes.addAndGet(size - ((null != previous) ? previous.size : 0));
+        if (usedBytes.get() <= budgetBytes) {
+            return Collections.emptyList();
+        }
+        return evict(key);
+    }
+
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    private synchronized List<String> evict(String admittedKey) {
+        final long target = (long) (budgetBytes * SWEEP_TARGET);
+        if (usedBytes.get() <= target) {
+            return Collections.emptyList();
+        }
+        List<Map.Entry<String, Double>> candidates = new ArrayList<>(entries.size());
+        for (Map.Entry<String, EntryCost> entry : entries.entrySet()) {
+            if (!entry.getKey().equals(admittedKey)) {
+                EntryCost cost = entry.getValue();
+                candidates.add(new AbstractMap.SimpleImmutableEntry<>(
+                        entry.getKey(), score(entry.getKey(), cost.size, cost.costMillis)));
+            }
+        }
+        candidates.sort(Map.Entry.comparingByValue());
+        List<String> victims = new ArrayList<>();
+        for (Map.Entry<String, Double> candidate : candidates) {
+            if (usedBytes.get() <= target) {
+                break;
+            }
+            remove(candidate.getKey());
+            victims.add(candidate.getKey());
+            admissionThreshold = candidate.getValue();
+        }
+        return victims;
+    }
+
+    private synchronized void purgeExpired(long now) {
+        if (now < nextPurge) {
+            return;
+        }
+        for (Map.Entry<String, EntryCost> entry : entries.entrySet()) {
+            if (entry.getValue().expiresAt <= now) {
+                remove(entry.getKey());
+            }
+        }
+        // Let the threshold drift back down so that a past burst of valuable entries doesn't block admission forever
+        admissionThreshold /= 2;
+        nextPurge = now + PURGE_INTERVAL_MILLIS;
+    }
+
+    private double score(String key, int size, long costMillis) {
+        return (double) Math.max(costMillis, 1) * (1 + sketch.frequency(key.hashCode())) / Math.max(size, 1);
+    }
+
+    private static final class EntryCost {
+        private final int size;
+        private final long costMillis;
+        private final long expiresAt;
+
+        private EntryCost(int size, long costMillis, long expiresAt) {
+            this.size = size;
+            this.costMillis = costMillis;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Count-min sketch of recent lookups with 4 bit counters. All counters are halved periodically, so that the
+     * frequency reflects recent popularity.
+     */
+    static final class FrequencySketch {
+        private static final long[] SEEDS = {
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final int MAX_COUNT = 15;
+
+        private final byte[][] counters;
+        private final int mask;
+        private final int resetAfter;
+        private int additions;
+
+        FrequencySketch(int width) {
+            this.counters = new byte[SEEDS.length][width];
+            this.mask = width - 1;
+            this.resetAfter = 10 * width;
+        }
+
+        synchronized void increment(int hash) {
+            for (int row = 0; row < SEEDS.length; row++) {
+                int index = index(hash, row);
+                if (counters[row][index] < MAX_COUNT) {
+                    counters[row][index]++;
+                }
+            }
+            if (++additions >= resetAfter) {
+                for (byte[] row : counters) {
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] >>= 1;
+                    }
+                }
+                additions /= 2;
+            }
+        }
+
+        synchronized int frequency(int hash) {
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < SEEDS.length; row++) {
+                frequency = Math.min(frequency, counters[row][index(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private int index(int hash, int row) {
+            long spread = (hash + SEEDS[row]) * SEEDS[row];
+            return (int) (spread >>> 32) & mask;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.cache;
+
+import com.flipkart.foxtrot.common.ActionResponse;
+import com.flipkart.foxtrot.core.exception.FoxtrotException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent executions of the same cacheable request on this node. The first caller for a key runs the
+ * loader, callers arriving while it runs wait for and share its result (or exception).
+ * <p>
+ * Every non blocking caller gets a future of its own, cancelling it only detaches that caller. The execution itself
+ * is cancelled once every caller waiting for it has cancelled.
+ */
+public class SingleFlight {
+
+    public interface Loader {
+        ActionResponse load() throws FoxtrotException;
+    }
+
+    public interface AsyncLoader {
+        CompletableFuture<ActionResponse> load() throws FoxtrotException;
+    }
+
+    private final ConcurrentMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    public ActionResponse execute(String key, Loader loader) throws FoxtrotException {
+        Flight flight = new Flight();
+        Flight existing = join(key, flight);
+        if (null != existing) {
+            return await(existing.result);
+        }
+        try {
+            ActionResponse response = loader.load();
+            flight.result.complete(response);
+            return response;
+        } catch (FoxtrotException | RuntimeException e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Non blocking variant of {@link #execute(String, Loader)}, shares in flight executions with it
+     */
+    public CompletableFuture<ActionResponse> executeAsync(String key, AsyncLoader loader) {
+        Flight flight = new Flight();
+        Flight existing = join(key, flight);
+        if (null != existing) {
+            return existing.waiter();
+        }
+        CompletableFuture<ActionResponse> waiter = flight.waiter();
+        CompletableFuture<ActionResponse> loaded;
+        try {
+            loaded = loader.load();
+        } catch (FoxtrotException | RuntimeException e) {
+            loaded = new CompletableFuture<>();
+            loaded.completeExceptionally(e);
+        }
+        flight.loaded(loaded);
+        loaded.whenComplete((response, error) -> {
+            inFlight.remove(key, flight);
+            if (null != error) {
+                flight.result.completeExceptionally((error instanceof CompletionException && null != error.getCause())
+                        ? error.getCause() : error);
+            } else {
+                flight.result.complete(response);
+            }
+        });
+        return waiter;
+    }
+
+    int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Registers the caller with the flight in progress for the key, or installs the given one
+     *
+     * @return flight the caller was added to, null if the given flight was installed
+     */
+    private Flight join(String key, Flight flight) {
+        while (true) {
+            Flight existing = inFlight.putIfAbsent(key, flight);
+            if (null == existing) {
+                flight.join();
+                return null;
+            }
+            if (existing.join()) {
+                return existing;
+            }
+            // Abandoned by all of its callers and about to be cancelled
+            inFlight.remove(key, existing);
+        }
+    }
+
+    private static ActionResponse await(CompletableFuture<ActionResponse> future) throws FoxtrotException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof FoxtrotException) {
+                throw (FoxtrotException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private final class Flight {
+        private final CompletableFuture<ActionResponse> result = new CompletableFuture<>();
+        private CompletableFuture<ActionResponse> loaded;
+        private int waiters;
+        private boolean abandoned;
+
+        private synchronized boolean join() {
+            if (abandoned) {
+                return false;
+            }
+            waiters++;
+            return true;
+        }
+
+        /**
+         * @return future of a caller that already joined, which detaches the caller when cancelled. Blocking callers
+         * never detach, so they keep the execution alive.
+         */
+        private CompletableFuture<ActionResponse> waiter() {
+            CompletableFuture<ActionResponse> waiter = result.thenApply(Function.identity());
+            waiter.whenComplete((response, error) -> {
+                if (waiter.isCancelled()) {
+                    leave();
+                }
+            });
+            return waiter;
+        }
+
+        private void loaded(CompletableFuture<ActionResponse> loaded) {
+            boolean cancel;
+            synchronized (this) {
+                this.loaded = loaded;
+                cancel = abandoned;
+            }
+            if (cancel) {
+                loaded.cancel(true);
+            }
+        }
+
+        private void leave() {
+            CompletableFuture<ActionResponse> toCancel;
+            synchronized (this) {
+                if (--waiters > 0 || abandoned) {
+                    return;
+                }
+                abandoned = true;
+                toCancel = loaded;
+            }
+            if (null != toCancel) {
+                toCancel.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.cache;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Last write times of a table, by hour of the timestamps of the written documents. Old hours are folded into a
+ * single floor value, so that the size stays bounded.
+ */
+public class TableWatermark implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final TreeMap<Long, Long> writesByBucket = new TreeMap<>();
+    private long floorBucket = Long.MIN_VALUE;
+    private long floorWrite = 0;
+
+    public void update(Map<Long, Long> writes, int maxBuckets) {
+        for (Map.Entry<Long, Long> write : writes.entrySet()) {
+            if (write.getKey() <= floorBucket) {
+                floorWrite = Math.max(floorWrite, write.getValue());
+            } else {
+                writesByBucket.merge(write.getKey(), write.getValue(), Math::max);
+            }
+        }
+        while (writesByBucket.size() > maxBuckets) {
+            Map.Entry<Long, Long> oldest = writesByBucket.pollFirstEntry();
+            floorBucket = oldest.getKey();
+            floorWrite = Math.max(floorWrite, oldest.getValue());
+        }
+    }
+
+    /**
+     * @return latest write time of documents in buckets [fromBucket, toBucket], 0 if there was none
+     */
+    public long lastWrite(long fromBucket, long toBucket) {
+        long lastWrite = (fromBucket <= floorBucket) ? floorWrite : 0;
+        for (long write : writesByBucket.subMap(fromBucket, true, toBucket, true).values()) {
+            lastWrite = Math.max(lastWrite, write);
+        }
+        return lastWrite;
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.cache;
+
+import com.flipkart.foxtrot.common.Document;
+import com.flipkart.foxtrot.core.querystore.impl.HazelcastConnection;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.config.NearCacheConfig;
+import com.hazelcast.core.IMap;
+import com.hazelcast.map.AbstractEntryProcessor;
+import com.yammer.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks when each table was last written to, per hour of document timestamps, across the cluster. Writes are
+ * collected locally and merged into a hazelcast map at a fixed interval, readers go through a near cache. A cached
+ * result is still valid as long as no write landed in its time window after it was computed.
+ */
+public class TableWatermarks implements Managed {
+    private static final Logger logger = LoggerFactory.getLogger(TableWatermarks.class.getSimpleName());
+
+    private static final String MAP_NAME = "table-write-watermarks";
+    private static final long BUCKET_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int MAX_BUCKETS = 14 * 24;
+
+    private final HazelcastConnection hazelcastConnection;
+    private final long marginMillis;
+    private final long flushIntervalMillis;
+    private final ConcurrentMap<String, ConcurrentMap<Long, Long>> pendingWrites = new ConcurrentHashMap<>();
+    private IMap<String, TableWatermark> watermarks;
+    private ScheduledExecutorService flusher;
+
+    public TableWatermarks(HazelcastConnection hazelcastConnection, CacheConfig cacheConfig) {
+        this.hazelcastConnection = hazelcastConnection;
+        this.marginMillis = cacheConfig.getWriteWatermarkMarginMillis();
+        this.flushIntervalMillis = cacheConfig.getWriteWatermarkFlushMillis();
+        MapConfig mapConfig = hazelcastConnection.getHazelcastConfig().getMapConfig(MAP_NAME);
+        NearCacheConfig nearCacheConfig = new NearCacheConfig();
+        nearCacheConfig.setInvalidateOnChange(true);
+        mapConfig.setNearCacheConfig(nearCacheConfig);
+    }
+
+    @Override
+    public void start() throws Exception {
+        logger.info("Starting Table Watermarks");
+        watermarks = hazelcastConnection.getHazelcast().getMap(MAP_NAME);
+        flusher = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("table-watermark-flush-%d").setDaemon(true).build());
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Started Table Watermarks");
+    }
+
+    @Override
+    public void stop() throws Exception {
+        logger.info("Stopping Table Watermarks");
+        flusher.shutdown();
+        flusher.awaitTermination(flushIntervalMillis, TimeUnit.MILLISECONDS);
+        flush();
+        logger.info("Stopped Table Watermarks");
+    }
+
+    /**
+     * Records that the given documents were written to the table just now
+     */
+    public void recordWrite(String table, List<Document> documents) {
+        final long now = System.currentTimeMillis();
+        ConcurrentMap<Long, Long> tableWrites = pendingWrites.computeIfAbsent(table, key -> new ConcurrentHashMap<>());
+        for (Document document : documents) {
+            tableWrites.merge(bucket(document.getTimestamp()), now, Math::max);
+        }
+    }
+
+    /**
+     * @return true if no document with a timestamp in [from, to] was written after computedAt (minus a margin for
+     * index refresh and clock differences)
+     */
+    public boolean isUnchanged(String table, long from, long to, long computedAt) {
+        final long fromBucket = bucket(from);
+        final long toBucket = bucket(to);
+        long lastWrite = 0;
+        ConcurrentMap<Long, Long> tableWrites = pendingWrites.get(table);
+        if (null != tableWrites) {
+            for (Map.Entry<Long, Long> write : tableWrites.entrySet()) {
+                if (write.getKey() >= fromBucket && write.getKey() <= toBucket) {
+                    lastWrite = Math.max(lastWrite, write.getValue());
+                }
+            }
+        }
+        if (null != watermarks) {
+            try {
+                TableWatermark watermark = watermarks.get(table);
+                if (null != watermark) {
+                    lastWrite = Math.max(lastWrite, watermark.lastWrite(fromBucket, toBucket));
+                }
+            } catch (Exception e) {
+                logger.error("Error reading write watermark of table {}", table, e);
+                return false;
+            }
+        }
+        return lastWrite < computedAt - marginMillis;
+    }
+
+    void flush() {
+        for (Map.Entry<String, ConcurrentMap<Long, Long>> tableWrites : pendingWrites.entrySet()) {
+            HashMap<Long, Long> writes = new HashMap<>(tableWrites.getValue());
+            if (writes.isEmpty()) {
+                continue;
+            }
+            try {
+                watermarks.executeOnKey(tableWrites.getKey(), new WatermarkUpdate(writes));
+                // Keep writes that were recorded meanwhile for the next flush
+                for (Map.Entry<Long, Long> write : writes.entrySet()) {
+                    tableWrites.getValue().remove(write.getKey(), write.getValue());
+                }
+            } catch (Exception e) {
+                logger.error("Error publishing write watermark of table {}", tableWrites.getKey(), e);
+            }
+        }
+    }
+
+    private static long bucket(long timestamp) {
+        return timestamp - Math.floorMod(timestamp, BUCKET_MILLIS);
+    }
+
+    private static class WatermarkUpdate extends AbstractEntryProcessor<String, TableWatermark> {
+        private static final long serialVersionUID = 1L;
+
+        private final HashMap<Long, Long> writes;
+
+        private WatermarkUpdate(HashMap<Long, Long> writes) {
+            this.writes = writes;
+        }
+
+        @Override
+        public Object process(Map.Entry<String, TableWatermark> entry) {
+            TableWatermark watermark = (null != entry.getValue()) ? entry.getValue() : new TableWatermark();
+            watermark.update(writes, MAX_BUCKETS);
+            entry.setValue(watermark);
+            return null;
+        }
+    }
+}
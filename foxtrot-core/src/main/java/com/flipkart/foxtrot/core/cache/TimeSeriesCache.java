@@ -0,0 +1,135 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local cache of finalized time series buckets. A series is identified by a key covering everything in a request
+ * except its time range (table, canonical filters, field, period), and maps the start of each bucket to its value.
+ * Buckets that were queried but had no data are kept as {@link #EMPTY_BUCKET}, so that they are not fetched again.
+ * Every bucket remembers when it was computed, so that readers can check it against later writes to its time range.
+ */
+public class TimeSeriesCache {
+    public static final Object EMPTY_BUCKET = new Object();
+
+    public static class Bucket {
+        private final Object value;
+        private final long cachedAt;
+
+        public Bucket(Object value, long cachedAt) {
+            this.value = value;
+            this.cachedAt = cachedAt;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public long getCachedAt() {
+            return cachedAt;
+        }
+    }
+
+    /**
+     * Number of buckets retained per series, older buckets are dropped first
+     */
+    public static final int MAX_BUCKETS_PER_SERIES = 10000;
+
+    private final Cache<String, NavigableMap<Long, Bucket>> series;
+    private final long settleMillis;
+
+    public TimeSeriesCache(CacheConfig config) {
+        this.series = CacheBuilder.newBuilder()
+                .maximumWeight(config.getBucketCacheMaxBuckets())
+                .weigher(new Weigher<String, NavigableMap<Long, Bucket>>() {
+                    @Override
+                    public int weigh(String key, NavigableMap<Long, Bucket> buckets) {
+                        return buckets.size() + 1;
+                    }
+                })
+                .expireAfterAccess(config.getBucketCacheExpireAfterAccessSeconds(), TimeUnit.SECONDS)
+                .build();
+        this.settleMillis = TimeUnit.SECONDS.toMillis(config.getBucketSettleSeconds());
+    }
+
+    /**
+     * Buckets ending less than this long ago are never cached, they may still receive late documents
+     */
+    public long getSettleMillis() {
+        return settleMillis;
+    }
+
+    /**
+     * @return cached buckets starting in [from, to), never null
+     */
+    public NavigableMap<Long, Bucket> get(String key, long from, long to) {
+        NavigableMap<Long, Bucket> buckets = series.getIfPresent(key);
+        if (null == buckets) {
+            return Collections.emptyNavigableMap();
+        }
+        return buckets.subMap(from, true, to, false);
+    }
+
+    /**
+     * @param cachedAt time at which computing the buckets started
+     */
+    public void put(String key, Map<Long, Object> buckets, long cachedAt) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        // Series are replaced as a whole so that the cache weight stays accurate
+        NavigableMap<Long, Bucket> existing = series.getIfPresent(key);
+        TreeMap<Long, Bucket> merged = (null == existing) ? new TreeMap<Long, Bucket>() : new TreeMap<>(existing);
+        for (Map.Entry<Long, Object> bucket : buckets.entrySet()) {
+            merged.put(bucket.getKey(), new Bucket(bucket.getValue(), cachedAt));
+        }
+        while (merged.size() > MAX_BUCKETS_PER_SERIES) {
+            merged.pollFirstEntry();
+        }
+        series.put(key, Collections.unmodifiableNavigableMap(merged));
+    }
+
+    /**
+     * Drops the given buckets of a series, for example when they received writes after they were cached
+     */
+    public void invalidate(String key, Collection<Long> buckets) {
+        NavigableMap<Long, Bucket> existing = series.getIfPresent(key);
+        if (null == existing || buckets.isEmpty()) {
+            return;
+        }
+        TreeMap<Long, Bucket> remaining = new TreeMap<>(existing);
+        remaining.keySet().removeAll(buckets);
+        if (remaining.isEmpty()) {
+            series.invalidate(key);
+        } else {
+            series.put(key, Collections.unmodifiableNavigableMap(remaining));
+        }
+    }
+
+    public long size() {
+        return series.size();
+    }
+}
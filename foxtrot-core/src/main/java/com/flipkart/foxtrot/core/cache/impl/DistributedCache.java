@@ -19,7 +19,13 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.flipkart.foxtrot.common.ActionResponse;
 import com.flipkart.foxtrot.core.cache.Cache;
+import com.flipkart.foxtrot.core.cache.CachedResponse;
+import com.flipkart.foxtrot.core.cache.CostAwarePolicy;
 import com.flipkart.foxtrot.core.querystore.impl.HazelcastConnection;
+import com.flipkart.foxtrot.core.util.MetricUtil;
+import com.flipkart.foxtrot.core.util.codec.DocumentCodec;
+import com.flipkart.foxtrot.core.util.codec.Lz4DocumentCodec;
+import com.flipkart.foxtrot.core.util.codec.SmileDocumentCodec;
 import com.hazelcast.config.InMemoryFormat;
 import com.hazelcast.config.MapConfig;
 import com.hazelcast.config.NearCacheConfig;
@@ -28,6 +34,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
 
 /**
  * User: Santanu Sinha (santanu.sinha@flipkart.com)
@@ -36,59 +44,163 @@ import java.io.IOException;
  */
 
 public class DistributedCache implements Cache {
-    private static final String NAME_PREFIX = "cache-for-";
+    private static final String NAME_PREFIX = "binary-cache-v2-for-";
+    public static final int DEFAULT_MAX_VALUE_SIZE_BYTES = 256 * 1024;
+    public static final int DEFAULT_TTL_SECONDS = 10;
+    // Stored values start with the time the response was computed at
+    private static final int HEADER_BYTES = Long.BYTES;
 
     private static final Logger logger = LoggerFactory.getLogger(DistributedCache.class.getSimpleName());
-    private final IMap<String, String> distributedMap;
-    private final ObjectMapper mapper;
+    private final IMap<String, byte[]> distributedMap;
+    private final String name;
+    private final DocumentCodec codec;
+    private final int maxValueSizeBytes;
+    private final CostAwarePolicy policy;
 
     public static void setupConfig(HazelcastConnection hazelcastConnection) {
+        setupConfig(hazelcastConnection, DEFAULT_TTL_SECONDS);
+    }
+
+    /**
+     * @param ttlSeconds Time to live and max idle time of entries. Can be long when entries are validated against
+     *                   {@link com.flipkart.foxtrot.core.cache.TableWatermarks} on read.
+     */
+    public static void setupConfig(HazelcastConnection hazelcastConnection, int ttlSeconds) {
         MapConfig mapConfig = hazelcastConnection.getHazelcastConfig().getMapConfig(NAME_PREFIX + "*");
         mapConfig.setInMemoryFormat(InMemoryFormat.BINARY);
-        mapConfig.setTimeToLiveSeconds(10);
-        mapConfig.setMaxIdleSeconds(10);
+        mapConfig.setTimeToLiveSeconds(ttlSeconds);
+        mapConfig.setMaxIdleSeconds(ttlSeconds);
         mapConfig.setBackupCount(0);
         NearCacheConfig nearCacheConfig = new NearCacheConfig();
-        nearCacheConfig.setTimeToLiveSeconds(10);
+        nearCacheConfig.setTimeToLiveSeconds(ttlSeconds);
         nearCacheConfig.setInvalidateOnChange(true);
-        nearCacheConfig.setMaxIdleSeconds(10);
+        nearCacheConfig.setMaxIdleSeconds(ttlSeconds);
         mapConfig.setNearCacheConfig(nearCacheConfig);
     }
 
     public DistributedCache(HazelcastConnection hazelcastConnection, String name, ObjectMapper mapper) {
+        this(hazelcastConnection, name, mapper, DEFAULT_MAX_VALUE_SIZE_BYTES);
+    }
+
+    public DistributedCache(HazelcastConnection hazelcastConnection, String name, ObjectMapper mapper,
+                            int maxValueSizeBytes) {
+        this(hazelcastConnection, name, mapper, maxValueSizeBytes, null);
+    }
+
+    public DistributedCache(HazelcastConnection hazelcastConnection, String name, ObjectMapper mapper,
+                            int maxValueSizeBytes, CostAwarePolicy policy) {
+        this(hazelcastConnection, name, new Lz4DocumentCodec(new SmileDocumentCodec(mapper)), maxValueSizeBytes,
+                policy);
+    }
+
+    /**
+     * @param codec             Encodes responses into the bytes stored in the map
+     * @param maxValueSizeBytes Responses with a larger encoded size are not cached
+     */
+    public DistributedCache(HazelcastConnection hazelcastConnection, String name, DocumentCodec codec,
+                            int maxValueSizeBytes) {
+        this(hazelcastConnection, name, codec, maxValueSizeBytes, null);
+    }
+
+    /**
+     * @param policy Decides which responses are stored and which are evicted, null to store everything
+     */
+    public DistributedCache(HazelcastConnection hazelcastConnection, String name, DocumentCodec codec,
+                            int maxValueSizeBytes, CostAwarePolicy policy) {
         this.distributedMap = hazelcastConnection.getHazelcast().getMap(NAME_PREFIX + name);
-        this.mapper = mapper;
+        this.name = name;
+        this.codec = codec;
+        this.maxValueSizeBytes = maxValueSizeBytes;
+        this.policy = policy;
     }
 
     @Override
     public ActionResponse put(String key, ActionResponse data) {
+        return put(key, data, System.currentTimeMillis());
+    }
+
+    @Override
+    public ActionResponse put(String key, ActionResponse data, long computedAt) {
+        return put(key, data, computedAt, 0);
+    }
+
+    @Override
+    public ActionResponse put(String key, ActionResponse data, long computedAt, long costMillis) {
+        store(key, data, computedAt, costMillis);
+        return data;
+    }
+
+    /**
+     * @return size of the encoded response or -1 if it was not stored
+     */
+    int store(String key, ActionResponse data, long computedAt, long costMillis) {
         try {
-            final String serializedData = mapper.writeValueAsString(data);
-            if (serializedData != null) {
-                // Only cache if size is less that 32 KB
-                if (serializedData.length() <= 32 * 1024) {
-                    distributedMap.put(key, mapper.writeValueAsString(data));
-                } else {
-                    logger.error(
-                            String.format("Size of response is too big for cache. Skipping it. Response Part : %s",
-                                    serializedData.substring(0, 1024)));
+            final byte[] encodedResponse = codec.encode(data);
+            final byte[] encodedData = ByteBuffer.allocate(HEADER_BYTES + encodedResponse.length)
+                    .putLong(computedAt)
+                    .put(encodedResponse)
+                    .array();
+            if (encodedData.length > maxValueSizeBytes) {
+                MetricUtil.getInstance().registerActionCacheSkippedForSize(name);
+                logger.warn("Size of response for {} is too big for cache, skipping it. Size: {} Limit: {}",
+                        name, encodedData.length, maxValueSizeBytes);
+                return -1;
+            }
+            if (null != policy) {
+                List<String> evicted = policy.admit(key, encodedData.length, costMillis);
+                if (null == evicted) {
+                    MetricUtil.getInstance().registerActionCacheSkippedForCost(name);
+                    return -1;
                 }
+                for (String evictedKey : evicted) {
+                    distributedMap.removeAsync(evictedKey);
+                }
+                MetricUtil.getInstance().registerActionCacheEvictions(name, evicted.size());
             }
+            distributedMap.put(key, encodedData);
+            return encodedData.length;
         } catch (JsonProcessingException e) {
             logger.error("Error saving value to map: ", e);
         }
-        return data;
+        return -1;
     }
 
     @Override
     public ActionResponse get(String key) {
+        SizedResponse response = load(key);
+        return (null != response) ? response.getResponse() : null;
+    }
+
+    @Override
+    public CachedResponse getEntry(String key) {
+        return load(key);
+    }
+
+    /**
+     * Counts a lookup served from another tier towards the ranking of the entry
+     */
+    void recordAccess(String key) {
+        if (null != policy) {
+            policy.recordAccess(key);
+        }
+    }
+
+    SizedResponse load(String key) {
         if (null == key) {
             return null; //Hazelcast map throws NPE if key is null
         }
-        String data = distributedMap.get(key);
-        if (null != data) {
+        recordAccess(key);
+        byte[] data = distributedMap.get(key);
+        if (null == data && null != policy) {
+            // Expired or evicted by another node
+            policy.remove(key);
+        }
+        if (null != data && data.length > HEADER_BYTES) {
             try {
-                return mapper.readValue(data, ActionResponse.class);
+                final long computedAt = ByteBuffer.wrap(data).getLong();
+                return new SizedResponse(
+                        codec.decode(data, HEADER_BYTES, data.length - HEADER_BYTES, ActionResponse.class),
+                        computedAt, data.length);
             } catch (IOException e) {
                 logger.error("Error deserializing: ", e);
             }
@@ -17,7 +17,9 @@ package com.flipkart.foxtrot.core.cache.impl;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.flipkart.foxtrot.core.cache.Cache;
+import com.flipkart.foxtrot.core.cache.CacheConfig;
 import com.flipkart.foxtrot.core.cache.CacheFactory;
+import com.flipkart.foxtrot.core.cache.CostAwarePolicy;
 import com.flipkart.foxtrot.core.querystore.impl.HazelcastConnection;
 
 /**
@@ -29,14 +31,21 @@ import com.flipkart.foxtrot.core.querystore.impl.HazelcastConnection;
 public class DistributedCacheFactory implements CacheFactory {
     private final HazelcastConnection connection;
     private final ObjectMapper mapper;
+    private final CacheConfig cacheConfig;
 
     public DistributedCacheFactory(HazelcastConnection connection, ObjectMapper mapper) {
+        this(connection, mapper, new CacheConfig());
+    }
+
+    public DistributedCacheFactory(HazelcastConnection connection, ObjectMapper mapper, CacheConfig cacheConfig) {
         this.connection = connection;
         this.mapper = mapper;
+        this.cacheConfig = cacheConfig;
     }
 
     @Override
     public Cache create(String name) {
-        return new DistributedCache(connection, name, mapper);
+        return new DistributedCache(connection, name, mapper, cacheConfig.maxValueSizeBytesFor(name),
+                CostAwarePolicy.forCache(cacheConfig, name));
     }
 }
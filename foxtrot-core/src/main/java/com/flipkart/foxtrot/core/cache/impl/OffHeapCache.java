@@ -0,0 +1,323 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.cache.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flipkart.foxtrot.common.ActionResponse;
+import com.flipkart.foxtrot.core.cache.Cache;
+import com.flipkart.foxtrot.core.cache.CachedResponse;
+import com.flipkart.foxtrot.core.util.MetricUtil;
+import com.flipkart.foxtrot.core.util.codec.DocumentCodec;
+import com.flipkart.foxtrot.core.util.codec.Lz4DocumentCodec;
+import com.flipkart.foxtrot.core.util.codec.SmileDocumentCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Node local cache that keeps encoded responses outside the java heap, in direct buffers of a fixed page size.
+ * Pages are cut into chunks of a size class, the way memcached does it. Each size class keeps its entries in LRU
+ * order and evicts from there when it runs out of chunks. When all pages are taken, a size class without entries to
+ * evict takes over the page of the least recently used entry of another class.
+ * <p>
+ * Only the index lives on the heap. Responses are decoded on every read.
+ */
+public class OffHeapCache implements Cache {
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapCache.class.getSimpleName());
+
+    private static final int MIN_CHUNK_SIZE = 256;
+    private static final double CHUNK_GROWTH_FACTOR = 1.25;
+
+    private final String name;
+    private final DocumentCodec codec;
+    private final int maxValueSizeBytes;
+    private final long ttlMillis;
+    private final int pageSize;
+    private final ByteBuffer[] pages;
+    private final int[] pageClass;
+    private final int[] chunkSizes;
+    private final SizeClass[] sizeClasses;
+    private final Map<String, Entry> index = new HashMap<>();
+    private int allocatedPages = 0;
+
+    public OffHeapCache(String name, ObjectMapper mapper, long maxSizeBytes, int pageSize, int maxValueSizeBytes,
+                        long ttlMillis) {
+        this(name, new Lz4DocumentCodec(new SmileDocumentCodec(mapper)), maxSizeBytes, pageSize, maxValueSizeBytes,
+                ttlMillis);
+    }
+
+    /**
+     * @param maxSizeBytes      Total size of the pages, allocated as needed
+     * @param pageSize          Size of each direct buffer, also the upper bound of the size of a value
+     * @param maxValueSizeBytes Responses with a larger encoded size are not cached
+     * @param ttlMillis         Entries older than this are not served
+     */
+    public OffHeapCache(String name, DocumentCodec codec, long maxSizeBytes, int pageSize, int maxValueSizeBytes,
+                        long ttlMillis) {
+        this.name = name;
+        this.codec = codec;
+        this.pageSize = pageSize;
+        this.maxValueSizeBytes = Math.min(maxValueSizeBytes, pageSize);
+        this.ttlMillis = ttlMillis;
+        final int maxPages = (int) Math.max(1, maxSizeBytes / pageSize);
+        this.pages = new ByteBuffer[maxPages];
+        this.pageClass = new int[maxPages];
+        List<Integer> sizes = new ArrayList<>();
+        for (int size = MIN_CHUNK_SIZE; size < pageSize; size = Math.max(size + 8, (int) (size * CHUNK_GROWTH_FACTOR))) {
+            sizes.add(size);
+        }
+        sizes.add(pageSize);
+        this.chunkSizes = sizes.stream().mapToInt(Integer::intValue).toArray();
+        this.sizeClasses = new SizeClass[chunkSizes.length];
+        for (int i = 0; i < sizeClasses.length; i++) {
+            sizeClasses[i] = new SizeClass();
+        }
+    }
+
+    @Override
+    public ActionResponse put(String key, ActionResponse data) {
+        return put(key, data, System.currentTimeMillis());
+    }
+
+    @Override
+    public ActionResponse put(String key, ActionResponse data, long computedAt) {
+        return put(key, data, computedAt, 0);
+    }
+
+    @Override
+    public ActionResponse put(String key, ActionResponse data, long computedAt, long costMillis) {
+        if (null == key) {
+            return data;
+        }
+        final byte[] encodedData;
+        try {
+            encodedData = codec.encode(data);
+        } catch (JsonProcessingException e) {
+            logger.error("Error saving value to off heap cache: ", e);
+            return data;
+        }
+        if (encodedData.length > maxValueSizeBytes) {
+            MetricUtil.getInstance().registerActionCacheSkippedForSize(name);
+            logger.warn("Size of response for {} is too big for cache, skipping it. Size: {} Limit: {}",
+                    name, encodedData.length, maxValueSizeBytes);
+            return data;
+        }
+        store(key, encodedData, computedAt);
+        return data;
+    }
+
+    @Override
+    public ActionResponse get(String key) {
+        CachedResponse response = getEntry(key);
+        return (null != response) ? response.getResponse() : null;
+    }
+
+    @Override
+    public CachedResponse getEntry(String key) {
+        if (null == key) {
+            return null;
+        }
+        final byte[] data;
+        final long computedAt;
+        synchronized (this) {
+            Entry entry = index.get(key);
+            if (null == entry) {
+                return null;
+            }
+            if (entry.computedAt + ttlMillis < System.currentTimeMillis()) {
+                remove(entry);
+                return null;
+            }
+            // Moves the entry to the most recently used end
+            sizeClasses[entry.sizeClass].entries.get(key);
+            data = new byte[entry.length];
+            ByteBuffer page = pages[entry.page].duplicate();
+            page.position(entry.offset);
+            page.get(data);
+            computedAt = entry.computedAt;
+        }
+        try {
+            return new CachedResponse(codec.decode(data, 0, data.length, ActionResponse.class), computedAt);
+        } catch (IOException e) {
+            logger.error("Error deserializing: ", e);
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized boolean has(String key) {
+        Entry entry = (null != key) ? index.get(key) : null;
+        return null != entry && entry.computedAt + ttlMillis >= System.currentTimeMillis();
+    }
+
+    /**
+     * @return number of bytes taken by the pages allocated so far
+     */
+    public synchronized long getAllocatedBytes() {
+        return (long) allocatedPages * pageSize;
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    private synchronized void store(String key, byte[] data, long computedAt) {
+        Entry existing = index.get(key);
+        if (null != existing) {
+            remove(existing);
+        }
+        final int sizeClassId = sizeClassFor(data.length);
+        final long chunk = allocateChunk(sizeClassId);
+        final Entry entry = new Entry(key, sizeClassId, page(chunk), offset(chunk), data.length, computedAt);
+        ByteBuffer page = pages[entry.page].duplicate();
+        page.position(entry.offset);
+        page.put(data);
+        index.put(key, entry);
+        sizeClasses[sizeClassId].entries.put(key, entry);
+    }
+
+    private long allocateChunk(int sizeClassId) {
+        SizeClass sizeClass = sizeClasses[sizeClassId];
+        if (sizeClass.freeChunks.isEmpty()) {
+            if (allocatedPages < pages.length) {
+                pages[allocatedPages] = ByteBuffer.allocateDirect(pageSize);
+                assignPage(allocatedPages++, sizeClassId);
+            } else if (!sizeClass.entries.isEmpty()) {
+                remove(sizeClass.entries.values().iterator().next());
+            } else {
+                reassignPage(sizeClassId);
+            }
+        }
+        return sizeClass.freeChunks.poll();
+    }
+
+    /**
+     * Takes the page holding the least recently used entry across other size classes, evicting everything on it
+     */
+    private void reassignPage(int sizeClassId) {
+        Entry victim = null;
+        for (SizeClass sizeClass : sizeClasses) {
+            if (!sizeClass.entries.isEmpty()) {
+                Entry eldest = sizeClass.entries.values().iterator().next();
+                if (null == victim || eldest.lastAccess < victim.lastAccess) {
+                    victim = eldest;
+                }
+            }
+        }
+        // With no entries anywhere every page has free chunks, pick one of those
+        final int page = (null != victim) ? victim.page : firstPageWithFreeChunks();
+        final SizeClass owner = sizeClasses[pageClass[page]];
+        Iterator<Entry> entries = owner.entries.values().iterator();
+        while (entries.hasNext()) {
+            Entry entry = entries.next();
+            if (entry.page == page) {
+                entries.remove();
+                index.remove(entry.key);
+            }
+        }
+        owner.freeChunks.removeIf(chunk -> page(chunk) == page);
+        assignPage(page, sizeClassId);
+    }
+
+    private int firstPageWithFreeChunks() {
+        for (SizeClass sizeClass : sizeClasses) {
+            if (!sizeClass.freeChunks.isEmpty()) {
+                return page(sizeClass.freeChunks.peek());
+            }
+        }
+        throw new IllegalStateException("No pages in off heap cache " + name);
+    }
+
+    private void assignPage(int page, int sizeClassId) {
+        pageClass[page] = sizeClassId;
+        final int chunkSize = chunkSizes[sizeClassId];
+        for (int offset = 0; offset + chunkSize <= pageSize; offset += chunkSize) {
+            sizeClasses[sizeClassId].freeChunks.add(chunk(page, offset));
+        }
+    }
+
+    private void remove(Entry entry) {
+        index.remove(entry.key);
+        SizeClass sizeClass = sizeClasses[entry.sizeClass];
+        sizeClass.entries.remove(entry.key);
+        sizeClass.freeChunks.add(chunk(entry.page, entry.offset));
+    }
+
+    private int sizeClassFor(int length) {
+        for (int i = 0; i < chunkSizes.length; i++) {
+            if (chunkSizes[i] >= length) {
+                return i;
+            }
+        }
+        return chunkSizes.length - 1;
+    }
+
+    private static long chunk(int page, int offset) {
+        return ((long) page << 32) | offset;
+    }
+
+    private static int page(long chunk) {
+        return (int) (chunk >>> 32);
+    }
+
+    private static int offset(long chunk) {
+        return (int) chunk;
+    }
+
+    private static class SizeClass {
+        private final ArrayDeque<Long> freeChunks = new ArrayDeque<>();
+        // Access ordered, eldest first
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            public Entry get(Object key) {
+                Entry entry = super.get(key);
+                if (null != entry) {
+                    entry.lastAccess = System.currentTimeMillis();
+                }
+                return entry;
+            }
+        };
+    }
+
+    private static class Entry {
+        private final String key;
+        private final int sizeClass;
+        private final int page;
+        private final int offset;
+        private final int length;
+        private final long computedAt;
+        private long lastAccess = System.currentTimeMillis();
+
+        private Entry(String key, int sizeClass, int page, int offset, int length, long computedAt) {
+            this.key = key;
+            this.sizeClass = sizeClass;
+            this.page = page;
+            this.offset = offset;
+            this.length = length;
+            this.computedAt = computedAt;
+        }
+    }
+}
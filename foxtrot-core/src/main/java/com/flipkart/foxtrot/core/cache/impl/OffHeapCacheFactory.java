@@ -0,0 +1,42 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.cache.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flipkart.foxtrot.core.cache.Cache;
+import com.flipkart.foxtrot.core.cache.CacheConfig;
+import com.flipkart.foxtrot.core.cache.CacheFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates node local {@link OffHeapCache}s
+ */
+public class OffHeapCacheFactory implements CacheFactory {
+    private final ObjectMapper mapper;
+    private final CacheConfig cacheConfig;
+
+    public OffHeapCacheFactory(ObjectMapper mapper, CacheConfig cacheConfig) {
+        this.mapper = mapper;
+        this.cacheConfig = cacheConfig;
+    }
+
+    @Override
+    public Cache create(String name) {
+        return new OffHeapCache(name, mapper, cacheConfig.maxSizeBytesFor(name), cacheConfig.getOffHeapPageSizeBytes(),
+                cacheConfig.maxValueSizeBytesFor(name), TimeUnit.SECONDS.toMillis(cacheConfig.distributedTtlSeconds()));
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.cache.impl;
+
+import com.flipkart.foxtrot.common.ActionResponse;
+import com.flipkart.foxtrot.core.cache.CachedResponse;
+
+/**
+ * A deserialized response along with the size of its serialized form
+ */
+class SizedResponse extends CachedResponse {
+    private final int size;
+
+    SizedResponse(ActionResponse response, long computedAt, int size) {
+        super(response, computedAt);
+        this.size = size;
+    }
+
+    int getSize() {
+        return size;
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.cache.impl;
+
+import com.flipkart.foxtrot.common.ActionResponse;
+import com.flipkart.foxtrot.core.cache.Cache;
+import com.flipkart.foxtrot.core.cache.CacheConfig;
+import com.flipkart.foxtrot.core.cache.CachedResponse;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps deserialized responses in a bounded local cache in front of a {@link DistributedCache}. Local hits need
+ * neither a remote call nor parsing. Eviction is frequency and recency based (W-TinyLFU) and entries are weighed by
+ * their serialized size. Local entries expire with the same ttl as the distributed ones.
+ */
+public class TieredCache implements Cache {
+    // Rough per entry overhead of the key and the cache entry
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    private final com.github.benmanes.caffeine.cache.Cache<String, SizedResponse> localCache;
+    private final DistributedCache distributedCache;
+
+    public TieredCache(DistributedCache distributedCache, CacheConfig cacheConfig) {
+        this.distributedCache = distributedCache;
+        this.localCache = Caffeine.newBuilder()
+                .maximumWeight(cacheConfig.getLocalMaxSizeBytes())
+                .weigher((String key, SizedResponse value) -> ENTRY_OVERHEAD_BYTES + 2 * key.length() + value.getSize())
+                .expireAfterWrite(cacheConfig.getLocalTtlSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    @Override
+    public ActionResponse put(String key, ActionResponse data) {
+        return put(key, data, System.currentTimeMillis());
+    }
+
+    @Override
+    public ActionResponse put(String key, ActionResponse data, long computedAt) {
+        return put(key, data, computedAt, 0);
+    }
+
+    @Override
+    public ActionResponse put(String key, ActionResponse data, long computedAt, long costMillis) {
+        if (null == key) {
+            return data;
+        }
+        final int size = distributedCache.store(key, data, computedAt, costMillis);
+        if (size >= 0) {
+            localCache.put(key, new SizedResponse(data, computedAt, size));
+        }
+        return data;
+    }
+
+    @Override
+    public ActionResponse get(String key) {
+        CachedResponse response = getEntry(key);
+        return (null != response) ? response.getResponse() : null;
+    }
+
+    @Override
+    public CachedResponse getEntry(String key) {
+        if (null == key) {
+            return null;
+        }
+        SizedResponse response = localCache.getIfPresent(key);
+        if (null != response) {
+            distributedCache.recordAccess(key);
+        } else {
+            response = distributedCache.load(key);
+            if (null == response) {
+                return null;
+            }
+            localCache.put(key, response);
+        }
+        return response;
+    }
+
+    @Override
+    public boolean has(String key) {
+        return null != key && (null != localCache.getIfPresent(key) || distributedCache.has(key));
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.cache.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flipkart.foxtrot.core.cache.Cache;
+import com.flipkart.foxtrot.core.cache.CacheConfig;
+import com.flipkart.foxtrot.core.cache.CacheFactory;
+import com.flipkart.foxtrot.core.cache.CostAwarePolicy;
+import com.flipkart.foxtrot.core.querystore.impl.HazelcastConnection;
+
+/**
+ * Creates {@link TieredCache}s, or plain {@link DistributedCache}s when the local tier is disabled
+ */
+public class TieredCacheFactory implements CacheFactory {
+    private final HazelcastConnection connection;
+    private final ObjectMapper mapper;
+    private final CacheConfig cacheConfig;
+
+    public TieredCacheFactory(HazelcastConnection connection, ObjectMapper mapper, CacheConfig cacheConfig) {
+        this.connection = connection;
+        this.mapper = mapper;
+        this.cacheConfig = cacheConfig;
+    }
+
+    @Override
+    public Cache create(String name) {
+        DistributedCache distributedCache = new DistributedCache(connection, name, mapper,
+                cacheConfig.maxValueSizeBytesFor(name), CostAwarePolicy.forCache(cacheConfig, name));
+        if (!cacheConfig.isLocalEnabled()) {
+            return distributedCache;
+        }
+        return new TieredCache(distributedCache, cacheConfig);
+    }
+}
@@ -17,22 +17,37 @@ package com.flipkart.foxtrot.core.common;
 
 import com.flipkart.foxtrot.common.ActionRequest;
 import com.flipkart.foxtrot.common.ActionResponse;
+import com.flipkart.foxtrot.common.CacheControl;
 import com.flipkart.foxtrot.common.query.Filter;
 import com.flipkart.foxtrot.common.query.general.AnyFilter;
 import com.flipkart.foxtrot.common.query.numeric.LessThanFilter;
 import com.flipkart.foxtrot.common.util.CollectionUtils;
 import com.flipkart.foxtrot.core.cache.Cache;
 import com.flipkart.foxtrot.core.cache.CacheManager;
+import com.flipkart.foxtrot.core.cache.CachedResponse;
+import com.flipkart.foxtrot.core.cache.TableWatermarks;
+import com.flipkart.foxtrot.core.cache.impl.DistributedCache;
 import com.flipkart.foxtrot.core.datastore.DataStore;
+import com.flipkart.foxtrot.core.exception.ErrorCode;
 import com.flipkart.foxtrot.core.exception.FoxtrotException;
 import com.flipkart.foxtrot.core.exception.FoxtrotExceptions;
 import com.flipkart.foxtrot.core.exception.MalformedQueryException;
 import com.flipkart.foxtrot.core.querystore.QueryStore;
 import com.flipkart.foxtrot.core.querystore.impl.ElasticsearchConnection;
+import com.flipkart.foxtrot.core.querystore.scheduler.QueryPriority;
+import com.flipkart.foxtrot.core.querystore.scheduler.QueryScheduler;
 import com.flipkart.foxtrot.core.table.TableMetadataManager;
 import com.flipkart.foxtrot.core.util.MetricUtil;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Lists;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ElasticsearchTimeoutException;
+import org.elasticsearch.action.ActionFuture;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.unit.TimeValue;
+import org.joda.time.Interval;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,7 +55,13 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
 
 /**
  * User: Santanu Sinha (santanu.sinha@flipkart.com)
@@ -49,6 +70,9 @@ import java.util.concurrent.ExecutorService;
  */
 public abstract class Action<ParameterType extends ActionRequest> implements Callable<String> {
     private static final Logger logger = LoggerFactory.getLogger(Action.class.getSimpleName());
+    private static final long CACHE_WINDOW_MILLIS = 30000;
+    // Share of the remaining time given to elasticsearch, so that partial results make it back before the deadline
+    private static final double SEARCH_TIMEOUT_SHARE = 0.8;
 
     private ParameterType parameter;
     private DataStore dataStore;
@@ -57,6 +81,10 @@ public abstract class Action<ParameterType extends ActionRequest> implements Cal
     private final QueryStore queryStore;
     private final String cacheToken;
     private final CacheManager cacheManager;
+    private Deadline deadline;
+    private volatile boolean partial = false;
+    // Cancelled to stop the execution. Reaches an execution that runs on the calling thread, before its future exists.
+    private final CompletableFuture<Void> cancellation = new CompletableFuture<>();
 
     protected Action(ParameterType parameter,
                      TableMetadataManager tableMetadataManager,
@@ -75,13 +103,107 @@ public abstract class Action<ParameterType extends ActionRequest> implements Cal
     }
 
     public String cacheKey() {
-        return String.format("%s-%d", getRequestCacheKey(), System.currentTimeMillis() / 30000);
+        return String.format("%s-%s", getRequestCacheKey(), cacheWindow());
+    }
+
+    /**
+     * Time part of the cache key: the query interval as computed by {@link PeriodSelector}, with both ends aligned
+     * to {@link #CACHE_WINDOW_MILLIS}. Requests whose time range falls in the same aligned window share a key.
+     */
+    private String cacheWindow() {
+        Interval interval = queryInterval();
+        if (null == interval) {
+            return Long.toString(System.currentTimeMillis() / CACHE_WINDOW_MILLIS);
+        }
+        return String.format("%d-%d",
+                interval.getStartMillis() / CACHE_WINDOW_MILLIS, interval.getEndMillis() / CACHE_WINDOW_MILLIS);
+    }
+
+    /**
+     * @return time range covered by the query, null if it could not be computed
+     */
+    private Interval queryInterval() {
+        try {
+            return new PeriodSelector(parameter.getFilters()).analyze();
+        } catch (Exception e) {
+            logger.debug("Could not compute query interval", e);
+            return null;
+        }
     }
 
     public AsyncDataToken execute(ExecutorService executor) throws FoxtrotException {
+        return execute(executor, null, QueryPriority.ASYNC);
+    }
+
+    /**
+     * @param scheduler Admits the query to elasticsearch, null to run it right away
+     */
+    public AsyncDataToken execute(ExecutorService executor,
+                                  QueryScheduler scheduler,
+                                  QueryPriority priority) throws FoxtrotException {
+        return execute(executor, scheduler, priority, null);
+    }
+
+    /**
+     * @param jobRegistry Tracks the execution as a job, null to not track it
+     */
+    public AsyncDataToken execute(ExecutorService executor,
+                                  QueryScheduler scheduler,
+                                  QueryPriority priority,
+                                  AsyncJobRegistry jobRegistry) throws FoxtrotException {
         preProcessRequest();
-        executor.submit(this);
-        return new AsyncDataToken(cacheToken, cacheKey());
+        final String cacheKey = cacheKey();
+        final long computedAt = System.currentTimeMillis();
+        final AsyncJob job = (null != jobRegistry) ? jobRegistry.create(cacheToken, cacheKey) : null;
+        // Executor threads are only taken by actions without a non blocking implementation
+        CompletableFuture<ActionResponse> future = schedule(() -> {
+            if (null != job) {
+                jobRegistry.started(job.getId());
+            }
+            return executeAsync(parameter, executor);
+        }, scheduler, priority);
+        future.whenComplete((result, error) -> {
+            if (null != error) {
+                logger.error("Error executing async action for key: " + cacheKey, error);
+                if (null != job) {
+                    jobRegistry.failed(job.getId(), error);
+                }
+                return;
+            }
+            if (isPartial(result)) {
+                // Served from the cache to everyone with the same request, so a partial result is not kept
+                if (null != job) {
+                    jobRegistry.failed(job.getId(), ErrorCode.QUERY_TIMEOUT.name(),
+                            "Only a partial result was available within the time budget");
+                }
+                return;
+            }
+            Cache cache = cacheManager.getCacheFor(this.cacheToken);
+            cache.put(cacheKey, result, computedAt, System.currentTimeMillis() - computedAt);
+            if (null == job) {
+                return;
+            }
+            if (cache.has(cacheKey)) {
+                jobRegistry.completed(job.getId());
+            } else {
+                jobRegistry.failed(job.getId(), "RESPONSE_NOT_CACHED",
+                        "Response was not kept by the cache, it is too large or too cheap to compute");
+            }
+        });
+        if (null != job) {
+            jobRegistry.track(job.getId(), future);
+        }
+        if (future.isCompletedExceptionally()) {
+            // Rejected by the scheduler, fail the request rather than hand out a token that never resolves
+            try {
+                future.getNow(null);
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof FoxtrotException) {
+                    throw (FoxtrotException) e.getCause();
+                }
+            }
+        }
+        return new AsyncDataToken(cacheToken, cacheKey, (null != job) ? job.getId() : null);
     }
 
     private void preProcessRequest() throws MalformedQueryException {
@@ -92,6 +214,7 @@ public abstract class Action<ParameterType extends ActionRequest> implements Cal
         parameter.setFilters(checkAndAddTemporalBoundary(parameter.getFilters()));
         validateBase(parameter);
         validateImpl(parameter);
+        deadline = (null != parameter.getTimeoutMs()) ? Deadline.after(parameter.getTimeoutMs()) : null;
     }
 
     protected abstract void preprocess();
@@ -99,27 +222,161 @@ public abstract class Action<ParameterType extends ActionRequest> implements Cal
     @Override
     public String call() throws Exception {
         final String cacheKey = cacheKey();
-        cacheManager.getCacheFor(this.cacheToken).put(cacheKey, execute(parameter));
+        final long computedAt = System.currentTimeMillis();
+        ActionResponse result = execute(parameter);
+        cacheManager.getCacheFor(this.cacheToken)
+                .put(cacheKey, result, computedAt, System.currentTimeMillis() - computedAt);
         return cacheKey;
     }
 
     public ActionResponse execute() throws FoxtrotException {
         preProcessRequest();
-        ActionResponse cachedData = readCachedData();
-        if (cachedData != null) {
-            return cachedData;
+        final CacheControl cacheControl = (null != parameter.getCache()) ? parameter.getCache() : CacheControl.DEFAULT;
+        if (!isCacheable() || cacheControl == CacheControl.BYPASS) {
+            return executeAndMeasure();
+        }
+        final String cacheKey = cacheKey();
+        if (cacheControl != CacheControl.REFRESH) {
+            ActionResponse cachedData = readCachedData(cacheKey);
+            if (cachedData != null) {
+                return cachedData;
+            }
+        }
+        // Identical requests that miss the cache at the same time share one execution
+        return cacheManager.getSingleFlight().execute(singleFlightKey(cacheKey), () -> {
+            // Taken before the query runs, so that writes racing with it invalidate the result
+            final long computedAt = System.currentTimeMillis();
+            ActionResponse result = executeAndMeasure();
+            updateCachedData(cacheKey, result, computedAt, System.currentTimeMillis() - computedAt);
+            return result;
+        });
+    }
+
+    /**
+     * Executes the action without holding the calling thread while elasticsearch works on it. Follows the same
+     * caching rules as {@link #execute()}.
+     *
+     * @param executor Runs actions that have no non blocking implementation
+     */
+    public CompletableFuture<ActionResponse> executeNonBlocking(Executor executor) {
+        return executeNonBlocking(executor, null, QueryPriority.INTERACTIVE);
+    }
+
+    /**
+     * Same as {@link #executeNonBlocking(Executor)}, with the elasticsearch query admitted by the scheduler. Cached
+     * responses are returned without taking a query slot.
+     */
+    public CompletableFuture<ActionResponse> executeNonBlocking(Executor executor,
+                                                                QueryScheduler scheduler,
+                                                                QueryPriority priority) {
+        final CacheControl cacheControl;
+        try {
+            preProcessRequest();
+            cacheControl = (null != parameter.getCache()) ? parameter.getCache() : CacheControl.DEFAULT;
+        } catch (FoxtrotException e) {
+            return failed(e);
+        }
+        if (!isCacheable() || cacheControl == CacheControl.BYPASS) {
+            return schedule(() -> executeAndMeasureAsync(executor), scheduler, priority);
+        }
+        final String cacheKey = cacheKey();
+        if (cacheControl != CacheControl.REFRESH) {
+            ActionResponse cachedData = readCachedData(cacheKey);
+            if (cachedData != null) {
+                return CompletableFuture.completedFuture(cachedData);
+            }
+        }
+        return cacheManager.getSingleFlight().executeAsync(singleFlightKey(cacheKey), () -> {
+            final long computedAt = System.currentTimeMillis();
+            final CompletableFuture<ActionResponse> execution
+                    = schedule(() -> executeAndMeasureAsync(executor), scheduler, priority);
+            final CompletableFuture<ActionResponse> cached = execution.thenApply(result -> {
+                updateCachedData(cacheKey, result, computedAt, System.currentTimeMillis() - computedAt);
+                return result;
+            });
+            // Cancelled by single flight once nobody waits for it any more
+            cached.whenComplete((result, error) -> {
+                if (cached.isCancelled()) {
+                    execution.cancel(true);
+                }
+            });
+            return cached;
+        });
+    }
+
+    /**
+     * Executions are shared only between requests with the same time budget, since the one that runs is cut short at
+     * the deadline of the request that started it
+     */
+    private String singleFlightKey(String cacheKey) {
+        if (null == parameter.getTimeoutMs()) {
+            return cacheToken + ":" + cacheKey;
         }
+        return cacheToken + ":" + cacheKey + ":" + parameter.getTimeoutMs();
+    }
+
+    private CompletableFuture<ActionResponse> schedule(Supplier<CompletableFuture<ActionResponse>> query,
+                                                       QueryScheduler scheduler,
+                                                       QueryPriority priority) {
+        if (null == deadline) {
+            return submit(query, scheduler, priority);
+        }
+        // Enforced before the query is submitted: one that gets a slot right away may run to completion on the
+        // calling thread before submit returns. Time spent in the scheduler queue counts against the budget.
+        final CompletableFuture<ActionResponse> execution = new CompletableFuture<>();
+        final CompletableFuture<ActionResponse> enforced = deadline.enforce(execution,
+                () -> FoxtrotExceptions.createQueryTimeoutException(parameter, parameter.getTimeoutMs()));
+        execution.whenComplete((result, error) -> {
+            if (execution.isCancelled()) {
+                cancellation.cancel(true);
+            }
+        });
+        final CompletableFuture<ActionResponse> submitted = submit(query, scheduler, priority);
+        cancellation.whenComplete((result, error) -> submitted.cancel(true));
+        submitted.whenComplete((result, error) -> {
+            if (null == error) {
+                execution.complete(result);
+            } else {
+                execution.completeExceptionally(error);
+            }
+        });
+        return enforced;
+    }
+
+    private CompletableFuture<ActionResponse> submit(Supplier<CompletableFuture<ActionResponse>> query,
+                                                     QueryScheduler scheduler,
+                                                     QueryPriority priority) {
+        return (null == scheduler)
+                ? query.get()
+                : scheduler.submit(getTable(), parameter.getOpcode(), priority, query);
+    }
+
+    private CompletableFuture<ActionResponse> executeAndMeasureAsync(Executor executor) {
+        final Stopwatch stopwatch = new Stopwatch().start();
+        final CompletableFuture<ActionResponse> execution = executeAsync(parameter, executor);
+        final CompletableFuture<ActionResponse> measured = execution.whenComplete((result, error) -> {
+            if (null == error) {
+                MetricUtil.getInstance().registerActionSuccess(cacheToken, getMetricKey(), stopwatch.elapsedMillis());
+            } else {
+                MetricUtil.getInstance().registerActionFailure(cacheToken, getMetricKey(), stopwatch.elapsedMillis());
+            }
+        });
+        measured.whenComplete((result, error) -> {
+            if (measured.isCancelled()) {
+                execution.cancel(true);
+            }
+        });
+        return measured;
+    }
+
+    private ActionResponse executeAndMeasure() throws FoxtrotException {
         Stopwatch stopwatch = new Stopwatch();
         try {
             stopwatch.start();
-            ActionResponse result = execute(parameter);
+            ActionResponse result = markPartial(execute(parameter));
 
             // Publish success metrics
             MetricUtil.getInstance().registerActionSuccess(cacheToken, getMetricKey(), stopwatch.elapsedMillis());
-
-            // Now cache data
-            updateCachedData(result);
-
             return result;
         } catch (FoxtrotException e) {
             // Publish failure metrics
@@ -128,21 +385,25 @@ public abstract class Action<ParameterType extends ActionRequest> implements Cal
         }
     }
 
-    private void updateCachedData(ActionResponse result) {
+    private void updateCachedData(String cacheKey, ActionResponse result, long computedAt, long costMillis) {
         Cache cache = cacheManager.getCacheFor(this.cacheToken);
-        if (isCacheable()) {
-            cache.put(cacheKey(), result);
+        if (isCacheable() && !isPartial(result)) {
+            cache.put(cacheKey, result, computedAt, costMillis);
         }
     }
 
     protected ActionResponse readCachedData() {
+        return readCachedData(cacheKey());
+    }
+
+    private ActionResponse readCachedData(final String cacheKeyValue) {
         Cache cache = cacheManager.getCacheFor(this.cacheToken);
-        final String cacheKeyValue = cacheKey();
         if (isCacheable()) {
-            if (cache.has(cacheKeyValue)) {
+            CachedResponse cachedData = cache.getEntry(cacheKeyValue);
+            if (null != cachedData && isUnchangedSince(cachedData.getComputedAt())) {
                 MetricUtil.getInstance().registerActionCacheHit(cacheToken, getMetricKey());
                 logger.info("Cache hit for key: " + cacheKeyValue);
-                return cache.get(cacheKey());
+                return cachedData.getResponse();
             } else {
                 MetricUtil.getInstance().registerActionCacheMiss(cacheToken, getMetricKey());
                 logger.info("Cache miss for key: " + cacheKeyValue);
@@ -151,6 +412,23 @@ public abstract class Action<ParameterType extends ActionRequest> implements Cal
         return null;
     }
 
+    /**
+     * Checks that no document was written into the time range of the query since the cached response was computed.
+     * Responses that can't be checked against the table watermarks are trusted only as long as the default ttl.
+     */
+    private boolean isUnchangedSince(long computedAt) {
+        TableWatermarks watermarks = cacheManager.getTableWatermarks();
+        if (null == watermarks) {
+            return true;
+        }
+        final String table = getTable();
+        final Interval interval = queryInterval();
+        if (null == table || null == interval) {
+            return computedAt > System.currentTimeMillis() - DistributedCache.DEFAULT_TTL_SECONDS * 1000L;
+        }
+        return watermarks.isUnchanged(table, interval.getStartMillis(), interval.getEndMillis(), computedAt);
+    }
+
     private void validateBase(ParameterType parameter) throws MalformedQueryException {
         List<String> validationErrors = new ArrayList<>();
         if (!CollectionUtils.isNullOrEmpty(parameter.getFilters())) {
@@ -161,6 +439,9 @@ public abstract class Action<ParameterType extends ActionRequest> implements Cal
                 }
             }
         }
+        if (null != parameter.getTimeoutMs() && parameter.getTimeoutMs() <= 0) {
+            validationErrors.add("timeoutMs must be a positive number");
+        }
         if (!CollectionUtils.isNullOrEmpty(validationErrors)) {
             throw FoxtrotExceptions.createMalformedQueryException(parameter, validationErrors);
         }
@@ -184,10 +465,164 @@ public abstract class Action<ParameterType extends ActionRequest> implements Cal
 
     abstract protected String getRequestCacheKey();
 
+    /**
+     * @return table queried by this action, used to invalidate cached responses on writes. null if not known.
+     */
+    protected String getTable() {
+        return null;
+    }
+
     abstract public void validateImpl(ParameterType parameter) throws MalformedQueryException;
 
     abstract public ActionResponse execute(ParameterType parameter) throws FoxtrotException;
 
+    /**
+     * Non blocking execution of the action. Runs {@link #execute(ActionRequest)} on the executor unless overridden,
+     * actions that make a single elasticsearch request override this using {@link #listen}. Cancelling the returned
+     * future interrupts the executor thread, which aborts a blocking elasticsearch call.
+     */
+    protected CompletableFuture<ActionResponse> executeAsync(ParameterType parameter, Executor executor) {
+        final CompletableFuture<ActionResponse> future = new CompletableFuture<>();
+        final FutureTask<ActionResponse> task = new FutureTask<ActionResponse>(() -> execute(parameter)) {
+            @Override
+            public void run() {
+                super.run();
+                if (isCancelled()) {
+                    // Interrupted by the cancellation, which must not stay with a caller thread that ran the task
+                    Thread.interrupted();
+                }
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    future.complete(markPartial(get()));
+                } catch (ExecutionException e) {
+                    future.completeExceptionally(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    future.completeExceptionally(e);
+                }
+            }
+        };
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        cancellation.whenComplete((result, error) -> future.cancel(true));
+        try {
+            executor.execute(task);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    protected interface ElasticsearchRequest<T> {
+        void execute(ActionListener<T> listener) throws FoxtrotException;
+    }
+
+    protected interface ElasticsearchTranslator<T> {
+        ActionResponse translate(T response) throws FoxtrotException;
+    }
+
+    /**
+     * Sends an elasticsearch request and translates its response on the elasticsearch callback thread. Failures
+     * are reported the same way as by the blocking execution.
+     */
+    protected <T> CompletableFuture<ActionResponse> listen(ParameterType parameter,
+                                                           ElasticsearchRequest<T> request,
+                                                           ElasticsearchTranslator<T> translator) {
+        final CompletableFuture<ActionResponse> future = new CompletableFuture<>();
+        try {
+            request.execute(new ActionListener<T>() {
+                @Override
+                public void onResponse(T response) {
+                    try {
+                        notePartial(response);
+                        future.complete(markPartial(translator.translate(response)));
+                    } catch (FoxtrotException | RuntimeException e) {
+                        future.completeExceptionally(e);
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable e) {
+                    future.completeExceptionally((e instanceof ElasticsearchException)
+                            ? FoxtrotExceptions.createQueryExecutionException(parameter, (ElasticsearchException) e)
+                            : e);
+                }
+            });
+        } catch (FoxtrotException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Applies what is left of the time budget of the request as the elasticsearch search timeout, past which shards
+     * return what they have collected so far
+     */
+    protected SearchRequestBuilder withTimeout(SearchRequestBuilder builder) {
+        if (null != deadline) {
+            builder.setTimeout(TimeValue.timeValueMillis(
+                    Math.max(1, (long) (deadline.remainingMillis() * SEARCH_TIMEOUT_SHARE))));
+        }
+        return builder;
+    }
+
+    /**
+     * Waits for an elasticsearch response for no longer than the time budget of the request allows
+     */
+    protected <T> T await(ActionFuture<T> future) throws FoxtrotException {
+        T response;
+        if (null == deadline) {
+            response = future.actionGet();
+        } else {
+            try {
+                response = future.actionGet(Math.max(1, deadline.remainingMillis()));
+            } catch (ElasticsearchTimeoutException e) {
+                throw FoxtrotExceptions.createQueryTimeoutException(parameter, parameter.getTimeoutMs());
+            }
+        }
+        notePartial(response);
+        return response;
+    }
+
+    private void notePartial(Object response) {
+        if (response instanceof SearchResponse && isPartial((SearchResponse) response)) {
+            partial = true;
+        }
+    }
+
+    /**
+     * @return true if the search timed out or some shards failed, so that its results may be incomplete
+     */
+    protected static boolean isPartial(SearchResponse response) {
+        return response.isTimedOut() || response.getFailedShards() > 0;
+    }
+
+    private ActionResponse markPartial(ActionResponse response) {
+        if (partial && null != response) {
+            response.setPartial(true);
+        }
+        return response;
+    }
+
+    private static boolean isPartial(ActionResponse response) {
+        return null != response && Boolean.TRUE.equals(response.getPartial());
+    }
+
+    private static CompletableFuture<ActionResponse> failed(Exception e) {
+        CompletableFuture<ActionResponse> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
     protected ParameterType getParameter() {
         return parameter;
     }
@@ -212,6 +647,10 @@ public abstract class Action<ParameterType extends ActionRequest> implements Cal
         return queryStore;
     }
 
+    protected CacheManager getCacheManager() {
+        return cacheManager;
+    }
+
     protected Filter getDefaultTimeSpan() {
         LessThanFilter lessThanFilter = new LessThanFilter();
         lessThanFilter.setTemporal(true);
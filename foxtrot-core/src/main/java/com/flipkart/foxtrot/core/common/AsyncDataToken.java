@@ -23,12 +23,19 @@ package com.flipkart.foxtrot.core.common;
 public class AsyncDataToken {
     private String action;
     private String key;
+    private String jobId;
 
     public AsyncDataToken(String action, String key) {
         this.action = action;
         this.key = key;
     }
 
+    public AsyncDataToken(String action, String key, String jobId) {
+        this.action = action;
+        this.key = key;
+        this.jobId = jobId;
+    }
+
     public AsyncDataToken() {
     }
 
@@ -47,4 +54,15 @@ public class AsyncDataToken {
     public void setKey(String key) {
         this.key = key;
     }
+
+    /**
+     * @return id to track the job at /v1/async/jobs, null if jobs are not tracked
+     */
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
 }
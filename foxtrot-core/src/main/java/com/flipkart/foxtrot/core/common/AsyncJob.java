@@ -0,0 +1,151 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.common;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.io.Serializable;
+
+/**
+ * State of an async action, shared across the cluster by {@link AsyncJobRegistry}
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class AsyncJob implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String id;
+    private String action;
+    private String key;
+    private AsyncJobStatus status;
+    private long submittedAt;
+    private long startedAt;
+    private long completedAt;
+    private String errorCode;
+    private String message;
+
+    public AsyncJob() {
+    }
+
+    public AsyncJob(String id, String action, String key, long submittedAt) {
+        this.id = id;
+        this.action = action;
+        this.key = key;
+        this.status = AsyncJobStatus.QUEUED;
+        this.submittedAt = submittedAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public AsyncJobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(AsyncJobStatus status) {
+        this.status = status;
+    }
+
+    public long getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public void setSubmittedAt(long submittedAt) {
+        this.submittedAt = submittedAt;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(long startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public long getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(long completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public void setErrorCode(String errorCode) {
+        this.errorCode = errorCode;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    /**
+     * @return time since submission, up to completion for finished jobs
+     */
+    public long getElapsedMillis() {
+        return ((0 != completedAt) ? completedAt : System.currentTimeMillis()) - submittedAt;
+    }
+
+    /**
+     * @return time spent waiting for a query slot
+     */
+    public long getQueuedMillis() {
+        if (0 != startedAt) {
+            return startedAt - submittedAt;
+        }
+        return getElapsedMillis();
+    }
+
+    /**
+     * @return where the response can be fetched from once the job is done
+     */
+    public AsyncDataToken getResult() {
+        return (status == AsyncJobStatus.DONE) ? new AsyncDataToken(action, key, id) : null;
+    }
+
+    @JsonIgnore
+    public boolean isFinished() {
+        return null != status && status.isFinal();
+    }
+}
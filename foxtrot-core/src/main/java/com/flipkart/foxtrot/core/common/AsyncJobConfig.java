@@ -0,0 +1,55 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.common;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration for tracking of async actions
+ */
+public class AsyncJobConfig {
+
+    /**
+     * How long a job is kept around after it was last updated
+     */
+    @Min(1)
+    private int ttlSeconds = 3600;
+
+    /**
+     * Upper bound on how long a request can wait for a job to finish
+     */
+    @Min(0)
+    private long maxWaitMs = 30000;
+
+    public AsyncJobConfig() {
+    }
+
+    public int getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public void setTtlSeconds(int ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public long getMaxWaitMs() {
+        return maxWaitMs;
+    }
+
+    public void setMaxWaitMs(long maxWaitMs) {
+        this.maxWaitMs = maxWaitMs;
+    }
+}
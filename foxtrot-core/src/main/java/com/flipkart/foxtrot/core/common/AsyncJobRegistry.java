@@ -0,0 +1,233 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.common;
+
+import com.flipkart.foxtrot.core.exception.FoxtrotException;
+import com.flipkart.foxtrot.core.querystore.impl.HazelcastConnection;
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.core.EntryEvent;
+import com.hazelcast.core.IMap;
+import com.hazelcast.map.AbstractEntryProcessor;
+import com.hazelcast.map.listener.EntryEvictedListener;
+import com.hazelcast.map.listener.EntryUpdatedListener;
+import com.yammer.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tracks async actions across the cluster in a hazelcast map. Every node listens to changes of the map: when a job
+ * is cancelled, the node running it cancels the execution, and when a job finishes, requests waiting on it on any
+ * node are woken up.
+ */
+public class AsyncJobRegistry implements Managed {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncJobRegistry.class.getSimpleName());
+
+    private static final String MAP_NAME = "async-jobs";
+
+    private final HazelcastConnection hazelcastConnection;
+    private final ConcurrentMap<String, Future<?>> localJobs = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<AsyncJob>> waiters = new ConcurrentHashMap<>();
+    private IMap<String, AsyncJob> jobs;
+    private String listenerId;
+
+    public AsyncJobRegistry(HazelcastConnection hazelcastConnection, AsyncJobConfig config) {
+        this.hazelcastConnection = hazelcastConnection;
+        MapConfig mapConfig = hazelcastConnection.getHazelcastConfig().getMapConfig(MAP_NAME);
+        mapConfig.setTimeToLiveSeconds(config.getTtlSeconds());
+    }
+
+    @Override
+    public void start() throws Exception {
+        logger.info("Starting Async Job Registry");
+        jobs = hazelcastConnection.getHazelcast().getMap(MAP_NAME);
+        listenerId = jobs.addEntryListener(new JobListener(), true);
+        logger.info("Started Async Job Registry");
+    }
+
+    @Override
+    public void stop() throws Exception {
+        logger.info("Stopping Async Job Registry");
+        jobs.removeEntryListener(listenerId);
+        localJobs.values().forEach(future -> future.cancel(true));
+        logger.info("Stopped Async Job Registry");
+    }
+
+    public AsyncJob create(String action, String key) {
+        AsyncJob job = new AsyncJob(UUID.randomUUID().toString(), action, key, System.currentTimeMillis());
+        jobs.set(job.getId(), job);
+        return job;
+    }
+
+    /**
+     * Registers the local execution of the job, so that it can be cancelled
+     */
+    public void track(String id, Future<?> execution) {
+        localJobs.put(id, execution);
+        if (execution instanceof CompletableFuture) {
+            ((CompletableFuture<?>) execution).whenComplete((result, error) -> localJobs.remove(id));
+        }
+        // Cancelled before it could be tracked
+        AsyncJob job = jobs.get(id);
+        if (null != job && job.getStatus() == AsyncJobStatus.CANCELLED) {
+            execution.cancel(true);
+        }
+    }
+
+    public void started(String id) {
+        update(id, new Transition(AsyncJobStatus.RUNNING, null, null));
+    }
+
+    public void completed(String id) {
+        update(id, new Transition(AsyncJobStatus.DONE, null, null));
+    }
+
+    public void failed(String id, Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && null != cause.getCause()) {
+            cause = cause.getCause();
+        }
+        String errorCode = (cause instanceof FoxtrotException)
+                ? ((FoxtrotException) cause).getCode().name()
+                : cause.getClass().getSimpleName();
+        failed(id, errorCode, cause.getMessage());
+    }
+
+    public void failed(String id, String errorCode, String message) {
+        update(id, new Transition(AsyncJobStatus.FAILED, errorCode, message));
+    }
+
+    /**
+     * Cancels the job wherever it is running. A blocking elasticsearch call is interrupted, the response of a non
+     * blocking one is discarded.
+     *
+     * @return job after the cancellation, null if not found
+     */
+    public AsyncJob cancel(String id) {
+        return update(id, new Transition(AsyncJobStatus.CANCELLED, null, null));
+    }
+
+    public AsyncJob get(String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * Waits for the job to finish
+     *
+     * @return job when it finishes or as it is when the wait is over, null if not found
+     */
+    public AsyncJob await(String id, long waitMillis) {
+        AsyncJob job = jobs.get(id);
+        if (null == job || job.isFinished() || waitMillis <= 0) {
+            return job;
+        }
+        CompletableFuture<AsyncJob> waiter = waiters.computeIfAbsent(id, jobId -> new CompletableFuture<>());
+        // The job could have finished before the waiter was in place
+        job = jobs.get(id);
+        if (null == job || job.isFinished()) {
+            return job;
+        }
+        try {
+            AsyncJob finished = waiter.get(waitMillis, TimeUnit.MILLISECONDS);
+            return (null != finished) ? finished : jobs.get(id);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            logger.debug("Job {} did not finish in {} ms", id, waitMillis);
+        }
+        return jobs.get(id);
+    }
+
+    private AsyncJob update(String id, Transition transition) {
+        try {
+            return (AsyncJob) jobs.executeOnKey(id, transition);
+        } catch (Exception e) {
+            logger.error("Error moving job {} to {}", id, transition.status, e);
+            return null;
+        }
+    }
+
+    private final class JobListener implements EntryUpdatedListener<String, AsyncJob>,
+            EntryEvictedListener<String, AsyncJob> {
+        @Override
+        public void entryUpdated(EntryEvent<String, AsyncJob> event) {
+            AsyncJob job = event.getValue();
+            if (null == job || !job.isFinished()) {
+                return;
+            }
+            if (job.getStatus() == AsyncJobStatus.CANCELLED) {
+                Future<?> execution = localJobs.remove(job.getId());
+                if (null != execution) {
+                    logger.info("Cancelling job {}", job.getId());
+                    execution.cancel(true);
+                }
+            }
+            CompletableFuture<AsyncJob> waiter = waiters.remove(job.getId());
+            if (null != waiter) {
+                waiter.complete(job);
+            }
+        }
+
+        @Override
+        public void entryEvicted(EntryEvent<String, AsyncJob> event) {
+            CompletableFuture<AsyncJob> waiter = waiters.remove(event.getKey());
+            if (null != waiter) {
+                waiter.complete(null);
+            }
+        }
+    }
+
+    private static final class Transition extends AbstractEntryProcessor<String, AsyncJob> {
+        private final AsyncJobStatus status;
+        private final String errorCode;
+        private final String message;
+
+        private Transition(AsyncJobStatus status, String errorCode, String message) {
+            this.status = status;
+            this.errorCode = errorCode;
+            this.message = message;
+        }
+
+        @Override
+        public Object process(Map.Entry<String, AsyncJob> entry) {
+            AsyncJob job = entry.getValue();
+            if (null == job || !job.getStatus().canMoveTo(status)) {
+                return job;
+            }
+            long now = System.currentTimeMillis();
+            job.setStatus(status);
+            if (status == AsyncJobStatus.RUNNING) {
+                job.setStartedAt(now);
+            } else {
+                job.setCompletedAt(now);
+                job.setErrorCode(errorCode);
+                job.setMessage(message);
+            }
+            entry.setValue(job);
+            return job;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.common;
+
+/**
+ * Lifecycle of an async action: QUEUED -> RUNNING -> DONE | FAILED, and CANCELLED from either of the first two
+ */
+public enum AsyncJobStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED,
+    CANCELLED;
+
+    public boolean isFinal() {
+        return this == DONE || this == FAILED || this == CANCELLED;
+    }
+
+    public boolean canMoveTo(AsyncJobStatus next) {
+        if (isFinal()) {
+            return false;
+        }
+        return next != QUEUED && (next != RUNNING || this == QUEUED);
+    }
+}
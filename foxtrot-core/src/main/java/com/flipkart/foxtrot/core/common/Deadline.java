@@ -0,0 +1,78 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.common;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Point in time by which a request has to be answered
+ */
+public class Deadline {
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("query-deadline-%d").setDaemon(true).build());
+
+    private final long expiresAt;
+
+    private Deadline(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public static Deadline after(long millis) {
+        return new Deadline(System.currentTimeMillis() + millis);
+    }
+
+    public long remainingMillis() {
+        return Math.max(0, expiresAt - System.currentTimeMillis());
+    }
+
+    public boolean isExpired() {
+        return remainingMillis() == 0;
+    }
+
+    /**
+     * @return future that fails with the given error if the execution is not done by the deadline, in which case the
+     * execution is cancelled. Cancelling the returned future cancels the execution as well.
+     */
+    public <T> CompletableFuture<T> enforce(CompletableFuture<T> execution, Supplier<? extends Throwable> onExpiry) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final ScheduledFuture<?> expiry = timer.schedule(() -> {
+            if (result.completeExceptionally(onExpiry.get())) {
+                execution.cancel(true);
+            }
+        }, remainingMillis(), TimeUnit.MILLISECONDS);
+        execution.whenComplete((response, error) -> {
+            expiry.cancel(false);
+            if (null == error) {
+                result.complete(response);
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                execution.cancel(true);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.common;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.flipkart.foxtrot.common.ActionRequest;
+import com.flipkart.foxtrot.common.query.Filter;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Fingerprint of an action request for use in cache keys. The whole request, including filter values, is written out
+ * in a normalized form: object fields are sorted and filters are order independent. Temporal filters are left out,
+ * since they are covered by the time window part of the cache key, and so are the cache control and time budget
+ * of the request.
+ * The result is hashed with a 128 bit hash.
+ */
+public class RequestFingerprint {
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+
+    private RequestFingerprint() {
+    }
+
+    public static String of(ActionRequest request) {
+        ObjectNode requestNode = mapper.valueToTree(request);
+        requestNode.remove("filters");
+        requestNode.remove("cache");
+        requestNode.remove("timeoutMs");
+
+        List<String> filters = Lists.newArrayList();
+        if (null != request.getFilters()) {
+            for (Filter filter : request.getFilters()) {
+                if (!filter.isFilterTemporal()) {
+                    filters.add(canonical(mapper.valueToTree(filter)));
+                }
+            }
+        }
+        Collections.sort(filters);
+
+        StringBuilder builder = new StringBuilder(canonical(requestNode));
+        for (String filter : filters) {
+            builder.append('|').append(filter);
+        }
+        return Hashing.murmur3_128().hashString(builder, Charsets.UTF_8).toString();
+    }
+
+    static String canonical(JsonNode node) {
+        StringBuilder builder = new StringBuilder();
+        canonical(node, builder);
+        return builder.toString();
+    }
+
+    private static void canonical(JsonNode node, StringBuilder builder) {
+        if (node.isObject()) {
+            List<String> fieldNames = Lists.newArrayList(node.fieldNames());
+            Collections.sort(fieldNames);
+            builder.append('{');
+            for (String fieldName : fieldNames) {
+                JsonNode value = node.get(fieldName);
+                if (value.isNull()) {
+                    continue;
+                }
+                builder.append('"').append(fieldName).append("\":");
+                canonical(value, builder);
+                builder.append(',');
+            }
+            builder.append('}');
+        } else if (node.isArray()) {
+            builder.append('[');
+            for (Iterator<JsonNode> elements = node.elements(); elements.hasNext(); ) {
+                canonical(elements.next(), builder);
+                builder.append(',');
+            }
+            builder.append(']');
+        } else {
+            builder.append(node.toString());
+        }
+    }
+}
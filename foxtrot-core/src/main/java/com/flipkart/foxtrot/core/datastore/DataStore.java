@@ -36,4 +36,15 @@ public interface DataStore {
     Document get(final Table table, final String id) throws FoxtrotException;
 
     List<Document> getAll(final Table table, final List<String> ids) throws FoxtrotException;
+
+    /**
+     * Like {@link #getAll(Table, List)}, but returns whatever was found instead of failing on missing ids
+     */
+    MultiGetResult multiGet(final Table table, final List<String> ids) throws FoxtrotException;
+
+    /**
+     * @return true if documents can be read by the ids they were saved with, without first looking up their raw
+     * storage ids in the index
+     */
+    boolean isIdLookupSupported();
 }
@@ -0,0 +1,45 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.datastore;
+
+import com.flipkart.foxtrot.common.Document;
+
+import java.util.List;
+
+/**
+ * Documents found by a multi get, in request order, along with the ids that were not found
+ */
+public class MultiGetResult {
+    private final List<Document> documents;
+    private final List<String> missingIds;
+
+    public MultiGetResult(List<Document> documents, List<String> missingIds) {
+        this.documents = documents;
+        this.missingIds = missingIds;
+    }
+
+    public List<Document> getDocuments() {
+        return documents;
+    }
+
+    public List<String> getMissingIds() {
+        return missingIds;
+    }
+
+    public boolean isComplete() {
+        return missingIds.isEmpty();
+    }
+}
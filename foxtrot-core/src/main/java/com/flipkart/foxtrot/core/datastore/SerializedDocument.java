@@ -0,0 +1,89 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.datastore;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flipkart.foxtrot.common.Document;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A translated document along with the encoded bytes of its data and metadata. The data store encodes a document
+ * once while writing it and hands these back, so that the index source can be built from the same bytes instead
+ * of encoding the document a second time.
+ */
+public class SerializedDocument extends Document {
+    private final byte[] serializedData;
+    private final byte[] serializedMetadata;
+
+    public SerializedDocument(Document document, byte[] serializedData, byte[] serializedMetadata) {
+        super(document.getId(), document.getTimestamp(), document.getMetadata(), document.getData());
+        this.serializedData = serializedData;
+        this.serializedMetadata = serializedMetadata;
+    }
+
+    public static SerializedDocument serialize(Document document, ObjectMapper mapper) throws JsonProcessingException {
+        if (document instanceof SerializedDocument) {
+            return (SerializedDocument) document;
+        }
+        return new SerializedDocument(document,
+                mapper.writeValueAsBytes(document.getData()),
+                mapper.writeValueAsBytes(document.getMetadata()));
+    }
+
+    @JsonIgnore
+    public byte[] getSerializedData() {
+        return serializedData;
+    }
+
+    @JsonIgnore
+    public byte[] getSerializedMetadata() {
+        return serializedMetadata;
+    }
+
+    /**
+     * Builds a JSON object containing all fields of the data plus the metadata under the given field name, by
+     * splicing the encoded metadata in front of the closing brace of the encoded data.
+     *
+     * @return source bytes or null if the data is not a JSON object or already has a field with the given name
+     */
+    public byte[] spliceMetadata(String metadataFieldName) {
+        if (null == getData() || !getData().isObject() || getData().has(metadataFieldName)) {
+            return null;
+        }
+        int end = serializedData.length - 1;
+        while (end > 0 && serializedData[end] != '}') {
+            end--;
+        }
+        if (end <= 0) {
+            return null;
+        }
+        byte[] field = ((getData().size() == 0 ? "\"" : ",\"") + metadataFieldName + "\":")
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] source = new byte[end + field.length + serializedMetadata.length + (serializedData.length - end)];
+        int offset = 0;
+        System.arraycopy(serializedData, 0, source, offset, end);
+        offset += end;
+        System.arraycopy(field, 0, source, offset, field.length);
+        offset += field.length;
+        System.arraycopy(serializedMetadata, 0, source, offset, serializedMetadata.length);
+        offset += serializedMetadata.length;
+        System.arraycopy(serializedData, end, source, offset, serializedData.length - end);
+        return source;
+    }
+}
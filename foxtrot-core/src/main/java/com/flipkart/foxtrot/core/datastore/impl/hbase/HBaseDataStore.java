@@ -16,11 +16,16 @@
 package com.flipkart.foxtrot.core.datastore.impl.hbase;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.flipkart.foxtrot.common.Document;
 import com.flipkart.foxtrot.common.DocumentMetadata;
 import com.flipkart.foxtrot.common.Table;
 import com.flipkart.foxtrot.core.datastore.DataStore;
+import com.flipkart.foxtrot.core.datastore.MultiGetResult;
+import com.flipkart.foxtrot.core.datastore.SerializedDocument;
+import com.flipkart.foxtrot.core.datastore.impl.hbase.codec.CellEncoding;
+import com.flipkart.foxtrot.core.datastore.impl.hbase.codec.DocumentCodecs;
 import com.flipkart.foxtrot.core.exception.FoxtrotException;
 import com.flipkart.foxtrot.core.exception.FoxtrotExceptions;
 import com.flipkart.foxtrot.core.querystore.DocumentTranslator;
@@ -40,6 +45,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * User: Santanu Sinha (santanu.sinha@flipkart.com)
@@ -58,11 +66,31 @@ public class HBaseDataStore implements DataStore {
     private final HbaseTableConnection tableWrapper;
     private final ObjectMapper mapper;
     private final DocumentTranslator translator;
+    private final DocumentCodecs codecs;
+    private final ExecutorService multiGetExecutor;
+    private final int multiGetParallelism;
 
     public HBaseDataStore(HbaseTableConnection tableWrapper, ObjectMapper mapper, DocumentTranslator translator) {
+        this(tableWrapper, mapper, translator, new DocumentCodecs(mapper));
+    }
+
+    public HBaseDataStore(HbaseTableConnection tableWrapper, ObjectMapper mapper, DocumentTranslator translator,
+                          DocumentCodecs codecs) {
+        this(tableWrapper, mapper, translator, codecs, null, 1);
+    }
+
+    /**
+     * @param multiGetExecutor    Executor for parallel multi gets, null to run them on the calling thread
+     * @param multiGetParallelism Max number of groups a multi get is split into
+     */
+    public HBaseDataStore(HbaseTableConnection tableWrapper, ObjectMapper mapper, DocumentTranslator translator,
+                          DocumentCodecs codecs, ExecutorService multiGetExecutor, int multiGetParallelism) {
         this.tableWrapper = tableWrapper;
         this.mapper = mapper;
         this.translator = translator;
+        this.codecs = codecs;
+        this.multiGetExecutor = multiGetExecutor;
+        this.multiGetParallelism = multiGetParallelism;
     }
 
     @Override
@@ -89,9 +117,9 @@ public class HBaseDataStore implements DataStore {
         HTableInterface hTable = null;
         Document translatedDocument = null;
         try {
-            translatedDocument = translator.translate(table, document);
+            translatedDocument = SerializedDocument.serialize(translator.translate(table, document), mapper);
             hTable = tableWrapper.getTable(table);
-            hTable.put(getPutForDocument(translatedDocument));
+            hTable.put(getPutForDocument(table, translatedDocument));
         } catch (JsonProcessingException e) {
             throw FoxtrotExceptions.createBadRequestException(table, e);
         } catch (IOException e) {
@@ -133,8 +161,8 @@ public class HBaseDataStore implements DataStore {
                     errorMessages.add("null document data at index - " + i);
                     continue;
                 }
-                Document translatedDocument = translator.translate(table, document);
-                puts.add(getPutForDocument(translatedDocument));
+                Document translatedDocument = SerializedDocument.serialize(translator.translate(table, document), mapper);
+                puts.add(getPutForDocument(table, translatedDocument));
                 translatedDocuments.add(translatedDocument);
             }
         } catch (JsonProcessingException e) {
@@ -167,20 +195,19 @@ public class HBaseDataStore implements DataStore {
     public Document get(final Table table, String id) throws FoxtrotException {
         HTableInterface hTable = null;
         try {
-            Get get = new Get(Bytes.toBytes(translator.rawStorageIdFromDocumentId(table, id)))
-                    .addColumn(COLUMN_FAMILY, DOCUMENT_FIELD_NAME)
-                    .addColumn(COLUMN_FAMILY, DOCUMENT_META_FIELD_NAME)
-                    .addColumn(COLUMN_FAMILY, TIMESTAMP_FIELD_NAME)
-                    .setMaxVersions(1);
             hTable = tableWrapper.getTable(table);
-            Result getResult = hTable.get(get);
+            Result getResult = hTable.get(createGet(Bytes.toBytes(translator.rawStorageIdFromDocumentId(table, id))));
+            final String legacyKey = translator.legacyRawStorageIdFromDocumentId(table, id);
+            if (getResult.isEmpty() && null != legacyKey) {
+                getResult = hTable.get(createGet(Bytes.toBytes(legacyKey)));
+            }
             if (!getResult.isEmpty()) {
                 byte[] data = getResult.getValue(COLUMN_FAMILY, DOCUMENT_FIELD_NAME);
                 byte[] metadata = getResult.getValue(COLUMN_FAMILY, DOCUMENT_META_FIELD_NAME);
                 byte[] timestamp = getResult.getValue(COLUMN_FAMILY, TIMESTAMP_FIELD_NAME);
                 long time = Bytes.toLong(timestamp);
-                DocumentMetadata documentMetadata = (null != metadata) ? mapper.readValue(metadata, DocumentMetadata.class) : null;
-                return translator.translateBack(new Document(id, time, documentMetadata, mapper.readTree(data)));
+                DocumentMetadata documentMetadata = (null != metadata) ? codecs.decode(metadata, DocumentMetadata.class) : null;
+                return translator.translateBack(new Document(id, time, documentMetadata, codecs.decode(data, JsonNode.class)));
             } else {
                 logger.error("ID missing in HBase - " + id);
                 throw FoxtrotExceptions.createMissingDocumentException(table, id);
@@ -201,48 +228,129 @@ public class HBaseDataStore implements DataStore {
     @Override
     @Timed
     public List<Document> getAll(final Table table, List<String> ids) throws FoxtrotException {
+        MultiGetResult result = multiGet(table, ids);
+        if (!result.isComplete()) {
+            logger.error("ID's missing in HBase - " + Joiner.on(",").join(result.getMissingIds()));
+            throw FoxtrotExceptions.createMissingDocumentsException(table, result.getMissingIds());
+        }
+        return result.getDocuments();
+    }
+
+    /**
+     * Row keys carry a hash prefix (see {@link DocumentTranslator}), and tables are split on it, so gets are grouped
+     * by the prefix byte to send each group to (mostly) a single region server. Groups are fetched in parallel on
+     * the multi get executor when there is one.
+     */
+    @Override
+    @Timed
+    public MultiGetResult multiGet(final Table table, List<String> ids) throws FoxtrotException {
         if (ids == null) {
             throw FoxtrotExceptions.createBadRequestException(table.getName(), "Empty ID List");
         }
+        final byte[][] rowKeys = new byte[ids.size()][];
+        final List<Integer> positions = new ArrayList<>(ids.size());
+        for (int index = 0; index < ids.size(); index++) {
+            rowKeys[index] = Bytes.toBytes(translator.rawStorageIdFromDocumentId(table, ids.get(index)));
+            positions.add(index);
+        }
+        final Document[] documents = new Document[ids.size()];
+        fetchGrouped(table, positions, rowKeys, documents);
+
+        // Documents written before the switch to id derived keys are looked up again with their old keys
+        final List<Integer> legacyPositions = new ArrayList<>();
+        for (int index = 0; index < ids.size(); index++) {
+            final String legacyKey = (null == documents[index])
+                    ? translator.legacyRawStorageIdFromDocumentId(table, ids.get(index))
+                    : null;
+            if (null != legacyKey) {
+                rowKeys[index] = Bytes.toBytes(legacyKey);
+                legacyPositions.add(index);
+            }
+        }
+        if (!legacyPositions.isEmpty()) {
+            fetchGrouped(table, legacyPositions, rowKeys, documents);
+        }
+
+        List<Document> results = new ArrayList<>(ids.size());
+        List<String> missingIds = new ArrayList<>();
+        for (int index = 0; index < documents.length; index++) {
+            if (null != documents[index]) {
+                results.add(documents[index]);
+            } else {
+                missingIds.add(ids.get(index));
+            }
+        }
+        return new MultiGetResult(results, missingIds);
+    }
+
+    private void fetchGrouped(final Table table, List<Integer> positions, final byte[][] rowKeys,
+                              final Document[] documents) throws FoxtrotException {
+        final int groupCount = (null == multiGetExecutor)
+                ? 1
+                : Math.max(1, Math.min(multiGetParallelism, positions.size()));
+        List<List<Integer>> groups = new ArrayList<>(groupCount);
+        for (int i = 0; i < groupCount; i++) {
+            groups.add(new ArrayList<>());
+        }
+        for (int position : positions) {
+            int prefix = (rowKeys[position].length == 0) ? 0 : (rowKeys[position][0] & 0xff);
+            groups.get(prefix % groupCount).add(position);
+        }
 
+        List<Future<Void>> futures = new ArrayList<>(groupCount);
+        for (final List<Integer> group : groups) {
+            if (groupCount == 1) {
+                fetch(table, group, rowKeys, documents);
+            } else if (!group.isEmpty()) {
+                futures.add(multiGetExecutor.submit(() -> {
+                    fetch(table, group, rowKeys, documents);
+                    return null;
+                }));
+            }
+        }
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw FoxtrotExceptions.createConnectionException(table, e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof FoxtrotException) {
+                    throw (FoxtrotException) e.getCause();
+                }
+                throw FoxtrotExceptions.createConnectionException(table, e);
+            }
+        }
+    }
+
+    private void fetch(final Table table, List<Integer> positions, byte[][] rowKeys,
+                       Document[] documents) throws FoxtrotException {
         HTableInterface hTable = null;
         try {
-            List<Get> gets = new ArrayList<>(ids.size());
-            for (String id : ids) {
-                Get get = new Get(Bytes.toBytes(translator.rawStorageIdFromDocumentId(table, id)))
-                        .addColumn(COLUMN_FAMILY, DOCUMENT_FIELD_NAME)
-                        .addColumn(COLUMN_FAMILY, DOCUMENT_META_FIELD_NAME)
-                        .addColumn(COLUMN_FAMILY, TIMESTAMP_FIELD_NAME)
-                        .setMaxVersions(1);
-                gets.add(get);
+            List<Get> gets = new ArrayList<>(positions.size());
+            for (int position : positions) {
+                gets.add(createGet(rowKeys[position]));
             }
             hTable = tableWrapper.getTable(table);
             Result[] getResults = hTable.get(gets);
-            List<String> missingIds = new ArrayList<>();
-            List<Document> results = new ArrayList<>(ids.size());
             for (int index = 0; index < getResults.length; index++) {
                 Result getResult = getResults[index];
-                if (!getResult.isEmpty()) {
-                    byte[] data = getResult.getValue(COLUMN_FAMILY, DOCUMENT_FIELD_NAME);
-                    byte[] metadata = getResult.getValue(COLUMN_FAMILY, DOCUMENT_META_FIELD_NAME);
-                    byte[] timestamp = getResult.getValue(COLUMN_FAMILY, TIMESTAMP_FIELD_NAME);
-                    long time = Bytes.toLong(timestamp);
-                    DocumentMetadata documentMetadata = (null != metadata)
-                            ? mapper.readValue(metadata, DocumentMetadata.class)
-                            : null;
-                    final String docId = (null == metadata)
-                            ? Bytes.toString(getResult.getRow()).split(":")[0]
-                            : documentMetadata.getRawStorageId();
-                    results.add(translator.translateBack(new Document(docId, time, documentMetadata, mapper.readTree(data))));
-                } else {
-                    missingIds.add(ids.get(index));
-                }
-                if (!missingIds.isEmpty()) {
-                    logger.error("ID's missing in HBase - " + Joiner.on(",").join(ids));
-                    throw FoxtrotExceptions.createMissingDocumentsException(table, ids);
+                if (null == getResult || getResult.isEmpty()) {
+                    continue;
                 }
+                byte[] data = getResult.getValue(COLUMN_FAMILY, DOCUMENT_FIELD_NAME);
+                byte[] metadata = getResult.getValue(COLUMN_FAMILY, DOCUMENT_META_FIELD_NAME);
+                byte[] timestamp = getResult.getValue(COLUMN_FAMILY, TIMESTAMP_FIELD_NAME);
+                long time = Bytes.toLong(timestamp);
+                DocumentMetadata documentMetadata = (null != metadata)
+                        ? codecs.decode(metadata, DocumentMetadata.class)
+                        : null;
+                final String docId = (null == metadata)
+                        ? Bytes.toString(getResult.getRow()).split(":")[0]
+                        : documentMetadata.getRawStorageId();
+                documents[positions.get(index)] = translator.translateBack(
+                        new Document(docId, time, documentMetadata, codecs.decode(data, JsonNode.class)));
             }
-            return results;
         } catch (JsonProcessingException e) {
             throw FoxtrotExceptions.createBadRequestException(table, e);
         } catch (IOException e) {
@@ -258,11 +366,44 @@ public class HBaseDataStore implements DataStore {
         }
     }
 
+    @Override
+    public boolean isIdLookupSupported() {
+        return translator.isIdDerivedKey();
+    }
+
+    private Get createGet(byte[] rowKey) {
+        return new Get(rowKey)
+                .addColumn(COLUMN_FAMILY, DOCUMENT_FIELD_NAME)
+                .addColumn(COLUMN_FAMILY, DOCUMENT_META_FIELD_NAME)
+                .addColumn(COLUMN_FAMILY, TIMESTAMP_FIELD_NAME)
+                .setMaxVersions(1);
+    }
+
     @VisibleForTesting
     public Put getPutForDocument(Document document) throws JsonProcessingException {
+        return getPutForDocument(CellEncoding.JSON, document);
+    }
+
+    private Put getPutForDocument(Table table, Document document) throws JsonProcessingException {
+        return getPutForDocument(codecs.encodingFor(table), document);
+    }
+
+    @VisibleForTesting
+    public Put getPutForDocument(CellEncoding encoding, Document document) throws JsonProcessingException {
+        final byte[] metadata;
+        final byte[] data;
+        if (encoding == CellEncoding.JSON) {
+            // Same bytes that go into the index source
+            SerializedDocument serializedDocument = SerializedDocument.serialize(document, mapper);
+            metadata = serializedDocument.getSerializedMetadata();
+            data = serializedDocument.getSerializedData();
+        } else {
+            metadata = codecs.encode(encoding, document.getMetadata());
+            data = codecs.encode(encoding, document.getData());
+        }
         return new Put(Bytes.toBytes(document.getMetadata().getRawStorageId()))
-                .add(COLUMN_FAMILY, DOCUMENT_META_FIELD_NAME, mapper.writeValueAsBytes(document.getMetadata()))
-                .add(COLUMN_FAMILY, DOCUMENT_FIELD_NAME, mapper.writeValueAsBytes(document.getData()))
+                .add(COLUMN_FAMILY, DOCUMENT_META_FIELD_NAME, metadata)
+                .add(COLUMN_FAMILY, DOCUMENT_FIELD_NAME, data)
                 .add(COLUMN_FAMILY, TIMESTAMP_FIELD_NAME, Bytes.toBytes(document.getTimestamp()));
     }
 
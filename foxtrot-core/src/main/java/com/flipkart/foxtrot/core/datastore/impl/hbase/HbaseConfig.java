@@ -15,11 +15,14 @@
  */
 package com.flipkart.foxtrot.core.datastore.impl.hbase;
 
+import com.flipkart.foxtrot.core.datastore.impl.hbase.codec.CellEncoding;
 import org.hibernate.validator.constraints.NotEmpty;
 
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import java.util.Collections;
+import java.util.Map;
 
 /**
  * User: Santanu Sinha (santanu.sinha@flipkart.com)
@@ -47,6 +50,44 @@ public class HbaseConfig {
 
     private String rawKeyVersion = "2.0";
 
+    /**
+     * With rawKeyVersion 3.0, fall back to the pre 3.0 row key when a document is not found under its id derived
+     * key. Can be turned off once all documents written with older versions have expired.
+     */
+    private boolean legacyKeyReads = true;
+
+    /**
+     * Encoding for document cells of tables not listed in tableCellEncodings. Existing cells are readable in any case.
+     */
+    private CellEncoding cellEncoding = CellEncoding.JSON;
+
+    private Map<String, CellEncoding> tableCellEncodings = Collections.emptyMap();
+
+    /**
+     * Threads used to fetch multi get groups in parallel, 0 to fetch on the calling thread
+     */
+    @Min(0)
+    private int multiGetThreads = 16;
+
+    /**
+     * Max number of groups a single multi get is split into
+     */
+    @Min(1)
+    @Max(Byte.MAX_VALUE)
+    private int multiGetParallelism = 8;
+
+    /**
+     * Threads shared by all table handles for batch operations
+     */
+    @Min(1)
+    private int clientThreads = 64;
+
+    /**
+     * How often the keytab login is checked and renewed in secure mode
+     */
+    @Min(1)
+    private int reloginIntervalSeconds = 300;
+
     @NotNull
     @NotEmpty
     private String tableName;
@@ -173,4 +214,60 @@ public class HbaseConfig {
     public void setNumBuckets(short numBuckets) {
         this.numBuckets = numBuckets;
     }
+
+    public CellEncoding getCellEncoding() {
+        return cellEncoding;
+    }
+
+    public void setCellEncoding(CellEncoding cellEncoding) {
+        this.cellEncoding = cellEncoding;
+    }
+
+    public Map<String, CellEncoding> getTableCellEncodings() {
+        return tableCellEncodings;
+    }
+
+    public void setTableCellEncodings(Map<String, CellEncoding> tableCellEncodings) {
+        this.tableCellEncodings = tableCellEncodings;
+    }
+
+    public int getMultiGetThreads() {
+        return multiGetThreads;
+    }
+
+    public void setMultiGetThreads(int multiGetThreads) {
+        this.multiGetThreads = multiGetThreads;
+    }
+
+    public int getMultiGetParallelism() {
+        return multiGetParallelism;
+    }
+
+    public void setMultiGetParallelism(int multiGetParallelism) {
+        this.multiGetParallelism = multiGetParallelism;
+    }
+
+    public int getClientThreads() {
+        return clientThreads;
+    }
+
+    public void setClientThreads(int clientThreads) {
+        this.clientThreads = clientThreads;
+    }
+
+    public int getReloginIntervalSeconds() {
+        return reloginIntervalSeconds;
+    }
+
+    public void setReloginIntervalSeconds(int reloginIntervalSeconds) {
+        this.reloginIntervalSeconds = reloginIntervalSeconds;
+    }
+
+    public boolean isLegacyKeyReads() {
+        return legacyKeyReads;
+    }
+
+    public void setLegacyKeyReads(boolean legacyKeyReads) {
+        this.legacyKeyReads = legacyKeyReads;
+    }
 }
@@ -15,22 +15,32 @@
  */
 package com.flipkart.foxtrot.core.datastore.impl.hbase;
 
+import com.codahale.metrics.Gauge;
 import com.flipkart.foxtrot.common.Table;
 import com.flipkart.foxtrot.core.exception.FoxtrotExceptions;
 import com.flipkart.foxtrot.core.exception.FoxtrotException;
+import com.flipkart.foxtrot.core.util.MetricUtil;
 import com.flipkart.foxtrot.core.util.TableUtil;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.yammer.dropwizard.lifecycle.Managed;
 import net.sourceforge.cobertura.CoverageIgnore;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.client.HBaseAdmin;
+import org.apache.hadoop.hbase.client.HConnection;
+import org.apache.hadoop.hbase.client.HConnectionManager;
+import org.apache.hadoop.hbase.client.HTable;
 import org.apache.hadoop.hbase.client.HTableInterface;
-import org.apache.hadoop.hbase.client.HTablePool;
-import org.apache.hadoop.hbase.util.PoolMap;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * User: Santanu Sinha (santanu.sinha@flipkart.com)
@@ -42,21 +52,27 @@ public class HbaseTableConnection implements Managed {
     private static final Logger logger = LoggerFactory.getLogger(HbaseTableConnection.class.getSimpleName());
 
     private final HbaseConfig hbaseConfig;
-    private HTablePool tablePool;
+    private HConnection connection;
+    private ThreadPoolExecutor batchPool;
+    private ScheduledExecutorService reloginExecutor;
     private HBaseAdmin hBaseAdmin;
 
     public HbaseTableConnection(HbaseConfig hbaseConfig) {
         this.hbaseConfig = hbaseConfig;
     }
 
-    public synchronized HTableInterface getTable(final Table table) throws FoxtrotException {
+    /**
+     * Table handles are lightweight views over the shared connection and batch pool; callers must close them after
+     * use, which does not close the underlying connection.
+     */
+    public HTableInterface getTable(final Table table) throws FoxtrotException {
+        long start = System.nanoTime();
         try {
-            if (hbaseConfig.isSecure() && UserGroupInformation.isSecurityEnabled()) {
-                UserGroupInformation.getCurrentUser().reloginFromKeytab();
-            }
-            return tablePool.getTable(TableUtil.getTableName(hbaseConfig, table));
+            return new HTable(Bytes.toBytes(TableUtil.getTableName(hbaseConfig, table)), connection, batchPool);
         } catch (Exception e) {
             throw FoxtrotExceptions.createConnectionException(table, e);
+        } finally {
+            MetricUtil.getInstance().registerHbaseTableAcquire(System.nanoTime() - start);
         }
     }
 
@@ -73,17 +89,43 @@ public class HbaseTableConnection implements Managed {
     public void start() throws Exception {
         logger.info("Starting HBase Connection");
         Configuration configuration = HBaseUtil.create(hbaseConfig);
-        this.tablePool = new HTablePool(configuration, 10, PoolMap.PoolType.Reusable);
+        this.batchPool = new ThreadPoolExecutor(hbaseConfig.getClientThreads(), hbaseConfig.getClientThreads(),
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("hbase-table-%d").setDaemon(true).build());
+        this.batchPool.allowCoreThreadTimeOut(true);
+        this.connection = HConnectionManager.createConnection(configuration);
         this.hBaseAdmin = new HBaseAdmin(configuration);
+        MetricUtil.getInstance().registerHbaseGauge("pool.active", (Gauge<Integer>) batchPool::getActiveCount);
+        MetricUtil.getInstance().registerHbaseGauge("pool.size", (Gauge<Integer>) batchPool::getPoolSize);
+        MetricUtil.getInstance().registerHbaseGauge("pool.queued", (Gauge<Integer>) () -> batchPool.getQueue().size());
+        if (hbaseConfig.isSecure() && UserGroupInformation.isSecurityEnabled()) {
+            reloginExecutor = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("hbase-relogin-%d").setDaemon(true).build());
+            reloginExecutor.scheduleWithFixedDelay(this::relogin, hbaseConfig.getReloginIntervalSeconds(),
+                    hbaseConfig.getReloginIntervalSeconds(), TimeUnit.SECONDS);
+        }
         logger.info("Started HBase Connection");
     }
 
     @Override
     public void stop() throws Exception {
-        tablePool.close();
+        if (null != reloginExecutor) {
+            reloginExecutor.shutdownNow();
+        }
+        hBaseAdmin.close();
+        connection.close();
+        batchPool.shutdown();
     }
 
     public HbaseConfig getHbaseConfig() {
         return hbaseConfig;
     }
+
+    private void relogin() {
+        try {
+            UserGroupInformation.getLoginUser().checkTGTAndReloginFromKeytab();
+        } catch (Exception e) {
+            logger.error("Error renewing keytab login", e);
+        }
+    }
 }
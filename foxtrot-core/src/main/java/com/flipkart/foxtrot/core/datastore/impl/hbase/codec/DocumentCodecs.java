@@ -0,0 +1,97 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.datastore.impl.hbase.codec;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flipkart.foxtrot.common.Table;
+import com.flipkart.foxtrot.core.util.codec.DocumentCodec;
+import com.flipkart.foxtrot.core.util.codec.JsonDocumentCodec;
+import com.flipkart.foxtrot.core.util.codec.Lz4DocumentCodec;
+import com.flipkart.foxtrot.core.util.codec.SmileDocumentCodec;
+import com.google.common.collect.Maps;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Picks the codec used to write the cells of a table and decodes cells written with any known codec.
+ * Cells written by a codec other than plain JSON start with a header of [0x00][codec id]; JSON text can never
+ * start with a zero byte, so cells written before codecs existed are read as JSON.
+ */
+public class DocumentCodecs {
+    private static final byte HEADER_MARKER = 0;
+    private static final int HEADER_SIZE = 2;
+
+    private final JsonDocumentCodec jsonCodec;
+    private final Map<Byte, DocumentCodec> codecsById = Maps.newHashMap();
+    private final Map<CellEncoding, DocumentCodec> codecsByEncoding = Maps.newEnumMap(CellEncoding.class);
+    private final CellEncoding defaultEncoding;
+    private final Map<String, CellEncoding> tableEncodings;
+
+    public DocumentCodecs(ObjectMapper mapper) {
+        this(mapper, CellEncoding.JSON, Collections.emptyMap());
+    }
+
+    public DocumentCodecs(ObjectMapper mapper, CellEncoding defaultEncoding, Map<String, CellEncoding> tableEncodings) {
+        this.jsonCodec = new JsonDocumentCodec(mapper);
+        this.defaultEncoding = (null == defaultEncoding) ? CellEncoding.JSON : defaultEncoding;
+        this.tableEncodings = (null == tableEncodings) ? Collections.emptyMap() : tableEncodings;
+        SmileDocumentCodec smileCodec = new SmileDocumentCodec();
+        register(CellEncoding.JSON, jsonCodec);
+        register(CellEncoding.SMILE, smileCodec);
+        register(CellEncoding.SMILE_LZ4, new Lz4DocumentCodec(smileCodec));
+    }
+
+    public CellEncoding encodingFor(Table table) {
+        CellEncoding encoding = tableEncodings.get(table.getName());
+        return (null == encoding) ? defaultEncoding : encoding;
+    }
+
+    public byte[] encode(Table table, Object value) throws JsonProcessingException {
+        return encode(encodingFor(table), value);
+    }
+
+    public byte[] encode(CellEncoding encoding, Object value) throws JsonProcessingException {
+        DocumentCodec codec = codecsByEncoding.get(encoding);
+        if (codec == jsonCodec) {
+            return jsonCodec.encode(value);
+        }
+        byte[] payload = codec.encode(value);
+        byte[] cell = new byte[HEADER_SIZE + payload.length];
+        cell[0] = HEADER_MARKER;
+        cell[1] = codec.getId();
+        System.arraycopy(payload, 0, cell, HEADER_SIZE, payload.length);
+        return cell;
+    }
+
+    public <T> T decode(byte[] cell, Class<T> type) throws IOException {
+        if (cell.length < HEADER_SIZE || cell[0] != HEADER_MARKER) {
+            return jsonCodec.decode(cell, 0, cell.length, type);
+        }
+        DocumentCodec codec = codecsById.get(cell[1]);
+        if (null == codec) {
+            throw new IOException(String.format("Unknown cell codec id %d", cell[1]));
+        }
+        return codec.decode(cell, HEADER_SIZE, cell.length - HEADER_SIZE, type);
+    }
+
+    private void register(CellEncoding encoding, DocumentCodec codec) {
+        codecsByEncoding.put(encoding, codec);
+        codecsById.put(codec.getId(), codec);
+    }
+}
@@ -17,10 +17,14 @@ public enum ErrorCode {
     ACTION_RESOLUTION_FAILURE,
     UNRESOLVABLE_OPERATION,
     ACTION_EXECUTION_ERROR,
+    QUERY_TIMEOUT,
 
     STORE_CONNECTION_ERROR,
     STORE_EXECUTION_ERROR,
     DATA_CLEANUP_ERROR,
+    INGESTION_QUEUE_FULL,
+    INGESTION_TIMEOUT,
+    QUERY_REJECTED,
 
     EXECUTION_EXCEPTION,
     CONSOLE_SAVE_EXCEPTION,
@@ -61,6 +61,23 @@ public class FoxtrotExceptions {
         return new ActionExecutionException(actionRequest, e);
     }
 
+    public static QueryTimeoutException createQueryTimeoutException(ActionRequest actionRequest, long timeoutMs) {
+        return new QueryTimeoutException(actionRequest, timeoutMs);
+    }
+
+    public static IngestionQueueFullException createIngestionQueueFullException(String table, int queuedDocuments) {
+        return new IngestionQueueFullException(table, queuedDocuments);
+    }
+
+    public static IngestionTimeoutException createIngestionTimeoutException(String table, int documents,
+                                                                            long timeoutMs) {
+        return new IngestionTimeoutException(table, documents, timeoutMs);
+    }
+
+    public static QueryRejectedException createQueryRejectedException(String table, String opcode, int queuedQueries) {
+        return new QueryRejectedException(table, opcode, queuedQueries);
+    }
+
     public static TableExistsException createTableExistsException(String table) {
         return new TableExistsException(table);
     }
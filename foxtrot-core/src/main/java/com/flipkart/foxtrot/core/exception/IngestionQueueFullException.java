@@ -0,0 +1,44 @@
+package com.flipkart.foxtrot.core.exception;
+
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+
+/**
+ * Raised when the ingestion pipeline for a table has no room left for a submitted batch
+ */
+public class IngestionQueueFullException extends FoxtrotException {
+
+    private String table;
+    private int queuedDocuments;
+
+    protected IngestionQueueFullException(String table, int queuedDocuments) {
+        super(ErrorCode.INGESTION_QUEUE_FULL);
+        this.table = table;
+        this.queuedDocuments = queuedDocuments;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    public int getQueuedDocuments() {
+        return queuedDocuments;
+    }
+
+    public void setQueuedDocuments(int queuedDocuments) {
+        this.queuedDocuments = queuedDocuments;
+    }
+
+    @Override
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = Maps.newHashMap();
+        map.put("table", this.table);
+        map.put("queuedDocuments", this.queuedDocuments);
+        return map;
+    }
+}
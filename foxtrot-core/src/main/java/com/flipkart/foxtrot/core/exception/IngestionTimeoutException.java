@@ -0,0 +1,58 @@
+package com.flipkart.foxtrot.core.exception;
+
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+
+/**
+ * Raised when documents were handed to the stores by the ingestion pipeline but not acknowledged in time. They may
+ * still be written, so the outcome is unknown.
+ */
+public class IngestionTimeoutException extends FoxtrotException {
+
+    private String table;
+    private int documents;
+    private long timeoutMs;
+
+    protected IngestionTimeoutException(String table, int documents, long timeoutMs) {
+        super(ErrorCode.INGESTION_TIMEOUT, String.format(
+                "%d documents were accepted but not acknowledged in %d ms, they may still be written",
+                documents, timeoutMs));
+        this.table = table;
+        this.documents = documents;
+        this.timeoutMs = timeoutMs;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    public int getDocuments() {
+        return documents;
+    }
+
+    public void setDocuments(int documents) {
+        this.documents = documents;
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public void setTimeoutMs(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = Maps.newHashMap();
+        map.put("table", this.table);
+        map.put("documents", this.documents);
+        map.put("timeoutMs", this.timeoutMs);
+        return map;
+    }
+}
@@ -0,0 +1,55 @@
+package com.flipkart.foxtrot.core.exception;
+
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+
+/**
+ * Raised when the query scheduler has no room left to queue a query
+ */
+public class QueryRejectedException extends FoxtrotException {
+
+    private String table;
+    private String opcode;
+    private int queuedQueries;
+
+    protected QueryRejectedException(String table, String opcode, int queuedQueries) {
+        super(ErrorCode.QUERY_REJECTED);
+        this.table = table;
+        this.opcode = opcode;
+        this.queuedQueries = queuedQueries;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    public String getOpcode() {
+        return opcode;
+    }
+
+    public void setOpcode(String opcode) {
+        this.opcode = opcode;
+    }
+
+    public int getQueuedQueries() {
+        return queuedQueries;
+    }
+
+    public void setQueuedQueries(int queuedQueries) {
+        this.queuedQueries = queuedQueries;
+    }
+
+    @Override
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = Maps.newHashMap();
+        map.put("table", this.table);
+        map.put("opcode", this.opcode);
+        map.put("queuedQueries", this.queuedQueries);
+        return map;
+    }
+}
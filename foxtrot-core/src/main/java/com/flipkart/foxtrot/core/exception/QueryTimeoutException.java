@@ -0,0 +1,45 @@
+package com.flipkart.foxtrot.core.exception;
+
+import com.flipkart.foxtrot.common.ActionRequest;
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+
+/**
+ * Raised when an action did not complete within the time budget of its request
+ */
+public class QueryTimeoutException extends FoxtrotException {
+
+    private ActionRequest actionRequest;
+    private long timeoutMs;
+
+    protected QueryTimeoutException(ActionRequest actionRequest, long timeoutMs) {
+        super(ErrorCode.QUERY_TIMEOUT, String.format("Query did not complete in %d ms", timeoutMs));
+        this.actionRequest = actionRequest;
+        this.timeoutMs = timeoutMs;
+    }
+
+    public ActionRequest getActionRequest() {
+        return actionRequest;
+    }
+
+    public void setActionRequest(ActionRequest actionRequest) {
+        this.actionRequest = actionRequest;
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public void setTimeoutMs(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = Maps.newHashMap();
+        map.put("request", this.actionRequest);
+        map.put("timeoutMs", this.timeoutMs);
+        return map;
+    }
+}
@@ -0,0 +1,246 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.ingestion;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flipkart.foxtrot.common.Document;
+import com.flipkart.foxtrot.core.exception.FoxtrotException;
+import com.flipkart.foxtrot.core.exception.FoxtrotExceptions;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.yammer.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append only journal of accepted documents, kept in memory mapped segment files.
+ * Writers append and return as soon as the record is in the active segment (and forced to disk, depending on the
+ * {@link IngestionJournalConfig.SyncPolicy}). The {@link JournalReplayer} reads records back from the last
+ * checkpoint and moves the checkpoint forward once they have reached the stores. Segments entirely behind the
+ * checkpoint are deleted.
+ */
+public class IngestionJournal implements Managed {
+    private static final Logger logger = LoggerFactory.getLogger(IngestionJournal.class.getSimpleName());
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final IngestionJournalConfig config;
+    private final ObjectMapper mapper;
+    private final NavigableMap<Long, JournalSegment> segments = new ConcurrentSkipListMap<>();
+
+    private File directory;
+    private JournalSegment current;
+    private int writeOffset;
+    private volatile JournalPosition tail;
+    private volatile JournalPosition checkpoint;
+    private ScheduledExecutorService syncer;
+
+    public IngestionJournal(IngestionJournalConfig config, ObjectMapper mapper) {
+        this.config = config;
+        this.mapper = mapper;
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    public void append(String table, List<Document> documents) throws FoxtrotException {
+        final byte[] payload;
+        try {
+            payload = mapper.writeValueAsBytes(new JournalEntry(table, documents));
+        } catch (JsonProcessingException e) {
+            throw FoxtrotExceptions.createBadRequestException(table, e);
+        }
+        try {
+            synchronized (this) {
+                final int recordSize = JournalSegment.HEADER_SIZE + payload.length;
+                if (writeOffset + recordSize > current.capacity()) {
+                    roll(recordSize);
+                }
+                current.write(writeOffset, payload);
+                writeOffset += recordSize;
+                if (config.getSyncPolicy() == IngestionJournalConfig.SyncPolicy.ALWAYS) {
+                    current.force();
+                }
+                tail = new JournalPosition(current.getId(), writeOffset);
+            }
+        } catch (IOException e) {
+            throw FoxtrotExceptions.createExecutionException(table, e);
+        }
+    }
+
+    /**
+     * Reads complete records starting at the given position
+     *
+     * @param from       Position to start reading from
+     * @param maxRecords Max number of records to return
+     * @return records in journal order, empty if the reader has caught up with the writers
+     */
+    public List<JournalRecord> read(JournalPosition from, int maxRecords) {
+        List<JournalRecord> records = Lists.newArrayList();
+        final JournalPosition end = tail;
+        JournalPosition position = from;
+        while (records.size() < maxRecords && position.compareTo(end) < 0) {
+            JournalSegment segment = segments.get(position.getSegment());
+            byte[] payload = (null == segment) ? null : segment.read(position.getOffset());
+            if (null == payload) {
+                // Nothing more in this segment, move on to the next one
+                Long next = segments.higherKey(position.getSegment());
+                if (null == next) {
+                    break;
+                }
+                position = new JournalPosition(next, 0);
+                continue;
+            }
+            JournalPosition next = new JournalPosition(position.getSegment(),
+                    position.getOffset() + JournalSegment.HEADER_SIZE + payload.length);
+            JournalEntry entry = null;
+            try {
+                entry = mapper.readValue(payload, JournalEntry.class);
+            } catch (IOException e) {
+                logger.error("Skipping unreadable journal record at {}", position, e);
+            }
+            records.add(new JournalRecord(entry, next));
+            position = next;
+        }
+        return records;
+    }
+
+    public JournalPosition getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Marks everything before the position as written to the stores
+     */
+    public synchronized void checkpoint(JournalPosition position) throws IOException {
+        File checkpointFile = new File(directory, CHECKPOINT_FILE);
+        File tempFile = new File(directory, CHECKPOINT_FILE + ".tmp");
+        Files.write(tempFile.toPath(), position.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(tempFile.toPath(), checkpointFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.checkpoint = position;
+        for (Long segmentId : Lists.newArrayList(segments.headMap(position.getSegment()).keySet())) {
+            JournalSegment segment = segments.remove(segmentId);
+            if (!segment.delete()) {
+                logger.warn("Could not delete replayed journal segment {}", segmentId);
+            }
+        }
+    }
+
+    @Override
+    public void start() throws Exception {
+        if (!config.isEnabled()) {
+            return;
+        }
+        logger.info("Starting Ingestion Journal");
+        if (null == config.getDirectory()) {
+            throw new IllegalArgumentException("Journal directory needs to be specified when journal is enabled");
+        }
+        directory = new File(config.getDirectory());
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create journal directory " + directory);
+        }
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (null != files) {
+            for (File file : files) {
+                long id = segmentId(file.getName());
+                segments.put(id, JournalSegment.open(file, id, config.getSegmentSizeBytes()));
+            }
+        }
+        checkpoint = readCheckpoint();
+        // Never append to a segment left behind by a previous run, its tail may hold a torn record
+        long nextId = segments.isEmpty() ? Math.max(0, checkpoint.getSegment()) : segments.lastKey() + 1;
+        current = JournalSegment.open(segmentFile(nextId), nextId, config.getSegmentSizeBytes());
+        segments.put(nextId, current);
+        writeOffset = 0;
+        tail = new JournalPosition(nextId, 0);
+        if (segments.size() > 1) {
+            logger.info("Journal has {} segments pending replay from {}", segments.size() - 1, checkpoint);
+        }
+        if (config.getSyncPolicy() == IngestionJournalConfig.SyncPolicy.INTERVAL) {
+            syncer = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("journal-sync-%d").setDaemon(true).build());
+            syncer.scheduleWithFixedDelay(this::sync,
+                    config.getSyncIntervalMs(), config.getSyncIntervalMs(), TimeUnit.MILLISECONDS);
+        }
+        logger.info("Started Ingestion Journal");
+    }
+
+    @Override
+    public void stop() throws Exception {
+        if (!config.isEnabled()) {
+            return;
+        }
+        logger.info("Stopping Ingestion Journal");
+        if (null != syncer) {
+            syncer.shutdown();
+        }
+        sync();
+        for (JournalSegment segment : segments.values()) {
+            segment.close();
+        }
+        logger.info("Stopped Ingestion Journal");
+    }
+
+    private synchronized void sync() {
+        if (null != current) {
+            current.force();
+        }
+    }
+
+    private void roll(int recordSize) throws IOException {
+        current.force();
+        long nextId = current.getId() + 1;
+        current = JournalSegment.open(segmentFile(nextId), nextId,
+                Math.max(config.getSegmentSizeBytes(), recordSize));
+        segments.put(nextId, current);
+        writeOffset = 0;
+    }
+
+    private JournalPosition readCheckpoint() throws IOException {
+        File checkpointFile = new File(directory, CHECKPOINT_FILE);
+        if (!checkpointFile.exists()) {
+            return new JournalPosition(segments.isEmpty() ? 0 : segments.firstKey(), 0);
+        }
+        String[] parts = new String(Files.readAllBytes(checkpointFile.toPath()), StandardCharsets.UTF_8)
+                .trim().split(":");
+        return new JournalPosition(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+    }
+
+    private File segmentFile(long id) {
+        return new File(directory, String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private static long segmentId(String fileName) {
+        return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.ingestion;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration for the local write ahead journal used to ack document writes before they reach the stores
+ */
+public class IngestionJournalConfig {
+
+    public enum SyncPolicy {
+        /**
+         * Force every append to disk before acking it
+         */
+        ALWAYS,
+        /**
+         * Force the active segment to disk every {@link #getSyncIntervalMs()} milliseconds
+         */
+        INTERVAL,
+        /**
+         * Leave it to the OS to flush dirty pages
+         */
+        NONE
+    }
+
+    private boolean enabled = false;
+
+    private String directory;
+
+    @Min(1024 * 1024)
+    private int segmentSizeBytes = 64 * 1024 * 1024;
+
+    private SyncPolicy syncPolicy = SyncPolicy.INTERVAL;
+
+    @Min(1)
+    private int syncIntervalMs = 100;
+
+    /**
+     * Max number of journal records replayed into the stores in one go
+     */
+    @Min(1)
+    private int replayBatchSize = 100;
+
+    @Min(1)
+    private int replayIntervalMs = 200;
+
+    @Min(1)
+    private int replayTimeoutMs = 10000;
+
+    public IngestionJournalConfig() {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getSegmentSizeBytes() {
+        return segmentSizeBytes;
+    }
+
+    public void setSegmentSizeBytes(int segmentSizeBytes) {
+        this.segmentSizeBytes = segmentSizeBytes;
+    }
+
+    public SyncPolicy getSyncPolicy() {
+        return syncPolicy;
+    }
+
+    public void setSyncPolicy(SyncPolicy syncPolicy) {
+        this.syncPolicy = syncPolicy;
+    }
+
+    public int getSyncIntervalMs() {
+        return syncIntervalMs;
+    }
+
+    public void setSyncIntervalMs(int syncIntervalMs) {
+        this.syncIntervalMs = syncIntervalMs;
+    }
+
+    public int getReplayBatchSize() {
+        return replayBatchSize;
+    }
+
+    public void setReplayBatchSize(int replayBatchSize) {
+        this.replayBatchSize = replayBatchSize;
+    }
+
+    public int getReplayIntervalMs() {
+        return replayIntervalMs;
+    }
+
+    public void setReplayIntervalMs(int replayIntervalMs) {
+        this.replayIntervalMs = replayIntervalMs;
+    }
+
+    public int getReplayTimeoutMs() {
+        return replayTimeoutMs;
+    }
+
+    public void setReplayTimeoutMs(int replayTimeoutMs) {
+        this.replayTimeoutMs = replayTimeoutMs;
+    }
+}
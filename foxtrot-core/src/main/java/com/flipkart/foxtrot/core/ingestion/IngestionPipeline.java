@@ -0,0 +1,302 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.ingestion;
+
+import com.flipkart.foxtrot.common.Document;
+import com.flipkart.foxtrot.core.exception.ErrorCode;
+import com.flipkart.foxtrot.core.exception.FoxtrotException;
+import com.flipkart.foxtrot.core.exception.FoxtrotExceptions;
+import com.flipkart.foxtrot.core.querystore.BulkSaveResult;
+import com.flipkart.foxtrot.core.querystore.impl.ElasticsearchQueryStore;
+import com.flipkart.foxtrot.core.querystore.impl.ElasticsearchUtils;
+import com.flipkart.foxtrot.core.table.TableMetadataManager;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.yammer.dropwizard.lifecycle.Managed;
+import org.elasticsearch.action.ActionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Gathers documents from concurrent bulk calls into per table queues and writes them to the stores in larger
+ * batches. The data store write of a batch runs on a worker thread while the elasticsearch bulk request of the
+ * previous batch is still in flight, so both stores are written in parallel.
+ * Callers still wait for their own documents to be persisted, and fail if any of them could not be indexed. They get
+ * rejected right away once a table queue is full. A caller that gives up waiting takes its documents back out of the
+ * queue if they have not been handed to the stores yet, and gets an {@link ErrorCode#INGESTION_TIMEOUT} otherwise.
+ */
+public class IngestionPipeline implements Managed {
+    private static final Logger logger = LoggerFactory.getLogger(IngestionPipeline.class.getSimpleName());
+
+    private final IngestionPipelineConfig config;
+    private final TableMetadataManager tableMetadataManager;
+    private final ElasticsearchQueryStore queryStore;
+    private final ConcurrentMap<String, TableQueue> queues = Maps.newConcurrentMap();
+    private ExecutorService workers;
+    private ScheduledExecutorService flusher;
+
+    public IngestionPipeline(IngestionPipelineConfig config,
+                             TableMetadataManager tableMetadataManager,
+                             ElasticsearchQueryStore queryStore) {
+        this.config = config;
+        this.tableMetadataManager = tableMetadataManager;
+        this.queryStore = queryStore;
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    public void save(String table, List<Document> documents) throws FoxtrotException {
+        final String validTable = ElasticsearchUtils.getValidTableName(table);
+        if (!tableMetadataManager.exists(validTable)) {
+            throw FoxtrotExceptions.createTableMissingException(validTable);
+        }
+        if (documents == null || documents.isEmpty()) {
+            throw FoxtrotExceptions.createBadRequestException(validTable, "Empty Document List Not Allowed");
+        }
+        if (documents.size() >= config.getBatchSize()) {
+            // Already big enough to be worth a round trip of its own
+            BulkSaveResult result = queryStore.bulkSave(validTable, documents);
+            if (result.hasFailures()) {
+                throw failure(validTable, documents, result.getResults(), 0);
+            }
+            return;
+        }
+        TableQueue queue = queues.computeIfAbsent(validTable, TableQueue::new);
+        PendingWrite write = queue.offer(documents);
+        if (queue.size() >= config.getBatchSize()) {
+            workers.execute(() -> flush(queue));
+        }
+        try {
+            write.future.get(config.getTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof FoxtrotException) {
+                throw (FoxtrotException) e.getCause();
+            }
+            throw FoxtrotExceptions.createExecutionException(validTable, e);
+        } catch (InterruptedException | TimeoutException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (queue.withdraw(write)) {
+                // Never handed to the stores, safe to submit again
+                throw FoxtrotExceptions.createExecutionException(validTable, e);
+            }
+            throw FoxtrotExceptions.createIngestionTimeoutException(validTable, documents.size(),
+                    config.getTimeoutMs());
+        }
+    }
+
+    @Override
+    public void start() throws Exception {
+        logger.info("Starting Ingestion Pipeline");
+        workers = Executors.newFixedThreadPool(config.getWorkerThreads(),
+                new ThreadFactoryBuilder().setNameFormat("ingestion-worker-%d").setDaemon(true).build());
+        flusher = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("ingestion-flusher-%d").setDaemon(true).build());
+        flusher.scheduleWithFixedDelay(this::flushAll,
+                config.getFlushIntervalMs(), config.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+        logger.info("Started Ingestion Pipeline");
+    }
+
+    @Override
+    public void stop() throws Exception {
+        logger.info("Stopping Ingestion Pipeline");
+        flusher.shutdown();
+        queues.values().forEach(this::flush);
+        workers.shutdown();
+        workers.awaitTermination(config.getTimeoutMs(), TimeUnit.MILLISECONDS);
+        logger.info("Stopped Ingestion Pipeline");
+    }
+
+    private void flushAll() {
+        for (TableQueue queue : queues.values()) {
+            if (queue.size() > 0) {
+                workers.execute(() -> flush(queue));
+            }
+        }
+    }
+
+    private void flush(TableQueue queue) {
+        if (!queue.flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<PendingWrite> batch = queue.drain(config.getBatchSize());
+            while (!batch.isEmpty()) {
+                write(queue, batch);
+                batch = queue.drain(config.getBatchSize());
+            }
+        } catch (Exception e) {
+            logger.error("Error flushing ingestion queue for table {}", queue.table, e);
+        } finally {
+            queue.flushing.set(false);
+        }
+    }
+
+    private void write(final TableQueue queue, final List<PendingWrite> batch) {
+        List<Document> documents = Lists.newArrayList();
+        for (PendingWrite write : batch) {
+            documents.addAll(write.documents);
+        }
+        try {
+            queue.inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            complete(queue, batch, e);
+            return;
+        }
+        try {
+            queryStore.saveAsync(queue.table, documents, new ActionListener<BulkSaveResult>() {
+                @Override
+                public void onResponse(BulkSaveResult result) {
+                    queue.inFlight.release();
+                    // Results are in document order, each write owns the range of its documents
+                    int offset = 0;
+                    for (PendingWrite write : batch) {
+                        complete(queue, write, result.hasFailures()
+                                ? failure(queue.table, write.documents, result.getResults(), offset)
+                                : null);
+                        offset += write.documents.size();
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable e) {
+                    queue.inFlight.release();
+                    complete(queue, batch, FoxtrotExceptions.createExecutionException(queue.table, new Exception(e)));
+                }
+            });
+        } catch (FoxtrotException e) {
+            queue.inFlight.release();
+            if (e.getCode() == ErrorCode.INVALID_REQUEST && batch.size() > 1) {
+                // One bad submission must not fail the ones it got batched with
+                for (PendingWrite write : batch) {
+                    write(queue, Collections.singletonList(write));
+                }
+            } else {
+                complete(queue, batch, e);
+            }
+        } catch (RuntimeException e) {
+            queue.inFlight.release();
+            complete(queue, batch, FoxtrotExceptions.createExecutionException(queue.table, e));
+        }
+    }
+
+    private void complete(TableQueue queue, List<PendingWrite> batch, Throwable error) {
+        for (PendingWrite write : batch) {
+            complete(queue, write, error);
+        }
+    }
+
+    private void complete(TableQueue queue, PendingWrite write, Throwable error) {
+        queue.release(write);
+        if (null == error) {
+            write.future.complete(null);
+        } else {
+            write.future.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * @return error describing the failed documents among results [offset, offset + documents), null if none failed
+     */
+    private static FoxtrotException failure(String table, List<Document> documents,
+                                            List<BulkSaveResult.DocumentResult> results, int offset) {
+        List<String> failures = Lists.newArrayList();
+        for (int i = offset; i < offset + documents.size() && i < results.size(); i++) {
+            if (results.get(i).getStatus() == BulkSaveResult.Status.FAILED) {
+                failures.add(String.format("%s: %s", results.get(i).getId(), results.get(i).getFailureMessage()));
+            }
+        }
+        if (failures.isEmpty()) {
+            return null;
+        }
+        return FoxtrotExceptions.createExecutionException(table, new Exception(String.format(
+                "%d of %d documents could not be indexed: %s", failures.size(), documents.size(), failures)));
+    }
+
+    private static class PendingWrite {
+        private final List<Document> documents;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingWrite(List<Document> documents) {
+            this.documents = documents;
+        }
+    }
+
+    private class TableQueue {
+        private final String table;
+        private final Queue<PendingWrite> pending = new ConcurrentLinkedQueue<>();
+        private final Semaphore capacity = new Semaphore(config.getQueueSize());
+        private final Semaphore inFlight = new Semaphore(config.getMaxInFlightBulkRequests());
+        private final AtomicBoolean flushing = new AtomicBoolean(false);
+
+        private TableQueue(String table) {
+            this.table = table;
+        }
+
+        private PendingWrite offer(List<Document> documents) throws FoxtrotException {
+            if (!capacity.tryAcquire(documents.size())) {
+                throw FoxtrotExceptions.createIngestionQueueFullException(table, size());
+            }
+            PendingWrite write = new PendingWrite(documents);
+            pending.add(write);
+            return write;
+        }
+
+        private List<PendingWrite> drain(int maxDocuments) {
+            List<PendingWrite> batch = Lists.newArrayList();
+            int count = 0;
+            PendingWrite write;
+            while (count < maxDocuments && null != (write = pending.poll())) {
+                batch.add(write);
+                count += write.documents.size();
+            }
+            return batch;
+        }
+
+        /**
+         * Takes a write back out of the queue, unless a flush already drained it
+         *
+         * @return true if the write was removed and will never be written
+         */
+        private boolean withdraw(PendingWrite write) {
+            if (!pending.remove(write)) {
+                return false;
+            }
+            release(write);
+            write.future.cancel(false);
+            return true;
+        }
+
+        private void release(PendingWrite write) {
+            capacity.release(write.documents.size());
+        }
+
+        private int size() {
+            return config.getQueueSize() - capacity.availablePermits();
+        }
+    }
+}
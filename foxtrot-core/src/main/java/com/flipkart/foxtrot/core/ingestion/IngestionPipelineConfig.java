@@ -0,0 +1,126 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.ingestion;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration for the pipelined bulk ingestion path
+ */
+public class IngestionPipelineConfig {
+
+    private boolean enabled = false;
+
+    /**
+     * Max number of documents that can wait in the queue of a single table
+     */
+    @Min(1)
+    private int queueSize = 50000;
+
+    /**
+     * Max number of documents written to the stores in one batch
+     */
+    @Min(1)
+    private int batchSize = 1000;
+
+    @Min(1)
+    private int flushIntervalMs = 50;
+
+    @Min(1)
+    private int workerThreads = 4;
+
+    /**
+     * Max number of elasticsearch bulk requests in flight per table
+     */
+    @Min(1)
+    private int maxInFlightBulkRequests = 2;
+
+    @Min(1)
+    private int timeoutMs = 10000;
+
+    /**
+     * Number of documents read off a streamed bulk request before they are written to the stores
+     */
+    @Min(1)
+    private int streamChunkSize = 500;
+
+    public IngestionPipelineConfig() {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+
+    public void setFlushIntervalMs(int flushIntervalMs) {
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public int getMaxInFlightBulkRequests() {
+        return maxInFlightBulkRequests;
+    }
+
+    public void setMaxInFlightBulkRequests(int maxInFlightBulkRequests) {
+        this.maxInFlightBulkRequests = maxInFlightBulkRequests;
+    }
+
+    public int getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public void setTimeoutMs(int timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    public int getStreamChunkSize() {
+        return streamChunkSize;
+    }
+
+    public void setStreamChunkSize(int streamChunkSize) {
+        this.streamChunkSize = streamChunkSize;
+    }
+}
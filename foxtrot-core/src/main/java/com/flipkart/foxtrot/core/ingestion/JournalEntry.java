@@ -0,0 +1,52 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.ingestion;
+
+import com.flipkart.foxtrot.common.Document;
+
+import java.util.List;
+
+/**
+ * A batch of documents accepted for a table, as stored in one journal record
+ */
+public class JournalEntry {
+    private String table;
+    private List<Document> documents;
+
+    public JournalEntry() {
+    }
+
+    public JournalEntry(String table, List<Document> documents) {
+        this.table = table;
+        this.documents = documents;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    public List<Document> getDocuments() {
+        return documents;
+    }
+
+    public void setDocuments(List<Document> documents) {
+        this.documents = documents;
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.ingestion;
+
+/**
+ * A point in the journal, identified by segment and byte offset inside the segment
+ */
+public class JournalPosition implements Comparable<JournalPosition> {
+    private final long segment;
+    private final int offset;
+
+    public JournalPosition(long segment, int offset) {
+        this.segment = segment;
+        this.offset = offset;
+    }
+
+    public long getSegment() {
+        return segment;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    @Override
+    public int compareTo(JournalPosition other) {
+        if (segment != other.segment) {
+            return Long.compare(segment, other.segment);
+        }
+        return Integer.compare(offset, other.offset);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        JournalPosition that = (JournalPosition) o;
+        return segment == that.segment && offset == that.offset;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(segment) + offset;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d:%d", segment, offset);
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.ingestion;
+
+/**
+ * A journal entry read back from disk along with the position right after it
+ */
+public class JournalRecord {
+    private final JournalEntry entry;
+    private final JournalPosition next;
+
+    public JournalRecord(JournalEntry entry, JournalPosition next) {
+        this.entry = entry;
+        this.next = next;
+    }
+
+    /**
+     * @return the entry or null if the record could not be deserialized
+     */
+    public JournalEntry getEntry() {
+        return entry;
+    }
+
+    public JournalPosition getNext() {
+        return next;
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.ingestion;
+
+import com.flipkart.foxtrot.common.Document;
+import com.flipkart.foxtrot.core.exception.ErrorCode;
+import com.flipkart.foxtrot.core.exception.FoxtrotException;
+import com.flipkart.foxtrot.core.exception.FoxtrotExceptions;
+import com.flipkart.foxtrot.core.querystore.BulkSaveResult;
+import com.flipkart.foxtrot.core.querystore.impl.ElasticsearchQueryStore;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.yammer.dropwizard.lifecycle.Managed;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the {@link IngestionJournal} into the data store and elasticsearch, starting from the last checkpoint.
+ * Writes are idempotent (same row keys and document ids), so a batch that fails half way is simply replayed on the
+ * next run. This includes batches where elasticsearch failed some of the documents for a transient reason, only
+ * documents that can never be indexed (mapping errors and the like) are dropped.
+ */
+public class JournalReplayer implements Managed {
+    private static final Logger logger = LoggerFactory.getLogger(JournalReplayer.class.getSimpleName());
+
+    private final IngestionJournal journal;
+    private final ElasticsearchQueryStore queryStore;
+    private final IngestionJournalConfig config;
+    private ScheduledExecutorService executor;
+
+    public JournalReplayer(IngestionJournal journal,
+                           ElasticsearchQueryStore queryStore,
+                           IngestionJournalConfig config) {
+        this.journal = journal;
+        this.queryStore = queryStore;
+        this.config = config;
+    }
+
+    @Override
+    public void start() throws Exception {
+        if (!config.isEnabled()) {
+            return;
+        }
+        logger.info("Starting Journal Replayer");
+        executor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("journal-replayer-%d").setDaemon(true).build());
+        executor.scheduleWithFixedDelay(this::replay,
+                0, config.getReplayIntervalMs(), TimeUnit.MILLISECONDS);
+        logger.info("Started Journal Replayer");
+    }
+
+    @Override
+    public void stop() throws Exception {
+        if (!config.isEnabled()) {
+            return;
+        }
+        logger.info("Stopping Journal Replayer");
+        executor.shutdown();
+        executor.awaitTermination(config.getReplayTimeoutMs(), TimeUnit.MILLISECONDS);
+        logger.info("Stopped Journal Replayer");
+    }
+
+    void replay() {
+        try {
+            List<JournalRecord> records = journal.read(journal.getCheckpoint(), config.getReplayBatchSize());
+            while (!records.isEmpty()) {
+                write(records);
+                JournalPosition next = records.get(records.size() - 1).getNext();
+                journal.checkpoint(next);
+                records = journal.read(next, config.getReplayBatchSize());
+            }
+        } catch (Exception e) {
+            logger.error("Error replaying ingestion journal, will retry from {}", journal.getCheckpoint(), e);
+        }
+    }
+
+    private void write(List<JournalRecord> records) throws FoxtrotException {
+        // Records of the same table are merged into one bulk request, ordering within a table is retained
+        Map<String, List<Document>> documentsByTable = Maps.newLinkedHashMap();
+        for (JournalRecord record : records) {
+            if (null == record.getEntry()) {
+                continue;
+            }
+            documentsByTable.computeIfAbsent(record.getEntry().getTable(), table -> Lists.newArrayList())
+                    .addAll(record.getEntry().getDocuments());
+        }
+        for (Map.Entry<String, List<Document>> entry : documentsByTable.entrySet()) {
+            try {
+                PlainActionFuture<BulkSaveResult> future = PlainActionFuture.newFuture();
+                queryStore.writeAsync(entry.getKey(), entry.getValue(), future);
+                checkFailures(entry.getKey(), entry.getValue(), future.actionGet(config.getReplayTimeoutMs()));
+            } catch (FoxtrotException e) {
+                if (e.getCode() != ErrorCode.INVALID_REQUEST && e.getCode() != ErrorCode.TABLE_NOT_FOUND) {
+                    throw e;
+                }
+                // Retrying will never make these go through
+                logger.error("Dropping {} journaled documents for table {}", entry.getValue().size(), entry.getKey(), e);
+            }
+        }
+    }
+
+    private void checkFailures(String table, List<Document> documents, BulkSaveResult result) throws FoxtrotException {
+        int retryable = 0;
+        List<BulkSaveResult.DocumentResult> results = result.getResults();
+        for (int i = 0; i < results.size(); i++) {
+            BulkSaveResult.DocumentResult documentResult = results.get(i);
+            if (documentResult.getStatus() != BulkSaveResult.Status.FAILED) {
+                continue;
+            }
+            if (documentResult.isRetryable()) {
+                retryable++;
+            } else {
+                logger.error("Dropping journaled document {} of table {}: {}",
+                        documents.get(i).getId(), table, documentResult.getFailureMessage());
+            }
+        }
+        if (retryable > 0) {
+            // Not checkpointing the batch makes the next run write it again
+            throw FoxtrotExceptions.createExecutionException(table, new IllegalStateException(
+                    String.format("%d journaled documents could not be indexed", retryable)));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.ingestion;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * A fixed size, memory mapped journal file. Records are laid out back to back as
+ * [payload length (int)][crc32 of payload (int)][payload]. Unwritten space is zero filled, so a zero length marks
+ * the end of the records in a segment.
+ */
+class JournalSegment implements Closeable {
+    static final int HEADER_SIZE = 8;
+
+    private final long id;
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final MappedByteBuffer buffer;
+
+    private JournalSegment(long id, File file, int size) throws IOException {
+        this.id = id;
+        this.file = file;
+        this.randomAccessFile = new RandomAccessFile(file, "rw");
+        if (randomAccessFile.length() < size) {
+            randomAccessFile.setLength(size);
+        }
+        this.buffer = randomAccessFile.getChannel()
+                .map(FileChannel.MapMode.READ_WRITE, 0, randomAccessFile.length());
+    }
+
+    static JournalSegment open(File file, long id, int size) throws IOException {
+        return new JournalSegment(id, file, size);
+    }
+
+    long getId() {
+        return id;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Callers must serialize writes and must have checked that the record fits
+     */
+    void write(int offset, byte[] payload) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + HEADER_SIZE);
+        view.put(payload);
+        view.putInt(offset + 4, (int) checksum(payload));
+        // Length goes in last so that a torn write never looks like a complete record
+        view.putInt(offset, payload.length);
+    }
+
+    /**
+     * @return payload of the record at the offset or null if there is no complete record there
+     */
+    byte[] read(int offset) {
+        if (offset + HEADER_SIZE > buffer.capacity()) {
+            return null;
+        }
+        ByteBuffer view = buffer.duplicate();
+        int length = view.getInt(offset);
+        if (length <= 0 || offset + HEADER_SIZE + length > buffer.capacity()) {
+            return null;
+        }
+        int crc = view.getInt(offset + 4);
+        byte[] payload = new byte[length];
+        view.position(offset + HEADER_SIZE);
+        view.get(payload);
+        return ((int) checksum(payload) == crc) ? payload : null;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        randomAccessFile.close();
+    }
+
+    boolean delete() throws IOException {
+        close();
+        return file.delete();
+    }
+
+    private static long checksum(byte[] payload) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload, 0, payload.length);
+        return crc32.getValue();
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.querystore;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Outcome of a bulk save, one entry per input document in input order
+ */
+public class BulkSaveResult {
+    public enum Status {
+        /**
+         * Written to the data store and indexed
+         */
+        INDEXED,
+        /**
+         * Written to the data store, but not indexed since the timestamp is more than a day in the future
+         */
+        SKIPPED,
+        /**
+         * Accepted into the ingestion journal, will be written to the stores asynchronously
+         */
+        QUEUED,
+        /**
+         * Written to the data store, but could not be indexed
+         */
+        FAILED
+    }
+
+    public static class DocumentResult {
+        private final String id;
+        private final Status status;
+        private final String failureMessage;
+        private final int attempts;
+        private final boolean retryable;
+
+        public DocumentResult(String id, Status status, String failureMessage, int attempts) {
+            this(id, status, failureMessage, attempts, false);
+        }
+
+        /**
+         * @param retryable true if a failure is transient (rejections, unavailable shards) and the document may go
+         *                  through if written again
+         */
+        public DocumentResult(String id, Status status, String failureMessage, int attempts, boolean retryable) {
+            this.id = id;
+            this.status = status;
+            this.failureMessage = failureMessage;
+            this.attempts = attempts;
+            this.retryable = retryable;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public String getFailureMessage() {
+            return failureMessage;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+
+        public boolean isRetryable() {
+            return retryable;
+        }
+    }
+
+    private final List<DocumentResult> results;
+
+    public BulkSaveResult(List<DocumentResult> results) {
+        this.results = Collections.unmodifiableList(results);
+    }
+
+    public List<DocumentResult> getResults() {
+        return results;
+    }
+
+    public boolean hasFailures() {
+        return results.stream().anyMatch(result -> result.getStatus() == Status.FAILED);
+    }
+
+    public List<DocumentResult> getFailures() {
+        return results.stream()
+                .filter(result -> result.getStatus() == Status.FAILED)
+                .collect(Collectors.toList());
+    }
+}
@@ -26,6 +26,7 @@ public class DocumentTranslator {
 
     private String rawKeyVersion;
     private final AbstractRowKeyDistributor keyDistributor;
+    private final boolean legacyKeyReads;
 
     public DocumentTranslator(HbaseConfig hbaseConfig) {
         if (CollectionUtils.isNullOrEmpty(hbaseConfig.getRawKeyVersion())
@@ -35,9 +36,13 @@ public class DocumentTranslator {
         } else if (hbaseConfig.getRawKeyVersion().equalsIgnoreCase("2.0")) {
             this.keyDistributor = new RowKeyDistributorByHashPrefix(new RowKeyDistributorByHashPrefix.OneByteSimpleHash(32));
             this.rawKeyVersion = "2.0";
+        } else if (hbaseConfig.getRawKeyVersion().equalsIgnoreCase("3.0")) {
+            this.keyDistributor = new RowKeyDistributorByHashPrefix(new RowKeyDistributorByHashPrefix.OneByteSimpleHash(32));
+            this.rawKeyVersion = "3.0";
         } else {
             throw new IllegalArgumentException(String.format("rawKeyVersion not supported version=[%s]", hbaseConfig.getRawKeyVersion()));
         }
+        this.legacyKeyReads = hbaseConfig.isLegacyKeyReads();
     }
 
     public List<Document> translate(final Table table, final List<Document> inDocuments) {
@@ -57,6 +62,7 @@ public class DocumentTranslator {
                 document.setId(inDocument.getId());
                 break;
             case "2.0":
+            case "3.0":
                 document.setId(metadata.getRawStorageId());
                 break;
             default:
@@ -95,6 +101,8 @@ public class DocumentTranslator {
             case "2.0":
                 return String.format("%s:%020d:%s:%s",
                         table.getName(), document.getTimestamp(), document.getId(), Constants.rawKeyVersionToSuffixMap.get(rawKeyVersion));
+            case "3.0":
+                return idDerivedKey(table, document.getId());
             default:
                 throw new IllegalArgumentException(String.format("rawKeyVersion not supported version=[%s]", rawKeyVersion));
         }
@@ -106,11 +114,43 @@ public class DocumentTranslator {
     }
 
     public String rawStorageIdFromDocumentId(Table table, String id) {
-        if (id.endsWith(Constants.rawKeyVersionToSuffixMap.get("2.0"))) {
+        if (isRawStorageId(id)) {
             return id;
         }
+        if (isIdDerivedKey()) {
+            return generateScalableKey(idDerivedKey(table, id));
+        }
 
         return String.format("%s:%s", id, table.getName());
         //IMPLEMENTOR NOTE:: Handle older versions here
     }
+
+    /**
+     * Row key a plain document id mapped to before the switch to id derived keys, used to read documents written
+     * before the migration.
+     *
+     * @return legacy row key or null if there is nothing else to try
+     */
+    public String legacyRawStorageIdFromDocumentId(Table table, String id) {
+        if (!isIdDerivedKey() || !legacyKeyReads || isRawStorageId(id)) {
+            return null;
+        }
+        return String.format("%s:%s", id, table.getName());
+    }
+
+    /**
+     * @return true if the row key of a document can be derived from its id alone, so no index lookup is needed
+     */
+    public boolean isIdDerivedKey() {
+        return "3.0".equals(rawKeyVersion);
+    }
+
+    private boolean isRawStorageId(String id) {
+        return id.endsWith(Constants.rawKeyVersionToSuffixMap.get("2.0"))
+                || id.endsWith(Constants.rawKeyVersionToSuffixMap.get("3.0"));
+    }
+
+    private String idDerivedKey(Table table, String id) {
+        return String.format("%s:%s:%s", table.getName(), id, Constants.rawKeyVersionToSuffixMap.get("3.0"));
+    }
 }
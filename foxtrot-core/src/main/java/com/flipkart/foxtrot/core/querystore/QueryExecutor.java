@@ -18,11 +18,17 @@ package com.flipkart.foxtrot.core.querystore;
 import com.flipkart.foxtrot.common.ActionRequest;
 import com.flipkart.foxtrot.common.ActionResponse;
 import com.flipkart.foxtrot.core.common.Action;
+import com.flipkart.foxtrot.core.common.AsyncJobRegistry;
 import com.flipkart.foxtrot.core.common.AsyncDataToken;
 import com.flipkart.foxtrot.core.exception.FoxtrotException;
 import com.flipkart.foxtrot.core.exception.FoxtrotExceptions;
 import com.flipkart.foxtrot.core.querystore.actions.spi.AnalyticsLoader;
+import com.flipkart.foxtrot.core.querystore.scheduler.QueryPriority;
+import com.flipkart.foxtrot.core.querystore.scheduler.QueryScheduler;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 
 /**
@@ -35,18 +41,88 @@ public class QueryExecutor {
 
     private final AnalyticsLoader analyticsLoader;
     private final ExecutorService executorService;
+    private final QueryScheduler queryScheduler;
+    private final AsyncJobRegistry asyncJobRegistry;
 
     public QueryExecutor(AnalyticsLoader analyticsLoader, ExecutorService executorService) {
+        this(analyticsLoader, executorService, null);
+    }
+
+    /**
+     * @param queryScheduler Admits queries to elasticsearch, null to run them as they come
+     */
+    public QueryExecutor(AnalyticsLoader analyticsLoader,
+                         ExecutorService executorService,
+                         QueryScheduler queryScheduler) {
+        this(analyticsLoader, executorService, queryScheduler, null);
+    }
+
+    /**
+     * @param asyncJobRegistry Tracks async executions, null to not track them
+     */
+    public QueryExecutor(AnalyticsLoader analyticsLoader,
+                         ExecutorService executorService,
+                         QueryScheduler queryScheduler,
+                         AsyncJobRegistry asyncJobRegistry) {
         this.analyticsLoader = analyticsLoader;
         this.executorService = executorService;
+        this.queryScheduler = queryScheduler;
+        this.asyncJobRegistry = asyncJobRegistry;
     }
 
     public <T extends ActionRequest> ActionResponse execute(T request) throws FoxtrotException {
-        return resolve(request).execute();
+        return execute(request, QueryPriority.INTERACTIVE);
+    }
+
+    public <T extends ActionRequest> ActionResponse execute(T request, QueryPriority priority) throws FoxtrotException {
+        Action action = resolve(request);
+        if (null == queryScheduler) {
+            return action.execute();
+        }
+        // Blocking actions run on the calling thread if they get a slot right away, on the executor if queued
+        return await(request, action.executeNonBlocking(Runnable::run, queryScheduler, priority));
     }
 
     public <T extends ActionRequest> AsyncDataToken executeAsync(T request) throws FoxtrotException {
-        return resolve(request).execute(executorService);
+        return resolve(request).execute(executorService, queryScheduler, QueryPriority.ASYNC, asyncJobRegistry);
+    }
+
+    /**
+     * Executes the request without blocking the calling thread while elasticsearch is working on it
+     */
+    public <T extends ActionRequest> CompletableFuture<ActionResponse> executeNonBlocking(T request) {
+        try {
+            return resolve(request).executeNonBlocking(executorService, queryScheduler, QueryPriority.INTERACTIVE);
+        } catch (FoxtrotException e) {
+            CompletableFuture<ActionResponse> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    private static ActionResponse await(ActionRequest request,
+                                        CompletableFuture<ActionResponse> future) throws FoxtrotException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw FoxtrotExceptions.createQueryExecutionException(request, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof CompletionException && null != cause.getCause()) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof FoxtrotException) {
+                throw (FoxtrotException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw FoxtrotExceptions.createQueryExecutionException(request, (Exception) cause);
+        }
     }
 
     public <T extends ActionRequest> void validate(T request) throws FoxtrotException {
@@ -39,6 +39,11 @@ public interface QueryStore {
 
     void save(final String table, final List<Document> documents) throws FoxtrotException;
 
+    /**
+     * Same as {@link #save(String, List)}, but reports what happened to every single document
+     */
+    BulkSaveResult bulkSave(final String table, final List<Document> documents) throws FoxtrotException;
+
     Document get(final String table, final String id) throws FoxtrotException;
 
     List<Document> getAll(final String table, final List<String> ids) throws FoxtrotException;
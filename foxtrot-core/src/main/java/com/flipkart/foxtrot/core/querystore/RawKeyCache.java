@@ -0,0 +1,151 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.querystore;
+
+import com.flipkart.foxtrot.common.Document;
+import com.flipkart.foxtrot.core.querystore.impl.HazelcastConnection;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.hazelcast.config.InMemoryFormat;
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.core.IMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the raw storage id (the elasticsearch document id, from which the data store row key is derived) of
+ * documents by table and document id. Entries are added when documents are written and when they are looked up in
+ * elasticsearch, so that most point lookups go straight to the data store.
+ * Values are kept as utf-8 bytes and the local cache is bounded by an approximate byte budget.
+ */
+public class RawKeyCache {
+    private static final Logger logger = LoggerFactory.getLogger(RawKeyCache.class.getSimpleName());
+
+    private static final String MAP_NAME = "raw-key-cache";
+    // Rough per entry overhead of the key string, value array and cache entry
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final Cache<String, byte[]> localCache;
+    private final HazelcastConnection hazelcastConnection;
+
+    public RawKeyCache(RawKeyCacheConfig config) {
+        this(config, null);
+    }
+
+    public RawKeyCache(RawKeyCacheConfig config, HazelcastConnection hazelcastConnection) {
+        this.localCache = CacheBuilder.newBuilder()
+                .maximumWeight(config.getMaxSizeBytes())
+                .weigher(new Weigher<String, byte[]>() {
+                    @Override
+                    public int weigh(String key, byte[] value) {
+                        return ENTRY_OVERHEAD_BYTES + 2 * key.length() + value.length;
+                    }
+                })
+                .expireAfterWrite(config.getExpireAfterWriteSeconds(), TimeUnit.SECONDS)
+                .build();
+        this.hazelcastConnection = config.isDistributed() ? hazelcastConnection : null;
+        if (null != this.hazelcastConnection) {
+            MapConfig mapConfig = hazelcastConnection.getHazelcastConfig().getMapConfig(MAP_NAME);
+            mapConfig.setInMemoryFormat(InMemoryFormat.BINARY);
+            mapConfig.setTimeToLiveSeconds(config.getDistributedTtlSeconds());
+            mapConfig.setBackupCount(0);
+        }
+    }
+
+    /**
+     * Caches the raw ids of translated documents
+     */
+    public void put(String table, List<Document> translatedDocuments) {
+        for (Document document : translatedDocuments) {
+            if (null != document.getMetadata()) {
+                put(table, document.getMetadata().getId(), document.getId());
+            }
+        }
+    }
+
+    public void put(String table, String id, String rawStorageId) {
+        final String key = key(table, id);
+        localCache.put(key, rawStorageId.getBytes(StandardCharsets.UTF_8));
+        if (null != hazelcastConnection) {
+            try {
+                distributedMap().putAsync(key, rawStorageId);
+            } catch (Exception e) {
+                logger.error("Error caching raw key in cluster for table {}", table, e);
+            }
+        }
+    }
+
+    /**
+     * @return cached raw storage id or null
+     */
+    public String get(String table, String id) {
+        return getAll(table, Sets.newHashSet(id)).get(id);
+    }
+
+    /**
+     * @return cached raw storage ids by document id, ids that are not cached are absent
+     */
+    public Map<String, String> getAll(String table, Collection<String> ids) {
+        Map<String, String> rawIds = Maps.newHashMap();
+        Set<String> missingKeys = Sets.newHashSet();
+        for (String id : ids) {
+            final String key = key(table, id);
+            byte[] rawId = localCache.getIfPresent(key);
+            if (null != rawId) {
+                rawIds.put(id, new String(rawId, StandardCharsets.UTF_8));
+            } else {
+                missingKeys.add(key);
+            }
+        }
+        if (null == hazelcastConnection || missingKeys.isEmpty()) {
+            return rawIds;
+        }
+        try {
+            final int idOffset = table.length() + 1;
+            for (Map.Entry<String, String> entry : distributedMap().getAll(missingKeys).entrySet()) {
+                if (null != entry.getValue()) {
+                    localCache.put(entry.getKey(), entry.getValue().getBytes(StandardCharsets.UTF_8));
+                    rawIds.put(entry.getKey().substring(idOffset), entry.getValue());
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error reading raw keys from cluster for table {}", table, e);
+        }
+        return rawIds;
+    }
+
+    public long size() {
+        return localCache.size();
+    }
+
+    private IMap<String, String> distributedMap() {
+        return hazelcastConnection.getHazelcast().getMap(MAP_NAME);
+    }
+
+    private static String key(String table, String id) {
+        return table + ":" + id;
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.querystore;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration for the document id to raw storage id cache used by point lookups
+ */
+public class RawKeyCacheConfig {
+
+    private boolean enabled = true;
+
+    /**
+     * Approximate heap budget of the local cache
+     */
+    @Min(1)
+    private long maxSizeBytes = 64 * 1024 * 1024;
+
+    @Min(1)
+    private int expireAfterWriteSeconds = 3600;
+
+    /**
+     * Share entries across the cluster through hazelcast, so that lookups on a node other than the one that took the
+     * write can skip elasticsearch as well
+     */
+    private boolean distributed = false;
+
+    @Min(1)
+    private int distributedTtlSeconds = 3600;
+
+    public RawKeyCacheConfig() {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getMaxSizeBytes() {
+        return maxSizeBytes;
+    }
+
+    public void setMaxSizeBytes(long maxSizeBytes) {
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    public int getExpireAfterWriteSeconds() {
+        return expireAfterWriteSeconds;
+    }
+
+    public void setExpireAfterWriteSeconds(int expireAfterWriteSeconds) {
+        this.expireAfterWriteSeconds = expireAfterWriteSeconds;
+    }
+
+    public boolean isDistributed() {
+        return distributed;
+    }
+
+    public void setDistributed(boolean distributed) {
+        this.distributed = distributed;
+    }
+
+    public int getDistributedTtlSeconds() {
+        return distributedTtlSeconds;
+    }
+
+    public void setDistributedTtlSeconds(int distributedTtlSeconds) {
+        this.distributedTtlSeconds = distributedTtlSeconds;
+    }
+}
@@ -25,7 +25,8 @@ import java.util.Map;
 public class Constants {
 
     public static final Map<String, String> rawKeyVersionToSuffixMap = ImmutableMap.<String, String>builder()
-            .put("2.0", "__RAW_KEY_VERSION_2__").build();
+            .put("2.0", "__RAW_KEY_VERSION_2__")
+            .put("3.0", "__RAW_KEY_VERSION_3__").build();
 
     public static final String FIELD_REPLACEMENT_REGEX = "[^a-zA-Z0-9\\-_]";
     public static final String FIELD_REPLACEMENT_VALUE = "_";
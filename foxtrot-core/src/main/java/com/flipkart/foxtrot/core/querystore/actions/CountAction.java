@@ -3,12 +3,12 @@ package com.flipkart.foxtrot.core.querystore.actions;
 import com.flipkart.foxtrot.common.ActionResponse;
 import com.flipkart.foxtrot.common.count.CountRequest;
 import com.flipkart.foxtrot.common.count.CountResponse;
-import com.flipkart.foxtrot.common.query.Filter;
 import com.flipkart.foxtrot.common.query.FilterCombinerType;
 import com.flipkart.foxtrot.common.query.general.ExistsFilter;
 import com.flipkart.foxtrot.common.util.CollectionUtils;
 import com.flipkart.foxtrot.core.cache.CacheManager;
 import com.flipkart.foxtrot.core.common.Action;
+import com.flipkart.foxtrot.core.common.RequestFingerprint;
 import com.flipkart.foxtrot.core.datastore.DataStore;
 import com.flipkart.foxtrot.core.exception.FoxtrotException;
 import com.flipkart.foxtrot.core.exception.FoxtrotExceptions;
@@ -20,7 +20,6 @@ import com.flipkart.foxtrot.core.querystore.impl.ElasticsearchUtils;
 import com.flipkart.foxtrot.core.querystore.query.ElasticSearchQueryGenerator;
 import com.flipkart.foxtrot.core.table.TableMetadataManager;
 import org.elasticsearch.ElasticsearchException;
-import org.elasticsearch.action.count.CountRequestBuilder;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
@@ -29,12 +28,14 @@ import org.elasticsearch.search.aggregations.metrics.cardinality.Cardinality;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Created by rishabh.goyal on 02/11/14.
  */
 
-@AnalyticsProvider(opcode = "count", request = CountRequest.class, response = CountResponse.class, cacheable = false)
+@AnalyticsProvider(opcode = "count", request = CountRequest.class, response = CountResponse.class, cacheable = true)
 public class CountAction extends Action<CountRequest> {
 
     public CountAction(CountRequest parameter,
@@ -64,17 +65,12 @@ public class CountAction extends Action<CountRequest> {
 
     @Override
     protected String getRequestCacheKey() {
-        long filterHashKey = 0L;
-        CountRequest request = getParameter();
-        if (null != request.getFilters()) {
-            for (Filter filter : request.getFilters()) {
-                filterHashKey += 31 * filter.hashCode();
-            }
-        }
+        return String.format("count-%s-%s", getParameter().getTable(), RequestFingerprint.of(getParameter()));
+    }
 
-        filterHashKey += 31 * (request.isDistinct() ? "TRUE".hashCode() : "FALSE".hashCode());
-        filterHashKey += 31 * (request.getField() != null ? request.getField().hashCode() : "COLUMN".hashCode());
-        return String.format("count-%s-%d", request.getTable(), filterHashKey);
+    @Override
+    protected String getTable() {
+        return getParameter().getTable();
     }
 
     @Override
@@ -93,48 +89,64 @@ public class CountAction extends Action<CountRequest> {
 
     @Override
     public ActionResponse execute(CountRequest parameter) throws FoxtrotException {
-        if (parameter.isDistinct()) {
-            SearchRequestBuilder query;
-            try {
-                query = getConnection().getClient()
-                        .prepareSearch(ElasticsearchUtils.getIndices(parameter.getTable(), parameter))
-                        .setIndicesOptions(Utils.indicesOptions())
-                        .setSearchType(SearchType.COUNT)
-                        .setQuery(new ElasticSearchQueryGenerator(FilterCombinerType.and)
-                                .genFilter(parameter.getFilters()))
-                        .addAggregation(Utils.buildCardinalityAggregation(parameter.getField()));
-            } catch (Exception e) {
-                throw FoxtrotExceptions.queryCreationException(parameter, e);
+        try {
+            if (parameter.isDistinct()) {
+                return getDistinctResponse(await(getDistinctRequestBuilder(parameter).execute()), parameter);
             }
+            return getCountResponse(await(getCountRequestBuilder(parameter).execute()));
+        } catch (ElasticsearchException e) {
+            throw FoxtrotExceptions.createQueryExecutionException(parameter, e);
+        }
+    }
 
-            try {
-                SearchResponse response = query.execute().actionGet();
-                Aggregations aggregations = response.getAggregations();
-                Cardinality cardinality = aggregations.get(Utils.sanitizeFieldForAggregation(parameter.getField()));
-                if (cardinality == null) {
-                    return new CountResponse(0);
-                } else {
-                    return new CountResponse(cardinality.getValue());
-                }
-            } catch (ElasticsearchException e) {
-                throw FoxtrotExceptions.createQueryExecutionException(parameter, e);
-            }
+    @Override
+    protected CompletableFuture<ActionResponse> executeAsync(CountRequest parameter, Executor executor) {
+        if (parameter.isDistinct()) {
+            return listen(parameter, listener -> getDistinctRequestBuilder(parameter).execute(listener),
+                    (SearchResponse response) -> getDistinctResponse(response, parameter));
+        }
+        return listen(parameter, listener -> getCountRequestBuilder(parameter).execute(listener),
+                (SearchResponse response) -> getCountResponse(response));
+    }
+
+    private SearchRequestBuilder getDistinctRequestBuilder(CountRequest parameter) throws FoxtrotException {
+        try {
+            return withTimeout(getConnection().getClient()
+                    .prepareSearch(ElasticsearchUtils.getIndices(parameter.getTable(), parameter))
+                    .setIndicesOptions(Utils.indicesOptions())
+                    .setSearchType(SearchType.COUNT)
+                    .setQuery(new ElasticSearchQueryGenerator(FilterCombinerType.and)
+                            .genFilter(parameter.getFilters()))
+                    .addAggregation(Utils.buildCardinalityAggregation(parameter.getField())));
+        } catch (Exception e) {
+            throw FoxtrotExceptions.queryCreationException(parameter, e);
+        }
+    }
+
+    private ActionResponse getDistinctResponse(SearchResponse response, CountRequest parameter) {
+        Aggregations aggregations = response.getAggregations();
+        Cardinality cardinality = aggregations.get(Utils.sanitizeFieldForAggregation(parameter.getField()));
+        if (cardinality == null) {
+            return new CountResponse(0);
         } else {
-            CountRequestBuilder countRequestBuilder;
-            try {
-                countRequestBuilder = getConnection().getClient()
-                        .prepareCount(ElasticsearchUtils.getIndices(parameter.getTable(), parameter))
-                        .setIndicesOptions(Utils.indicesOptions())
-                        .setQuery(new ElasticSearchQueryGenerator(FilterCombinerType.and).genFilter(parameter.getFilters()));
-            } catch (Exception e) {
-                throw FoxtrotExceptions.queryCreationException(parameter, e);
-            }
-            try {
-                org.elasticsearch.action.count.CountResponse countResponse = countRequestBuilder.execute().actionGet();
-                return new CountResponse(countResponse.getCount());
-            } catch (ElasticsearchException e) {
-                throw FoxtrotExceptions.createQueryExecutionException(parameter, e);
-            }
+            return new CountResponse(cardinality.getValue());
+        }
+    }
+
+    private SearchRequestBuilder getCountRequestBuilder(CountRequest parameter) throws FoxtrotException {
+        try {
+            return withTimeout(getConnection().getClient()
+                    .prepareSearch(ElasticsearchUtils.getIndices(parameter.getTable(), parameter))
+                    .setIndicesOptions(Utils.indicesOptions())
+                    .setSearchType(SearchType.COUNT)
+                    .setQuery(new ElasticSearchQueryGenerator(FilterCombinerType.and)
+                            .genFilter(parameter.getFilters())));
+        } catch (Exception e) {
+            throw FoxtrotExceptions.queryCreationException(parameter, e);
         }
     }
+
+    private ActionResponse getCountResponse(SearchResponse response) {
+        return new CountResponse(response.getHits().getTotalHits());
+    }
 }
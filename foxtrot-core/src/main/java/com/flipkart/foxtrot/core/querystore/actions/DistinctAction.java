@@ -3,12 +3,12 @@ package com.flipkart.foxtrot.core.querystore.actions;
 import com.flipkart.foxtrot.common.ActionResponse;
 import com.flipkart.foxtrot.common.distinct.DistinctRequest;
 import com.flipkart.foxtrot.common.distinct.DistinctResponse;
-import com.flipkart.foxtrot.common.query.Filter;
 import com.flipkart.foxtrot.common.query.FilterCombinerType;
 import com.flipkart.foxtrot.common.query.ResultSort;
 import com.flipkart.foxtrot.common.util.CollectionUtils;
 import com.flipkart.foxtrot.core.cache.CacheManager;
 import com.flipkart.foxtrot.core.common.Action;
+import com.flipkart.foxtrot.core.common.RequestFingerprint;
 import com.flipkart.foxtrot.core.datastore.DataStore;
 import com.flipkart.foxtrot.core.exception.FoxtrotException;
 import com.flipkart.foxtrot.core.exception.FoxtrotExceptions;
@@ -33,6 +33,8 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -65,17 +67,12 @@ public class DistinctAction extends Action<DistinctRequest> {
 
     @Override
     protected String getRequestCacheKey() {
-        long filterHashKey = 0L;
-        DistinctRequest query = getParameter();
-        if (null != query.getFilters()) {
-            for (Filter filter : query.getFilters()) {
-                filterHashKey += 31 * filter.hashCode();
-            }
-        }
-        for (int i = 0; i < query.getNesting().size(); i++) {
-            filterHashKey += 31 * query.getNesting().get(i).hashCode() * (i + 1);
-        }
-        return String.format("%s-%d", query.getTable(), filterHashKey);
+        return String.format("%s-%s", getParameter().getTable(), RequestFingerprint.of(getParameter()));
+    }
+
+    @Override
+    protected String getTable() {
+        return getParameter().getTable();
     }
 
     @Override
@@ -108,6 +105,21 @@ public class DistinctAction extends Action<DistinctRequest> {
 
     @Override
     public ActionResponse execute(DistinctRequest request) throws FoxtrotException {
+        SearchRequestBuilder query = getRequestBuilder(request);
+        try {
+            return getResponse(await(query.execute()), request);
+        } catch (ElasticsearchException e) {
+            throw FoxtrotExceptions.createQueryExecutionException(request, e);
+        }
+    }
+
+    @Override
+    protected CompletableFuture<ActionResponse> executeAsync(DistinctRequest request, Executor executor) {
+        return listen(request, listener -> getRequestBuilder(request).execute(listener),
+                (SearchResponse response) -> getResponse(response, request));
+    }
+
+    private SearchRequestBuilder getRequestBuilder(DistinctRequest request) throws FoxtrotException {
         SearchRequestBuilder query;
         try {
             query = getConnection().getClient()
@@ -140,18 +152,17 @@ public class DistinctAction extends Action<DistinctRequest> {
             throw FoxtrotExceptions.queryCreationException(request, e);
         }
 
-        try {
-            SearchResponse response = query.execute().actionGet();
-            Aggregations aggregations = response.getAggregations();
-            // Check if any aggregation is present or not
-            if (aggregations == null) {
-                logger.error("Null response for Group. Request : " + request.toString());
-                return new DistinctResponse(new ArrayList<>(), new ArrayList<>());
-            }
-            return getDistinctResponse(request, aggregations);
-        } catch (ElasticsearchException e) {
-            throw FoxtrotExceptions.createQueryExecutionException(request, e);
+        return withTimeout(query);
+    }
+
+    private ActionResponse getResponse(SearchResponse response, DistinctRequest request) {
+        Aggregations aggregations = response.getAggregations();
+        // Check if any aggregation is present or not
+        if (aggregations == null) {
+            logger.error("Null response for Group. Request : " + request.toString());
+            return new DistinctResponse(new ArrayList<>(), new ArrayList<>());
         }
+        return getDistinctResponse(request, aggregations);
     }
 
     private DistinctResponse getDistinctResponse(DistinctRequest request, Aggregations aggregations) {
@@ -20,6 +20,7 @@ import com.flipkart.foxtrot.common.query.*;
 import com.flipkart.foxtrot.common.util.CollectionUtils;
 import com.flipkart.foxtrot.core.cache.CacheManager;
 import com.flipkart.foxtrot.core.common.Action;
+import com.flipkart.foxtrot.core.common.RequestFingerprint;
 import com.flipkart.foxtrot.core.datastore.DataStore;
 import com.flipkart.foxtrot.core.exception.FoxtrotException;
 import com.flipkart.foxtrot.core.exception.FoxtrotExceptions;
@@ -47,7 +48,7 @@ import java.util.List;
  * Date: 24/03/14
  * Time: 1:00 PM
  */
-@AnalyticsProvider(opcode = "query", request = Query.class, response = QueryResponse.class, cacheable = false)
+@AnalyticsProvider(opcode = "query", request = Query.class, response = QueryResponse.class, cacheable = true)
 public class FilterAction extends Action<Query> {
 
     public FilterAction(Query parameter,
@@ -78,17 +79,12 @@ public class FilterAction extends Action<Query> {
 
     @Override
     protected String getRequestCacheKey() {
-        long filterHashKey = 0L;
-        Query query = getParameter();
-        if (null != query.getFilters()) {
-            for (Filter filter : query.getFilters()) {
-                filterHashKey += 31 * filter.hashCode();
-            }
-        }
-        filterHashKey += 31 * (query.getSort() != null ? query.getSort().hashCode() : "SORT".hashCode());
+        return String.format("%s-%s", getParameter().getTable(), RequestFingerprint.of(getParameter()));
+    }
 
-        return String.format("%s-%d-%d-%d", query.getTable(),
-                query.getFrom(), query.getLimit(), filterHashKey);
+    @Override
+    protected String getTable() {
+        return getParameter().getTable();
     }
 
     @Override
@@ -131,7 +127,7 @@ public class FilterAction extends Action<Query> {
             throw FoxtrotExceptions.queryCreationException(parameter, e);
         }
         try {
-            SearchResponse response = search.execute().actionGet();
+            SearchResponse response = await(withTimeout(search).execute());
             List<String> ids = new ArrayList<>();
             SearchHits searchHits = response.getHits();
             for (SearchHit searchHit : searchHits) {
@@ -18,11 +18,11 @@ package com.flipkart.foxtrot.core.querystore.actions;
 import com.flipkart.foxtrot.common.ActionResponse;
 import com.flipkart.foxtrot.common.group.GroupRequest;
 import com.flipkart.foxtrot.common.group.GroupResponse;
-import com.flipkart.foxtrot.common.query.Filter;
 import com.flipkart.foxtrot.common.query.FilterCombinerType;
 import com.flipkart.foxtrot.common.util.CollectionUtils;
 import com.flipkart.foxtrot.core.cache.CacheManager;
 import com.flipkart.foxtrot.core.common.Action;
+import com.flipkart.foxtrot.core.common.RequestFingerprint;
 import com.flipkart.foxtrot.core.datastore.DataStore;
 import com.flipkart.foxtrot.core.exception.FoxtrotException;
 import com.flipkart.foxtrot.core.exception.FoxtrotExceptions;
@@ -49,6 +49,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -81,22 +83,12 @@ public class GroupAction extends Action<GroupRequest> {
 
     @Override
     protected String getRequestCacheKey() {
-        long filterHashKey = 0L;
-        GroupRequest query = getParameter();
-        if (null != query.getFilters()) {
-            for (Filter filter : query.getFilters()) {
-                filterHashKey += 31 * filter.hashCode();
-            }
-        }
-
-        if (null != query.getUniqueCountOn()){
-            filterHashKey += 31 * query.getUniqueCountOn().hashCode();
-        }
+        return String.format("%s-%s", getParameter().getTable(), RequestFingerprint.of(getParameter()));
+    }
 
-        for (int i = 0; i < query.getNesting().size(); i++) {
-            filterHashKey += 31 * query.getNesting().get(i).hashCode() * (i + 1);
-        }
-        return String.format("%s-%d", query.getTable(), filterHashKey);
+    @Override
+    protected String getTable() {
+        return getParameter().getTable();
     }
 
     @Override
@@ -127,6 +119,21 @@ public class GroupAction extends Action<GroupRequest> {
 
     @Override
     public ActionResponse execute(GroupRequest parameter) throws FoxtrotException {
+        SearchRequestBuilder query = getRequestBuilder(parameter);
+        try {
+            return getResponse(await(query.execute()), parameter);
+        } catch (ElasticsearchException e) {
+            throw FoxtrotExceptions.createQueryExecutionException(parameter, e);
+        }
+    }
+
+    @Override
+    protected CompletableFuture<ActionResponse> executeAsync(GroupRequest parameter, Executor executor) {
+        return listen(parameter, listener -> getRequestBuilder(parameter).execute(listener),
+                (SearchResponse response) -> getResponse(response, parameter));
+    }
+
+    private SearchRequestBuilder getRequestBuilder(GroupRequest parameter) throws FoxtrotException {
         SearchRequestBuilder query;
         try {
             query = getConnection().getClient()
@@ -140,18 +147,17 @@ public class GroupAction extends Action<GroupRequest> {
         } catch (Exception e) {
             throw FoxtrotExceptions.queryCreationException(parameter, e);
         }
-        try {
-            SearchResponse response = query.execute().actionGet();
-            List<String> fields = parameter.getNesting();
-            Aggregations aggregations = response.getAggregations();
-            // Check if any aggregation is present or not
-            if (aggregations == null) {
-                return new GroupResponse(Collections.<String, Object>emptyMap());
-            }
-            return new GroupResponse(getMap(fields, aggregations));
-        } catch (ElasticsearchException e) {
-            throw FoxtrotExceptions.createQueryExecutionException(parameter, e);
+        return withTimeout(query);
+    }
+
+    private ActionResponse getResponse(SearchResponse response, GroupRequest parameter) {
+        List<String> fields = parameter.getNesting();
+        Aggregations aggregations = response.getAggregations();
+        // Check if any aggregation is present or not
+        if (aggregations == null) {
+            return new GroupResponse(Collections.<String, Object>emptyMap());
         }
+        return new GroupResponse(getMap(fields, aggregations));
     }
 
     private AbstractAggregationBuilder buildAggregation() {
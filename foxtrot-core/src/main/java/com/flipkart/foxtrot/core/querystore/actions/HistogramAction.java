@@ -24,6 +24,8 @@ import com.flipkart.foxtrot.common.query.datetime.LastFilter;
 import com.flipkart.foxtrot.common.util.CollectionUtils;
 import com.flipkart.foxtrot.core.cache.CacheManager;
 import com.flipkart.foxtrot.core.common.Action;
+import com.flipkart.foxtrot.core.common.PeriodSelector;
+import com.flipkart.foxtrot.core.common.RequestFingerprint;
 import com.flipkart.foxtrot.core.datastore.DataStore;
 import com.flipkart.foxtrot.core.exception.FoxtrotException;
 import com.flipkart.foxtrot.core.exception.FoxtrotExceptions;
@@ -46,9 +48,10 @@ import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramBuild
 import org.elasticsearch.search.aggregations.metrics.cardinality.Cardinality;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 
 /**
  * User: Santanu Sinha (santanu.sinha@flipkart.com)
@@ -80,21 +83,12 @@ public class HistogramAction extends Action<HistogramRequest> {
 
     @Override
     protected String getRequestCacheKey() {
-        long filterHashKey = 0L;
-        HistogramRequest query = getParameter();
-        if (null != query.getFilters()) {
-            for (Filter filter : query.getFilters()) {
-                filterHashKey += 31 * filter.hashCode();
-            }
-        }
-
-        if (null != query.getUniqueCountOn()){
-            filterHashKey += 31 * query.getUniqueCountOn().hashCode();
-        }
-
+        return String.format("%s-%s", getParameter().getTable(), RequestFingerprint.of(getParameter()));
+    }
 
-        return String.format("%s-%s-%s-%d", query.getTable(),
-                query.getPeriod().name(), query.getField(), filterHashKey);
+    @Override
+    protected String getTable() {
+        return getParameter().getTable();
     }
 
     @Override
@@ -121,16 +115,29 @@ public class HistogramAction extends Action<HistogramRequest> {
 
     @Override
     public ActionResponse execute(HistogramRequest parameter) throws FoxtrotException {
+        IncrementalTimeSeries<Long> series = new IncrementalTimeSeries<>(getCacheManager().getTimeSeriesCache(),
+                getCacheManager().getTableWatermarks(), parameter.getTable(), getRequestCacheKey(),
+                parameter.getField(), parameter.getPeriod(), parameter.getCache());
+        NavigableMap<Long, Long> buckets = series.fillGaps(series.execute(parameter.getFilters(), this::fetch), 0L);
+        List<HistogramResponse.Count> counts = new ArrayList<>(buckets.size());
+        for (Map.Entry<Long, Long> bucket : buckets.entrySet()) {
+            counts.add(new HistogramResponse.Count(bucket.getKey(), bucket.getValue()));
+        }
+        return new HistogramResponse(counts);
+    }
+
+    private IncrementalTimeSeries.Fetched<Long> fetch(List<Filter> filters) throws FoxtrotException {
+        HistogramRequest parameter = getParameter();
         SearchRequestBuilder searchRequestBuilder;
 
         AbstractAggregationBuilder aggregationBuilder = buildAggregation();
         try {
             searchRequestBuilder = getConnection().getClient().prepareSearch(
-                    ElasticsearchUtils.getIndices(parameter.getTable(), parameter))
+                    ElasticsearchUtils.getIndices(parameter.getTable(), parameter, new PeriodSelector(filters).analyze()))
                     .setTypes(ElasticsearchUtils.DOCUMENT_TYPE_NAME)
                     .setIndicesOptions(Utils.indicesOptions())
                     .setQuery(new ElasticSearchQueryGenerator(FilterCombinerType.and)
-                            .genFilter(parameter.getFilters()))
+                            .genFilter(filters))
                     .setSize(0)
                     .setSearchType(SearchType.COUNT)
                     .addAggregation(aggregationBuilder);
@@ -139,32 +146,31 @@ public class HistogramAction extends Action<HistogramRequest> {
         }
 
         try {
-            SearchResponse response = searchRequestBuilder.execute().actionGet();
-            Aggregations aggregations = response.getAggregations();
-            return buildResponse(aggregations);
+            SearchResponse response = await(withTimeout(searchRequestBuilder).execute());
+            return new IncrementalTimeSeries.Fetched<>(buildCounts(response.getAggregations()), isPartial(response));
         } catch (ElasticsearchException e) {
             throw FoxtrotExceptions.createQueryExecutionException(parameter, e);
         }
     }
 
-    private HistogramResponse buildResponse(Aggregations aggregations) {
+    private Map<Long, Long> buildCounts(Aggregations aggregations) {
+        Map<Long, Long> counts = new HashMap<>();
         if (aggregations == null) {
-            return new HistogramResponse(Collections.<HistogramResponse.Count>emptyList());
+            return counts;
         }
         String dateHistogramKey = Utils.getDateHistogramKey(getParameter().getField());
         DateHistogram dateHistogram = aggregations.get(dateHistogramKey);
-        Collection<? extends DateHistogram.Bucket> buckets = dateHistogram.getBuckets();
-        List<HistogramResponse.Count> counts = new ArrayList<>(buckets.size());
-        for (DateHistogram.Bucket bucket : buckets) {
+        for (DateHistogram.Bucket bucket : dateHistogram.getBuckets()) {
+            long period = bucket.getKeyAsNumber().longValue();
             if (!CollectionUtils.isNullOrEmpty(getParameter().getUniqueCountOn())) {
                 String key = Utils.sanitizeFieldForAggregation(getParameter().getUniqueCountOn());
                 Cardinality cardinality = bucket.getAggregations().get(key);
-                counts.add(new HistogramResponse.Count(bucket.getKeyAsNumber(), cardinality.getValue()));
+                counts.put(period, cardinality.getValue());
             } else {
-                counts.add(new HistogramResponse.Count(bucket.getKeyAsNumber(), bucket.getDocCount()));
+                counts.put(period, bucket.getDocCount());
             }
         }
-        return new HistogramResponse(counts);
+        return counts;
     }
 
     private AbstractAggregationBuilder buildAggregation() {
@@ -0,0 +1,317 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.querystore.actions;
+
+import com.flipkart.foxtrot.common.CacheControl;
+import com.flipkart.foxtrot.common.Period;
+import com.flipkart.foxtrot.common.query.Filter;
+import com.flipkart.foxtrot.common.query.datetime.LastFilter;
+import com.flipkart.foxtrot.common.query.numeric.*;
+import com.flipkart.foxtrot.core.cache.TableWatermarks;
+import com.flipkart.foxtrot.core.cache.TimeSeriesCache;
+import com.flipkart.foxtrot.core.common.PeriodSelector;
+import com.flipkart.foxtrot.core.exception.FoxtrotException;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.joda.time.Interval;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes a time series query bucket by bucket against the {@link TimeSeriesCache}. Buckets that lie completely
+ * inside the requested time range and ended before the settle time are final and served from the cache, only the
+ * remaining ranges (typically the partial first bucket and the newest few buckets) are fetched from elasticsearch.
+ * Cached buckets are checked against the {@link TableWatermarks} of the table, buckets that received writes after
+ * they were cached (late documents, journal replays, ingestion backlogs) are dropped and fetched again.
+ * {@link CacheControl#BYPASS} skips the bucket cache altogether, {@link CacheControl#REFRESH} fetches all buckets and
+ * overwrites the cached ones. Buckets of a partial response are never cached.
+ * <p>
+ * Requests whose time range cannot be narrowed safely (temporal filters on a different field, more than one lower
+ * or upper bound, or too many buckets) are fetched as a whole.
+ */
+public class IncrementalTimeSeries<V> {
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalTimeSeries.class.getSimpleName());
+
+    /**
+     * Beyond this many missing ranges a single range from the first missing bucket to the end is fetched
+     */
+    private static final int MAX_FETCH_RANGES = 4;
+
+    public interface Fetcher<V> {
+        /**
+         * Runs the query with the given filters
+         *
+         * @return values by bucket start
+         */
+        Fetched<V> fetch(List<Filter> filters) throws FoxtrotException;
+    }
+
+    /**
+     * Values returned by a {@link Fetcher}. Values of a partial response (timed out search, failed shards) may be
+     * incomplete, they are returned but never cached.
+     */
+    public static class Fetched<V> {
+        private final Map<Long, V> values;
+        private final boolean partial;
+
+        public Fetched(Map<Long, V> values, boolean partial) {
+            this.values = values;
+            this.partial = partial;
+        }
+
+        public Map<Long, V> getValues() {
+            return values;
+        }
+
+        public boolean isPartial() {
+            return partial;
+        }
+    }
+
+    private final TimeSeriesCache cache;
+    private final TableWatermarks tableWatermarks;
+    private final String table;
+    private final String seriesKey;
+    private final String timestampField;
+    private final long periodMillis;
+    private final CacheControl cacheControl;
+
+    public IncrementalTimeSeries(TimeSeriesCache cache, String seriesKey, String timestampField, Period period) {
+        this(cache, null, null, seriesKey, timestampField, period, CacheControl.DEFAULT);
+    }
+
+    /**
+     * @param tableWatermarks Used to validate cached buckets against writes to the table, null to rely on expiry alone
+     * @param cacheControl    Cache control of the request, null for {@link CacheControl#DEFAULT}
+     */
+    public IncrementalTimeSeries(TimeSeriesCache cache, TableWatermarks tableWatermarks, String table,
+                                 String seriesKey, String timestampField, Period period, CacheControl cacheControl) {
+        this.cache = (cacheControl == CacheControl.BYPASS) ? null : cache;
+        this.cacheControl = (null == cacheControl) ? CacheControl.DEFAULT : cacheControl;
+        this.tableWatermarks = tableWatermarks;
+        this.table = table;
+        this.seriesKey = seriesKey;
+        this.timestampField = timestampField;
+        this.periodMillis = periodMillis(period);
+    }
+
+    public NavigableMap<Long, V> execute(List<Filter> filters, Fetcher<V> fetcher) throws FoxtrotException {
+        Interval interval = (null == cache) ? null : timeRange(filters);
+        if (null == interval) {
+            return new TreeMap<>(fetcher.fetch(filters).getValues());
+        }
+        final long start = interval.getStartMillis();
+        final long end = interval.getEndMillis();
+        final long firstBucket = bucketStart(start);
+        final long lastBucket = bucketStart(end);
+        if ((lastBucket - firstBucket) / periodMillis >= TimeSeriesCache.MAX_BUCKETS_PER_SERIES) {
+            return new TreeMap<>(fetcher.fetch(filters).getValues());
+        }
+
+        NavigableMap<Long, TimeSeriesCache.Bucket> cached = (cacheControl == CacheControl.REFRESH)
+                ? new TreeMap<Long, TimeSeriesCache.Bucket>()
+                : unchanged(cache.get(seriesKey, firstBucket, lastBucket + periodMillis));
+        NavigableMap<Long, V> result = new TreeMap<>();
+        List<long[]> missingRanges = Lists.newArrayList();
+        long[] currentRange = null;
+        for (long bucket = firstBucket; bucket <= lastBucket; bucket += periodMillis) {
+            TimeSeriesCache.Bucket cachedBucket = isComplete(bucket, start, end) ? cached.get(bucket) : null;
+            if (null != cachedBucket) {
+                Object value = cachedBucket.getValue();
+                if (value != TimeSeriesCache.EMPTY_BUCKET) {
+                    result.put(bucket, cast(value));
+                }
+                currentRange = null;
+                continue;
+            }
+            if (null == currentRange) {
+                currentRange = new long[]{bucket, bucket + periodMillis};
+                missingRanges.add(currentRange);
+            } else {
+                currentRange[1] = bucket + periodMillis;
+            }
+        }
+        if (missingRanges.size() > MAX_FETCH_RANGES) {
+            long[] merged = new long[]{missingRanges.get(0)[0], missingRanges.get(missingRanges.size() - 1)[1]};
+            missingRanges = Lists.<long[]>newArrayList(merged);
+        }
+
+        final long fetchedAt = System.currentTimeMillis();
+        final long settledBefore = fetchedAt - cache.getSettleMillis();
+        Map<Long, Object> finalBuckets = Maps.newHashMap();
+        for (long[] range : missingRanges) {
+            long from = Math.max(range[0], start);
+            long to = Math.min(range[1] - 1, end);
+            Fetched<V> fetched = fetcher.fetch(rangeFilters(filters, from, to));
+            for (long bucket = range[0]; bucket < range[1]; bucket += periodMillis) {
+                V value = fetched.getValues().get(bucket);
+                if (null != value) {
+                    result.put(bucket, value);
+                } else {
+                    result.remove(bucket);
+                }
+                if (!fetched.isPartial() && isComplete(bucket, start, end) && bucket + periodMillis <= settledBefore) {
+                    finalBuckets.put(bucket, (null != value) ? value : TimeSeriesCache.EMPTY_BUCKET);
+                }
+            }
+        }
+        cache.put(seriesKey, finalBuckets, fetchedAt);
+        logger.debug("Series {}: {} buckets cached, fetched {} ranges", seriesKey, cached.size(), missingRanges.size());
+        return result;
+    }
+
+    /**
+     * Adds an entry for every bucket between the first and the last one that has no value, as elasticsearch does
+     * for date histograms with a minimum document count of zero
+     */
+    public NavigableMap<Long, V> fillGaps(NavigableMap<Long, V> buckets, V emptyValue) {
+        if (buckets.isEmpty()) {
+            return buckets;
+        }
+        for (long bucket = buckets.firstKey(); bucket < buckets.lastKey(); bucket += periodMillis) {
+            if (!buckets.containsKey(bucket)) {
+                buckets.put(bucket, emptyValue);
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * Checks runs of consecutive cached buckets against the table watermarks in one go, and only goes bucket by bucket
+     * through a run that has seen writes. Stale buckets are dropped from the cache.
+     */
+    private NavigableMap<Long, TimeSeriesCache.Bucket> unchanged(NavigableMap<Long, TimeSeriesCache.Bucket> cached) {
+        if (null == tableWatermarks || null == table || cached.isEmpty()) {
+            return cached;
+        }
+        NavigableMap<Long, TimeSeriesCache.Bucket> unchanged = new TreeMap<>();
+        List<Long> stale = Lists.newArrayList();
+        List<Long> run = Lists.newArrayList();
+        long runCachedAt = Long.MAX_VALUE;
+        for (Map.Entry<Long, TimeSeriesCache.Bucket> bucket : cached.entrySet()) {
+            if (!run.isEmpty() && bucket.getKey() != run.get(run.size() - 1) + periodMillis) {
+                checkRun(run, runCachedAt, cached, unchanged, stale);
+                run.clear();
+                runCachedAt = Long.MAX_VALUE;
+            }
+            run.add(bucket.getKey());
+            runCachedAt = Math.min(runCachedAt, bucket.getValue().getCachedAt());
+        }
+        checkRun(run, runCachedAt, cached, unchanged, stale);
+        if (!stale.isEmpty()) {
+            logger.debug("Series {}: {} cached buckets have seen writes, fetching them again", seriesKey, stale.size());
+            cache.invalidate(seriesKey, stale);
+        }
+        return unchanged;
+    }
+
+    private void checkRun(List<Long> run, long runCachedAt, NavigableMap<Long, TimeSeriesCache.Bucket> cached,
+                          NavigableMap<Long, TimeSeriesCache.Bucket> unchanged, List<Long> stale) {
+        if (tableWatermarks.isUnchanged(table, run.get(0), run.get(run.size() - 1) + periodMillis - 1, runCachedAt)) {
+            for (Long bucket : run) {
+                unchanged.put(bucket, cached.get(bucket));
+            }
+            return;
+        }
+        for (Long bucket : run) {
+            TimeSeriesCache.Bucket cachedBucket = cached.get(bucket);
+            if (tableWatermarks.isUnchanged(table, bucket, bucket + periodMillis - 1, cachedBucket.getCachedAt())) {
+                unchanged.put(bucket, cachedBucket);
+            } else {
+                stale.add(bucket);
+            }
+        }
+    }
+
+    private boolean isComplete(long bucket, long start, long end) {
+        return bucket >= start && bucket + periodMillis - 1 <= end;
+    }
+
+    private long bucketStart(long timestamp) {
+        return timestamp - Math.floorMod(timestamp, periodMillis);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V cast(Object value) {
+        return (V) value;
+    }
+
+    /**
+     * @return inclusive time range of the request, null if it cannot be used to split the request
+     */
+    private Interval timeRange(List<Filter> filters) {
+        int lowerBounds = 0;
+        int upperBounds = 0;
+        for (Filter filter : filters) {
+            if (!filter.isFilterTemporal()) {
+                continue;
+            }
+            if (!timestampField.equals(filter.getField())) {
+                return null;
+            }
+            if (filter instanceof BetweenFilter || filter instanceof LastFilter) {
+                lowerBounds++;
+                upperBounds++;
+            } else if (filter instanceof GreaterThanFilter || filter instanceof GreaterEqualFilter) {
+                lowerBounds++;
+            } else if (filter instanceof LessThanFilter || filter instanceof LessEqualFilter) {
+                upperBounds++;
+            } else {
+                return null;
+            }
+        }
+        if (lowerBounds != 1 || upperBounds != 1) {
+            return null;
+        }
+        try {
+            return new PeriodSelector(filters).analyze();
+        } catch (Exception e) {
+            logger.debug("Could not compute time range, fetching series {} as a whole", seriesKey, e);
+            return null;
+        }
+    }
+
+    private List<Filter> rangeFilters(List<Filter> filters, long from, long to) {
+        List<Filter> rangeFilters = Lists.newArrayList();
+        for (Filter filter : filters) {
+            if (!filter.isFilterTemporal()) {
+                rangeFilters.add(filter);
+            }
+        }
+        rangeFilters.add(new BetweenFilter(timestampField, from, to, true));
+        return rangeFilters;
+    }
+
+    private static long periodMillis(Period period) {
+        switch (period) {
+            case seconds:
+                return TimeUnit.SECONDS.toMillis(1);
+            case minutes:
+                return TimeUnit.MINUTES.toMillis(1);
+            case days:
+                return TimeUnit.DAYS.toMillis(1);
+            case hours:
+            default:
+                return TimeUnit.HOURS.toMillis(1);
+        }
+    }
+}
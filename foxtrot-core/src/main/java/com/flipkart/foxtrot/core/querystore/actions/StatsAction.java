@@ -1,7 +1,6 @@
 package com.flipkart.foxtrot.core.querystore.actions;
 
 import com.flipkart.foxtrot.common.ActionResponse;
-import com.flipkart.foxtrot.common.query.Filter;
 import com.flipkart.foxtrot.common.query.FilterCombinerType;
 import com.flipkart.foxtrot.common.stats.BucketResponse;
 import com.flipkart.foxtrot.common.stats.StatsRequest;
@@ -10,6 +9,7 @@ import com.flipkart.foxtrot.common.stats.StatsValue;
 import com.flipkart.foxtrot.common.util.CollectionUtils;
 import com.flipkart.foxtrot.core.cache.CacheManager;
 import com.flipkart.foxtrot.core.common.Action;
+import com.flipkart.foxtrot.core.common.RequestFingerprint;
 import com.flipkart.foxtrot.core.datastore.DataStore;
 import com.flipkart.foxtrot.core.exception.FoxtrotException;
 import com.flipkart.foxtrot.core.exception.FoxtrotExceptions;
@@ -24,6 +24,7 @@ import com.google.common.collect.Lists;
 import org.apache.commons.lang3.StringUtils;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.search.aggregations.AbstractAggregationBuilder;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
@@ -35,12 +36,14 @@ import org.elasticsearch.search.aggregations.metrics.stats.extended.InternalExte
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Created by rishabh.goyal on 02/08/14.
  */
 
-@AnalyticsProvider(opcode = "stats", request = StatsRequest.class, response = StatsResponse.class, cacheable = false)
+@AnalyticsProvider(opcode = "stats", request = StatsRequest.class, response = StatsResponse.class, cacheable = true)
 public class StatsAction extends Action<StatsRequest> {
 
     public StatsAction(StatsRequest parameter,
@@ -65,22 +68,12 @@ public class StatsAction extends Action<StatsRequest> {
 
     @Override
     protected String getRequestCacheKey() {
-        long statsHashKey = 0L;
-        StatsRequest statsRequest = getParameter();
-        if (null != statsRequest.getFilters()) {
-            for (Filter filter : statsRequest.getFilters()) {
-                statsHashKey += 31 * filter.hashCode();
-            }
-        }
-
-        if (!CollectionUtils.isNullOrEmpty(statsRequest.getNesting())) {
-            for (String nestingKey : statsRequest.getNesting()) {
-                statsHashKey += 31 * nestingKey.hashCode();
-            }
-        }
+        return String.format("%s-%s", getParameter().getTable(), RequestFingerprint.of(getParameter()));
+    }
 
-        statsHashKey += 31 * statsRequest.getCombiner().hashCode();
-        return String.format("%s-%s-%d", statsRequest.getTable(), statsRequest.getField(), statsHashKey);
+    @Override
+    protected String getTable() {
+        return getParameter().getTable();
     }
 
     @Override
@@ -103,6 +96,21 @@ public class StatsAction extends Action<StatsRequest> {
 
     @Override
     public ActionResponse execute(StatsRequest parameter) throws FoxtrotException {
+        SearchRequestBuilder searchRequestBuilder = getRequestBuilder(parameter);
+        try {
+            return getResponse(await(searchRequestBuilder.execute()), parameter);
+        } catch (ElasticsearchException e) {
+            throw FoxtrotExceptions.createQueryExecutionException(parameter, e);
+        }
+    }
+
+    @Override
+    protected CompletableFuture<ActionResponse> executeAsync(StatsRequest parameter, Executor executor) {
+        return listen(parameter, listener -> getRequestBuilder(parameter).execute(listener),
+                (SearchResponse response) -> getResponse(response, parameter));
+    }
+
+    private SearchRequestBuilder getRequestBuilder(StatsRequest parameter) throws FoxtrotException {
         SearchRequestBuilder searchRequestBuilder;
         try {
             searchRequestBuilder = getConnection().getClient().prepareSearch(
@@ -142,15 +150,15 @@ public class StatsAction extends Action<StatsRequest> {
         } catch (Exception e) {
             throw FoxtrotExceptions.queryCreationException(parameter, e);
         }
-        try {
-            Aggregations aggregations = searchRequestBuilder.execute().actionGet().getAggregations();
-            if (aggregations != null) {
-                return buildResponse(parameter, aggregations);
-            }
-            return null;
-        } catch (ElasticsearchException e) {
-            throw FoxtrotExceptions.createQueryExecutionException(parameter, e);
+        return withTimeout(searchRequestBuilder);
+    }
+
+    private ActionResponse getResponse(SearchResponse response, StatsRequest parameter) {
+        Aggregations aggregations = response.getAggregations();
+        if (aggregations != null) {
+            return buildResponse(parameter, aggregations);
         }
+        return null;
     }
 
     private StatsResponse buildResponse(StatsRequest request, Aggregations aggregations) {
@@ -12,6 +12,8 @@ import com.flipkart.foxtrot.common.stats.StatsTrendValue;
 import com.flipkart.foxtrot.common.util.CollectionUtils;
 import com.flipkart.foxtrot.core.cache.CacheManager;
 import com.flipkart.foxtrot.core.common.Action;
+import com.flipkart.foxtrot.core.common.PeriodSelector;
+import com.flipkart.foxtrot.core.common.RequestFingerprint;
 import com.flipkart.foxtrot.core.datastore.DataStore;
 import com.flipkart.foxtrot.core.exception.FoxtrotException;
 import com.flipkart.foxtrot.core.exception.FoxtrotExceptions;
@@ -40,13 +42,16 @@ import org.elasticsearch.search.aggregations.metrics.stats.extended.InternalExte
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 
 /**
  * Created by rishabh.goyal on 02/08/14.
  */
 
-@AnalyticsProvider(opcode = "statstrend", request = StatsTrendRequest.class, response = StatsTrendResponse.class, cacheable = false)
+@AnalyticsProvider(opcode = "statstrend", request = StatsTrendRequest.class, response = StatsTrendResponse.class, cacheable = true)
 public class StatsTrendAction extends Action<StatsTrendRequest> {
 
     public StatsTrendAction(StatsTrendRequest parameter,
@@ -71,25 +76,12 @@ public class StatsTrendAction extends Action<StatsTrendRequest> {
 
     @Override
     protected String getRequestCacheKey() {
-        StatsTrendRequest statsRequest = getParameter();
-        long hashKey = 0L;
-        if (statsRequest.getFilters() != null) {
-            for (Filter filter : statsRequest.getFilters()) {
-                hashKey += 31 * filter.hashCode();
-            }
-        }
-
-        if (!CollectionUtils.isNullOrEmpty(statsRequest.getNesting())) {
-            for (String field : statsRequest.getNesting()) {
-                hashKey += 31 * field.hashCode();
-            }
-        }
+        return String.format("stats-trend-%s-%s", getParameter().getTable(), RequestFingerprint.of(getParameter()));
+    }
 
-        hashKey += 31 * statsRequest.getPeriod().name().hashCode();
-        hashKey += 31 * statsRequest.getTimestamp().hashCode();
-        hashKey += 31 * (statsRequest.getField() != null ? statsRequest.getField().hashCode() : "FIELD".hashCode());
-        return String.format("stats-trend-%s-%s-%s-%d", statsRequest.getTable(),
-                statsRequest.getField(), statsRequest.getPeriod(), hashKey);
+    @Override
+    protected String getTable() {
+        return getParameter().getTable();
     }
 
     @Override
@@ -118,31 +110,58 @@ public class StatsTrendAction extends Action<StatsTrendRequest> {
 
     @Override
     public ActionResponse execute(StatsTrendRequest parameter) throws FoxtrotException {
+        if (CollectionUtils.isNullOrEmpty(parameter.getNesting()) && parameter.getCombiner() == FilterCombinerType.and) {
+            // Un-nested trends are split into buckets, nested ones are fetched as a whole
+            IncrementalTimeSeries<StatsTrendValue> series = new IncrementalTimeSeries<>(
+                    getCacheManager().getTimeSeriesCache(), getCacheManager().getTableWatermarks(),
+                    parameter.getTable(), getRequestCacheKey(), parameter.getTimestamp(), parameter.getPeriod(),
+                    parameter.getCache());
+            NavigableMap<Long, StatsTrendValue> buckets = series.execute(parameter.getFilters(), this::fetchBuckets);
+            StatsTrendResponse response = new StatsTrendResponse();
+            response.setResult(Lists.newArrayList(buckets.values()));
+            return response;
+        }
+        Aggregations aggregations = search(parameter.getFilters()).getAggregations();
+        if (aggregations != null) {
+            return buildResponse(parameter, aggregations);
+        }
+        return null;
+    }
+
+    private IncrementalTimeSeries.Fetched<StatsTrendValue> fetchBuckets(List<Filter> filters)
+            throws FoxtrotException {
+        SearchResponse response = search(filters);
+        Aggregations aggregations = response.getAggregations();
+        Map<Long, StatsTrendValue> buckets = new HashMap<>();
+        if (aggregations != null) {
+            for (StatsTrendValue value : buildStatsTrendValue(getParameter().getField(), aggregations)) {
+                buckets.put(value.getPeriod().longValue(), value);
+            }
+        }
+        return new IncrementalTimeSeries.Fetched<>(buckets, isPartial(response));
+    }
+
+    private SearchResponse search(List<Filter> filters) throws FoxtrotException {
+        StatsTrendRequest parameter = getParameter();
         SearchRequestBuilder searchRequestBuilder;
         try {
             AbstractAggregationBuilder aggregation = buildAggregation(parameter);
             searchRequestBuilder = getConnection().getClient().prepareSearch(
-                    ElasticsearchUtils.getIndices(parameter.getTable(), parameter))
+                    ElasticsearchUtils.getIndices(parameter.getTable(), parameter, new PeriodSelector(filters).analyze()))
                     .setTypes(ElasticsearchUtils.DOCUMENT_TYPE_NAME)
                     .setIndicesOptions(Utils.indicesOptions())
-                    .setQuery(new ElasticSearchQueryGenerator(parameter.getCombiner()).genFilter(parameter.getFilters()))
+                    .setQuery(new ElasticSearchQueryGenerator(parameter.getCombiner()).genFilter(filters))
                     .setSize(0)
                     .setSearchType(SearchType.COUNT)
                     .addAggregation(aggregation);
         } catch (Exception e) {
             throw FoxtrotExceptions.queryCreationException(parameter, e);
         }
-
         try {
-            SearchResponse response = searchRequestBuilder.execute().actionGet();
-            Aggregations aggregations = response.getAggregations();
-            if (aggregations != null) {
-                return buildResponse(parameter, aggregations);
-            }
+            return await(withTimeout(searchRequestBuilder).execute());
         } catch (ElasticsearchException e) {
             throw FoxtrotExceptions.createQueryExecutionException(parameter, e);
         }
-        return null;
     }
 
     private AbstractAggregationBuilder buildAggregation(StatsTrendRequest request) {
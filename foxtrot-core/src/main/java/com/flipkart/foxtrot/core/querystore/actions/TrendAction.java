@@ -26,6 +26,8 @@ import com.flipkart.foxtrot.common.trend.TrendResponse;
 import com.flipkart.foxtrot.common.util.CollectionUtils;
 import com.flipkart.foxtrot.core.cache.CacheManager;
 import com.flipkart.foxtrot.core.common.Action;
+import com.flipkart.foxtrot.core.common.PeriodSelector;
+import com.flipkart.foxtrot.core.common.RequestFingerprint;
 import com.flipkart.foxtrot.core.datastore.DataStore;
 import com.flipkart.foxtrot.core.exception.FoxtrotException;
 import com.flipkart.foxtrot.core.exception.FoxtrotExceptions;
@@ -53,8 +55,10 @@ import org.elasticsearch.search.aggregations.bucket.terms.Terms;
 import org.elasticsearch.search.aggregations.metrics.cardinality.Cardinality;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.TreeMap;
 
 /**
@@ -92,30 +96,12 @@ public class TrendAction extends Action<TrendRequest> {
 
     @Override
     protected String getRequestCacheKey() {
-        TrendRequest query = getParameter();
-        long filterHashKey = 0L;
-        if (query.getFilters() != null) {
-            for (Filter filter : query.getFilters()) {
-                filterHashKey += 31 * filter.hashCode();
-            }
-        }
-        if (query.getValues() != null) {
-            for (String value : query.getValues()) {
-                filterHashKey += 31 * value.hashCode();
-            }
-        }
-
-        if (null != query.getUniqueCountOn()) {
-            filterHashKey += 31 * query.getUniqueCountOn().hashCode();
-        }
-
-
-        filterHashKey += 31 * query.getPeriod().name().hashCode();
-        filterHashKey += 31 * query.getTimestamp().hashCode();
-        filterHashKey += 31 * (query.getField() != null ? query.getField().hashCode() : "FIELD".hashCode());
+        return String.format("%s-%s", getParameter().getTable(), RequestFingerprint.of(getParameter()));
+    }
 
-        return String.format("%s-%s-%s-%d", query.getTable(),
-                query.getField(), query.getPeriod(), filterHashKey);
+    @Override
+    protected String getTable() {
+        return getParameter().getTable();
     }
 
     @Override
@@ -145,26 +131,51 @@ public class TrendAction extends Action<TrendRequest> {
 
     @Override
     public ActionResponse execute(TrendRequest parameter) throws FoxtrotException {
+        IncrementalTimeSeries<Map<String, Long>> series = new IncrementalTimeSeries<>(
+                getCacheManager().getTimeSeriesCache(), getCacheManager().getTableWatermarks(), parameter.getTable(),
+                getRequestCacheKey(), parameter.getTimestamp(), parameter.getPeriod(), parameter.getCache());
+        NavigableMap<Long, Map<String, Long>> buckets = series.execute(parameter.getFilters(), this::fetch);
+
+        Map<String, NavigableMap<Long, Long>> countsByTerm = new TreeMap<>();
+        for (Map.Entry<Long, Map<String, Long>> bucket : buckets.entrySet()) {
+            for (Map.Entry<String, Long> termCount : bucket.getValue().entrySet()) {
+                countsByTerm.computeIfAbsent(termCount.getKey(), key -> new TreeMap<>())
+                        .put(bucket.getKey(), termCount.getValue());
+            }
+        }
+        Map<String, List<TrendResponse.Count>> trendCounts = new TreeMap<>();
+        for (Map.Entry<String, NavigableMap<Long, Long>> termCounts : countsByTerm.entrySet()) {
+            List<TrendResponse.Count> counts = Lists.newArrayList();
+            for (Map.Entry<Long, Long> count : series.fillGaps(termCounts.getValue(), 0L).entrySet()) {
+                counts.add(new TrendResponse.Count(count.getKey(), count.getValue()));
+            }
+            trendCounts.put(termCounts.getKey(), counts);
+        }
+        return new TrendResponse(trendCounts);
+    }
+
+    private IncrementalTimeSeries.Fetched<Map<String, Long>> fetch(List<Filter> filters) throws FoxtrotException {
+        TrendRequest parameter = getParameter();
         SearchRequestBuilder searchRequestBuilder;
         try {
             AbstractAggregationBuilder aggregationBuilder = buildAggregation(parameter);
             searchRequestBuilder = getConnection().getClient()
-                    .prepareSearch(ElasticsearchUtils.getIndices(parameter.getTable(), parameter))
+                    .prepareSearch(ElasticsearchUtils.getIndices(parameter.getTable(), parameter,
+                            new PeriodSelector(filters).analyze()))
                     .setIndicesOptions(Utils.indicesOptions())
-                    .setQuery(new ElasticSearchQueryGenerator(FilterCombinerType.and).genFilter(parameter.getFilters()))
+                    .setQuery(new ElasticSearchQueryGenerator(FilterCombinerType.and).genFilter(filters))
                     .setSearchType(SearchType.COUNT)
                     .addAggregation(aggregationBuilder);
         } catch (Exception e) {
             throw FoxtrotExceptions.queryCreationException(parameter, e);
         }
         try {
-            SearchResponse searchResponse = searchRequestBuilder.execute().actionGet();
+            SearchResponse searchResponse = await(withTimeout(searchRequestBuilder).execute());
             Aggregations aggregations = searchResponse.getAggregations();
-            if (aggregations != null) {
-                return buildResponse(parameter, aggregations);
-            } else {
-                return new TrendResponse(Collections.<String, List<TrendResponse.Count>>emptyMap());
-            }
+            Map<Long, Map<String, Long>> buckets = (aggregations != null)
+                    ? buildBuckets(parameter, aggregations)
+                    : Collections.<Long, Map<String, Long>>emptyMap();
+            return new IncrementalTimeSeries.Fetched<>(buckets, isPartial(searchResponse));
         } catch (ElasticsearchException e) {
             throw FoxtrotExceptions.createQueryExecutionException(parameter, e);
         }
@@ -193,26 +204,27 @@ public class TrendAction extends Action<TrendRequest> {
                 .subAggregation(histogramBuilder);
     }
 
-    private TrendResponse buildResponse(TrendRequest request, Aggregations aggregations) {
+    private Map<Long, Map<String, Long>> buildBuckets(TrendRequest request, Aggregations aggregations) {
         String field = request.getField();
-        Map<String, List<TrendResponse.Count>> trendCounts = new TreeMap<>();
+        Map<Long, Map<String, Long>> buckets = new HashMap<>();
         Terms terms = aggregations.get(Utils.sanitizeFieldForAggregation(field));
         for (Terms.Bucket bucket : terms.getBuckets()) {
             final String key = bucket.getKeyAsText().string();
-            List<TrendResponse.Count> counts = Lists.newArrayList();
             Aggregations subAggregations = bucket.getAggregations();
             Histogram histogram = subAggregations.get(Utils.getDateHistogramKey(request.getTimestamp()));
             for (Histogram.Bucket histogramBucket : histogram.getBuckets()) {
+                long count;
                 if (!CollectionUtils.isNullOrEmpty(getParameter().getUniqueCountOn())) {
                     String uniqueCountKey = Utils.sanitizeFieldForAggregation(getParameter().getUniqueCountOn());
                     Cardinality cardinality = histogramBucket.getAggregations().get(uniqueCountKey);
-                    counts.add(new TrendResponse.Count(histogramBucket.getKeyAsNumber(), cardinality.getValue()));
+                    count = cardinality.getValue();
                 } else {
-                    counts.add(new TrendResponse.Count(histogramBucket.getKeyAsNumber(), histogramBucket.getDocCount()));
+                    count = histogramBucket.getDocCount();
                 }
+                buckets.computeIfAbsent(histogramBucket.getKeyAsNumber().longValue(), period -> new HashMap<>())
+                        .put(key, count);
             }
-            trendCounts.put(key, counts);
         }
-        return new TrendResponse(trendCounts);
+        return buckets;
     }
 }
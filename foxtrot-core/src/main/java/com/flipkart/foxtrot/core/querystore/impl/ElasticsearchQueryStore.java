@@ -20,17 +20,28 @@ import com.flipkart.foxtrot.common.Document;
 import com.flipkart.foxtrot.common.FieldTypeMapping;
 import com.flipkart.foxtrot.common.Table;
 import com.flipkart.foxtrot.common.TableFieldMapping;
+import com.flipkart.foxtrot.core.cache.TableWatermarks;
 import com.flipkart.foxtrot.core.datastore.DataStore;
+import com.flipkart.foxtrot.core.datastore.MultiGetResult;
+import com.flipkart.foxtrot.core.datastore.SerializedDocument;
+import com.flipkart.foxtrot.core.exception.ErrorCode;
 import com.flipkart.foxtrot.core.exception.FoxtrotException;
 import com.flipkart.foxtrot.core.exception.FoxtrotExceptions;
+import com.flipkart.foxtrot.core.ingestion.IngestionJournal;
 import com.flipkart.foxtrot.core.parsers.ElasticsearchMappingParser;
+import com.flipkart.foxtrot.core.querystore.BulkSaveResult;
 import com.flipkart.foxtrot.core.querystore.QueryStore;
+import com.flipkart.foxtrot.core.querystore.RawKeyCache;
 import com.flipkart.foxtrot.core.table.TableMetadataManager;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.yammer.dropwizard.lifecycle.Managed;
 import com.yammer.metrics.annotation.Timed;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.WriteConsistencyLevel;
 import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
 import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsRequest;
@@ -43,21 +54,22 @@ import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.support.PlainActionFuture;
 import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.common.hppc.cursors.ObjectCursor;
 import org.elasticsearch.common.joda.time.DateTime;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 /**
@@ -66,22 +78,80 @@ import java.util.stream.Collectors;
  * Time: 12:27 AM
  */
 
-public class ElasticsearchQueryStore implements QueryStore {
+public class ElasticsearchQueryStore implements QueryStore, Managed {
     private static final Logger logger = LoggerFactory.getLogger(ElasticsearchQueryStore.class.getSimpleName());
 
+    private static final int BULK_TIMEOUT_SECONDS = 10;
+    static final int MAX_BULK_RETRIES = 3;
+    private static final long BULK_RETRY_BACKOFF_MS = 100;
+    // Every attempt may run into the bulk timeout, with the backoff in between
+    private static final long MAX_BULK_WAIT_MS = (MAX_BULK_RETRIES + 1) * BULK_TIMEOUT_SECONDS * 1000L
+            + BULK_RETRY_BACKOFF_MS * ((1 << MAX_BULK_RETRIES) - 1);
+
     private final ElasticsearchConnection connection;
     private final DataStore dataStore;
     private final TableMetadataManager tableMetadataManager;
     private final ObjectMapper mapper;
+    private final IngestionJournal journal;
+    private final RawKeyCache rawKeyCache;
+    private final TableWatermarks tableWatermarks;
+    private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("es-bulk-retry-%d").setDaemon(true).build());
 
     public ElasticsearchQueryStore(TableMetadataManager tableMetadataManager,
                                    ElasticsearchConnection connection,
                                    DataStore dataStore,
                                    ObjectMapper mapper) {
+        this(tableMetadataManager, connection, dataStore, mapper, null);
+    }
+
+    public ElasticsearchQueryStore(TableMetadataManager tableMetadataManager,
+                                   ElasticsearchConnection connection,
+                                   DataStore dataStore,
+                                   ObjectMapper mapper,
+                                   IngestionJournal journal) {
+        this(tableMetadataManager, connection, dataStore, mapper, journal, null);
+    }
+
+    public ElasticsearchQueryStore(TableMetadataManager tableMetadataManager,
+                                   ElasticsearchConnection connection,
+                                   DataStore dataStore,
+                                   ObjectMapper mapper,
+                                   IngestionJournal journal,
+                                   RawKeyCache rawKeyCache) {
+        this(tableMetadataManager, connection, dataStore, mapper, journal, rawKeyCache, null);
+    }
+
+    /**
+     * @param tableWatermarks Notified of every write, so that cached query results covering it are invalidated
+     */
+    public ElasticsearchQueryStore(TableMetadataManager tableMetadataManager,
+                                   ElasticsearchConnection connection,
+                                   DataStore dataStore,
+                                   ObjectMapper mapper,
+                                   IngestionJournal journal,
+                                   RawKeyCache rawKeyCache,
+                                   TableWatermarks tableWatermarks) {
         this.connection = connection;
         this.dataStore = dataStore;
         this.tableMetadataManager = tableMetadataManager;
         this.mapper = mapper;
+        this.journal = journal;
+        this.rawKeyCache = rawKeyCache;
+        this.tableWatermarks = tableWatermarks;
+    }
+
+    @Override
+    public void start() throws Exception {
+    }
+
+    /**
+     * Lets bulk retries that are already scheduled run before the retry scheduler goes away
+     */
+    @Override
+    public void stop() throws Exception {
+        retryScheduler.shutdown();
+        retryScheduler.awaitTermination(MAX_BULK_WAIT_MS, TimeUnit.MILLISECONDS);
     }
 
     @Override
@@ -101,19 +171,31 @@ public class ElasticsearchQueryStore implements QueryStore {
             if (new DateTime().plusDays(1).minus(document.getTimestamp()).getMillis() < 0) {
                 return;
             }
+            if (isJournaled()) {
+                journal(table, Collections.singletonList(document));
+                return;
+            }
             final Table tableMeta = tableMetadataManager.get(table);
             final Document translatedDocument = dataStore.save(tableMeta, document);
+            cacheRawKeys(table, Collections.singletonList(translatedDocument));
             long timestamp = translatedDocument.getTimestamp();
-            connection.getClient()
-                    .prepareIndex()
-                    .setIndex(ElasticsearchUtils.getCurrentIndex(table, timestamp))
-                    .setType(ElasticsearchUtils.DOCUMENT_TYPE_NAME)
-                    .setId(translatedDocument.getId())
-                    .setTimestamp(Long.toString(timestamp))
-                    .setSource(convert(translatedDocument))
-                    .setConsistencyLevel(WriteConsistencyLevel.QUORUM)
-                    .execute()
-                    .get(2, TimeUnit.SECONDS);
+            try {
+                connection.getClient()
+                        .prepareIndex()
+                        .setIndex(ElasticsearchUtils.getCurrentIndex(table, timestamp))
+                        .setType(ElasticsearchUtils.DOCUMENT_TYPE_NAME)
+                        .setId(translatedDocument.getId())
+                        .setTimestamp(Long.toString(timestamp))
+                        .setSource(convert(translatedDocument))
+                        .setConsistencyLevel(WriteConsistencyLevel.QUORUM)
+                        .execute()
+                        .get(2, TimeUnit.SECONDS);
+            } finally {
+                // A timed out request may still get indexed
+                recordWrite(table, Collections.singletonList(translatedDocument));
+            }
+        } catch (JsonProcessingException e) {
+            throw FoxtrotExceptions.createBadRequestException(table, e);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw FoxtrotExceptions.createExecutionException(table, e);
         }
@@ -122,6 +204,12 @@ public class ElasticsearchQueryStore implements QueryStore {
     @Override
     @Timed
     public void save(String table, List<Document> documents) throws FoxtrotException {
+        bulkSave(table, documents);
+    }
+
+    @Override
+    @Timed
+    public BulkSaveResult bulkSave(String table, List<Document> documents) throws FoxtrotException {
         table = ElasticsearchUtils.getValidTableName(table);
         try {
             if (!tableMetadataManager.exists(table)) {
@@ -130,44 +218,264 @@ public class ElasticsearchQueryStore implements QueryStore {
             if (documents == null || documents.size() == 0) {
                 throw FoxtrotExceptions.createBadRequestException(table, "Empty Document List Not Allowed");
             }
+            if (isJournaled()) {
+                journal(table, documents);
+                return queued(documents);
+            }
             final Table tableMeta = tableMetadataManager.get(table);
             final List<Document> translatedDocuments = dataStore.saveAll(tableMeta, documents);
-            BulkRequestBuilder bulkRequestBuilder = connection.getClient().prepareBulk();
+            cacheRawKeys(table, translatedDocuments);
+            PlainActionFuture<BulkSaveResult> future = PlainActionFuture.newFuture();
+            index(table, documents, translatedDocuments, future);
+            return future.get(MAX_BULK_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            throw FoxtrotExceptions.createExecutionException(table, e);
+        }
+    }
 
-            DateTime dateTime = new DateTime().plusDays(1);
+    /**
+     * Writes the documents to the data store on the calling thread and fires the elasticsearch bulk request
+     * without waiting for it. The listener is notified once elasticsearch responds. This lets a caller overlap the
+     * data store write of one batch with the index write of the previous one.
+     * If the ingestion journal is enabled the documents are journaled instead, and the listener is notified right
+     * away with all documents queued.
+     *
+     * @param table     Table name
+     * @param documents Documents to be saved
+     * @param listener  Notified with the per document result or the failure
+     * @throws FoxtrotException if the table is missing or the data store write fails
+     */
+    @Timed
+    public void saveAsync(String table, final List<Document> documents,
+                          final ActionListener<BulkSaveResult> listener) throws FoxtrotException {
+        final String validTable = validate(table, documents);
+        if (isJournaled()) {
+            journal(validTable, documents);
+            listener.onResponse(queued(documents));
+            return;
+        }
+        write(validTable, documents, listener);
+    }
 
-            for (Document document : translatedDocuments) {
-                long timestamp = document.getTimestamp();
-                if (dateTime.minus(timestamp).getMillis() < 0) {
-                    continue;
-                }
-                final String index = ElasticsearchUtils.getCurrentIndex(table, timestamp);
-                IndexRequest indexRequest = new IndexRequest()
-                        .index(index)
-                        .type(ElasticsearchUtils.DOCUMENT_TYPE_NAME)
-                        .id(document.getId())
-                        .timestamp(Long.toString(timestamp))
-                        .source(convert(document));
-                bulkRequestBuilder.add(indexRequest);
+    /**
+     * Same as {@link #saveAsync(String, List, ActionListener)}, but always writes to the stores and never to the
+     * ingestion journal. Meant for the journal replayer.
+     */
+    @Timed
+    public void writeAsync(String table, final List<Document> documents,
+                           final ActionListener<BulkSaveResult> listener) throws FoxtrotException {
+        write(validate(table, documents), documents, listener);
+    }
+
+    private String validate(String table, List<Document> documents) throws FoxtrotException {
+        final String validTable = ElasticsearchUtils.getValidTableName(table);
+        if (!tableMetadataManager.exists(validTable)) {
+            throw FoxtrotExceptions.createTableMissingException(validTable);
+        }
+        if (documents == null || documents.size() == 0) {
+            throw FoxtrotExceptions.createBadRequestException(validTable, "Empty Document List Not Allowed");
+        }
+        return validTable;
+    }
+
+    private void write(String validTable, final List<Document> documents,
+                       final ActionListener<BulkSaveResult> listener) throws FoxtrotException {
+        final Table tableMeta = tableMetadataManager.get(validTable);
+        final List<Document> translatedDocuments = dataStore.saveAll(tableMeta, documents);
+        cacheRawKeys(validTable, translatedDocuments);
+        index(validTable, documents, translatedDocuments, listener);
+    }
+
+    private void cacheRawKeys(String table, List<Document> translatedDocuments) {
+        // Id derived row keys need no lookup
+        if (null != rawKeyCache && !dataStore.isIdLookupSupported()) {
+            rawKeyCache.put(table, translatedDocuments);
+        }
+    }
+
+    private void recordWrite(String table, List<Document> translatedDocuments) {
+        if (null != tableWatermarks) {
+            tableWatermarks.recordWrite(table, translatedDocuments);
+        }
+    }
+
+    private boolean isJournaled() {
+        return null != journal && journal.isEnabled();
+    }
+
+    private static BulkSaveResult queued(List<Document> documents) {
+        return new BulkSaveResult(documents.stream()
+                .map(document -> new BulkSaveResult.DocumentResult(
+                        document.getId(), BulkSaveResult.Status.QUEUED, null, 0))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Accepts the documents into the ingestion journal, the journal replayer writes them to the stores later.
+     * Documents are validated up front so that a record that can never be written is not acknowledged.
+     */
+    private void journal(String table, List<Document> documents) throws FoxtrotException {
+        List<String> errorMessages = new ArrayList<>();
+        for (int i = 0; i < documents.size(); i++) {
+            Document document = documents.get(i);
+            if (document == null) {
+                errorMessages.add("null document at index - " + i);
+            } else if (document.getId() == null || document.getId().trim().isEmpty()) {
+                errorMessages.add("null/empty document id at index - " + i);
+            } else if (document.getData() == null) {
+                errorMessages.add("null document data at index - " + i);
             }
-            if (bulkRequestBuilder.numberOfActions() > 0) {
-                BulkResponse responses = bulkRequestBuilder
-                        .setConsistencyLevel(WriteConsistencyLevel.QUORUM)
-                        .execute()
-                        .get(10, TimeUnit.SECONDS);
-                for (int i = 0; i < responses.getItems().length; i++) {
-                    BulkItemResponse itemResponse = responses.getItems()[i];
-                    if (itemResponse.isFailed()) {
-                        logger.error(String.format("Table : %s Failure Message : %s Document : %s", table,
-                                itemResponse.getFailureMessage(),
-                                mapper.writeValueAsString(documents.get(i))));
+        }
+        if (!errorMessages.isEmpty()) {
+            throw FoxtrotExceptions.createBadRequestException(table, errorMessages);
+        }
+        journal.append(table, documents);
+    }
+
+    /**
+     * Indexes the translated documents. Documents with a timestamp more than a day in the future are skipped.
+     * Items rejected by elasticsearch because of a full bulk queue are retried, with exponential backoff, without
+     * resending the ones that went through.
+     */
+    private void index(final String table, final List<Document> documents, final List<Document> translatedDocuments,
+                       final ActionListener<BulkSaveResult> listener) {
+        final BulkSaveResult.DocumentResult[] results = new BulkSaveResult.DocumentResult[translatedDocuments.size()];
+        final byte[][] sources = new byte[translatedDocuments.size()][];
+        final List<Integer> pending = Lists.newArrayList();
+        DateTime dateTime = new DateTime().plusDays(1);
+        for (int i = 0; i < translatedDocuments.size(); i++) {
+            Document document = translatedDocuments.get(i);
+            if (dateTime.minus(document.getTimestamp()).getMillis() < 0) {
+                results[i] = new BulkSaveResult.DocumentResult(document.getId(), BulkSaveResult.Status.SKIPPED, null, 0);
+                continue;
+            }
+            try {
+                sources[i] = convert(document);
+                pending.add(i);
+            } catch (JsonProcessingException e) {
+                results[i] = new BulkSaveResult.DocumentResult(
+                        document.getId(), BulkSaveResult.Status.FAILED, e.getMessage(), 0);
+            }
+        }
+        ActionListener<BulkSaveResult> loggingListener = new ActionListener<BulkSaveResult>() {
+            @Override
+            public void onResponse(BulkSaveResult result) {
+                logBulkFailures(table, documents, result);
+                recordWrite(table, translatedDocuments);
+                listener.onResponse(result);
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                // Part of the bulk may have gone through
+                recordWrite(table, translatedDocuments);
+                listener.onFailure(e);
+            }
+        };
+        if (pending.isEmpty()) {
+            loggingListener.onResponse(new BulkSaveResult(Arrays.asList(results)));
+            return;
+        }
+        index(table, translatedDocuments, sources, pending, results, 1, loggingListener);
+    }
+
+    private void index(final String table, final List<Document> translatedDocuments, final byte[][] sources,
+                       final List<Integer> positions, final BulkSaveResult.DocumentResult[] results, final int attempt,
+                       final ActionListener<BulkSaveResult> listener) {
+        BulkRequestBuilder bulkRequestBuilder = connection.getClient().prepareBulk();
+        for (int position : positions) {
+            Document document = translatedDocuments.get(position);
+            long timestamp = document.getTimestamp();
+            bulkRequestBuilder.add(new IndexRequest()
+                    .index(ElasticsearchUtils.getCurrentIndex(table, timestamp))
+                    .type(ElasticsearchUtils.DOCUMENT_TYPE_NAME)
+                    .id(document.getId())
+                    .timestamp(Long.toString(timestamp))
+                    .source(sources[position]));
+        }
+        bulkRequestBuilder.setConsistencyLevel(WriteConsistencyLevel.QUORUM)
+                .setTimeout(TimeValue.timeValueSeconds(BULK_TIMEOUT_SECONDS))
+                .execute(new ActionListener<BulkResponse>() {
+                    @Override
+                    public void onResponse(BulkResponse responses) {
+                        List<Integer> rejected = Lists.newArrayList();
+                        BulkItemResponse[] items = responses.getItems();
+                        for (int i = 0; i < items.length; i++) {
+                            // Items come back in request order, so they map to the positions that were sent
+                            int position = positions.get(i);
+                            BulkItemResponse item = items[i];
+                            String id = translatedDocuments.get(position).getId();
+                            if (!item.isFailed()) {
+                                results[position] = new BulkSaveResult.DocumentResult(
+                                        id, BulkSaveResult.Status.INDEXED, null, attempt);
+                            } else if (isRejection(item.getFailure()) && attempt <= MAX_BULK_RETRIES) {
+                                rejected.add(position);
+                            } else {
+                                results[position] = new BulkSaveResult.DocumentResult(
+                                        id, BulkSaveResult.Status.FAILED, item.getFailureMessage(), attempt,
+                                        isTransient(item.getFailure()));
+                            }
+                        }
+                        if (rejected.isEmpty()) {
+                            listener.onResponse(new BulkSaveResult(Arrays.asList(results)));
+                        } else {
+                            retry(table, translatedDocuments, sources, rejected, results, attempt, listener);
+                        }
                     }
-                }
+
+                    @Override
+                    public void onFailure(Throwable e) {
+                        if (ExceptionsHelper.unwrapCause(e) instanceof EsRejectedExecutionException
+                                && attempt <= MAX_BULK_RETRIES) {
+                            retry(table, translatedDocuments, sources, positions, results, attempt, listener);
+                        } else {
+                            listener.onFailure(e);
+                        }
+                    }
+                });
+    }
+
+    private void retry(final String table, final List<Document> translatedDocuments, final byte[][] sources,
+                       final List<Integer> positions, final BulkSaveResult.DocumentResult[] results, final int attempt,
+                       final ActionListener<BulkSaveResult> listener) {
+        long backoff = BULK_RETRY_BACKOFF_MS << (attempt - 1);
+        logger.warn("Table : {} {} documents rejected by elasticsearch, retrying in {} ms (attempt {})",
+                table, positions.size(), backoff, attempt + 1);
+        try {
+            retryScheduler.schedule(
+                    () -> index(table, translatedDocuments, sources, positions, results, attempt + 1, listener),
+                    backoff, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            listener.onFailure(e);
+        }
+    }
+
+    private static boolean isRejection(BulkItemResponse.Failure failure) {
+        return failure.getStatus() == RestStatus.TOO_MANY_REQUESTS
+                || (null != failure.getMessage() && failure.getMessage().contains("EsRejectedExecutionException"));
+    }
+
+    /**
+     * Rejections and server side errors may go away, client errors such as mapping conflicts never will
+     */
+    private static boolean isTransient(BulkItemResponse.Failure failure) {
+        return isRejection(failure) || failure.getStatus().getStatus() >= 500;
+    }
+
+    private void logBulkFailures(String table, List<Document> documents, BulkSaveResult result) {
+        List<BulkSaveResult.DocumentResult> results = result.getResults();
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i).getStatus() != BulkSaveResult.Status.FAILED) {
+                continue;
+            }
+            try {
+                logger.error(String.format("Table : %s Failure Message : %s Document : %s", table,
+                        results.get(i).getFailureMessage(),
+                        mapper.writeValueAsString(documents.get(i))));
+            } catch (JsonProcessingException e) {
+                logger.error("Table : {} Failure Message : {} Document : {}", table,
+                        results.get(i).getFailureMessage(), results.get(i).getId());
             }
-        } catch (JsonProcessingException e) {
-            throw FoxtrotExceptions.createBadRequestException(table, e);
-        } catch (InterruptedException | ExecutionException | TimeoutException e) {
-            throw FoxtrotExceptions.createExecutionException(table, e);
         }
     }
 
@@ -180,7 +488,20 @@ public class ElasticsearchQueryStore implements QueryStore {
             throw FoxtrotExceptions.createTableMissingException(table);
         }
         fxTable = tableMetadataManager.get(table);
-        String lookupKey;
+        if (dataStore.isIdLookupSupported()) {
+            try {
+                return dataStore.get(fxTable, id);
+            } catch (FoxtrotException e) {
+                if (e.getCode() != ErrorCode.DOCUMENT_NOT_FOUND) {
+                    throw e;
+                }
+                // Written with an older raw key version, the row key has to be looked up
+            }
+        }
+        String lookupKey = (null != rawKeyCache) ? rawKeyCache.get(table, id) : null;
+        if (null != lookupKey) {
+            return dataStore.get(fxTable, lookupKey);
+        }
         SearchResponse searchResponse = connection.getClient()
                 .prepareSearch(ElasticsearchUtils.getIndices(table))
                 .setTypes(ElasticsearchUtils.DOCUMENT_TYPE_NAME)
@@ -198,6 +519,9 @@ public class ElasticsearchQueryStore implements QueryStore {
         } else {
             lookupKey = searchResponse.getHits().getHits()[0].getId();
             logger.debug("Translated lookup key for {} is {}.", id, lookupKey);
+            if (null != rawKeyCache) {
+                rawKeyCache.put(table, id, lookupKey);
+            }
         }
         return dataStore.get(fxTable, lookupKey);
     }
@@ -214,24 +538,59 @@ public class ElasticsearchQueryStore implements QueryStore {
         if (!tableMetadataManager.exists(table)) {
             throw FoxtrotExceptions.createTableMissingException(table);
         }
+        if (bypassMetalookup || !dataStore.isIdLookupSupported()) {
+            return getAllByRowKeys(table, ids, bypassMetalookup);
+        }
+        // Only documents written with an older raw key version need the row key lookup
+        MultiGetResult result = dataStore.multiGet(tableMetadataManager.get(table), ids);
+        if (result.isComplete()) {
+            return result.getDocuments();
+        }
+        Map<String, Document> documents = Maps.newHashMap();
+        for (Document document : result.getDocuments()) {
+            documents.put(document.getId(), document);
+        }
+        for (Document document : getAllByRowKeys(table, result.getMissingIds(), false)) {
+            documents.put(document.getId(), document);
+        }
+        return ids.stream()
+                .distinct()
+                .map(documents::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private List<Document> getAllByRowKeys(String table, List<String> ids,
+                                           boolean bypassMetalookup) throws FoxtrotException {
         Map<String, String> rowKeys = Maps.newLinkedHashMap();
         for (String id : ids) {
             rowKeys.put(id, id);
         }
-        if (!bypassMetalookup) {
+        List<String> lookupIds = ids;
+        if (!bypassMetalookup && null != rawKeyCache) {
+            Map<String, String> cachedRowKeys = rawKeyCache.getAll(table, ids);
+            rowKeys.putAll(cachedRowKeys);
+            lookupIds = ids.stream()
+                    .filter(id -> !cachedRowKeys.containsKey(id))
+                    .collect(Collectors.toList());
+        }
+        if (!bypassMetalookup && !lookupIds.isEmpty()) {
             SearchResponse response = connection.getClient().prepareSearch(ElasticsearchUtils.getIndices(table))
                     .setTypes(ElasticsearchUtils.DOCUMENT_TYPE_NAME)
                     .setQuery(
                             QueryBuilders.constantScoreQuery(
-                                    FilterBuilders.inFilter(ElasticsearchUtils.DOCUMENT_META_ID_FIELD_NAME, ids.toArray(new String[ids.size()]))))
+                                    FilterBuilders.inFilter(ElasticsearchUtils.DOCUMENT_META_ID_FIELD_NAME, lookupIds.toArray(new String[lookupIds.size()]))))
                     .setFetchSource(false)
                     .addField(ElasticsearchUtils.DOCUMENT_META_ID_FIELD_NAME) // Used for compatibility
-                    .setSize(ids.size())
+                    .setSize(lookupIds.size())
                     .execute()
                     .actionGet();
             for (SearchHit hit : response.getHits()) {
                 final String id = hit.getFields().get(ElasticsearchUtils.DOCUMENT_META_ID_FIELD_NAME).getValue().toString();
                 rowKeys.put(id, hit.getId());
+                if (null != rawKeyCache) {
+                    rawKeyCache.put(table, id, hit.getId());
+                }
             }
         }
         logger.info("Get row keys: {}", rowKeys.size());
@@ -332,11 +691,20 @@ public class ElasticsearchQueryStore implements QueryStore {
     public IndicesStatsResponse getIndicesStats() throws ExecutionException, InterruptedException {
         return connection.getClient().admin().indices().prepareStats(ElasticsearchUtils.getAllIndicesPattern()).clear().setDocs(true).setStore(true).execute().get();
     }
-    private String convert(Document translatedDocument) {
+    /**
+     * Index source is the document data with the metadata added as a field. It is built from the bytes the data
+     * store already encoded the document into, without copying or encoding the data tree again.
+     */
+    private byte[] convert(Document translatedDocument) throws JsonProcessingException {
+        SerializedDocument serializedDocument = SerializedDocument.serialize(translatedDocument, mapper);
+        byte[] source = serializedDocument.spliceMetadata(ElasticsearchUtils.DOCUMENT_META_FIELD_NAME);
+        if (null != source) {
+            return source;
+        }
         JsonNode metaNode = mapper.valueToTree(translatedDocument.getMetadata());
         ObjectNode dataNode = translatedDocument.getData().deepCopy();
         dataNode.put(ElasticsearchUtils.DOCUMENT_META_FIELD_NAME, metaNode);
-        return dataNode.toString();
+        return mapper.writeValueAsBytes(dataNode);
     }
 
 }
@@ -0,0 +1,35 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.querystore.scheduler;
+
+/**
+ * Scheduling class of a query. Classes share the query slots in proportion to their weights, see
+ * {@link QuerySchedulerConfig}.
+ */
+public enum QueryPriority {
+    /**
+     * Dashboards and other requests a user is waiting on
+     */
+    INTERACTIVE,
+    /**
+     * Async actions and cache warming, nobody is blocked on the response
+     */
+    ASYNC,
+    /**
+     * Bulk downloads
+     */
+    EXPORT
+}
@@ -0,0 +1,309 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.querystore.scheduler;
+
+import com.codahale.metrics.Gauge;
+import com.flipkart.foxtrot.core.exception.FoxtrotExceptions;
+import com.flipkart.foxtrot.core.util.MetricUtil;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for queries against elasticsearch. A query starts right away while there are free slots,
+ * otherwise it waits in the queue of its priority class and table:
+ * <ul>
+ * <li>running queries are capped globally, per table and per opcode</li>
+ * <li>priority classes share the slots in proportion to their weights (stride scheduling)</li>
+ * <li>within a class tables take turns, so that a backlog on one table does not hold up the others</li>
+ * <li>when the queues are full, queries are rejected before any work is done for them</li>
+ * </ul>
+ * The scheduler has no threads of its own. A query that can start on submission runs on the submitting thread,
+ * queued ones are started on the executor as running queries complete.
+ */
+public class QueryScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(QueryScheduler.class.getSimpleName());
+    private static final long STRIDE = 1 << 20;
+
+    private final QuerySchedulerConfig config;
+    private final Executor executor;
+    private final Object lock = new Object();
+    private final Map<QueryPriority, PriorityClass> classes = new EnumMap<>(QueryPriority.class);
+    private final Map<String, Integer> runningByTable = Maps.newHashMap();
+    private final Map<String, Integer> runningByOpcode = Maps.newHashMap();
+    private final Map<String, Integer> queuedByTable = Maps.newHashMap();
+    private int running = 0;
+    private int queued = 0;
+    private long virtualTime = 0;
+
+    public QueryScheduler(QuerySchedulerConfig config, Executor executor) {
+        this.config = config;
+        this.executor = executor;
+        for (QueryPriority priority : QueryPriority.values()) {
+            classes.put(priority, new PriorityClass(STRIDE / config.weightOf(priority)));
+        }
+        MetricUtil.getInstance().registerSchedulerGauge("running", (Gauge<Integer>) this::getRunning);
+        MetricUtil.getInstance().registerSchedulerGauge("queued", (Gauge<Integer>) this::getQueued);
+    }
+
+    /**
+     * Runs the query once a slot is free for it. The slot is held till the future returned by the query completes.
+     *
+     * @return completes with the result of the query, or with a
+     * {@link com.flipkart.foxtrot.core.exception.QueryRejectedException} if it could not be queued
+     */
+    public <T> CompletableFuture<T> submit(String table,
+                                           String opcode,
+                                           QueryPriority priority,
+                                           Supplier<CompletableFuture<T>> query) {
+        final Task<T> task = new Task<>(Objects.toString(table, ""), opcode, priority, query);
+        final List<Task<?>> started;
+        synchronized (lock) {
+            if (queued >= config.getMaxQueuedQueries()
+                    || count(queuedByTable, task.table) >= config.getMaxQueuedQueriesPerTable()) {
+                started = null;
+            } else {
+                enqueue(task);
+                started = dispatch();
+            }
+        }
+        if (null == started) {
+            MetricUtil.getInstance().registerQueryRejected(priority.name().toLowerCase(), opcode);
+            logger.warn("Rejected {} query on table {}, queues are full", opcode, table);
+            task.result.completeExceptionally(
+                    FoxtrotExceptions.createQueryRejectedException(table, opcode, getQueued()));
+            return task.result;
+        }
+        for (Task<?> startedTask : started) {
+            if (startedTask == task) {
+                task.start();
+            } else {
+                startOnExecutor(startedTask);
+            }
+        }
+        return task.result;
+    }
+
+    public int getRunning() {
+        synchronized (lock) {
+            return running;
+        }
+    }
+
+    public int getQueued() {
+        synchronized (lock) {
+            return queued;
+        }
+    }
+
+    private void complete(Task<?> task) {
+        final List<Task<?>> started;
+        synchronized (lock) {
+            running--;
+            decrement(runningByTable, task.table);
+            decrement(runningByOpcode, task.opcode);
+            started = dispatch();
+        }
+        started.forEach(this::startOnExecutor);
+    }
+
+    private void startOnExecutor(Task<?> task) {
+        try {
+            executor.execute(task::start);
+        } catch (RuntimeException e) {
+            task.fail(e);
+        }
+    }
+
+    private void enqueue(Task<?> task) {
+        PriorityClass priorityClass = classes.get(task.priority);
+        if (priorityClass.isEmpty()) {
+            // A class that was idle does not get to catch up on the turns it did not need
+            priorityClass.pass = Math.max(priorityClass.pass, virtualTime);
+        }
+        priorityClass.add(task);
+        queued++;
+        increment(queuedByTable, task.table);
+    }
+
+    private List<Task<?>> dispatch() {
+        if (0 == queued) {
+            return Collections.emptyList();
+        }
+        List<Task<?>> started = Lists.newArrayList();
+        Task<?> task;
+        while (running < config.getMaxConcurrentQueries() && null != (task = next())) {
+            queued--;
+            decrement(queuedByTable, task.table);
+            running++;
+            increment(runningByTable, task.table);
+            increment(runningByOpcode, task.opcode);
+            started.add(task);
+        }
+        return started;
+    }
+
+    /**
+     * Takes the next query to run from the class with the lowest pass that has one allowed to run
+     */
+    private Task<?> next() {
+        PriorityClass selected = null;
+        Task<?> candidate = null;
+        for (PriorityClass priorityClass : classes.values()) {
+            if (null != selected && priorityClass.pass >= selected.pass) {
+                continue;
+            }
+            Task<?> task = priorityClass.peekEligible();
+            if (null != task) {
+                selected = priorityClass;
+                candidate = task;
+            }
+        }
+        if (null == selected) {
+            return null;
+        }
+        selected.remove(candidate);
+        virtualTime = selected.pass;
+        selected.pass += selected.stride;
+        return candidate;
+    }
+
+    private boolean isEligible(Task<?> task) {
+        return count(runningByTable, task.table) < config.maxConcurrentQueriesFor(task.table)
+                && count(runningByOpcode, task.opcode) < config.maxConcurrentQueriesForOpcode(task.opcode);
+    }
+
+    private static int count(Map<String, Integer> counts, String key) {
+        Integer count = counts.get(key);
+        return (null != count) ? count : 0;
+    }
+
+    private static void increment(Map<String, Integer> counts, String key) {
+        counts.put(key, count(counts, key) + 1);
+    }
+
+    private static void decrement(Map<String, Integer> counts, String key) {
+        int count = count(counts, key) - 1;
+        if (count > 0) {
+            counts.put(key, count);
+        } else {
+            counts.remove(key);
+        }
+    }
+
+    private final class PriorityClass {
+        private final long stride;
+        // Insertion order is the round robin order of the tables
+        private final LinkedHashMap<String, ArrayDeque<Task<?>>> queues = new LinkedHashMap<>();
+        private long pass = 0;
+
+        private PriorityClass(long stride) {
+            this.stride = stride;
+        }
+
+        private boolean isEmpty() {
+            return queues.isEmpty();
+        }
+
+        private void add(Task<?> task) {
+            queues.computeIfAbsent(task.table, table -> new ArrayDeque<>()).add(task);
+        }
+
+        private Task<?> peekEligible() {
+            for (ArrayDeque<Task<?>> queue : queues.values()) {
+                Task<?> head = queue.peek();
+                if (isEligible(head)) {
+                    return head;
+                }
+            }
+            return null;
+        }
+
+        private void remove(Task<?> task) {
+            ArrayDeque<Task<?>> queue = queues.remove(task.table);
+            queue.poll();
+            if (!queue.isEmpty()) {
+                // Back of the line for this table
+                queues.put(task.table, queue);
+            }
+        }
+    }
+
+    private final class Task<T> {
+        private final String table;
+        private final String opcode;
+        private final QueryPriority priority;
+        private final Supplier<CompletableFuture<T>> query;
+        private final long submittedAt = System.nanoTime();
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Task(String table, String opcode, QueryPriority priority, Supplier<CompletableFuture<T>> query) {
+            this.table = table;
+            this.opcode = opcode;
+            this.priority = priority;
+            this.query = query;
+        }
+
+        private void start() {
+            if (result.isDone()) {
+                // Cancelled while queued
+                complete(this);
+                return;
+            }
+            MetricUtil.getInstance().registerQueryQueueTime(priority.name().toLowerCase(), opcode,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - submittedAt));
+            CompletableFuture<T> started;
+            try {
+                started = query.get();
+            } catch (RuntimeException e) {
+                started = new CompletableFuture<>();
+                started.completeExceptionally(e);
+            }
+            final CompletableFuture<T> future = started;
+            result.whenComplete((response, error) -> {
+                if (result.isCancelled()) {
+                    future.cancel(true);
+                }
+            });
+            future.whenComplete((response, error) -> {
+                complete(this);
+                if (null == error) {
+                    result.complete(response);
+                } else {
+                    result.completeExceptionally(error);
+                }
+            });
+        }
+
+        private void fail(Throwable error) {
+            complete(this);
+            result.completeExceptionally(error);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.querystore.scheduler;
+
+import com.google.common.collect.Maps;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.Map;
+
+/**
+ * Configuration for the {@link QueryScheduler}
+ */
+public class QuerySchedulerConfig {
+
+    private boolean enabled = true;
+
+    /**
+     * Max number of queries running against elasticsearch at a time, also the size of the query executor pool
+     */
+    @Min(1)
+    private int maxConcurrentQueries = 32;
+
+    /**
+     * Max number of queries running against a single table at a time, unless overridden in tableConcurrency
+     */
+    @Min(1)
+    private int maxConcurrentQueriesPerTable = 8;
+
+    /**
+     * Max number of queries of a single opcode running at a time, unless overridden in opcodeConcurrency
+     */
+    @Min(1)
+    private int maxConcurrentQueriesPerOpcode = 16;
+
+    @NotNull
+    private Map<String, Integer> tableConcurrency = Maps.newHashMap();
+
+    @NotNull
+    private Map<String, Integer> opcodeConcurrency = Maps.newHashMap();
+
+    /**
+     * Queries beyond this many waiting ones are rejected right away
+     */
+    @Min(1)
+    private int maxQueuedQueries = 1000;
+
+    @Min(1)
+    private int maxQueuedQueriesPerTable = 200;
+
+    @Min(1)
+    private int interactiveWeight = 8;
+
+    @Min(1)
+    private int asyncWeight = 2;
+
+    @Min(1)
+    private int exportWeight = 1;
+
+    public QuerySchedulerConfig() {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxConcurrentQueries() {
+        return maxConcurrentQueries;
+    }
+
+    public void setMaxConcurrentQueries(int maxConcurrentQueries) {
+        this.maxConcurrentQueries = maxConcurrentQueries;
+    }
+
+    public int getMaxConcurrentQueriesPerTable() {
+        return maxConcurrentQueriesPerTable;
+    }
+
+    public void setMaxConcurrentQueriesPerTable(int maxConcurrentQueriesPerTable) {
+        this.maxConcurrentQueriesPerTable = maxConcurrentQueriesPerTable;
+    }
+
+    public int getMaxConcurrentQueriesPerOpcode() {
+        return maxConcurrentQueriesPerOpcode;
+    }
+
+    public void setMaxConcurrentQueriesPerOpcode(int maxConcurrentQueriesPerOpcode) {
+        this.maxConcurrentQueriesPerOpcode = maxConcurrentQueriesPerOpcode;
+    }
+
+    public Map<String, Integer> getTableConcurrency() {
+        return tableConcurrency;
+    }
+
+    public void setTableConcurrency(Map<String, Integer> tableConcurrency) {
+        this.tableConcurrency = tableConcurrency;
+    }
+
+    public Map<String, Integer> getOpcodeConcurrency() {
+        return opcodeConcurrency;
+    }
+
+    public void setOpcodeConcurrency(Map<String, Integer> opcodeConcurrency) {
+        this.opcodeConcurrency = opcodeConcurrency;
+    }
+
+    public int getMaxQueuedQueries() {
+        return maxQueuedQueries;
+    }
+
+    public void setMaxQueuedQueries(int maxQueuedQueries) {
+        this.maxQueuedQueries = maxQueuedQueries;
+    }
+
+    public int getMaxQueuedQueriesPerTable() {
+        return maxQueuedQueriesPerTable;
+    }
+
+    public void setMaxQueuedQueriesPerTable(int maxQueuedQueriesPerTable) {
+        this.maxQueuedQueriesPerTable = maxQueuedQueriesPerTable;
+    }
+
+    public int getInteractiveWeight() {
+        return interactiveWeight;
+    }
+
+    public void setInteractiveWeight(int interactiveWeight) {
+        this.interactiveWeight = interactiveWeight;
+    }
+
+    public int getAsyncWeight() {
+        return asyncWeight;
+    }
+
+    public void setAsyncWeight(int asyncWeight) {
+        this.asyncWeight = asyncWeight;
+    }
+
+    public int getExportWeight() {
+        return exportWeight;
+    }
+
+    public void setExportWeight(int exportWeight) {
+        this.exportWeight = exportWeight;
+    }
+
+    public int maxConcurrentQueriesFor(String table) {
+        Integer limit = tableConcurrency.get(table);
+        return (null != limit) ? limit : maxConcurrentQueriesPerTable;
+    }
+
+    public int maxConcurrentQueriesForOpcode(String opcode) {
+        Integer limit = opcodeConcurrency.get(opcode);
+        return (null != limit) ? limit : maxConcurrentQueriesPerOpcode;
+    }
+
+    public int weightOf(QueryPriority priority) {
+        switch (priority) {
+            case INTERACTIVE:
+                return interactiveWeight;
+            case ASYNC:
+                return asyncWeight;
+            default:
+                return exportWeight;
+        }
+    }
+}
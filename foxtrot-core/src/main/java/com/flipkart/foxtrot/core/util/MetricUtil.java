@@ -1,5 +1,6 @@
 package com.flipkart.foxtrot.core.util;
 
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.JmxReporter;
 import com.codahale.metrics.MetricRegistry;
 
@@ -15,6 +16,8 @@ public class MetricUtil {
 
     private static final String packagePrefix = "com.flipkart.foxtrot.core";
     private static final String actionMetricPrefix = "action";
+    private static final String hbaseMetricPrefix = "hbase";
+    private static final String schedulerMetricPrefix = "scheduler";
 
     static {
         metrics = new MetricRegistry();
@@ -37,6 +40,24 @@ public class MetricUtil {
         registerActionCacheOperation(opcode, metricKey, "failure");
     }
 
+    public void registerActionCacheSkippedForSize(String opcode) {
+        metrics.meter(String.format("%s.%s.cache.skipped.size", packagePrefix, actionMetricPrefix)).mark();
+        metrics.meter(String.format("%s.%s.%s.cache.skipped.size", packagePrefix, actionMetricPrefix, opcode)).mark();
+    }
+
+    public void registerActionCacheSkippedForCost(String opcode) {
+        metrics.meter(String.format("%s.%s.cache.skipped.cost", packagePrefix, actionMetricPrefix)).mark();
+        metrics.meter(String.format("%s.%s.%s.cache.skipped.cost", packagePrefix, actionMetricPrefix, opcode)).mark();
+    }
+
+    public void registerActionCacheEvictions(String opcode, int count) {
+        if (count == 0) {
+            return;
+        }
+        metrics.meter(String.format("%s.%s.cache.evicted", packagePrefix, actionMetricPrefix)).mark(count);
+        metrics.meter(String.format("%s.%s.%s.cache.evicted", packagePrefix, actionMetricPrefix, opcode)).mark(count);
+    }
+
     private void registerActionCacheOperation(String opcode, String metricKey, String status) {
         metrics.meter(String.format("%s.%s.cache.%s", packagePrefix, actionMetricPrefix, status)).mark();
         metrics.meter(String.format("%s.%s.%s.cache.%s", packagePrefix, actionMetricPrefix, opcode, status)).mark();
@@ -59,6 +80,37 @@ public class MetricUtil {
         metrics.timer(String.format("%s.%s.%s.%s.%s", packagePrefix, actionMetricPrefix, opcode, metricKey, status))
                 .update(duration, TimeUnit.MILLISECONDS);
     }
+
+    public void registerHbaseTableAcquire(long durationNanos) {
+        metrics.timer(String.format("%s.%s.table.acquire", packagePrefix, hbaseMetricPrefix))
+                .update(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void registerHbaseGauge(String name, Gauge<?> gauge) {
+        String metricName = String.format("%s.%s.%s", packagePrefix, hbaseMetricPrefix, name);
+        metrics.remove(metricName);
+        metrics.register(metricName, gauge);
+    }
+
+    public void registerQueryQueueTime(String priority, String opcode, long durationMillis) {
+        metrics.timer(String.format("%s.%s.queue", packagePrefix, schedulerMetricPrefix))
+                .update(durationMillis, TimeUnit.MILLISECONDS);
+        metrics.timer(String.format("%s.%s.%s.queue", packagePrefix, schedulerMetricPrefix, priority))
+                .update(durationMillis, TimeUnit.MILLISECONDS);
+        metrics.timer(String.format("%s.%s.%s.%s.queue", packagePrefix, schedulerMetricPrefix, priority, opcode))
+                .update(durationMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void registerQueryRejected(String priority, String opcode) {
+        metrics.meter(String.format("%s.%s.rejected", packagePrefix, schedulerMetricPrefix)).mark();
+        metrics.meter(String.format("%s.%s.%s.%s.rejected", packagePrefix, schedulerMetricPrefix, priority, opcode)).mark();
+    }
+
+    public void registerSchedulerGauge(String name, Gauge<?> gauge) {
+        String metricName = String.format("%s.%s.%s", packagePrefix, schedulerMetricPrefix, name);
+        metrics.remove(metricName);
+        metrics.register(metricName, gauge);
+    }
     //////////////////////////////////////////////////////////////////////////////////////////////////////////
 
 }
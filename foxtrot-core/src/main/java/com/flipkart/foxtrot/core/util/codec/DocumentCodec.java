@@ -0,0 +1,33 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.util.codec;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.IOException;
+
+/**
+ * Turns values into bytes and back. Used for HBase cells and for cached action responses. Every codec other than
+ * plain JSON has an id, so that stored bytes can always be read back no matter which codec is configured right now.
+ */
+public interface DocumentCodec {
+
+    byte getId();
+
+    byte[] encode(Object value) throws JsonProcessingException;
+
+    <T> T decode(byte[] bytes, int offset, int length, Class<T> type) throws IOException;
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.util.codec;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Compresses the output of another codec with LZ4. Layout is [uncompressed length (int)][compressed bytes].
+ */
+public class Lz4DocumentCodec implements DocumentCodec {
+    private static final byte COMPRESSED_FLAG = (byte) 0x40;
+
+    private final DocumentCodec codec;
+    private final LZ4Compressor compressor;
+    private final LZ4FastDecompressor decompressor;
+
+    public Lz4DocumentCodec(DocumentCodec codec) {
+        this.codec = codec;
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        this.compressor = factory.fastCompressor();
+        this.decompressor = factory.fastDecompressor();
+    }
+
+    @Override
+    public byte getId() {
+        return (byte) (COMPRESSED_FLAG | codec.getId());
+    }
+
+    @Override
+    public byte[] encode(Object value) throws JsonProcessingException {
+        byte[] raw = codec.encode(value);
+        byte[] compressed = new byte[4 + compressor.maxCompressedLength(raw.length)];
+        ByteBuffer.wrap(compressed).putInt(raw.length);
+        int compressedLength = compressor.compress(raw, 0, raw.length, compressed, 4);
+        byte[] encoded = new byte[4 + compressedLength];
+        System.arraycopy(compressed, 0, encoded, 0, encoded.length);
+        return encoded;
+    }
+
+    @Override
+    public <T> T decode(byte[] bytes, int offset, int length, Class<T> type) throws IOException {
+        int rawLength = ByteBuffer.wrap(bytes, offset, length).getInt();
+        byte[] raw = new byte[rawLength];
+        decompressor.decompress(bytes, offset + 4, raw, 0, rawLength);
+        return codec.decode(raw, 0, rawLength, type);
+    }
+}
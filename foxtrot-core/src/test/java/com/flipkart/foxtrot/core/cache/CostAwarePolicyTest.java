@@ -0,0 +1,79 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.cache;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CostAwarePolicyTest {
+    private static final long TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    public void testAdmitsEverythingWithinBudget() throws Exception {
+        CostAwarePolicy policy = new CostAwarePolicy(1000, TTL_MILLIS);
+        assertEquals(Collections.emptyList(), policy.admit("a", 400, 1));
+        assertEquals(Collections.emptyList(), policy.admit("b", 400, 1));
+        assertEquals(800, policy.getUsedBytes());
+    }
+
+    @Test
+    public void testEvictsCheapestEntriesWhenFull() throws Exception {
+        CostAwarePolicy policy = new CostAwarePolicy(1000, TTL_MILLIS);
+        policy.admit("cheap", 400, 1);
+        policy.admit("expensive", 400, 1000);
+
+        List<String> evicted = policy.admit("new", 400, 500);
+        assertEquals(Collections.singletonList("cheap"), evicted);
+        assertEquals(800, policy.getUsedBytes());
+    }
+
+    @Test
+    public void testFrequentlyReadEntriesAreKept() throws Exception {
+        CostAwarePolicy policy = new CostAwarePolicy(1000, TTL_MILLIS);
+        policy.admit("popular", 400, 10);
+        policy.admit("unpopular", 400, 20);
+        for (int i = 0; i < 10; i++) {
+            policy.recordAccess("popular");
+        }
+
+        assertEquals(Collections.singletonList("unpopular"), policy.admit("new", 400, 100));
+    }
+
+    @Test
+    public void testRejectsEntriesWorthLessThanEvictedOnes() throws Exception {
+        CostAwarePolicy policy = new CostAwarePolicy(1000, TTL_MILLIS);
+        policy.admit("a", 400, 100);
+        policy.admit("b", 400, 200);
+        assertEquals(Collections.singletonList("a"), policy.admit("c", 400, 300));
+
+        assertNull(policy.admit("cheap", 400, 1));
+        assertNull(policy.admit("huge", 2000, 10000));
+    }
+
+    @Test
+    public void testRemoveReleasesBudget() throws Exception {
+        CostAwarePolicy policy = new CostAwarePolicy(1000, TTL_MILLIS);
+        policy.admit("a", 400, 1);
+        policy.remove("a");
+        policy.remove("missing");
+        assertEquals(0, policy.getUsedBytes());
+    }
+}
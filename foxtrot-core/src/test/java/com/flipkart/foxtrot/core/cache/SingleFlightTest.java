@@ -0,0 +1,129 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.cache;
+
+import com.flipkart.foxtrot.common.ActionResponse;
+import com.flipkart.foxtrot.common.count.CountResponse;
+import com.flipkart.foxtrot.core.exception.FoxtrotException;
+import com.flipkart.foxtrot.core.exception.FoxtrotExceptions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SingleFlightTest {
+
+    @Test
+    public void testConcurrentCallsShareOneExecution() throws Exception {
+        final SingleFlight singleFlight = new SingleFlight();
+        final AtomicInteger executions = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final ActionResponse response = new CountResponse(10);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ActionResponse>> futures = new ArrayList<>();
+            futures.add(executorService.submit(() -> singleFlight.execute("key", () -> {
+                executions.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return response;
+            })));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                futures.add(executorService.submit(() -> singleFlight.execute("key", () -> {
+                    executions.incrementAndGet();
+                    return response;
+                })));
+            }
+            // Let the followers reach the in flight future before the leader finishes
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<ActionResponse> future : futures) {
+                assertSame(response, future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        assertEquals(1, executions.get());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    public void testFailureIsNotRemembered() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        try {
+            singleFlight.execute("key", () -> {
+                throw FoxtrotExceptions.createBadRequestException("test", "failed");
+            });
+            fail();
+        } catch (FoxtrotException e) {
+            assertEquals(0, singleFlight.inFlightCount());
+        }
+        ActionResponse response = new CountResponse(1);
+        assertSame(response, singleFlight.execute("key", () -> response));
+    }
+
+    @Test
+    public void testCancellingOneCallerLeavesOthersWaiting() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        CompletableFuture<ActionResponse> loaded = new CompletableFuture<>();
+        CompletableFuture<ActionResponse> first = singleFlight.executeAsync("key", () -> loaded);
+        CompletableFuture<ActionResponse> second = singleFlight.executeAsync("key", () -> {
+            fail();
+            return null;
+        });
+        assertNotSame(first, second);
+
+        first.cancel(true);
+        assertFalse(loaded.isCancelled());
+        ActionResponse response = new CountResponse(1);
+        loaded.complete(response);
+        assertSame(response, second.get(1, TimeUnit.SECONDS));
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    public void testExecutionIsCancelledWithLastCaller() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        CompletableFuture<ActionResponse> loaded = new CompletableFuture<>();
+        CompletableFuture<ActionResponse> first = singleFlight.executeAsync("key", () -> loaded);
+        CompletableFuture<ActionResponse> second = singleFlight.executeAsync("key", () -> loaded);
+
+        first.cancel(true);
+        second.cancel(true);
+        assertTrue(loaded.isCancelled());
+        assertEquals(0, singleFlight.inFlightCount());
+
+        // A new caller starts a fresh execution
+        ActionResponse response = new CountResponse(2);
+        assertSame(response, singleFlight.executeAsync("key",
+                () -> CompletableFuture.completedFuture(response)).get(1, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.cache;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TableWatermarkTest {
+
+    @Test
+    public void testLastWriteOfOverlappingBuckets() throws Exception {
+        TableWatermark watermark = new TableWatermark();
+        watermark.update(ImmutableMap.of(10L, 100L, 20L, 200L, 30L, 300L), 10);
+        watermark.update(ImmutableMap.of(20L, 150L), 10);
+
+        assertEquals(200L, watermark.lastWrite(15L, 25L));
+        assertEquals(300L, watermark.lastWrite(10L, 30L));
+        assertEquals(0L, watermark.lastWrite(40L, 50L));
+    }
+
+    @Test
+    public void testOldBucketsFoldIntoFloor() throws Exception {
+        TableWatermark watermark = new TableWatermark();
+        watermark.update(ImmutableMap.of(10L, 500L, 20L, 200L, 30L, 300L), 2);
+
+        // Anything at or before the folded bucket reports the latest folded write
+        assertEquals(500L, watermark.lastWrite(0L, 5L));
+        assertEquals(200L, watermark.lastWrite(15L, 25L));
+
+        watermark.update(ImmutableMap.of(5L, 600L), 2);
+        assertEquals(600L, watermark.lastWrite(0L, 10L));
+        assertEquals(300L, watermark.lastWrite(30L, 30L));
+    }
+}
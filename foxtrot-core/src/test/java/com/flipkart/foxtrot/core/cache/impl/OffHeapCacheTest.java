@@ -0,0 +1,116 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.cache.impl;
+
+import com.flipkart.foxtrot.common.count.CountResponse;
+import com.flipkart.foxtrot.core.util.codec.DocumentCodec;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class OffHeapCacheTest {
+    private static final int PAGE_SIZE = 1024;
+    private static final long TTL_MILLIS = 60000;
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        OffHeapCache cache = cache(4 * PAGE_SIZE);
+        cache.put("KEY", new CountResponse(100), 12345L + System.currentTimeMillis());
+
+        assertTrue(cache.has("KEY"));
+        assertEquals(100, CountResponse.class.cast(cache.get("KEY")).getCount());
+        assertNull(cache.get("MISSING"));
+        assertNull(cache.get(null));
+        assertFalse(cache.has(null));
+        assertEquals(PAGE_SIZE, cache.getAllocatedBytes());
+    }
+
+    @Test
+    public void testReplaceKeepsSingleEntry() throws Exception {
+        OffHeapCache cache = cache(PAGE_SIZE);
+        cache.put("KEY", new CountResponse(100));
+        cache.put("KEY", new CountResponse(900));
+
+        assertEquals(1, cache.size());
+        assertEquals(900, CountResponse.class.cast(cache.get("KEY")).getCount());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws Exception {
+        OffHeapCache cache = cache(PAGE_SIZE);
+        // Four chunks of the smallest size class fit into the only page
+        for (String key : Arrays.asList("a", "b", "c", "d")) {
+            cache.put(key, new CountResponse(200));
+        }
+        assertNotNull(cache.get("a"));
+        cache.put("e", new CountResponse(200));
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("e"));
+        assertEquals(PAGE_SIZE, cache.getAllocatedBytes());
+    }
+
+    @Test
+    public void testPageIsReassignedToOtherSizeClass() throws Exception {
+        OffHeapCache cache = cache(PAGE_SIZE);
+        for (String key : Arrays.asList("a", "b", "c", "d")) {
+            cache.put(key, new CountResponse(200));
+        }
+        cache.put("large", new CountResponse(1000));
+
+        assertEquals(1000, CountResponse.class.cast(cache.get("large")).getCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testSkipsLargeAndExpiredResponses() throws Exception {
+        OffHeapCache cache = cache(PAGE_SIZE);
+        cache.put("large", new CountResponse(PAGE_SIZE + 1));
+        assertNull(cache.get("large"));
+
+        cache.put("old", new CountResponse(100), System.currentTimeMillis() - 2 * TTL_MILLIS);
+        assertFalse(cache.has("old"));
+        assertNull(cache.get("old"));
+        assertEquals(0, cache.size());
+    }
+
+    private OffHeapCache cache(long maxSizeBytes) {
+        return new OffHeapCache("TEST", new SizeCodec(), maxSizeBytes, PAGE_SIZE, PAGE_SIZE, TTL_MILLIS);
+    }
+
+    /**
+     * Encodes a count response into as many bytes as its count, to control the size class used
+     */
+    private static class SizeCodec implements DocumentCodec {
+        @Override
+        public byte getId() {
+            return 0;
+        }
+
+        @Override
+        public byte[] encode(Object value) {
+            return new byte[(int) CountResponse.class.cast(value).getCount()];
+        }
+
+        @Override
+        public <T> T decode(byte[] bytes, int offset, int length, Class<T> type) {
+            return type.cast(new CountResponse(length));
+        }
+    }
+}
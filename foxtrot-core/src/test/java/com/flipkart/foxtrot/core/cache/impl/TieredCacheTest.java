@@ -0,0 +1,97 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.cache.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flipkart.foxtrot.common.ActionResponse;
+import com.flipkart.foxtrot.common.group.GroupResponse;
+import com.flipkart.foxtrot.core.cache.CacheConfig;
+import com.flipkart.foxtrot.core.querystore.impl.HazelcastConnection;
+import com.flipkart.foxtrot.core.util.codec.DocumentCodec;
+import com.flipkart.foxtrot.core.util.codec.Lz4DocumentCodec;
+import com.flipkart.foxtrot.core.util.codec.SmileDocumentCodec;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.test.TestHazelcastInstanceFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class TieredCacheTest {
+    private HazelcastInstance hazelcastInstance;
+    private DocumentCodec codec;
+    private TieredCache tieredCache;
+
+    @Before
+    public void setUp() throws Exception {
+        codec = spy(new Lz4DocumentCodec(new SmileDocumentCodec(new ObjectMapper())));
+        hazelcastInstance = new TestHazelcastInstanceFactory(1).newHazelcastInstance();
+        tieredCache = new TieredCache(distributedCache(), new CacheConfig());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        hazelcastInstance.shutdown();
+    }
+
+    @Test
+    public void testLocalHitSkipsDeserialization() throws Exception {
+        ActionResponse response = new GroupResponse(Collections.<String, Object>singletonMap("Hello", "world"));
+        tieredCache.put("KEY", response);
+
+        assertSame(response, tieredCache.get("KEY"));
+        verify(codec, never()).decode(any(byte[].class), anyInt(), anyInt(), eq(ActionResponse.class));
+    }
+
+    @Test
+    public void testDistributedHitIsKeptLocally() throws Exception {
+        ActionResponse response = new GroupResponse(Collections.<String, Object>singletonMap("Hello", "world"));
+        distributedCache().put("KEY", response);
+
+        ActionResponse first = tieredCache.get("KEY");
+        assertEquals(GroupResponse.class.cast(response).getResult(), GroupResponse.class.cast(first).getResult());
+        assertSame(first, tieredCache.get("KEY"));
+        verify(codec, times(1)).decode(any(byte[].class), anyInt(), anyInt(), eq(ActionResponse.class));
+    }
+
+    @Test
+    public void testComputedAtIsStoredWithResponse() throws Exception {
+        ActionResponse response = new GroupResponse(Collections.<String, Object>singletonMap("Hello", "world"));
+        distributedCache().put("KEY", response, 12345L);
+
+        assertEquals(12345L, tieredCache.getEntry("KEY").getComputedAt());
+        assertEquals(12345L, tieredCache.getEntry("KEY").getComputedAt());
+    }
+
+    @Test
+    public void testMissingAndNullKeys() throws Exception {
+        assertNull(tieredCache.get("MISSING"));
+        assertNull(tieredCache.get(null));
+        assertFalse(tieredCache.has(null));
+        assertFalse(tieredCache.has("MISSING"));
+    }
+
+    private DistributedCache distributedCache() {
+        HazelcastConnection hazelcastConnection = Mockito.mock(HazelcastConnection.class);
+        when(hazelcastConnection.getHazelcast()).thenReturn(hazelcastInstance);
+        return new DistributedCache(hazelcastConnection, "TEST", codec, DistributedCache.DEFAULT_MAX_VALUE_SIZE_BYTES);
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.common;
+
+import com.flipkart.foxtrot.core.querystore.impl.HazelcastConnection;
+import com.hazelcast.config.Config;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.test.TestHazelcastInstanceFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.when;
+
+public class AsyncJobRegistryTest {
+    private HazelcastInstance hazelcastInstance;
+    private AsyncJobRegistry registry;
+
+    @Before
+    public void setUp() throws Exception {
+        hazelcastInstance = new TestHazelcastInstanceFactory(1).newHazelcastInstance();
+        HazelcastConnection hazelcastConnection = Mockito.mock(HazelcastConnection.class);
+        when(hazelcastConnection.getHazelcast()).thenReturn(hazelcastInstance);
+        when(hazelcastConnection.getHazelcastConfig()).thenReturn(new Config());
+        registry = new AsyncJobRegistry(hazelcastConnection, new AsyncJobConfig());
+        registry.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        registry.stop();
+        hazelcastInstance.shutdown();
+    }
+
+    @Test
+    public void testLifecycle() throws Exception {
+        AsyncJob job = registry.create("group", "key");
+        assertEquals(AsyncJobStatus.QUEUED, registry.get(job.getId()).getStatus());
+
+        registry.started(job.getId());
+        assertEquals(AsyncJobStatus.RUNNING, registry.get(job.getId()).getStatus());
+        assertTrue(registry.get(job.getId()).getStartedAt() > 0);
+
+        registry.completed(job.getId());
+        AsyncJob completed = registry.get(job.getId());
+        assertEquals(AsyncJobStatus.DONE, completed.getStatus());
+        assertEquals("key", completed.getResult().getKey());
+
+        // Finished jobs stay finished
+        registry.failed(job.getId(), new IllegalStateException("late"));
+        assertEquals(AsyncJobStatus.DONE, registry.get(job.getId()).getStatus());
+    }
+
+    @Test
+    public void testAwaitReturnsOnCompletion() throws Exception {
+        AsyncJob job = registry.create("group", "key");
+        Executors.newSingleThreadScheduledExecutor()
+                .schedule(() -> registry.failed(job.getId(), "ERROR", "failed"), 200, TimeUnit.MILLISECONDS);
+
+        AsyncJob finished = registry.await(job.getId(), 10000);
+        assertEquals(AsyncJobStatus.FAILED, finished.getStatus());
+        assertEquals("failed", finished.getMessage());
+        assertNull(finished.getResult());
+    }
+
+    @Test
+    public void testAwaitTimesOut() throws Exception {
+        AsyncJob job = registry.create("group", "key");
+        assertEquals(AsyncJobStatus.QUEUED, registry.await(job.getId(), 100).getStatus());
+        assertNull(registry.await("dummy", 100));
+    }
+
+    @Test
+    public void testCancelInterruptsExecution() throws Exception {
+        AsyncJob job = registry.create("group", "key");
+        final CountDownLatch running = new CountDownLatch(1);
+        final CompletableFuture<Boolean> interrupted = new CompletableFuture<>();
+        Future<?> execution = Executors.newSingleThreadExecutor().submit(() -> {
+            running.countDown();
+            try {
+                Thread.sleep(10000);
+                interrupted.complete(false);
+            } catch (InterruptedException e) {
+                interrupted.complete(true);
+            }
+        });
+        registry.track(job.getId(), execution);
+        running.await();
+
+        assertEquals(AsyncJobStatus.CANCELLED, registry.cancel(job.getId()).getStatus());
+        assertTrue(interrupted.get(5, TimeUnit.SECONDS));
+    }
+}
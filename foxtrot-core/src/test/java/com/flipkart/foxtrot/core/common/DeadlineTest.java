@@ -0,0 +1,65 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.common;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+public class DeadlineTest {
+
+    @Test
+    public void testCompletesBeforeDeadline() throws Exception {
+        CompletableFuture<String> execution = new CompletableFuture<>();
+        CompletableFuture<String> result = Deadline.after(5000).enforce(execution, TimeoutException::new);
+        execution.complete("done");
+        assertEquals("done", result.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testExpiryCancelsExecution() throws Exception {
+        CompletableFuture<String> execution = new CompletableFuture<>();
+        CompletableFuture<String> result = Deadline.after(50).enforce(execution, TimeoutException::new);
+        try {
+            result.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertTrue(execution.isCancelled());
+    }
+
+    @Test
+    public void testCancelPropagatesToExecution() throws Exception {
+        CompletableFuture<String> execution = new CompletableFuture<>();
+        CompletableFuture<String> result = Deadline.after(5000).enforce(execution, TimeoutException::new);
+        result.cancel(true);
+        assertTrue(execution.isCancelled());
+    }
+
+    @Test
+    public void testRemaining() throws Exception {
+        assertTrue(Deadline.after(0).isExpired());
+        Deadline deadline = Deadline.after(5000);
+        assertFalse(deadline.isExpired());
+        assertTrue(deadline.remainingMillis() <= 5000);
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.common;
+
+import com.flipkart.foxtrot.common.CacheControl;
+import com.flipkart.foxtrot.common.group.GroupRequest;
+import com.flipkart.foxtrot.common.query.Filter;
+import com.flipkart.foxtrot.common.query.general.EqualsFilter;
+import com.flipkart.foxtrot.common.query.numeric.BetweenFilter;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class RequestFingerprintTest {
+
+    @Test
+    public void testFilterValuesChangeFingerprint() {
+        assertNotEquals(RequestFingerprint.of(request(new EqualsFilter("os", "android"))),
+                RequestFingerprint.of(request(new EqualsFilter("os", "ios"))));
+    }
+
+    @Test
+    public void testFilterOrderDoesNotMatter() {
+        Filter os = new EqualsFilter("os", "android");
+        Filter device = new EqualsFilter("device", "nexus");
+        assertEquals(RequestFingerprint.of(request(os, device)), RequestFingerprint.of(request(device, os)));
+    }
+
+    @Test
+    public void testNestingOrderMatters() {
+        GroupRequest first = request(new EqualsFilter("os", "android"));
+        GroupRequest second = request(new EqualsFilter("os", "android"));
+        second.setNesting(Lists.newArrayList("device", "os"));
+        assertNotEquals(RequestFingerprint.of(first), RequestFingerprint.of(second));
+    }
+
+    @Test
+    public void testTemporalFiltersAreIgnored() {
+        assertEquals(RequestFingerprint.of(request(new EqualsFilter("os", "android"), temporal(1000L, 2000L))),
+                RequestFingerprint.of(request(new EqualsFilter("os", "android"), temporal(3000L, 4000L))));
+    }
+
+    @Test
+    public void testCacheControlIsIgnored() {
+        GroupRequest refresh = request(new EqualsFilter("os", "android"));
+        refresh.setCache(CacheControl.REFRESH);
+        assertEquals(RequestFingerprint.of(request(new EqualsFilter("os", "android"))), RequestFingerprint.of(refresh));
+    }
+
+    private BetweenFilter temporal(long from, long to) {
+        return new BetweenFilter("_timestamp", from, to, true);
+    }
+
+    private GroupRequest request(Filter... filters) {
+        GroupRequest request = new GroupRequest();
+        request.setTable("test-table");
+        request.setNesting(Lists.newArrayList("os", "device"));
+        request.setFilters(Lists.newArrayList(filters));
+        return request;
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.datastore;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.flipkart.foxtrot.common.Document;
+import com.flipkart.foxtrot.common.DocumentMetadata;
+import com.flipkart.foxtrot.core.querystore.impl.ElasticsearchUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SerializedDocumentTest {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testSpliceMatchesTreeConversion() throws Exception {
+        ObjectNode data = mapper.createObjectNode();
+        data.put("name", "value");
+        data.putObject("nested").put("count", 10);
+        Document document = document(data);
+
+        byte[] source = SerializedDocument.serialize(document, mapper)
+                .spliceMetadata(ElasticsearchUtils.DOCUMENT_META_FIELD_NAME);
+
+        ObjectNode expected = data.deepCopy();
+        expected.put(ElasticsearchUtils.DOCUMENT_META_FIELD_NAME, mapper.valueToTree(document.getMetadata()));
+        assertEquals(expected, mapper.readTree(source));
+    }
+
+    @Test
+    public void testSpliceEmptyData() throws Exception {
+        Document document = document(mapper.createObjectNode());
+        byte[] source = SerializedDocument.serialize(document, mapper)
+                .spliceMetadata(ElasticsearchUtils.DOCUMENT_META_FIELD_NAME);
+        JsonNode tree = mapper.readTree(source);
+        assertEquals(1, tree.size());
+        assertEquals("raw", tree.get(ElasticsearchUtils.DOCUMENT_META_FIELD_NAME).get("rawStorageId").asText());
+    }
+
+    @Test
+    public void testSpliceSkippedWhenFieldPresent() throws Exception {
+        ObjectNode data = mapper.createObjectNode();
+        data.put(ElasticsearchUtils.DOCUMENT_META_FIELD_NAME, "user value");
+        assertNull(SerializedDocument.serialize(document(data), mapper)
+                .spliceMetadata(ElasticsearchUtils.DOCUMENT_META_FIELD_NAME));
+    }
+
+    @Test
+    public void testSerializeIsNotRepeated() throws Exception {
+        SerializedDocument serializedDocument = SerializedDocument.serialize(document(mapper.createObjectNode()), mapper);
+        assertSame(serializedDocument, SerializedDocument.serialize(serializedDocument, mapper));
+    }
+
+    private Document document(JsonNode data) {
+        DocumentMetadata metadata = new DocumentMetadata();
+        metadata.setId("id");
+        metadata.setRawStorageId("raw");
+        return new Document("id", System.currentTimeMillis(), metadata, data);
+    }
+}
@@ -22,6 +22,8 @@ import com.flipkart.foxtrot.common.DocumentMetadata;
 import com.flipkart.foxtrot.common.Table;
 import com.flipkart.foxtrot.core.MockHTable;
 import com.flipkart.foxtrot.core.TestUtils;
+import com.flipkart.foxtrot.core.datastore.MultiGetResult;
+import com.flipkart.foxtrot.core.datastore.impl.hbase.codec.DocumentCodecs;
 import com.flipkart.foxtrot.core.exception.ErrorCode;
 import com.flipkart.foxtrot.core.exception.FoxtrotException;
 import com.flipkart.foxtrot.core.querystore.DocumentTranslator;
@@ -39,6 +41,8 @@ import org.mockito.Mockito;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -424,6 +428,64 @@ public class HBaseDataStoreTest {
         }
     }
 
+    @Test
+    public void testParallelMultiGetPartialResults() throws Exception {
+        DocumentTranslator translator = new DocumentTranslator(TestUtils.createHBaseConfigWithRawKeyV2());
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        hbaseDataStore = new HBaseDataStore(hbaseTableConnection, mapper, translator,
+                new DocumentCodecs(mapper), executorService, 4);
+
+        List<String> rawIds = Lists.newArrayList();
+        List<String> missingIds = Lists.newArrayList();
+        List<String> presentIds = Lists.newArrayList();
+        List<Put> putList = Lists.newArrayList();
+        for (int i = 0; i < 20; i++) {
+            Document document = createDummyDocument();
+            Document translated = translator.translate(TEST_APP, document);
+            rawIds.add(translated.getId());
+            if (i % 3 == 0) {
+                missingIds.add(translated.getId());
+            } else {
+                presentIds.add(document.getId());
+                putList.add(hbaseDataStore.getPutForDocument(translated));
+            }
+        }
+        tableInterface.put(putList);
+        try {
+            MultiGetResult result = hbaseDataStore.multiGet(TEST_APP, rawIds);
+            assertFalse(result.isComplete());
+            assertEquals(missingIds, result.getMissingIds());
+            assertEquals(presentIds.size(), result.getDocuments().size());
+            for (int i = 0; i < presentIds.size(); i++) {
+                assertEquals(presentIds.get(i), result.getDocuments().get(i).getId());
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testV3GetReadsLegacyKeys() throws Exception {
+        DocumentTranslator translator = new DocumentTranslator(TestUtils.createHBaseConfigWithRawKeyV3());
+        DocumentTranslator legacyTranslator = new DocumentTranslator(TestUtils.createHBaseConfigWithRawKeyV1());
+        hbaseDataStore = new HBaseDataStore(hbaseTableConnection, mapper, translator);
+
+        Document document = createDummyDocument();
+        Document legacyDocument = createDummyDocument();
+        tableInterface.put(Lists.newArrayList(
+                hbaseDataStore.getPutForDocument(translator.translate(TEST_APP, document)),
+                hbaseDataStore.getPutForDocument(legacyTranslator.translate(TEST_APP, legacyDocument))));
+
+        compare(document, hbaseDataStore.get(TEST_APP, document.getId()));
+        compare(legacyDocument, hbaseDataStore.get(TEST_APP, legacyDocument.getId()));
+
+        List<Document> documents = hbaseDataStore.getAll(TEST_APP,
+                Lists.newArrayList(document.getId(), legacyDocument.getId()));
+        assertEquals(2, documents.size());
+        compare(document, documents.get(0));
+        compare(legacyDocument, documents.get(1));
+    }
+
     @Test
     public void testGetBulkNullIdList() throws Exception {
         try {
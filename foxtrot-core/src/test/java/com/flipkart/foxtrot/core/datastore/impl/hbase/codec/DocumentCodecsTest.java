@@ -0,0 +1,62 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.datastore.impl.hbase.codec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.flipkart.foxtrot.common.DocumentMetadata;
+import com.flipkart.foxtrot.core.TestUtils;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class DocumentCodecsTest {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final DocumentCodecs codecs = new DocumentCodecs(mapper, CellEncoding.SMILE_LZ4,
+            ImmutableMap.of(TestUtils.TEST_TABLE_NAME, CellEncoding.JSON));
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        ObjectNode data = mapper.createObjectNode();
+        data.put("name", "value");
+        data.putObject("nested").put("count", 10);
+        for (CellEncoding encoding : CellEncoding.values()) {
+            byte[] cell = codecs.encode(encoding, data);
+            assertEquals(encoding.name(), data, codecs.decode(cell, JsonNode.class));
+        }
+    }
+
+    @Test
+    public void testLegacyJsonCellsAreReadable() throws Exception {
+        DocumentMetadata metadata = new DocumentMetadata();
+        metadata.setId("id");
+        metadata.setRawStorageId("raw");
+        byte[] cell = mapper.writeValueAsBytes(metadata);
+        DocumentMetadata decoded = codecs.decode(cell, DocumentMetadata.class);
+        assertEquals("id", decoded.getId());
+        assertEquals("raw", decoded.getRawStorageId());
+    }
+
+    @Test
+    public void testEncodingPerTable() throws Exception {
+        assertEquals(CellEncoding.JSON, codecs.encodingFor(TestUtils.TEST_TABLE));
+        ObjectNode data = mapper.createObjectNode().put("name", "value");
+        assertEquals(mapper.writeValueAsString(data), new String(codecs.encode(TestUtils.TEST_TABLE, data)));
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.ingestion;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flipkart.foxtrot.common.Document;
+import com.flipkart.foxtrot.core.TestUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IngestionJournalTest {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private File directory;
+    private IngestionJournalConfig config;
+    private IngestionJournal journal;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("foxtrot-journal").toFile();
+        config = new IngestionJournalConfig();
+        config.setEnabled(true);
+        config.setDirectory(directory.getAbsolutePath());
+        config.setSegmentSizeBytes(1024 * 1024);
+        config.setSyncPolicy(IngestionJournalConfig.SyncPolicy.ALWAYS);
+        journal = new IngestionJournal(config, mapper);
+        journal.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        journal.stop();
+        File[] files = directory.listFiles();
+        if (null != files) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testAppendAndRead() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            journal.append(TestUtils.TEST_TABLE_NAME, Collections.singletonList(document(Integer.toString(i))));
+        }
+        List<JournalRecord> records = journal.read(journal.getCheckpoint(), 3);
+        assertEquals(3, records.size());
+        assertEquals("0", records.get(0).getEntry().getDocuments().get(0).getId());
+
+        records = journal.read(records.get(2).getNext(), 10);
+        assertEquals(2, records.size());
+        assertEquals("4", records.get(1).getEntry().getDocuments().get(0).getId());
+        assertTrue(journal.read(records.get(1).getNext(), 10).isEmpty());
+    }
+
+    @Test
+    public void testResumeFromCheckpointAfterRestart() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            journal.append(TestUtils.TEST_TABLE_NAME, Collections.singletonList(document(Integer.toString(i))));
+        }
+        List<JournalRecord> records = journal.read(journal.getCheckpoint(), 2);
+        journal.checkpoint(records.get(1).getNext());
+        journal.stop();
+
+        journal = new IngestionJournal(config, mapper);
+        journal.start();
+        journal.append(TestUtils.TEST_TABLE_NAME, Collections.singletonList(document("4")));
+
+        records = journal.read(journal.getCheckpoint(), 10);
+        assertEquals(3, records.size());
+        assertEquals("2", records.get(0).getEntry().getDocuments().get(0).getId());
+        assertEquals("3", records.get(1).getEntry().getDocuments().get(0).getId());
+        assertEquals("4", records.get(2).getEntry().getDocuments().get(0).getId());
+    }
+
+    private Document document(String id) {
+        return TestUtils.getDocument(id, System.currentTimeMillis(), new Object[]{"key", "value"}, mapper);
+    }
+}
@@ -0,0 +1,241 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.ingestion;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flipkart.foxtrot.common.Document;
+import com.flipkart.foxtrot.core.TestUtils;
+import com.flipkart.foxtrot.core.exception.ErrorCode;
+import com.flipkart.foxtrot.core.exception.FoxtrotException;
+import com.flipkart.foxtrot.core.querystore.BulkSaveResult;
+import com.flipkart.foxtrot.core.querystore.impl.ElasticsearchQueryStore;
+import com.flipkart.foxtrot.core.table.TableMetadataManager;
+import com.google.common.collect.Lists;
+import org.elasticsearch.action.ActionListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class IngestionPipelineTest {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private ElasticsearchQueryStore queryStore;
+    private IngestionPipelineConfig config;
+    private IngestionPipeline pipeline;
+
+    @Before
+    public void setUp() throws Exception {
+        TableMetadataManager tableMetadataManager = Mockito.mock(TableMetadataManager.class);
+        when(tableMetadataManager.exists(TestUtils.TEST_TABLE_NAME)).thenReturn(true);
+        queryStore = Mockito.mock(ElasticsearchQueryStore.class);
+
+        config = new IngestionPipelineConfig();
+        config.setEnabled(true);
+        config.setBatchSize(100);
+        config.setQueueSize(10);
+        config.setFlushIntervalMs(10);
+        pipeline = new IngestionPipeline(config, tableMetadataManager, queryStore);
+        pipeline.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        pipeline.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConcurrentSubmissionsAreBatched() throws Exception {
+        doAnswer(invocation -> {
+            ((ActionListener<BulkSaveResult>) invocation.getArguments()[2])
+                    .onResponse(new BulkSaveResult(Collections.emptyList()));
+            return null;
+        }).when(queryStore).saveAsync(anyString(), anyListOf(Document.class), any(ActionListener.class));
+
+        ExecutorService executorService = Executors.newFixedThreadPool(5);
+        List<Future<?>> futures = Lists.newArrayList();
+        for (int i = 0; i < 5; i++) {
+            final String id = Integer.toString(i);
+            futures.add(executorService.submit(() -> {
+                pipeline.save(TestUtils.TEST_TABLE_NAME, Collections.singletonList(document(id)));
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        executorService.shutdown();
+        verify(queryStore, atMost(5)).saveAsync(eq(TestUtils.TEST_TABLE_NAME), anyListOf(Document.class), any(ActionListener.class));
+        verify(queryStore, never()).bulkSave(anyString(), anyListOf(Document.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testQueueFull() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            latch.await();
+            return null;
+        }).when(queryStore).saveAsync(anyString(), anyListOf(Document.class), any(ActionListener.class));
+
+        List<Document> documents = Lists.newArrayList();
+        for (int i = 0; i < config.getQueueSize(); i++) {
+            documents.add(document(Integer.toString(i)));
+        }
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        executorService.submit(() -> {
+            pipeline.save(TestUtils.TEST_TABLE_NAME, documents);
+            return null;
+        });
+        Thread.sleep(100);
+        try {
+            pipeline.save(TestUtils.TEST_TABLE_NAME, Collections.singletonList(document("overflow")));
+            fail();
+        } catch (FoxtrotException e) {
+            assertEquals(ErrorCode.INGESTION_QUEUE_FULL, e.getCode());
+        } finally {
+            latch.countDown();
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testOnlyWritesWithFailedDocumentsFail() throws Exception {
+        doAnswer(invocation -> {
+            List<BulkSaveResult.DocumentResult> results = Lists.newArrayList();
+            for (Document document : (List<Document>) invocation.getArguments()[1]) {
+                results.add("bad".equals(document.getId())
+                        ? new BulkSaveResult.DocumentResult(document.getId(), BulkSaveResult.Status.FAILED, "mapping", 1)
+                        : new BulkSaveResult.DocumentResult(document.getId(), BulkSaveResult.Status.INDEXED, null, 1));
+            }
+            ((ActionListener<BulkSaveResult>) invocation.getArguments()[2]).onResponse(new BulkSaveResult(results));
+            return null;
+        }).when(queryStore).saveAsync(anyString(), anyListOf(Document.class), any(ActionListener.class));
+
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        Future<?> good = executorService.submit(() -> {
+            pipeline.save(TestUtils.TEST_TABLE_NAME, Lists.newArrayList(document("good-1"), document("good-2")));
+            return null;
+        });
+        Future<?> bad = executorService.submit(() -> {
+            pipeline.save(TestUtils.TEST_TABLE_NAME, Lists.newArrayList(document("good-3"), document("bad")));
+            return null;
+        });
+        good.get(5, TimeUnit.SECONDS);
+        try {
+            bad.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals(ErrorCode.STORE_EXECUTION_ERROR, ((FoxtrotException) e.getCause()).getCode());
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testUnexpectedSaveErrorsReleaseTheQueue() throws Exception {
+        doThrow(new IllegalStateException("client closed"))
+                .doThrow(new IllegalStateException("client closed"))
+                .doThrow(new IllegalStateException("client closed"))
+                .doAnswer(invocation -> {
+                    ((ActionListener<BulkSaveResult>) invocation.getArguments()[2])
+                            .onResponse(new BulkSaveResult(Collections.emptyList()));
+                    return null;
+                }).when(queryStore).saveAsync(anyString(), anyListOf(Document.class), any(ActionListener.class));
+
+        for (int i = 0; i < config.getMaxInFlightBulkRequests() + 1; i++) {
+            try {
+                pipeline.save(TestUtils.TEST_TABLE_NAME, Collections.singletonList(document(Integer.toString(i))));
+                fail();
+            } catch (FoxtrotException e) {
+                assertEquals(ErrorCode.STORE_EXECUTION_ERROR, e.getCode());
+            }
+        }
+        pipeline.save(TestUtils.TEST_TABLE_NAME, Collections.singletonList(document("after")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTimedOutWrites() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            latch.await();
+            ((ActionListener<BulkSaveResult>) invocation.getArguments()[2])
+                    .onResponse(new BulkSaveResult(Collections.emptyList()));
+            return null;
+        }).when(queryStore).saveAsync(anyString(), anyListOf(Document.class), any(ActionListener.class));
+        config.setTimeoutMs(300);
+
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        Future<?> inFlight = executorService.submit(() -> {
+            pipeline.save(TestUtils.TEST_TABLE_NAME, Collections.singletonList(document("in-flight")));
+            return null;
+        });
+        Thread.sleep(100);
+        try {
+            // Still queued behind the blocked flush, so it is taken back out
+            pipeline.save(TestUtils.TEST_TABLE_NAME, Collections.singletonList(document("queued")));
+            fail();
+        } catch (FoxtrotException e) {
+            assertEquals(ErrorCode.STORE_EXECUTION_ERROR, e.getCode());
+        }
+        try {
+            inFlight.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals(ErrorCode.INGESTION_TIMEOUT, ((FoxtrotException) e.getCause()).getCode());
+        } finally {
+            latch.countDown();
+            executorService.shutdown();
+        }
+        pipeline.stop();
+        pipeline.start();
+        verify(queryStore, times(1)).saveAsync(anyString(), anyListOf(Document.class), any(ActionListener.class));
+    }
+
+    @Test
+    public void testMissingTable() throws Exception {
+        try {
+            pipeline.save(TestUtils.TEST_TABLE_NAME + "-missing", Collections.singletonList(document("1")));
+            fail();
+        } catch (FoxtrotException e) {
+            assertEquals(ErrorCode.TABLE_NOT_FOUND, e.getCode());
+        }
+    }
+
+    private Document document(String id) {
+        return TestUtils.getDocument(id, System.currentTimeMillis(), new Object[]{"key", "value"}, mapper);
+    }
+}
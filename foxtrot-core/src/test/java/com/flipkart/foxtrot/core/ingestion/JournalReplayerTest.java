@@ -0,0 +1,120 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.ingestion;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flipkart.foxtrot.common.Document;
+import com.flipkart.foxtrot.core.TestUtils;
+import com.flipkart.foxtrot.core.querystore.BulkSaveResult;
+import com.flipkart.foxtrot.core.querystore.impl.ElasticsearchQueryStore;
+import com.google.common.collect.Lists;
+import org.elasticsearch.action.ActionListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+
+public class JournalReplayerTest {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private File directory;
+    private IngestionJournalConfig config;
+    private IngestionJournal journal;
+    private ElasticsearchQueryStore queryStore;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("foxtrot-journal").toFile();
+        config = new IngestionJournalConfig();
+        config.setEnabled(true);
+        config.setDirectory(directory.getAbsolutePath());
+        config.setSyncPolicy(IngestionJournalConfig.SyncPolicy.ALWAYS);
+        journal = new IngestionJournal(config, mapper);
+        journal.start();
+        queryStore = Mockito.mock(ElasticsearchQueryStore.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        journal.stop();
+        File[] files = directory.listFiles();
+        if (null != files) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTransientFailuresAreNotCheckpointed() throws Exception {
+        final AtomicInteger writes = new AtomicInteger();
+        doAnswer(invocation -> {
+            List<Document> documents = (List<Document>) invocation.getArguments()[1];
+            boolean failing = writes.getAndIncrement() == 0;
+            List<BulkSaveResult.DocumentResult> results = Lists.newArrayList();
+            for (Document document : documents) {
+                results.add(failing
+                        ? new BulkSaveResult.DocumentResult(document.getId(), BulkSaveResult.Status.FAILED,
+                        "rejected", 4, true)
+                        : new BulkSaveResult.DocumentResult(document.getId(), BulkSaveResult.Status.INDEXED, null, 1));
+            }
+            ((ActionListener<BulkSaveResult>) invocation.getArguments()[2]).onResponse(new BulkSaveResult(results));
+            return null;
+        }).when(queryStore).writeAsync(anyString(), anyListOf(Document.class), any(ActionListener.class));
+        journal.append(TestUtils.TEST_TABLE_NAME, Collections.singletonList(document("0")));
+
+        JournalReplayer replayer = new JournalReplayer(journal, queryStore, config);
+        replayer.replay();
+        assertEquals(1, journal.read(journal.getCheckpoint(), 10).size());
+        replayer.replay();
+        assertEquals(0, journal.read(journal.getCheckpoint(), 10).size());
+        assertEquals(2, writes.get());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPermanentFailuresAreDropped() throws Exception {
+        doAnswer(invocation -> {
+            List<Document> documents = (List<Document>) invocation.getArguments()[1];
+            ((ActionListener<BulkSaveResult>) invocation.getArguments()[2]).onResponse(new BulkSaveResult(
+                    Collections.singletonList(new BulkSaveResult.DocumentResult(documents.get(0).getId(),
+                            BulkSaveResult.Status.FAILED, "MapperParsingException", 1, false))));
+            return null;
+        }).when(queryStore).writeAsync(anyString(), anyListOf(Document.class), any(ActionListener.class));
+        journal.append(TestUtils.TEST_TABLE_NAME, Collections.singletonList(document("0")));
+
+        new JournalReplayer(journal, queryStore, config).replay();
+        assertEquals(0, journal.read(journal.getCheckpoint(), 10).size());
+    }
+
+    private Document document(String id) {
+        return TestUtils.getDocument(id, System.currentTimeMillis(), new Object[]{"key", "value"}, mapper);
+    }
+}
@@ -123,4 +123,37 @@ public class DocumentTranslatorTest {
         assertEquals(document.getTimestamp(), translatedBackDocument.getTimestamp());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testTranslationWithRawKeyVersion3() {
+        DocumentTranslator translator = new DocumentTranslator(TestUtils.createHBaseConfigWithRawKeyV3());
+        Table table = new Table();
+        table.setName(UUID.randomUUID().toString());
+
+        Document document = new Document();
+        document.setId(UUID.randomUUID().toString());
+        document.setTimestamp(System.currentTimeMillis());
+        document.setData(mapper.createObjectNode().put("name", "rishabh"));
+
+        Document translatedDocument = translator.translate(table, document);
+
+        assertNotNull(translatedDocument.getMetadata());
+        assertEquals(translatedDocument.getId(), translatedDocument.getMetadata().getRawStorageId());
+        assertEquals(translatedDocument.getMetadata().getId(), document.getId());
+        assertTrue(translatedDocument.getMetadata().getRawStorageId().endsWith(Constants.rawKeyVersionToSuffixMap.get("3.0")));
+        assertTrue(translator.isIdDerivedKey());
+        assertEquals(translatedDocument.getId(), translator.rawStorageIdFromDocumentId(table, document.getId()));
+        assertEquals(translatedDocument.getId(), translator.rawStorageIdFromDocumentId(table, translatedDocument.getId()));
+        assertEquals(document.getId() + ":" + table.getName(),
+                translator.legacyRawStorageIdFromDocumentId(table, document.getId()));
+    }
+
+    @Test
+    public void testNoLegacyKeyBeforeRawKeyVersion3() {
+        DocumentTranslator translator = new DocumentTranslator(TestUtils.createHBaseConfigWithRawKeyV2());
+        Table table = new Table();
+        table.setName(UUID.randomUUID().toString());
+
+        assertFalse(translator.isIdDerivedKey());
+        assertNull(translator.legacyRawStorageIdFromDocumentId(table, UUID.randomUUID().toString()));
+    }
+}
@@ -17,6 +17,7 @@ package com.flipkart.foxtrot.core.querystore;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.flipkart.foxtrot.common.ActionRequest;
+import com.flipkart.foxtrot.common.ActionResponse;
 import com.flipkart.foxtrot.core.MockElasticsearchServer;
 import com.flipkart.foxtrot.core.TestUtils;
 import com.flipkart.foxtrot.core.cache.CacheManager;
@@ -31,6 +32,8 @@ import com.flipkart.foxtrot.core.querystore.actions.spi.AnalyticsLoader;
 import com.flipkart.foxtrot.core.querystore.impl.ElasticsearchConnection;
 import com.flipkart.foxtrot.core.querystore.impl.ElasticsearchUtils;
 import com.flipkart.foxtrot.core.querystore.impl.HazelcastConnection;
+import com.flipkart.foxtrot.core.querystore.scheduler.QueryScheduler;
+import com.flipkart.foxtrot.core.querystore.scheduler.QuerySchedulerConfig;
 import com.flipkart.foxtrot.core.table.TableMetadataManager;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.test.TestHazelcastInstanceFactory;
@@ -41,10 +44,14 @@ import org.mockito.Mockito;
 
 import java.io.IOException;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
 
@@ -102,6 +109,42 @@ public class QueryExecutorTest {
         }
     }
 
+    @Test
+    public void testDeadlineStopsQueryRunningOnCallingThread() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        NonCacheableActionRequest request = new NonCacheableActionRequest();
+        request.setTimeoutMs(100L);
+        NonCacheableAction slowAction = new NonCacheableAction(request,
+                mock(TableMetadataManager.class), mock(DataStore.class), mock(QueryStore.class),
+                mock(ElasticsearchConnection.class), "testCacheableFalse", mock(CacheManager.class)) {
+            @Override
+            public ActionResponse execute(NonCacheableActionRequest parameter) throws FoxtrotException {
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return null;
+            }
+        };
+        doReturn(slowAction).when(analyticsLoader).getAction(request);
+        ExecutorService executorService = Executors.newFixedThreadPool(1);
+        QueryExecutor scheduledExecutor = new QueryExecutor(analyticsLoader, executorService,
+                new QueryScheduler(new QuerySchedulerConfig(), executorService));
+
+        long start = System.currentTimeMillis();
+        try {
+            scheduledExecutor.execute(request);
+            fail();
+        } catch (FoxtrotException e) {
+            assertEquals(ErrorCode.QUERY_TIMEOUT, e.getCode());
+        }
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+        assertFalse(Thread.currentThread().isInterrupted());
+        executorService.shutdown();
+    }
+
     @Test
     public void testResolveLoaderException() throws Exception {
         try {
@@ -0,0 +1,71 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.querystore;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flipkart.foxtrot.common.Document;
+import com.flipkart.foxtrot.common.Table;
+import com.flipkart.foxtrot.core.TestUtils;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class RawKeyCacheTest {
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Table TEST_TABLE = new Table("test-table", 7);
+
+    @Test
+    public void testPutTranslatedDocuments() throws Exception {
+        DocumentTranslator translator = new DocumentTranslator(TestUtils.createHBaseConfigWithRawKeyV2());
+        RawKeyCache cache = new RawKeyCache(new RawKeyCacheConfig());
+        Document document = new Document("A", System.currentTimeMillis(),
+                mapper.valueToTree(Collections.singletonMap("key", "value")));
+        Document translated = translator.translate(TEST_TABLE, document);
+
+        cache.put(TEST_TABLE.getName(), Collections.singletonList(translated));
+
+        assertEquals(translated.getId(), cache.get(TEST_TABLE.getName(), "A"));
+        assertNull(cache.get("other-table", "A"));
+    }
+
+    @Test
+    public void testGetAllReturnsOnlyCachedIds() throws Exception {
+        RawKeyCache cache = new RawKeyCache(new RawKeyCacheConfig());
+        cache.put(TEST_TABLE.getName(), "A", "raw-A");
+        cache.put(TEST_TABLE.getName(), "B", "raw-B");
+
+        Map<String, String> rawIds = cache.getAll(TEST_TABLE.getName(), Lists.newArrayList("A", "B", "C"));
+        assertEquals(2, rawIds.size());
+        assertEquals("raw-A", rawIds.get("A"));
+        assertEquals("raw-B", rawIds.get("B"));
+        assertFalse(rawIds.containsKey("C"));
+    }
+
+    @Test
+    public void testSizeBound() throws Exception {
+        RawKeyCacheConfig config = new RawKeyCacheConfig();
+        config.setMaxSizeBytes(16 * 1024);
+        RawKeyCache cache = new RawKeyCache(config);
+        for (int i = 0; i < 10000; i++) {
+            cache.put(TEST_TABLE.getName(), "id-" + i, "raw-id-" + i);
+        }
+        assertTrue(cache.size() < 10000);
+    }
+}
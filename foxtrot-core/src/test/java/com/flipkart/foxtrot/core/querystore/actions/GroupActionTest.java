@@ -31,8 +31,11 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.doReturn;
 
@@ -78,6 +81,35 @@ public class GroupActionTest extends ActionTest {
         assertEquals(response, actualResult.getResult());
     }
 
+    @Test
+    public void testGroupActionSingleFieldNonBlocking() throws Exception {
+        GroupRequest groupRequest = new GroupRequest();
+        groupRequest.setTable(TestUtils.TEST_TABLE_NAME);
+        groupRequest.setNesting(Arrays.asList("os"));
+
+        Map<String, Object> response = Maps.newHashMap();
+        response.put("android", 7L);
+        response.put("ios", 4L);
+
+        GroupResponse actualResult = GroupResponse.class.cast(
+                getQueryExecutor().executeNonBlocking(groupRequest).get(10, TimeUnit.SECONDS));
+        assertEquals(response, actualResult.getResult());
+    }
+
+    @Test
+    public void testGroupActionNonBlockingQueryException() throws Exception {
+        GroupRequest groupRequest = new GroupRequest();
+        groupRequest.setTable(TestUtils.TEST_TABLE_NAME);
+        groupRequest.setNesting(Arrays.asList("os"));
+        doReturn(null).when(getElasticsearchConnection()).getClient();
+        try {
+            getQueryExecutor().executeNonBlocking(groupRequest).get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof FoxtrotException);
+        }
+    }
+
     @Test
     public void testGroupActionSingleFieldSpecialCharacterNoFilter() throws FoxtrotException, JsonProcessingException {
         GroupRequest groupRequest = new GroupRequest();
@@ -0,0 +1,196 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.querystore.actions;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.flipkart.foxtrot.common.CacheControl;
+import com.flipkart.foxtrot.common.Document;
+import com.flipkart.foxtrot.common.Period;
+import com.flipkart.foxtrot.common.query.Filter;
+import com.flipkart.foxtrot.common.query.general.EqualsFilter;
+import com.flipkart.foxtrot.common.query.numeric.BetweenFilter;
+import com.flipkart.foxtrot.core.cache.CacheConfig;
+import com.flipkart.foxtrot.core.cache.TableWatermarks;
+import com.flipkart.foxtrot.core.cache.TimeSeriesCache;
+import com.flipkart.foxtrot.core.querystore.impl.HazelcastConnection;
+import com.google.common.collect.Lists;
+import com.hazelcast.config.Config;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalTimeSeriesTest {
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long BASE = 1397651100000L - (1397651100000L % HOUR);
+
+    private TimeSeriesCache cache;
+    private List<long[]> fetchedRanges;
+
+    @Before
+    public void setUp() throws Exception {
+        cache = new TimeSeriesCache(new CacheConfig());
+        fetchedRanges = Lists.newArrayList();
+    }
+
+    @Test
+    public void testFinalBucketsAreServedFromCache() throws Exception {
+        NavigableMap<Long, Long> first = series().execute(filters(BASE, BASE + 10 * HOUR - 1), this::fetch);
+        assertEquals(10, first.size());
+        assertEquals(1, fetchedRanges.size());
+
+        NavigableMap<Long, Long> second = series().execute(filters(BASE, BASE + 10 * HOUR - 1), this::fetch);
+        assertEquals(first, second);
+        assertEquals(1, fetchedRanges.size());
+    }
+
+    @Test
+    public void testOnlyNewBucketsAreFetched() throws Exception {
+        series().execute(filters(BASE, BASE + 10 * HOUR - 1), this::fetch);
+        NavigableMap<Long, Long> buckets = series().execute(filters(BASE + HOUR, BASE + 11 * HOUR - 1), this::fetch);
+        assertEquals(10, buckets.size());
+        assertEquals(2, fetchedRanges.size());
+        assertEquals(BASE + 10 * HOUR, fetchedRanges.get(1)[0]);
+        assertEquals(BASE + 11 * HOUR - 1, fetchedRanges.get(1)[1]);
+    }
+
+    @Test
+    public void testPartialBucketsAreNotCached() throws Exception {
+        series().execute(filters(BASE + 1000, BASE + 10 * HOUR - 1), this::fetch);
+        series().execute(filters(BASE + 2000, BASE + 10 * HOUR - 1), this::fetch);
+        assertEquals(2, fetchedRanges.size());
+        assertEquals(BASE + 2000, fetchedRanges.get(1)[0]);
+        assertEquals(BASE + HOUR - 1, fetchedRanges.get(1)[1]);
+    }
+
+    @Test
+    public void testUnboundedRangeIsFetchedAsAWhole() throws Exception {
+        List<Filter> filters = Lists.<Filter>newArrayList(new BetweenFilter("_timestamp", 1L, BASE, true));
+        series().execute(filters, this::fetch);
+        series().execute(filters, this::fetch);
+        assertEquals(2, fetchedRanges.size());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testBucketsWrittenAfterCachingAreFetchedAgain() throws Exception {
+        HazelcastConnection hazelcastConnection = Mockito.mock(HazelcastConnection.class);
+        Mockito.doReturn(new Config()).when(hazelcastConnection).getHazelcastConfig();
+        TableWatermarks tableWatermarks = new TableWatermarks(hazelcastConnection, new CacheConfig());
+        IncrementalTimeSeries<Long> series = new IncrementalTimeSeries<>(cache, tableWatermarks, "test-table",
+                "test-series", "_timestamp", Period.hours, CacheControl.DEFAULT);
+
+        series.execute(filters(BASE, BASE + 10 * HOUR - 1), this::fetch);
+        series.execute(filters(BASE, BASE + 10 * HOUR - 1), this::fetch);
+        assertEquals(1, fetchedRanges.size());
+
+        Document lateDocument = new Document("late", BASE + 3 * HOUR + 10, JsonNodeFactory.instance.objectNode());
+        tableWatermarks.recordWrite("test-table", Collections.singletonList(lateDocument));
+        NavigableMap<Long, Long> buckets = series.execute(filters(BASE, BASE + 10 * HOUR - 1), this::fetch);
+        assertEquals(10, buckets.size());
+        assertEquals(2, fetchedRanges.size());
+        assertEquals(BASE + 3 * HOUR, fetchedRanges.get(1)[0]);
+        assertEquals(BASE + 4 * HOUR - 1, fetchedRanges.get(1)[1]);
+    }
+
+    @Test
+    public void testRefreshFetchesAllBuckets() throws Exception {
+        series().execute(filters(BASE, BASE + 10 * HOUR - 1), this::fetch);
+        series(CacheControl.REFRESH).execute(filters(BASE, BASE + 10 * HOUR - 1), this::fetch);
+        assertEquals(2, fetchedRanges.size());
+        assertEquals(BASE, fetchedRanges.get(1)[0]);
+        assertEquals(BASE + 10 * HOUR - 1, fetchedRanges.get(1)[1]);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testBypassSkipsBucketCache() throws Exception {
+        series(CacheControl.BYPASS).execute(filters(BASE, BASE + 10 * HOUR - 1), this::fetch);
+        assertEquals(0, cache.size());
+        series().execute(filters(BASE, BASE + 10 * HOUR - 1), this::fetch);
+        series(CacheControl.BYPASS).execute(filters(BASE, BASE + 10 * HOUR - 1), this::fetch);
+        assertEquals(3, fetchedRanges.size());
+    }
+
+    @Test
+    public void testPartialResponsesAreNotCached() throws Exception {
+        NavigableMap<Long, Long> buckets = series().execute(filters(BASE, BASE + 10 * HOUR - 1), this::fetchPartial);
+        assertEquals(10, buckets.size());
+        assertEquals(0, cache.size());
+
+        series().execute(filters(BASE, BASE + 10 * HOUR - 1), this::fetch);
+        assertEquals(2, fetchedRanges.size());
+        assertEquals(BASE, fetchedRanges.get(1)[0]);
+        assertEquals(BASE + 10 * HOUR - 1, fetchedRanges.get(1)[1]);
+    }
+
+    @Test
+    public void testFillGaps() throws Exception {
+        IncrementalTimeSeries<Long> series = series();
+        NavigableMap<Long, Long> buckets = new TreeMap<>();
+        buckets.put(BASE, 1L);
+        buckets.put(BASE + 3 * HOUR, 2L);
+        series.fillGaps(buckets, 0L);
+        assertEquals(4, buckets.size());
+        assertTrue(0L == buckets.get(BASE + HOUR));
+    }
+
+    private IncrementalTimeSeries<Long> series() {
+        return new IncrementalTimeSeries<>(cache, "test-series", "_timestamp", Period.hours);
+    }
+
+    private IncrementalTimeSeries<Long> series(CacheControl cacheControl) {
+        return new IncrementalTimeSeries<>(cache, null, null, "test-series", "_timestamp", Period.hours, cacheControl);
+    }
+
+    private List<Filter> filters(long from, long to) {
+        return Lists.<Filter>newArrayList(new EqualsFilter("os", "android"),
+                new BetweenFilter("_timestamp", from, to, true));
+    }
+
+    private IncrementalTimeSeries.Fetched<Long> fetch(List<Filter> filters) {
+        return new IncrementalTimeSeries.Fetched<>(buckets(filters), false);
+    }
+
+    private IncrementalTimeSeries.Fetched<Long> fetchPartial(List<Filter> filters) {
+        return new IncrementalTimeSeries.Fetched<>(buckets(filters), true);
+    }
+
+    private Map<Long, Long> buckets(List<Filter> filters) {
+        Map<Long, Long> buckets = new TreeMap<>();
+        for (Filter filter : filters) {
+            if (filter.isFilterTemporal()) {
+                BetweenFilter range = (BetweenFilter) filter;
+                long from = range.getFrom().longValue();
+                long to = range.getTo().longValue();
+                fetchedRanges.add(new long[]{from, to});
+                for (long bucket = from - (from % HOUR); bucket <= to; bucket += HOUR) {
+                    buckets.put(bucket, 1L);
+                }
+            }
+        }
+        return buckets;
+    }
+}
@@ -18,7 +18,10 @@ package com.flipkart.foxtrot.core.querystore.impl;
 import com.fasterxml.jackson.core.JsonGenerationException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.flipkart.foxtrot.common.ActionResponse;
+import com.flipkart.foxtrot.common.count.CountResponse;
 import com.flipkart.foxtrot.common.group.GroupResponse;
+import com.flipkart.foxtrot.common.stats.StatsResponse;
+import com.flipkart.foxtrot.common.stats.StatsValue;
 import com.flipkart.foxtrot.core.TestUtils;
 import com.flipkart.foxtrot.core.cache.CacheManager;
 import com.flipkart.foxtrot.core.cache.impl.DistributedCache;
@@ -26,6 +29,7 @@ import com.flipkart.foxtrot.core.cache.impl.DistributedCacheFactory;
 import com.flipkart.foxtrot.core.querystore.QueryStore;
 import com.flipkart.foxtrot.core.querystore.actions.spi.AnalyticsLoader;
 import com.flipkart.foxtrot.core.table.TableMetadataManager;
+import com.flipkart.foxtrot.core.util.codec.DocumentCodec;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.test.TestHazelcastInstanceFactory;
 import org.junit.After;
@@ -34,6 +38,9 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -65,6 +72,12 @@ public class DistributedCacheTest {
         TestUtils.registerActions(analyticsLoader, mapper);
     }
 
+    private HazelcastConnection hazelcastConnection() {
+        HazelcastConnection hazelcastConnection = Mockito.mock(HazelcastConnection.class);
+        when(hazelcastConnection.getHazelcast()).thenReturn(hazelcastInstance);
+        return hazelcastConnection;
+    }
+
     @After
     public void tearDown() throws Exception {
         hazelcastInstance.shutdown();
@@ -82,11 +95,44 @@ public class DistributedCacheTest {
 
     @Test
     public void testPutCacheException() throws Exception {
-        doThrow(new JsonGenerationException("TEST_EXCEPTION")).when(mapper).writeValueAsString(any());
+        DocumentCodec codec = Mockito.mock(DocumentCodec.class);
+        doThrow(new JsonGenerationException("TEST_EXCEPTION")).when(codec).encode(any());
+        distributedCache = new DistributedCache(hazelcastConnection(), "TEST", codec, 1024);
         ActionResponse returnResponse = distributedCache.put("DUMMY_KEY_PUT", null);
-        verify(mapper, times(1)).writeValueAsString(any());
+        verify(codec, times(1)).encode(any());
         assertNull(returnResponse);
-        assertNull(hazelcastInstance.getMap("TEST").get("DUMMY_KEY_PUT"));
+        assertNull(distributedCache.get("DUMMY_KEY_PUT"));
+    }
+
+    @Test
+    public void testPutLargeResponse() throws Exception {
+        Map<String, Object> result = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            result.put(UUID.randomUUID().toString(), "value-" + i);
+        }
+        ActionResponse response = new GroupResponse(result);
+
+        distributedCache.put("DUMMY_KEY_LARGE", response);
+        assertNotNull(distributedCache.get("DUMMY_KEY_LARGE"));
+        assertEquals(result, GroupResponse.class.cast(distributedCache.get("DUMMY_KEY_LARGE")).getResult());
+
+        distributedCache = new DistributedCache(hazelcastConnection(), "TEST_SMALL", mapper, 1024);
+        distributedCache.put("DUMMY_KEY_LARGE", response);
+        assertNull(distributedCache.get("DUMMY_KEY_LARGE"));
+    }
+
+    @Test
+    public void testPutCountAndStatsResponses() throws Exception {
+        distributedCache.put("DUMMY_KEY_COUNT", new CountResponse(42));
+        assertEquals(42, CountResponse.class.cast(distributedCache.get("DUMMY_KEY_COUNT")).getCount());
+
+        StatsValue statsValue = new StatsValue();
+        statsValue.setStats(Collections.<String, Number>singletonMap("count", 10L));
+        statsValue.setPercentiles(Collections.<Number, Number>singletonMap(99.0, 120.5));
+        distributedCache.put("DUMMY_KEY_STATS", new StatsResponse(statsValue));
+        StatsValue actualValue = StatsResponse.class.cast(distributedCache.get("DUMMY_KEY_STATS")).getResult();
+        assertEquals(10, actualValue.getStats().get("count").intValue());
+        assertEquals(120.5, actualValue.getPercentiles().get(99.0).doubleValue(), 0.0);
     }
 
     @Test
@@ -24,14 +24,26 @@ import com.flipkart.foxtrot.core.datastore.DataStore;
 import com.flipkart.foxtrot.core.exception.ErrorCode;
 import com.flipkart.foxtrot.core.exception.FoxtrotException;
 import com.flipkart.foxtrot.core.exception.FoxtrotExceptions;
+import com.flipkart.foxtrot.core.ingestion.IngestionJournal;
+import com.flipkart.foxtrot.core.querystore.BulkSaveResult;
 import com.flipkart.foxtrot.core.table.TableMetadataManager;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
 import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsResponse;
 import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.rest.RestStatus;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -39,10 +51,12 @@ import org.mockito.Mockito;
 
 import java.util.*;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -207,6 +221,135 @@ public class ElasticsearchQueryStoreTest {
         }
     }
 
+    @Test
+    public void testBulkSaveReportsPerDocumentStatus() throws Exception {
+        Table table = tableMetadataManager.get(TestUtils.TEST_TABLE_NAME);
+
+        Document futureDocument = createDummyDocument();
+        futureDocument.setTimestamp(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(2));
+        List<Document> documents = Lists.newArrayList(createDummyDocument(), futureDocument, createDummyDocument());
+        doReturn(documents).when(dataStore).saveAll(table, documents);
+
+        BulkSaveResult result = queryStore.bulkSave(TestUtils.TEST_TABLE_NAME, documents);
+        assertEquals(3, result.getResults().size());
+        assertFalse(result.hasFailures());
+        assertEquals(BulkSaveResult.Status.INDEXED, result.getResults().get(0).getStatus());
+        assertEquals(BulkSaveResult.Status.SKIPPED, result.getResults().get(1).getStatus());
+        assertEquals(futureDocument.getId(), result.getResults().get(1).getId());
+        assertEquals(BulkSaveResult.Status.INDEXED, result.getResults().get(2).getStatus());
+        assertEquals(documents.get(2).getId(), result.getResults().get(2).getId());
+    }
+
+    @Test
+    public void testOnlyRejectedItemsAreRetried() throws Exception {
+        List<Document> documents = Lists.newArrayList(createDummyDocument(), createDummyDocument(),
+                createDummyDocument());
+        List<List<String>> sentIds = Lists.newArrayList();
+        // The second document is rejected on the first attempt only
+        ElasticsearchQueryStore rejectingQueryStore = rejectingQueryStore(sentIds,
+                (attempt, id) -> attempt == 1 && id.equals(documents.get(1).getId()));
+        doReturn(documents).when(dataStore).saveAll(any(Table.class), anyListOf(Document.class));
+
+        BulkSaveResult result = rejectingQueryStore.bulkSave(TestUtils.TEST_TABLE_NAME, documents);
+        assertFalse(result.hasFailures());
+        assertEquals(2, sentIds.size());
+        assertEquals(3, sentIds.get(0).size());
+        assertEquals(Collections.singletonList(documents.get(1).getId()), sentIds.get(1));
+        assertEquals(1, result.getResults().get(0).getAttempts());
+        assertEquals(2, result.getResults().get(1).getAttempts());
+        assertEquals(BulkSaveResult.Status.INDEXED, result.getResults().get(1).getStatus());
+        assertEquals(1, result.getResults().get(2).getAttempts());
+        verify(dataStore, times(1)).saveAll(any(Table.class), anyListOf(Document.class));
+    }
+
+    @Test
+    public void testItemsRejectedOnEveryAttemptFail() throws Exception {
+        List<Document> documents = Lists.newArrayList(createDummyDocument(), createDummyDocument());
+        List<List<String>> sentIds = Lists.newArrayList();
+        ElasticsearchQueryStore rejectingQueryStore = rejectingQueryStore(sentIds,
+                (attempt, id) -> id.equals(documents.get(0).getId()));
+        doReturn(documents).when(dataStore).saveAll(any(Table.class), anyListOf(Document.class));
+
+        BulkSaveResult result = rejectingQueryStore.bulkSave(TestUtils.TEST_TABLE_NAME, documents);
+        assertEquals(ElasticsearchQueryStore.MAX_BULK_RETRIES + 1, sentIds.size());
+        for (List<String> ids : sentIds.subList(1, sentIds.size())) {
+            assertEquals(Collections.singletonList(documents.get(0).getId()), ids);
+        }
+        BulkSaveResult.DocumentResult rejected = result.getResults().get(0);
+        assertEquals(BulkSaveResult.Status.FAILED, rejected.getStatus());
+        assertEquals(ElasticsearchQueryStore.MAX_BULK_RETRIES + 1, rejected.getAttempts());
+        assertTrue(rejected.isRetryable());
+        assertEquals(BulkSaveResult.Status.INDEXED, result.getResults().get(1).getStatus());
+        verify(dataStore, times(1)).saveAll(any(Table.class), anyListOf(Document.class));
+    }
+
+    private interface Rejection {
+        boolean isRejected(int attempt, String id);
+    }
+
+    /**
+     * Query store on a client that answers bulk requests itself, rejecting items with a full bulk queue as told
+     */
+    @SuppressWarnings("unchecked")
+    private ElasticsearchQueryStore rejectingQueryStore(List<List<String>> sentIds, Rejection rejection) {
+        Client client = Mockito.mock(Client.class);
+        doAnswer(invocation -> new BulkRequestBuilder(client)).when(client).prepareBulk();
+        doAnswer(invocation -> {
+            BulkRequest request = (BulkRequest) invocation.getArguments()[0];
+            List<String> ids = Lists.newArrayList();
+            List<BulkItemResponse> items = Lists.newArrayList();
+            for (ActionRequest actionRequest : request.requests()) {
+                String id = ((IndexRequest) actionRequest).id();
+                ids.add(id);
+                BulkItemResponse item = Mockito.mock(BulkItemResponse.class);
+                if (rejection.isRejected(sentIds.size() + 1, id)) {
+                    String message = "EsRejectedExecutionException[rejected execution (queue capacity 50)]";
+                    BulkItemResponse.Failure failure = Mockito.mock(BulkItemResponse.Failure.class);
+                    doReturn(RestStatus.TOO_MANY_REQUESTS).when(failure).getStatus();
+                    doReturn(message).when(failure).getMessage();
+                    doReturn(true).when(item).isFailed();
+                    doReturn(failure).when(item).getFailure();
+                    doReturn(message).when(item).getFailureMessage();
+                }
+                items.add(item);
+            }
+            sentIds.add(ids);
+            BulkResponse response = Mockito.mock(BulkResponse.class);
+            doReturn(items.toArray(new BulkItemResponse[items.size()])).when(response).getItems();
+            ((ActionListener<BulkResponse>) invocation.getArguments()[1]).onResponse(response);
+            return null;
+        }).when(client).bulk(any(BulkRequest.class), any(ActionListener.class));
+        ElasticsearchConnection elasticsearchConnection = Mockito.mock(ElasticsearchConnection.class);
+        when(elasticsearchConnection.getClient()).thenReturn(client);
+        return new ElasticsearchQueryStore(tableMetadataManager, elasticsearchConnection, dataStore, mapper);
+    }
+
+    @Test
+    public void testSaveAsyncIsJournaled() throws Exception {
+        IngestionJournal journal = Mockito.mock(IngestionJournal.class);
+        doReturn(true).when(journal).isEnabled();
+        ElasticsearchConnection elasticsearchConnection = Mockito.mock(ElasticsearchConnection.class);
+        when(elasticsearchConnection.getClient()).thenReturn(elasticsearchServer.getClient());
+        ElasticsearchQueryStore journaledQueryStore = new ElasticsearchQueryStore(tableMetadataManager,
+                elasticsearchConnection, dataStore, mapper, journal);
+
+        List<Document> documents = Lists.newArrayList(createDummyDocument(), createDummyDocument());
+        PlainActionFuture<BulkSaveResult> future = PlainActionFuture.newFuture();
+        journaledQueryStore.saveAsync(TestUtils.TEST_TABLE_NAME, documents, future);
+        BulkSaveResult result = future.actionGet(1000);
+        assertEquals(BulkSaveResult.Status.QUEUED, result.getResults().get(0).getStatus());
+        verify(journal).append(TestUtils.TEST_TABLE_NAME, documents);
+        verify(dataStore, never()).saveAll(any(Table.class), anyListOf(Document.class));
+
+        // The replayer writes through to the stores
+        Table table = tableMetadataManager.get(TestUtils.TEST_TABLE_NAME);
+        doReturn(documents).when(dataStore).saveAll(table, documents);
+        future = PlainActionFuture.newFuture();
+        journaledQueryStore.writeAsync(TestUtils.TEST_TABLE_NAME, documents, future);
+        assertEquals(BulkSaveResult.Status.INDEXED, future.actionGet(10000).getResults().get(0).getStatus());
+        verify(journal, times(1)).append(anyString(), anyListOf(Document.class));
+    }
+
     @Test
     public void testSaveBulkNullList() throws Exception {
         List<Document> list = null;
@@ -0,0 +1,157 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.core.querystore.scheduler;
+
+import com.flipkart.foxtrot.core.exception.ErrorCode;
+import com.flipkart.foxtrot.core.exception.FoxtrotException;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.*;
+
+public class QuerySchedulerTest {
+    private QuerySchedulerConfig config;
+    private List<String> started;
+    private Map<String, CompletableFuture<String>> running;
+
+    @Before
+    public void setUp() throws Exception {
+        config = new QuerySchedulerConfig();
+        config.setMaxConcurrentQueries(1);
+        started = Lists.newArrayList();
+        running = Maps.newHashMap();
+    }
+
+    @Test
+    public void testStartsRightAwayOnCallingThread() throws Exception {
+        QueryScheduler scheduler = new QueryScheduler(config, command -> fail("Should not use the executor"));
+        Thread caller = Thread.currentThread();
+        CompletableFuture<Thread> result = scheduler.submit("a", "count", QueryPriority.INTERACTIVE,
+                () -> CompletableFuture.completedFuture(Thread.currentThread()));
+        assertSame(caller, result.get());
+        assertEquals(0, scheduler.getRunning());
+    }
+
+    @Test
+    public void testTableLimit() throws Exception {
+        config.setMaxConcurrentQueries(10);
+        config.setMaxConcurrentQueriesPerTable(1);
+        QueryScheduler scheduler = new QueryScheduler(config, Runnable::run);
+        CompletableFuture<String> first = submit(scheduler, "a1", "a", "count", QueryPriority.INTERACTIVE);
+        submit(scheduler, "a2", "a", "count", QueryPriority.INTERACTIVE);
+        submit(scheduler, "b1", "b", "count", QueryPriority.INTERACTIVE);
+        assertEquals(Lists.newArrayList("a1", "b1"), started);
+        assertEquals(1, scheduler.getQueued());
+
+        running.get("a1").complete("a1");
+        assertEquals("a1", first.get());
+        assertEquals(Lists.newArrayList("a1", "b1", "a2"), started);
+        assertEquals(0, scheduler.getQueued());
+    }
+
+    @Test
+    public void testOpcodeLimit() throws Exception {
+        config.setMaxConcurrentQueries(10);
+        config.getOpcodeConcurrency().put("distinct", 1);
+        QueryScheduler scheduler = new QueryScheduler(config, Runnable::run);
+        submit(scheduler, "d1", "a", "distinct", QueryPriority.INTERACTIVE);
+        submit(scheduler, "d2", "b", "distinct", QueryPriority.INTERACTIVE);
+        submit(scheduler, "c1", "c", "count", QueryPriority.INTERACTIVE);
+        assertEquals(Lists.newArrayList("d1", "c1"), started);
+
+        running.get("d1").complete("d1");
+        assertEquals(Lists.newArrayList("d1", "c1", "d2"), started);
+    }
+
+    @Test
+    public void testTablesTakeTurns() throws Exception {
+        QueryScheduler scheduler = new QueryScheduler(config, Runnable::run);
+        submit(scheduler, "a1", "a", "count", QueryPriority.INTERACTIVE);
+        submit(scheduler, "a2", "a", "count", QueryPriority.INTERACTIVE);
+        submit(scheduler, "a3", "a", "count", QueryPriority.INTERACTIVE);
+        submit(scheduler, "b1", "b", "count", QueryPriority.INTERACTIVE);
+        completeAll();
+        assertEquals(Lists.newArrayList("a1", "a2", "b1", "a3"), started);
+    }
+
+    @Test
+    public void testClassesShareByWeight() throws Exception {
+        config.setInteractiveWeight(2);
+        config.setExportWeight(1);
+        QueryScheduler scheduler = new QueryScheduler(config, Runnable::run);
+        submit(scheduler, "i0", "a", "count", QueryPriority.INTERACTIVE);
+        for (int i = 1; i <= 3; i++) {
+            submit(scheduler, "i" + i, "a", "count", QueryPriority.INTERACTIVE);
+            submit(scheduler, "e" + i, "b", "query", QueryPriority.EXPORT);
+        }
+        completeAll();
+        assertEquals(Lists.newArrayList("i0", "e1", "i1", "i2", "e2", "i3", "e3"), started);
+    }
+
+    @Test
+    public void testRejectedWhenQueueIsFull() throws Exception {
+        config.setMaxQueuedQueries(1);
+        QueryScheduler scheduler = new QueryScheduler(config, Runnable::run);
+        submit(scheduler, "a1", "a", "count", QueryPriority.INTERACTIVE);
+        submit(scheduler, "a2", "a", "count", QueryPriority.INTERACTIVE);
+        CompletableFuture<String> rejected = submit(scheduler, "a3", "a", "count", QueryPriority.INTERACTIVE);
+        try {
+            rejected.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals(ErrorCode.QUERY_REJECTED, ((FoxtrotException) e.getCause()).getCode());
+        }
+        completeAll();
+        assertEquals(Lists.newArrayList("a1", "a2"), started);
+    }
+
+    @Test
+    public void testFailedQueryReleasesSlot() throws Exception {
+        QueryScheduler scheduler = new QueryScheduler(config, Runnable::run);
+        CompletableFuture<String> failing = scheduler.submit("a", "count", QueryPriority.INTERACTIVE, () -> {
+            throw new IllegalStateException("failed");
+        });
+        assertTrue(failing.isCompletedExceptionally());
+        submit(scheduler, "a1", "a", "count", QueryPriority.INTERACTIVE);
+        assertEquals(Lists.newArrayList("a1"), started);
+    }
+
+    private CompletableFuture<String> submit(QueryScheduler scheduler,
+                                             String name,
+                                             String table,
+                                             String opcode,
+                                             QueryPriority priority) {
+        return scheduler.submit(table, opcode, priority, () -> {
+            started.add(name);
+            CompletableFuture<String> future = new CompletableFuture<>();
+            running.put(name, future);
+            return future;
+        });
+    }
+
+    private void completeAll() {
+        for (int i = 0; i < started.size(); i++) {
+            running.get(started.get(i)).complete(started.get(i));
+        }
+    }
+}
@@ -20,26 +20,42 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.jsontype.SubtypeResolver;
 import com.fasterxml.jackson.databind.jsontype.impl.StdSubtypeResolver;
+import com.flipkart.foxtrot.core.cache.CacheConfig;
+import com.flipkart.foxtrot.core.cache.CacheFactory;
 import com.flipkart.foxtrot.core.cache.CacheManager;
-import com.flipkart.foxtrot.core.cache.impl.DistributedCacheFactory;
+import com.flipkart.foxtrot.core.cache.TableWatermarks;
+import com.flipkart.foxtrot.core.cache.impl.DistributedCache;
+import com.flipkart.foxtrot.core.cache.impl.OffHeapCacheFactory;
+import com.flipkart.foxtrot.core.cache.impl.TieredCacheFactory;
+import com.flipkart.foxtrot.core.common.AsyncJobRegistry;
 import com.flipkart.foxtrot.core.common.DataDeletionManager;
 import com.flipkart.foxtrot.core.common.DataDeletionManagerConfig;
 import com.flipkart.foxtrot.core.datastore.DataStore;
 import com.flipkart.foxtrot.core.datastore.impl.hbase.HBaseDataStore;
+import com.flipkart.foxtrot.core.datastore.impl.hbase.HbaseConfig;
+import com.flipkart.foxtrot.core.datastore.impl.hbase.codec.DocumentCodecs;
 import com.flipkart.foxtrot.core.datastore.impl.hbase.HbaseTableConnection;
+import com.flipkart.foxtrot.core.ingestion.IngestionJournal;
+import com.flipkart.foxtrot.core.ingestion.IngestionPipeline;
+import com.flipkart.foxtrot.core.ingestion.JournalReplayer;
 import com.flipkart.foxtrot.core.querystore.DocumentTranslator;
 import com.flipkart.foxtrot.core.querystore.QueryExecutor;
-import com.flipkart.foxtrot.core.querystore.QueryStore;
+import com.flipkart.foxtrot.core.querystore.RawKeyCache;
 import com.flipkart.foxtrot.core.querystore.actions.spi.AnalyticsLoader;
 import com.flipkart.foxtrot.core.querystore.impl.ElasticsearchConnection;
 import com.flipkart.foxtrot.core.querystore.impl.ElasticsearchQueryStore;
 import com.flipkart.foxtrot.core.querystore.impl.ElasticsearchUtils;
 import com.flipkart.foxtrot.core.querystore.impl.HazelcastConnection;
+import com.flipkart.foxtrot.core.querystore.scheduler.QueryScheduler;
+import com.flipkart.foxtrot.core.querystore.scheduler.QuerySchedulerConfig;
 import com.flipkart.foxtrot.core.table.TableMetadataManager;
 import com.flipkart.foxtrot.core.table.impl.DistributedTableMetadataManager;
 import com.flipkart.foxtrot.core.table.impl.FoxtrotTableManager;
 import com.flipkart.foxtrot.server.cluster.ClusterManager;
 import com.flipkart.foxtrot.server.config.FoxtrotServerConfiguration;
+import com.flipkart.foxtrot.server.console.ConsoleCacheWarmer;
+import com.flipkart.foxtrot.server.console.ConsolePersistence;
+import com.flipkart.foxtrot.server.console.ConsoleTileTranslator;
 import com.flipkart.foxtrot.server.console.ElasticsearchConsolePersistence;
 import com.flipkart.foxtrot.server.healthcheck.ElasticSearchHealthCheck;
 import com.flipkart.foxtrot.server.providers.FlatResponseCsvProvider;
@@ -82,7 +98,16 @@ public class FoxtrotServer extends Service<FoxtrotServerConfiguration> {
         configureObjectMapper(environment);
 
         ObjectMapper objectMapper = environment.getObjectMapperFactory().build();
-        ExecutorService executorService = environment.managedExecutorService("query-executor-%s", 20, 40, 30, TimeUnit.SECONDS);
+        QuerySchedulerConfig querySchedulerConfig = configuration.getQuerySchedulerConfig();
+        // With the scheduler on, queries on this pool never outnumber the query slots
+        ExecutorService executorService = querySchedulerConfig.isEnabled()
+                ? environment.managedExecutorService("query-executor-%s",
+                        querySchedulerConfig.getMaxConcurrentQueries(), querySchedulerConfig.getMaxConcurrentQueries(),
+                        30, TimeUnit.SECONDS)
+                : environment.managedExecutorService("query-executor-%s", 20, 40, 30, TimeUnit.SECONDS);
+        QueryScheduler queryScheduler = querySchedulerConfig.isEnabled()
+                ? new QueryScheduler(querySchedulerConfig, executorService)
+                : null;
 
         HbaseTableConnection HBaseTableConnection = new HbaseTableConnection(configuration.getHbase());
         ElasticsearchConnection elasticsearchConnection = new ElasticsearchConnection(configuration.getElasticsearch());
@@ -90,16 +115,46 @@ public class FoxtrotServer extends Service<FoxtrotServerConfiguration> {
         ElasticsearchUtils.setTableNamePrefix(configuration.getElasticsearch());
 
         TableMetadataManager tableMetadataManager = new DistributedTableMetadataManager(hazelcastConnection, elasticsearchConnection);
+        CacheConfig cacheConfig = configuration.getCacheConfig();
+        TableWatermarks tableWatermarks = null;
+        if (cacheConfig.isWriteInvalidationEnabled()) {
+            // Responses are invalidated by writes, so they can live much longer than the default ttl
+            DistributedCache.setupConfig(hazelcastConnection, cacheConfig.getWriteInvalidationTtlSeconds());
+            tableWatermarks = new TableWatermarks(hazelcastConnection, cacheConfig);
+        }
+        HbaseConfig hbaseConfig = configuration.getHbase();
+        ExecutorService multiGetExecutorService = (hbaseConfig.getMultiGetThreads() > 0)
+                ? environment.managedExecutorService("hbase-multiget-%s",
+                        hbaseConfig.getMultiGetThreads(), hbaseConfig.getMultiGetThreads(), 30, TimeUnit.SECONDS)
+                : null;
         DataStore dataStore = new HBaseDataStore(HBaseTableConnection,
-                objectMapper, new DocumentTranslator(configuration.getHbase()));
-        QueryStore queryStore = new ElasticsearchQueryStore(tableMetadataManager, elasticsearchConnection, dataStore, objectMapper);
+                objectMapper, new DocumentTranslator(hbaseConfig),
+                new DocumentCodecs(objectMapper, hbaseConfig.getCellEncoding(), hbaseConfig.getTableCellEncodings()),
+                multiGetExecutorService, hbaseConfig.getMultiGetParallelism());
+        IngestionJournal ingestionJournal = new IngestionJournal(configuration.getIngestionJournalConfig(), objectMapper);
+        RawKeyCache rawKeyCache = configuration.getRawKeyCacheConfig().isEnabled()
+                ? new RawKeyCache(configuration.getRawKeyCacheConfig(), hazelcastConnection)
+                : null;
+        ElasticsearchQueryStore queryStore = new ElasticsearchQueryStore(tableMetadataManager, elasticsearchConnection,
+                dataStore, objectMapper, ingestionJournal, rawKeyCache, tableWatermarks);
+        JournalReplayer journalReplayer = new JournalReplayer(ingestionJournal, queryStore, configuration.getIngestionJournalConfig());
+        IngestionPipeline ingestionPipeline = new IngestionPipeline(configuration.getIngestionPipelineConfig(),
+                tableMetadataManager, queryStore);
         FoxtrotTableManager tableManager = new FoxtrotTableManager(tableMetadataManager, queryStore, dataStore);
-        CacheManager cacheManager = new CacheManager(new DistributedCacheFactory(hazelcastConnection, objectMapper));
+        CacheFactory cacheFactory = cacheConfig.isOffHeapEnabled()
+                ? new OffHeapCacheFactory(objectMapper, cacheConfig)
+                : new TieredCacheFactory(hazelcastConnection, objectMapper, cacheConfig);
+        CacheManager cacheManager = new CacheManager(cacheFactory, cacheConfig, tableWatermarks);
         AnalyticsLoader analyticsLoader = new AnalyticsLoader(tableMetadataManager, dataStore, queryStore, elasticsearchConnection, cacheManager, objectMapper);
-        QueryExecutor executor = new QueryExecutor(analyticsLoader, executorService);
+        AsyncJobRegistry asyncJobRegistry = new AsyncJobRegistry(hazelcastConnection, configuration.getAsyncJobConfig());
+        QueryExecutor executor = new QueryExecutor(analyticsLoader, executorService, queryScheduler, asyncJobRegistry);
         DataDeletionManagerConfig dataDeletionManagerConfig = configuration.getTableDataManagerConfig();
         DataDeletionManager dataDeletionManager = new DataDeletionManager(dataDeletionManagerConfig, queryStore);
 
+        ConsolePersistence consolePersistence = new ElasticsearchConsolePersistence(elasticsearchConnection, objectMapper);
+        ConsoleCacheWarmer consoleCacheWarmer = new ConsoleCacheWarmer(configuration.getConsoleCacheWarmerConfig(),
+                consolePersistence, new ConsoleTileTranslator(objectMapper), executor);
+
         List<HealthCheck> healthChecks = new ArrayList<>();
         healthChecks.add(new ElasticSearchHealthCheck("ES Health Check", elasticsearchConnection));
         ClusterManager clusterManager = new ClusterManager(hazelcastConnection, healthChecks, configuration.getHttpConfiguration());
@@ -107,18 +162,28 @@ public class FoxtrotServer extends Service<FoxtrotServerConfiguration> {
         environment.manage(HBaseTableConnection);
         environment.manage(elasticsearchConnection);
         environment.manage(hazelcastConnection);
+        if (null != tableWatermarks) {
+            environment.manage(tableWatermarks);
+        }
+        environment.manage(asyncJobRegistry);
         environment.manage(tableMetadataManager);
         environment.manage(analyticsLoader);
         environment.manage(dataDeletionManager);
+        // Stopped in reverse order: the pipeline drains its queues into the journal and the stores before they close
+        environment.manage(queryStore);
+        environment.manage(ingestionJournal);
+        environment.manage(journalReplayer);
+        environment.manage(ingestionPipeline);
         environment.manage(clusterManager);
+        environment.manage(consoleCacheWarmer);
 
-        environment.addResource(new DocumentResource(queryStore));
-        environment.addResource(new AsyncResource(cacheManager));
-        environment.addResource(new AnalyticsResource(executor));
+        environment.addResource(new DocumentResource(queryStore, ingestionPipeline, objectMapper,
+                configuration.getIngestionPipelineConfig().getStreamChunkSize()));
+        environment.addResource(new AsyncResource(cacheManager, asyncJobRegistry, configuration.getAsyncJobConfig()));
+        environment.addResource(new AnalyticsResource(executor, objectMapper));
         environment.addResource(new TableManagerResource(tableManager));
         environment.addResource(new TableFieldMappingResource(queryStore));
-        environment.addResource(new ConsoleResource(
-                new ElasticsearchConsolePersistence(elasticsearchConnection, objectMapper)));
+        environment.addResource(new ConsoleResource(consolePersistence));
         FqlEngine fqlEngine = new FqlEngine(tableMetadataManager, queryStore, executor, objectMapper);
         environment.addResource(new FqlResource(fqlEngine));
         environment.addResource(new ClusterInfoResource(clusterManager));
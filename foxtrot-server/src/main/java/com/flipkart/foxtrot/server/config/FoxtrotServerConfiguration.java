@@ -16,10 +16,17 @@
 package com.flipkart.foxtrot.server.config;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.flipkart.foxtrot.core.cache.CacheConfig;
+import com.flipkart.foxtrot.core.common.AsyncJobConfig;
 import com.flipkart.foxtrot.core.common.DataDeletionManagerConfig;
 import com.flipkart.foxtrot.core.datastore.impl.hbase.HbaseConfig;
+import com.flipkart.foxtrot.core.ingestion.IngestionJournalConfig;
+import com.flipkart.foxtrot.core.ingestion.IngestionPipelineConfig;
+import com.flipkart.foxtrot.core.querystore.RawKeyCacheConfig;
 import com.flipkart.foxtrot.core.querystore.impl.ClusterConfig;
 import com.flipkart.foxtrot.core.querystore.impl.ElasticsearchConfig;
+import com.flipkart.foxtrot.core.querystore.scheduler.QuerySchedulerConfig;
+import com.flipkart.foxtrot.server.console.ConsoleCacheWarmerConfig;
 import com.yammer.dropwizard.config.Configuration;
 import net.sourceforge.cobertura.CoverageIgnore;
 
@@ -45,11 +52,46 @@ public class FoxtrotServerConfiguration extends Configuration {
     @JsonProperty("deletionconfig")
     private final DataDeletionManagerConfig deletionManagerConfig;
 
+    @Valid
+    @JsonProperty("ingestion")
+    private final IngestionPipelineConfig ingestionPipelineConfig;
+
+    @Valid
+    @JsonProperty("journal")
+    private final IngestionJournalConfig ingestionJournalConfig;
+
+    @Valid
+    @JsonProperty("cache")
+    private final CacheConfig cacheConfig;
+
+    @Valid
+    @JsonProperty("rawKeyCache")
+    private final RawKeyCacheConfig rawKeyCacheConfig;
+
+    @Valid
+    @JsonProperty("queryScheduler")
+    private final QuerySchedulerConfig querySchedulerConfig;
+
+    @Valid
+    @JsonProperty("asyncJobs")
+    private final AsyncJobConfig asyncJobConfig;
+
+    @Valid
+    @JsonProperty("consoleCacheWarmer")
+    private final ConsoleCacheWarmerConfig consoleCacheWarmerConfig;
+
     public FoxtrotServerConfiguration() {
         this.hbase = new HbaseConfig();
         this.elasticsearch = new ElasticsearchConfig();
         this.cluster = new ClusterConfig();
         this.deletionManagerConfig = new DataDeletionManagerConfig();
+        this.ingestionPipelineConfig = new IngestionPipelineConfig();
+        this.ingestionJournalConfig = new IngestionJournalConfig();
+        this.rawKeyCacheConfig = new RawKeyCacheConfig();
+        this.cacheConfig = new CacheConfig();
+        this.querySchedulerConfig = new QuerySchedulerConfig();
+        this.asyncJobConfig = new AsyncJobConfig();
+        this.consoleCacheWarmerConfig = new ConsoleCacheWarmerConfig();
     }
 
     public HbaseConfig getHbase() {
@@ -67,4 +109,32 @@ public class FoxtrotServerConfiguration extends Configuration {
     public DataDeletionManagerConfig getTableDataManagerConfig() {
         return deletionManagerConfig;
     }
+
+    public IngestionPipelineConfig getIngestionPipelineConfig() {
+        return ingestionPipelineConfig;
+    }
+
+    public IngestionJournalConfig getIngestionJournalConfig() {
+        return ingestionJournalConfig;
+    }
+
+    public RawKeyCacheConfig getRawKeyCacheConfig() {
+        return rawKeyCacheConfig;
+    }
+
+    public CacheConfig getCacheConfig() {
+        return cacheConfig;
+    }
+
+    public QuerySchedulerConfig getQuerySchedulerConfig() {
+        return querySchedulerConfig;
+    }
+
+    public AsyncJobConfig getAsyncJobConfig() {
+        return asyncJobConfig;
+    }
+
+    public ConsoleCacheWarmerConfig getConsoleCacheWarmerConfig() {
+        return consoleCacheWarmerConfig;
+    }
 }
@@ -0,0 +1,152 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.server.console;
+
+import com.flipkart.foxtrot.common.ActionRequest;
+import com.flipkart.foxtrot.common.histogram.HistogramRequest;
+import com.flipkart.foxtrot.common.stats.StatsTrendRequest;
+import com.flipkart.foxtrot.common.trend.TrendRequest;
+import com.flipkart.foxtrot.core.common.RequestFingerprint;
+import com.flipkart.foxtrot.core.exception.FoxtrotException;
+import com.flipkart.foxtrot.core.querystore.QueryExecutor;
+import com.flipkart.foxtrot.core.querystore.scheduler.QueryPriority;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.yammer.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Periodically runs the queries of the time series tiles (histogram, trend and stats trend) of the saved consoles,
+ * so that the time series bucket cache is filled before users open the consoles. A user opening the console then
+ * only has to fetch the newest buckets.
+ * <p>
+ * Other tiles are not warmed. Their whole response is cached under a key that includes the query window aligned to
+ * 30 seconds. Tiles query a window relative to the current time, so a response warmed minutes earlier would never be
+ * hit.
+ */
+public class ConsoleCacheWarmer implements Managed {
+    private static final Logger logger = LoggerFactory.getLogger(ConsoleCacheWarmer.class.getSimpleName());
+
+    private final ConsoleCacheWarmerConfig config;
+    private final ConsolePersistence consolePersistence;
+    private final ConsoleTileTranslator translator;
+    private final QueryExecutor queryExecutor;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService workers;
+
+    public ConsoleCacheWarmer(ConsoleCacheWarmerConfig config,
+                              ConsolePersistence consolePersistence,
+                              ConsoleTileTranslator translator,
+                              QueryExecutor queryExecutor) {
+        this.config = config;
+        this.consolePersistence = consolePersistence;
+        this.translator = translator;
+        this.queryExecutor = queryExecutor;
+    }
+
+    @Override
+    public void start() throws Exception {
+        logger.info("Starting Console Cache Warmer");
+        if (config.isActive()) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("console-cache-warmer-%d").setDaemon(true).build());
+            workers = Executors.newFixedThreadPool(config.getParallelism(),
+                    new ThreadFactoryBuilder().setNameFormat("console-cache-warmer-worker-%d").setDaemon(true).build());
+            scheduler.scheduleWithFixedDelay(this::warm,
+                    config.getInitialDelaySeconds(), config.getIntervalSeconds(), TimeUnit.SECONDS);
+            logger.info("Scheduled console cache warming");
+        } else {
+            logger.info("Not scheduling console cache warming");
+        }
+        logger.info("Started Console Cache Warmer");
+    }
+
+    @Override
+    public void stop() throws Exception {
+        logger.info("Stopping Console Cache Warmer");
+        if (null != scheduler) {
+            scheduler.shutdownNow();
+            workers.shutdownNow();
+        }
+        logger.info("Stopped Console Cache Warmer");
+    }
+
+    void warm() {
+        try {
+            Collection<ActionRequest> requests = requests(consolePersistence.get());
+            List<Future<?>> futures = Lists.newArrayListWithCapacity(requests.size());
+            for (ActionRequest request : requests) {
+                futures.add(workers.submit(() -> execute(request)));
+            }
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(config.getRunTimeoutSeconds());
+            int completed = 0;
+            for (Future<?> future : futures) {
+                try {
+                    future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                    completed++;
+                } catch (TimeoutException e) {
+                    future.cancel(true);
+                } catch (ExecutionException e) {
+                    logger.warn("Error warming cache", e.getCause());
+                }
+            }
+            logger.info("Warmed caches for {} of {} console tile queries", completed, requests.size());
+        } catch (Exception e) {
+            logger.error("Error warming caches from consoles", e);
+        }
+    }
+
+    /**
+     * @return distinct queries of all time series tiles, tiles running the same query on several consoles are run once
+     */
+    Collection<ActionRequest> requests(List<Console> consoles) {
+        Map<String, ActionRequest> requests = Maps.newLinkedHashMap();
+        for (Console console : consoles) {
+            if (null == console.getTiles()) {
+                continue;
+            }
+            for (Object tile : console.getTiles().values()) {
+                ActionRequest request = translator.translate(tile);
+                if (isTimeSeries(request)) {
+                    requests.putIfAbsent(request.getClass().getSimpleName() + RequestFingerprint.of(request), request);
+                }
+            }
+        }
+        return requests.values();
+    }
+
+    private static boolean isTimeSeries(ActionRequest request) {
+        return request instanceof HistogramRequest
+                || request instanceof TrendRequest
+                || request instanceof StatsTrendRequest;
+    }
+
+    private void execute(ActionRequest request) {
+        try {
+            // Nobody is waiting on these, dashboards go first
+            queryExecutor.execute(request, QueryPriority.ASYNC);
+        } catch (FoxtrotException e) {
+            logger.warn("Error warming cache for request {}", request, e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.server.console;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration for {@link ConsoleCacheWarmer}
+ */
+public class ConsoleCacheWarmerConfig {
+
+    private boolean active = false;
+
+    @Min(0)
+    private int initialDelaySeconds = 60;
+
+    @Min(1)
+    private int intervalSeconds = 300;
+
+    /**
+     * Number of tile queries run at the same time
+     */
+    @Min(1)
+    private int parallelism = 4;
+
+    /**
+     * Queries of a run still pending after this long are cancelled
+     */
+    @Min(1)
+    private int runTimeoutSeconds = 240;
+
+    public ConsoleCacheWarmerConfig() {
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
+    public int getInitialDelaySeconds() {
+        return initialDelaySeconds;
+    }
+
+    public void setInitialDelaySeconds(int initialDelaySeconds) {
+        this.initialDelaySeconds = initialDelaySeconds;
+    }
+
+    public int getIntervalSeconds() {
+        return intervalSeconds;
+    }
+
+    public void setIntervalSeconds(int intervalSeconds) {
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getRunTimeoutSeconds() {
+        return runTimeoutSeconds;
+    }
+
+    public void setRunTimeoutSeconds(int runTimeoutSeconds) {
+        this.runTimeoutSeconds = runTimeoutSeconds;
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.server.console;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.flipkart.foxtrot.common.ActionRequest;
+import com.google.common.io.BaseEncoding;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds the query a console tile runs when the console is opened, from the tile representation saved by the
+ * console UI. Mirrors the getQuery() implementations of the tiles, using the tile's own time window.
+ */
+public class ConsoleTileTranslator {
+    private static final Logger logger = LoggerFactory.getLogger(ConsoleTileTranslator.class.getSimpleName());
+    private static final String TIMESTAMP_FIELD = "_timestamp";
+
+    private final ObjectMapper mapper;
+
+    public ConsoleTileTranslator(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * @return request of the tile, null if the tile type does not run an analytics query or is not set up
+     */
+    public ActionRequest translate(Object tile) {
+        JsonNode representation = mapper.valueToTree(tile);
+        String typeName = representation.path("typeName").asText();
+        String table = text(representation, "table");
+        String periodUnit = text(representation, "periodUnit");
+        long periodValue = representation.has("periodValue")
+                ? representation.path("periodValue").asLong() : representation.path("period").asLong();
+        if (null == table || null == periodUnit || 0 == periodValue) {
+            return null;
+        }
+
+        ObjectNode query = mapper.createObjectNode();
+        query.put("table", table);
+        ArrayNode filters = query.putArray("filters");
+        ObjectNode timeFilter = filters.addObject();
+        timeFilter.put("field", TIMESTAMP_FIELD);
+        timeFilter.put("operator", "last");
+        timeFilter.put("duration", periodValue + periodUnit);
+        timeFilter.put("currentTime", System.currentTimeMillis());
+
+        String eventTypeFieldName = text(representation, "eventTypeFieldName");
+        switch (typeName) {
+            case "histogram":
+                query.put("opcode", "histogram");
+                query.put("field", TIMESTAMP_FIELD);
+                query.put("period", periodUnit);
+                putUniqueCountOn(query, representation);
+                break;
+            case "stacked_bar":
+                if (null == eventTypeFieldName) {
+                    return null;
+                }
+                query.put("opcode", "trend");
+                query.put("field", eventTypeFieldName);
+                query.put("period", periodUnit);
+                putUniqueCountOn(query, representation);
+                break;
+            case "bar":
+            case "donut":
+                if (null == eventTypeFieldName) {
+                    return null;
+                }
+                query.put("opcode", "group");
+                query.putArray("nesting").add(eventTypeFieldName);
+                putUniqueCountOn(query, representation);
+                JsonNode selectedValues = representation.path("selectedValues");
+                if (selectedValues.isArray() && selectedValues.size() > 0) {
+                    ObjectNode inFilter = filters.addObject();
+                    inFilter.put("field", eventTypeFieldName);
+                    inFilter.put("operator", "in");
+                    inFilter.put("values", selectedValues);
+                }
+                break;
+            case "stacked":
+                String groupingKey = text(representation, "groupingKey");
+                String stackingKey = text(representation, "stackingKey");
+                if (null == groupingKey || null == stackingKey) {
+                    return null;
+                }
+                query.put("opcode", "group");
+                ArrayNode nesting = query.putArray("nesting");
+                nesting.add(groupingKey);
+                nesting.add(stackingKey);
+                putUniqueCountOn(query, representation);
+                break;
+            case "stats":
+                String statsFieldName = text(representation, "statsFieldName");
+                if (null == statsFieldName) {
+                    return null;
+                }
+                query.put("opcode", "stats");
+                query.put("field", statsFieldName);
+                break;
+            case "statstrend":
+                if (null == eventTypeFieldName) {
+                    return null;
+                }
+                query.put("opcode", "statstrend");
+                query.put("field", eventTypeFieldName);
+                query.put("period", periodUnit);
+                break;
+            default:
+                return null;
+        }
+
+        try {
+            addSelectedFilters(filters, text(representation, "selectedFilters"));
+            return mapper.treeToValue(query, ActionRequest.class);
+        } catch (Exception e) {
+            logger.warn("Could not build query for tile {} of type {}", text(representation, "id"), typeName, e);
+            return null;
+        }
+    }
+
+    private void addSelectedFilters(ArrayNode filters, String selectedFilters) throws Exception {
+        if (null == selectedFilters) {
+            return;
+        }
+        // Saved base64 encoded by the console UI
+        JsonNode selected = mapper.readTree(BaseEncoding.base64().decode(selectedFilters));
+        JsonNode selectedList = selected.path("filters");
+        if (selectedList.isArray()) {
+            for (JsonNode filter : selectedList) {
+                filters.add(filter);
+            }
+        }
+    }
+
+    private void putUniqueCountOn(ObjectNode query, JsonNode representation) {
+        String uniqueCountOn = text(representation, "uniqueCountOn");
+        if (null != uniqueCountOn && !"none".equals(uniqueCountOn)) {
+            query.put("uniqueCountOn", uniqueCountOn);
+        }
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (null == value || value.isNull() || value.asText().isEmpty()) {
+            return null;
+        }
+        return value.asText();
+    }
+}
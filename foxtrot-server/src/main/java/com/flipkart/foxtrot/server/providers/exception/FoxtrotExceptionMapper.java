@@ -45,6 +45,13 @@ public class FoxtrotExceptionMapper implements ExceptionMapper<FoxtrotException>
             case UNRESOLVABLE_OPERATION:
             case INVALID_REQUEST:
                 return Response.status(Response.Status.BAD_REQUEST).entity(response).build();
+            case INGESTION_QUEUE_FULL:
+            case QUERY_REJECTED:
+                return Response.status(429).entity(response).build();
+            case QUERY_TIMEOUT:
+                return Response.status(504).entity(response).build();
+            case INGESTION_TIMEOUT:
+                return Response.status(Response.Status.ACCEPTED).entity(response).build();
             case TABLE_ALREADY_EXISTS:
                 return Response.status(Response.Status.CONFLICT).entity(response).build();
             case CONSOLE_SAVE_EXCEPTION:
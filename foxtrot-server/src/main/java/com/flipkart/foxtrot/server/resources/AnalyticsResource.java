@@ -15,17 +15,34 @@
  */
 package com.flipkart.foxtrot.server.resources;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.flipkart.foxtrot.common.ActionRequest;
 import com.flipkart.foxtrot.common.ActionResponse;
 import com.flipkart.foxtrot.core.common.AsyncDataToken;
 import com.flipkart.foxtrot.core.exception.FoxtrotException;
+import com.flipkart.foxtrot.core.exception.FoxtrotExceptions;
 import com.flipkart.foxtrot.core.querystore.QueryExecutor;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * User: Santanu Sinha (santanu.sinha@flipkart.com)
@@ -36,11 +53,26 @@ import javax.ws.rs.core.MediaType;
 @Consumes(MediaType.APPLICATION_JSON)
 @Produces(MediaType.APPLICATION_JSON)
 public class AnalyticsResource {
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsResource.class.getSimpleName());
+
+    private static final int DEFAULT_MAX_BATCH_SIZE = 50;
 
     private final QueryExecutor queryExecutor;
+    private final ObjectMapper mapper;
+    private final int maxBatchSize;
 
     public AnalyticsResource(QueryExecutor queryExecutor) {
+        this(queryExecutor, new ObjectMapper());
+    }
+
+    public AnalyticsResource(QueryExecutor queryExecutor, ObjectMapper mapper) {
+        this(queryExecutor, mapper, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public AnalyticsResource(QueryExecutor queryExecutor, ObjectMapper mapper, int maxBatchSize) {
         this.queryExecutor = queryExecutor;
+        this.mapper = mapper;
+        this.maxBatchSize = maxBatchSize;
     }
 
     @POST
@@ -54,9 +86,81 @@ public class AnalyticsResource {
         return queryExecutor.executeAsync(request);
     }
 
+    /**
+     * Runs all requests in parallel and streams back one line per request as soon as it completes, in completion
+     * order. Each line carries the (0 based) index of the request in the batch along with either its response or
+     * its error, a failing request does not affect the others.
+     */
+    @POST
+    @Path("/batch")
+    @Produces(DocumentResource.APPLICATION_NDJSON)
+    public Response runBatch(final List<ActionRequest> requests) throws FoxtrotException {
+        if (null == requests || requests.isEmpty()) {
+            throw FoxtrotExceptions.createBadRequestException(null, "No requests in batch");
+        }
+        if (requests.size() > maxBatchSize) {
+            throw FoxtrotExceptions.createBadRequestException(null,
+                    String.format("Batch has %d requests, at most %d are allowed", requests.size(), maxBatchSize));
+        }
+        StreamingOutput output = outputStream -> streamBatch(requests, outputStream);
+        return Response.ok(output).build();
+    }
+
     @POST
     @Path("/validate")
     public void validateQuery(final ActionRequest request) throws FoxtrotException {
         queryExecutor.validate(request);
     }
+
+    private void streamBatch(List<ActionRequest> requests, OutputStream outputStream) throws IOException {
+        BlockingQueue<Map<String, Object>> completed = new LinkedBlockingQueue<>();
+        List<CompletableFuture<ActionResponse>> executions = Lists.newArrayListWithCapacity(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            final int index = i;
+            CompletableFuture<ActionResponse> execution = queryExecutor.executeNonBlocking(requests.get(i));
+            executions.add(execution);
+            execution.whenComplete((response, error) -> completed.add(result(index, response, error)));
+        }
+        try {
+            for (int i = 0; i < requests.size(); i++) {
+                writeLine(outputStream, completed.take());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executions.forEach(execution -> execution.cancel(true));
+        } catch (IOException e) {
+            // Client went away, nobody is waiting for the rest
+            executions.forEach(execution -> execution.cancel(true));
+            throw e;
+        }
+    }
+
+    private Map<String, Object> result(int index, ActionResponse response, Throwable error) {
+        Map<String, Object> result = Maps.newLinkedHashMap();
+        result.put("index", index);
+        if (null == error) {
+            result.put("response", response);
+            return result;
+        }
+        while (error instanceof CompletionException && null != error.getCause()) {
+            error = error.getCause();
+        }
+        if (error instanceof FoxtrotException) {
+            FoxtrotException foxtrotException = (FoxtrotException) error;
+            result.put("code", foxtrotException.getCode());
+            result.put("error", foxtrotException.toMap());
+        } else if (error instanceof CancellationException) {
+            result.put("error", "Request was cancelled");
+        } else {
+            logger.error("Error running batched request {}", index, error);
+            result.put("error", error.getMessage());
+        }
+        return result;
+    }
+
+    private void writeLine(OutputStream outputStream, Object value) throws IOException {
+        outputStream.write(mapper.writeValueAsBytes(value));
+        outputStream.write('\n');
+        outputStream.flush();
+    }
 }
@@ -18,6 +18,9 @@ package com.flipkart.foxtrot.server.resources;
 import com.flipkart.foxtrot.common.ActionResponse;
 import com.flipkart.foxtrot.core.cache.CacheManager;
 import com.flipkart.foxtrot.core.common.AsyncDataToken;
+import com.flipkart.foxtrot.core.common.AsyncJob;
+import com.flipkart.foxtrot.core.common.AsyncJobConfig;
+import com.flipkart.foxtrot.core.common.AsyncJobRegistry;
 
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.*;
@@ -34,9 +37,13 @@ import javax.ws.rs.core.Response;
 public class AsyncResource {
 
     private CacheManager cacheManager;
+    private AsyncJobRegistry asyncJobRegistry;
+    private AsyncJobConfig asyncJobConfig;
 
-    public AsyncResource(CacheManager cacheManager) {
+    public AsyncResource(CacheManager cacheManager, AsyncJobRegistry asyncJobRegistry, AsyncJobConfig asyncJobConfig) {
         this.cacheManager = cacheManager;
+        this.asyncJobRegistry = asyncJobRegistry;
+        this.asyncJobConfig = asyncJobConfig;
     }
 
     @GET
@@ -50,6 +57,62 @@ public class AsyncResource {
         return Response.ok(getData(dataToken)).build();
     }
 
+    /**
+     * @param waitMs Time to wait for the job to finish before returning, capped by the configured maximum
+     */
+    @GET
+    @Path("/jobs/{id}")
+    public Response getJob(@PathParam("id") final String id, @QueryParam("waitMs") @DefaultValue("0") final long waitMs) {
+        AsyncJob job = await(id, waitMs);
+        if (null == job) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return Response.ok(job).build();
+    }
+
+    /**
+     * Returns the response once the job is done. A job that is still queued or running after the wait is returned
+     * with 202, a failed one with 500 and a cancelled one with 409.
+     */
+    @GET
+    @Path("/jobs/{id}/result")
+    public Response getJobResult(@PathParam("id") final String id,
+                                 @QueryParam("waitMs") @DefaultValue("0") final long waitMs) {
+        AsyncJob job = await(id, waitMs);
+        if (null == job) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        switch (job.getStatus()) {
+            case DONE:
+                ActionResponse response = getData(job.getResult());
+                if (null == response) {
+                    // Evicted from the cache since
+                    return Response.status(Response.Status.GONE).entity(job).build();
+                }
+                return Response.ok(response).build();
+            case FAILED:
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(job).build();
+            case CANCELLED:
+                return Response.status(Response.Status.CONFLICT).entity(job).build();
+            default:
+                return Response.status(Response.Status.ACCEPTED).entity(job).build();
+        }
+    }
+
+    @DELETE
+    @Path("/jobs/{id}")
+    public Response cancelJob(@PathParam("id") final String id) {
+        AsyncJob job = asyncJobRegistry.cancel(id);
+        if (null == job) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return Response.ok(job).build();
+    }
+
+    private AsyncJob await(final String id, final long waitMs) {
+        return asyncJobRegistry.await(id, Math.min(waitMs, asyncJobConfig.getMaxWaitMs()));
+    }
+
     private ActionResponse getData(final AsyncDataToken dataToken) {
         return cacheManager.getCacheFor(dataToken.getAction()).get(dataToken.getKey());
     }
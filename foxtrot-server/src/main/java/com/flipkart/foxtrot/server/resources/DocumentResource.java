@@ -15,18 +15,33 @@
  */
 package com.flipkart.foxtrot.server.resources;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.flipkart.foxtrot.common.Document;
 import com.flipkart.foxtrot.core.exception.FoxtrotException;
+import com.flipkart.foxtrot.core.ingestion.IngestionPipeline;
+import com.flipkart.foxtrot.core.querystore.BulkSaveResult;
 import com.flipkart.foxtrot.core.querystore.QueryStore;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.yammer.metrics.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.*;
 import java.net.URI;
 import java.util.List;
+import java.util.Map;
 
 /**
  * User: Santanu Sinha (santanu.sinha@flipkart.com)
@@ -36,11 +51,30 @@ import java.util.List;
 @Path("/v1/document/{table}")
 @Produces(MediaType.APPLICATION_JSON)
 public class DocumentResource {
+    private static final Logger logger = LoggerFactory.getLogger(DocumentResource.class.getSimpleName());
+
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+    private static final int DEFAULT_STREAM_CHUNK_SIZE = 500;
 
     private final QueryStore queryStore;
+    private final IngestionPipeline ingestionPipeline;
+    private final ObjectMapper mapper;
+    private final int streamChunkSize;
 
     public DocumentResource(QueryStore queryStore) {
+        this(queryStore, null);
+    }
+
+    public DocumentResource(QueryStore queryStore, IngestionPipeline ingestionPipeline) {
+        this(queryStore, ingestionPipeline, new ObjectMapper(), DEFAULT_STREAM_CHUNK_SIZE);
+    }
+
+    public DocumentResource(QueryStore queryStore, IngestionPipeline ingestionPipeline,
+                            ObjectMapper mapper, int streamChunkSize) {
         this.queryStore = queryStore;
+        this.ingestionPipeline = ingestionPipeline;
+        this.mapper = mapper;
+        this.streamChunkSize = streamChunkSize;
     }
 
     @POST
@@ -52,16 +86,37 @@ public class DocumentResource {
         return Response.created(URI.create("/" + document.getId())).build();
     }
 
+    /**
+     * With the ingestion pipeline enabled, documents that were handed to the stores but not acknowledged in time are
+     * answered with 202 and code INGESTION_TIMEOUT. They may still be written later, so sending them again can write
+     * them twice.
+     */
     @POST
     @Path("/bulk")
     @Consumes(MediaType.APPLICATION_JSON)
     @Timed
     public Response saveDocuments(@PathParam("table") final String table,
                                   @Valid final List<Document> documents) throws FoxtrotException {
-        queryStore.save(table, documents);
+        save(table, documents);
         return Response.created(URI.create("/" + table)).build();
     }
 
+    /**
+     * Accepts newline delimited documents. Documents are parsed straight off the request body and written to the
+     * stores in chunks, so memory use is bounded by the chunk size and not by the size of the payload.
+     * The response is streamed as well: one line per failed input line with its (1 based) line number, followed by
+     * a summary line with the accepted and failed counts.
+     */
+    @POST
+    @Path("/bulk/stream")
+    @Consumes({APPLICATION_NDJSON, MediaType.TEXT_PLAIN})
+    @Produces(APPLICATION_NDJSON)
+    @Timed
+    public Response saveDocumentStream(@PathParam("table") final String table, final InputStream body) {
+        StreamingOutput output = outputStream -> streamDocuments(table, body, outputStream);
+        return Response.ok(output).build();
+    }
+
     @GET
     @Path("/{id}")
     @Timed
@@ -76,4 +131,135 @@ public class DocumentResource {
             throws FoxtrotException {
         return Response.ok(queryStore.getAll(table, ids)).build();
     }
+
+    private void save(String table, List<Document> documents) throws FoxtrotException {
+        if (null != ingestionPipeline && ingestionPipeline.isEnabled()) {
+            ingestionPipeline.save(table, documents);
+        } else {
+            queryStore.save(table, documents);
+        }
+    }
+
+    private void streamDocuments(String table, InputStream body, OutputStream outputStream) throws IOException {
+        ObjectReader documentReader = mapper.reader(Document.class);
+        List<Document> chunk = Lists.newArrayListWithCapacity(streamChunkSize);
+        List<Integer> chunkLines = Lists.newArrayListWithCapacity(streamChunkSize);
+        int accepted = 0;
+        int failed = 0;
+        InputStream input = body;
+        int lineOffset = 0;
+        while (null != input) {
+            JsonParser parser = mapper.getFactory().createJsonParser(input);
+            // The body is read on after a malformed line, so closing a parser must not close it
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            input = null;
+            try {
+                while (null != parser.nextToken()) {
+                    int lineNumber = lineOffset + parser.getTokenLocation().getLineNr();
+                    JsonNode node = mapper.readTree(parser);
+                    Document document;
+                    try {
+                        document = documentReader.readValue(node);
+                    } catch (JsonProcessingException e) {
+                        writeLine(outputStream,
+                                lineError(lineNumber, null, "Invalid document: " + e.getOriginalMessage()));
+                        failed++;
+                        continue;
+                    }
+                    if (null == document || null == document.getId() || document.getId().trim().isEmpty()) {
+                        writeLine(outputStream, lineError(lineNumber, null, "null/empty document id"));
+                        failed++;
+                        continue;
+                    }
+                    if (null == document.getData()) {
+                        writeLine(outputStream, lineError(lineNumber, document.getId(), "null document data"));
+                        failed++;
+                        continue;
+                    }
+                    chunk.add(document);
+                    chunkLines.add(lineNumber);
+                    if (chunk.size() >= streamChunkSize) {
+                        int written = writeChunk(table, chunk, chunkLines, outputStream);
+                        accepted += written;
+                        failed += chunk.size() - written;
+                        chunk.clear();
+                        chunkLines.clear();
+                    }
+                }
+            } catch (JsonParseException e) {
+                int lineNumber = lineOffset + e.getLocation().getLineNr();
+                writeLine(outputStream, lineError(lineNumber, null, "Invalid JSON: " + e.getOriginalMessage()));
+                failed++;
+                // A parser cannot recover from malformed input, carry on with a new one after the bad line
+                ByteArrayOutputStream buffered = new ByteArrayOutputStream();
+                parser.releaseBuffered(buffered);
+                input = skipLine(new SequenceInputStream(new ByteArrayInputStream(buffered.toByteArray()), body));
+                lineOffset = lineNumber;
+            } finally {
+                parser.close();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            int written = writeChunk(table, chunk, chunkLines, outputStream);
+            accepted += written;
+            failed += chunk.size() - written;
+        }
+        Map<String, Object> summary = Maps.newLinkedHashMap();
+        summary.put("accepted", accepted);
+        summary.put("failed", failed);
+        writeLine(outputStream, summary);
+    }
+
+    private static InputStream skipLine(InputStream input) throws IOException {
+        int next;
+        do {
+            next = input.read();
+        } while (-1 != next && '\n' != next);
+        return input;
+    }
+
+    private int writeChunk(String table, List<Document> chunk, List<Integer> chunkLines,
+                           OutputStream outputStream) throws IOException {
+        try {
+            if (null != ingestionPipeline && ingestionPipeline.isEnabled()) {
+                ingestionPipeline.save(table, chunk);
+                return chunk.size();
+            }
+            List<BulkSaveResult.DocumentResult> results = queryStore.bulkSave(table, chunk).getResults();
+            int written = 0;
+            for (int i = 0; i < results.size(); i++) {
+                if (results.get(i).getStatus() == BulkSaveResult.Status.FAILED) {
+                    writeLine(outputStream, lineError(chunkLines.get(i), results.get(i).getId(),
+                            results.get(i).getFailureMessage()));
+                } else {
+                    written++;
+                }
+            }
+            return written;
+        } catch (FoxtrotException e) {
+            logger.error("Error saving streamed chunk of {} documents for table {}", chunk.size(), table, e);
+            for (int i = 0; i < chunk.size(); i++) {
+                Map<String, Object> error = lineError(chunkLines.get(i), chunk.get(i).getId(), e.getMessage());
+                error.put("code", e.getCode());
+                writeLine(outputStream, error);
+            }
+            return 0;
+        }
+    }
+
+    private Map<String, Object> lineError(int lineNumber, String id, String message) {
+        Map<String, Object> error = Maps.newLinkedHashMap();
+        error.put("line", lineNumber);
+        if (null != id) {
+            error.put("id", id);
+        }
+        error.put("error", message);
+        return error;
+    }
+
+    private void writeLine(OutputStream outputStream, Object value) throws IOException {
+        outputStream.write(mapper.writeValueAsBytes(value));
+        outputStream.write('\n');
+        outputStream.flush();
+    }
 }
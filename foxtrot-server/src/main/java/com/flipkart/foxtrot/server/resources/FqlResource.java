@@ -1,5 +1,6 @@
 package com.flipkart.foxtrot.server.resources;
 
+import com.flipkart.foxtrot.core.querystore.scheduler.QueryPriority;
 import com.flipkart.foxtrot.server.providers.FlatToCsvConverter;
 import com.flipkart.foxtrot.server.providers.FoxtrotExtraMediaType;
 import com.flipkart.foxtrot.sql.FqlEngine;
@@ -24,7 +25,7 @@ public class FqlResource {
     @Path("/download")
     public StreamingOutput runFqlGet(@QueryParam("q") final String query) throws Exception {
         Preconditions.checkNotNull(query);
-        final FlatRepresentation representation = fqlEngine.parse(query);
+        final FlatRepresentation representation = fqlEngine.parse(query, QueryPriority.EXPORT);
         return output -> FlatToCsvConverter.convert(representation, new OutputStreamWriter(output));
     }
 
@@ -0,0 +1,66 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.server.console;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.NamedType;
+import com.flipkart.foxtrot.common.ActionRequest;
+import com.flipkart.foxtrot.common.group.GroupRequest;
+import com.flipkart.foxtrot.common.histogram.HistogramRequest;
+import com.flipkart.foxtrot.core.querystore.QueryExecutor;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConsoleCacheWarmerTest {
+
+    @Test
+    public void testOnlyTimeSeriesTilesAreWarmed() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.getSubtypeResolver().registerSubtypes(new NamedType(HistogramRequest.class, "histogram"),
+                new NamedType(GroupRequest.class, "group"));
+        ConsoleCacheWarmer warmer = new ConsoleCacheWarmer(new ConsoleCacheWarmerConfig(),
+                Mockito.mock(ConsolePersistence.class), new ConsoleTileTranslator(mapper),
+                Mockito.mock(QueryExecutor.class));
+
+        Console console = new Console();
+        console.setId("console-1");
+        console.setTiles(ImmutableMap.<String, Object>of(
+                "tile-1", tile("histogram"),
+                "tile-2", ImmutableMap.<String, Object>builder().putAll(tile("bar"))
+                        .put("eventTypeFieldName", "eventType").build(),
+                "tile-3", tile("histogram")));
+
+        Collection<ActionRequest> requests = warmer.requests(Collections.singletonList(console));
+        assertEquals(1, requests.size());
+        assertTrue(requests.iterator().next() instanceof HistogramRequest);
+    }
+
+    private Map<String, Object> tile(String typeName) {
+        return ImmutableMap.<String, Object>of(
+                "typeName", typeName,
+                "table", "test",
+                "periodUnit", "hours",
+                "periodValue", 6);
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright 2014 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.flipkart.foxtrot.server.console;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.NamedType;
+import com.flipkart.foxtrot.common.ActionRequest;
+import com.flipkart.foxtrot.common.Period;
+import com.flipkart.foxtrot.common.group.GroupRequest;
+import com.flipkart.foxtrot.common.histogram.HistogramRequest;
+import com.flipkart.foxtrot.common.query.datetime.LastFilter;
+import com.flipkart.foxtrot.common.query.general.EqualsFilter;
+import com.flipkart.foxtrot.common.query.general.InFilter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.io.BaseEncoding;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ConsoleTileTranslatorTest {
+    private ObjectMapper mapper;
+    private ConsoleTileTranslator translator;
+
+    @Before
+    public void setUp() throws Exception {
+        mapper = new ObjectMapper();
+        mapper.getSubtypeResolver().registerSubtypes(new NamedType(HistogramRequest.class, "histogram"),
+                new NamedType(GroupRequest.class, "group"));
+        translator = new ConsoleTileTranslator(mapper);
+    }
+
+    @Test
+    public void testHistogramTile() throws Exception {
+        Map<String, Object> tile = tile("histogram");
+        String selectedFilters = "{\"filters\":[{\"operator\":\"equals\",\"field\":\"os\",\"value\":\"android\"}]}";
+        tile.put("selectedFilters", BaseEncoding.base64().encode(selectedFilters.getBytes(StandardCharsets.UTF_8)));
+
+        ActionRequest request = translator.translate(tile);
+        assertTrue(request instanceof HistogramRequest);
+        HistogramRequest histogramRequest = (HistogramRequest) request;
+        assertEquals("test", histogramRequest.getTable());
+        assertEquals(Period.hours, histogramRequest.getPeriod());
+        assertEquals(2, histogramRequest.getFilters().size());
+        LastFilter lastFilter = (LastFilter) histogramRequest.getFilters().get(0);
+        assertEquals(TimeUnit.HOURS.toMillis(6), lastFilter.getDuration().toMilliseconds());
+        assertTrue(histogramRequest.getFilters().get(1) instanceof EqualsFilter);
+    }
+
+    @Test
+    public void testBarTileWithSelectedValues() throws Exception {
+        Map<String, Object> tile = tile("bar");
+        tile.put("eventTypeFieldName", "eventType");
+        tile.put("selectedValues", Lists.newArrayList("APP_LOAD", "APP_CLOSE"));
+        tile.put("uniqueCountOn", "none");
+
+        GroupRequest request = (GroupRequest) translator.translate(tile);
+        assertEquals(Lists.newArrayList("eventType"), request.getNesting());
+        assertNull(request.getUniqueCountOn());
+        assertEquals(2, request.getFilters().size());
+        assertEquals(2, ((InFilter) request.getFilters().get(1)).getValues().size());
+    }
+
+    @Test
+    public void testIncompleteAndUnsupportedTiles() throws Exception {
+        assertNull(translator.translate(tile("bar")));
+        assertNull(translator.translate(tile("eventbrowser")));
+        Map<String, Object> tile = tile("histogram");
+        tile.put("periodValue", 0);
+        assertNull(translator.translate(tile));
+    }
+
+    private Map<String, Object> tile(String typeName) {
+        return new HashMap<>(ImmutableMap.<String, Object>of(
+                "id", "tile-1",
+                "typeName", typeName,
+                "table", "test",
+                "periodUnit", "hours",
+                "periodValue", 6));
+    }
+}
@@ -15,6 +15,8 @@
  */
 package com.flipkart.foxtrot.server.resources;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.flipkart.foxtrot.common.ActionRequest;
 import com.flipkart.foxtrot.common.Document;
 import com.flipkart.foxtrot.common.group.GroupRequest;
 import com.flipkart.foxtrot.common.group.GroupResponse;
@@ -27,11 +29,14 @@ import org.junit.Test;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doReturn;
 
@@ -170,4 +175,45 @@ public class AnalyticsResourceTest extends FoxtrotResourceTest {
         GroupResponse actualResponse = GroupResponse.class.cast(getCacheManager().getCacheFor(asyncDataToken.getAction()).get(asyncDataToken.getKey()));
         assertEquals(expectedResponse.getResult(), actualResponse.getResult());
     }
+
+    @Test
+    public void testRunBatch() throws Exception {
+        GroupRequest groupRequest = new GroupRequest();
+        groupRequest.setTable(TestUtils.TEST_TABLE_NAME);
+        groupRequest.setNesting(Arrays.asList("os", "device"));
+
+        GroupRequest invalidRequest = new GroupRequest();
+        invalidRequest.setTable(TestUtils.TEST_TABLE_NAME);
+
+        WebResource webResource = client().resource("/v1/analytics/batch");
+        String response = webResource.type(MediaType.APPLICATION_JSON_TYPE)
+                .post(String.class, Arrays.<ActionRequest>asList(groupRequest, invalidRequest, groupRequest));
+
+        String[] lines = response.trim().split("\n");
+        assertEquals(3, lines.length);
+        boolean[] seen = new boolean[3];
+        for (String line : lines) {
+            JsonNode result = getMapper().readTree(line);
+            int index = result.get("index").asInt();
+            seen[index] = true;
+            if (index == 1) {
+                assertEquals("MALFORMED_QUERY", result.get("code").asText());
+            } else {
+                assertEquals(5, result.get("response").get("result").get("android").get("nexus").asInt());
+            }
+        }
+        assertTrue(seen[0] && seen[1] && seen[2]);
+    }
+
+    @Test
+    public void testRunBatchEmpty() throws Exception {
+        WebResource webResource = client().resource("/v1/analytics/batch");
+        try {
+            webResource.type(MediaType.APPLICATION_JSON_TYPE)
+                    .post(String.class, Collections.<ActionRequest>emptyList());
+            fail();
+        } catch (UniformInterfaceException ex) {
+            assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), ex.getResponse().getStatus());
+        }
+    }
 }
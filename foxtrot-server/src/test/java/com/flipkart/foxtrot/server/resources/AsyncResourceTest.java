@@ -20,6 +20,8 @@ import com.flipkart.foxtrot.common.group.GroupRequest;
 import com.flipkart.foxtrot.common.group.GroupResponse;
 import com.flipkart.foxtrot.core.TestUtils;
 import com.flipkart.foxtrot.core.common.AsyncDataToken;
+import com.flipkart.foxtrot.core.common.AsyncJob;
+import com.flipkart.foxtrot.core.common.AsyncJobStatus;
 import com.sun.jersey.api.client.UniformInterfaceException;
 import com.sun.jersey.api.client.WebResource;
 import org.junit.Test;
@@ -49,7 +51,7 @@ public class AsyncResourceTest extends FoxtrotResourceTest {
 
     @Override
     protected void setUpResources() throws Exception {
-        addResource(new AsyncResource(getCacheManager()));
+        addResource(new AsyncResource(getCacheManager(), getAsyncJobRegistry(), getAsyncJobConfig()));
     }
 
 
@@ -197,4 +199,37 @@ public class AsyncResourceTest extends FoxtrotResourceTest {
         } catch (NullPointerException ex) {
         }
     }
+
+    @Test
+    public void testJobResultWaitsForCompletion() throws Exception {
+        GroupRequest groupRequest = new GroupRequest();
+        groupRequest.setTable(TestUtils.TEST_TABLE_NAME);
+        groupRequest.setNesting(Arrays.asList("os", "device"));
+
+        AsyncDataToken dataToken = getQueryExecutor().executeAsync(groupRequest);
+        assertNotNull(dataToken.getJobId());
+
+        GroupResponse response = client().resource(String.format("/v1/async/jobs/%s/result", dataToken.getJobId()))
+                .queryParam("waitMs", "10000")
+                .type(MediaType.APPLICATION_JSON_TYPE)
+                .get(GroupResponse.class);
+        assertEquals(2, response.getResult().size());
+
+        AsyncJob job = client().resource(String.format("/v1/async/jobs/%s", dataToken.getJobId()))
+                .type(MediaType.APPLICATION_JSON_TYPE)
+                .get(AsyncJob.class);
+        assertEquals(AsyncJobStatus.DONE, job.getStatus());
+        assertEquals(dataToken.getKey(), job.getResult().getKey());
+        assertTrue(job.getCompletedAt() >= job.getSubmittedAt());
+    }
+
+    @Test
+    public void testUnknownJob() throws Exception {
+        try {
+            client().resource("/v1/async/jobs/dummy").type(MediaType.APPLICATION_JSON_TYPE).get(AsyncJob.class);
+            fail();
+        } catch (UniformInterfaceException ex) {
+            assertEquals(Response.Status.NOT_FOUND.getStatusCode(), ex.getResponse().getStatus());
+        }
+    }
 }
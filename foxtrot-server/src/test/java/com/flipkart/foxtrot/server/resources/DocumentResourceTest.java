@@ -217,6 +217,50 @@ public class DocumentResourceTest extends FoxtrotResourceTest {
         }
     }
 
+    @Test
+    public void testSaveDocumentStream() throws Exception {
+        String id1 = UUID.randomUUID().toString();
+        Document document1 = new Document(id1, System.currentTimeMillis(), getMapper().getNodeFactory().objectNode().put("D", "data"));
+        String id2 = UUID.randomUUID().toString();
+        Document document2 = new Document(id2, System.currentTimeMillis(), getMapper().getNodeFactory().objectNode().put("D", "data"));
+        String body = getMapper().writeValueAsString(document1) + "\n"
+                + "{not json\n"
+                + "\n"
+                + getMapper().writeValueAsString(document2) + "\n";
+        String response = client().resource(String.format("/v1/document/%s/bulk/stream", TestUtils.TEST_TABLE_NAME))
+                .type(DocumentResource.APPLICATION_NDJSON)
+                .post(String.class, body);
+        String[] lines = response.trim().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(2, getMapper().readTree(lines[0]).get("line").asInt());
+        assertEquals(2, getMapper().readTree(lines[1]).get("accepted").asInt());
+        assertEquals(1, getMapper().readTree(lines[1]).get("failed").asInt());
+
+        getElasticsearchServer().refresh(ElasticsearchUtils.getIndices(TestUtils.TEST_TABLE_NAME));
+        compare(document1, getQueryStore().get(TestUtils.TEST_TABLE_NAME, id1));
+        compare(document2, getQueryStore().get(TestUtils.TEST_TABLE_NAME, id2));
+    }
+
+    @Test
+    public void testSaveDocumentStreamReportsInvalidDocuments() throws Exception {
+        String id = UUID.randomUUID().toString();
+        Document document = new Document(id, System.currentTimeMillis(), getMapper().getNodeFactory().objectNode().put("D", "data"));
+        String body = "{\"id\":\"bad\",\"timestamp\":\"not a number\",\"data\":{}}\n"
+                + "{\"id\":\"no-data\",\"timestamp\":1}\n"
+                + "{\"id\": oops}\n"
+                + getMapper().writeValueAsString(document);
+        String response = client().resource(String.format("/v1/document/%s/bulk/stream", TestUtils.TEST_TABLE_NAME))
+                .type(DocumentResource.APPLICATION_NDJSON)
+                .post(String.class, body);
+        String[] lines = response.trim().split("\n");
+        assertEquals(4, lines.length);
+        assertEquals(1, getMapper().readTree(lines[0]).get("line").asInt());
+        assertEquals(2, getMapper().readTree(lines[1]).get("line").asInt());
+        assertEquals(3, getMapper().readTree(lines[2]).get("line").asInt());
+        assertEquals(1, getMapper().readTree(lines[3]).get("accepted").asInt());
+        assertEquals(3, getMapper().readTree(lines[3]).get("failed").asInt());
+    }
+
     @Test
     public void testGetDocument() throws Exception {
         String id = UUID.randomUUID().toString();
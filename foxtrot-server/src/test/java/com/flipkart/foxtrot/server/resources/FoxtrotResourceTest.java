@@ -13,6 +13,8 @@ import com.flipkart.foxtrot.core.cache.impl.DistributedCacheFactory;
 import com.flipkart.foxtrot.core.datastore.DataStore;
 import com.flipkart.foxtrot.core.querystore.QueryExecutor;
 import com.flipkart.foxtrot.core.querystore.QueryStore;
+import com.flipkart.foxtrot.core.common.AsyncJobConfig;
+import com.flipkart.foxtrot.core.common.AsyncJobRegistry;
 import com.flipkart.foxtrot.core.querystore.actions.spi.AnalyticsLoader;
 import com.flipkart.foxtrot.core.querystore.impl.ElasticsearchConnection;
 import com.flipkart.foxtrot.core.querystore.impl.ElasticsearchQueryStore;
@@ -20,6 +22,7 @@ import com.flipkart.foxtrot.core.querystore.impl.ElasticsearchUtils;
 import com.flipkart.foxtrot.core.querystore.impl.HazelcastConnection;
 import com.flipkart.foxtrot.core.table.TableMetadataManager;
 import com.flipkart.foxtrot.core.table.impl.TableMapStore;
+import com.hazelcast.config.Config;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.test.TestHazelcastInstanceFactory;
 import com.yammer.dropwizard.testing.ResourceTest;
@@ -49,6 +52,8 @@ public abstract class FoxtrotResourceTest extends ResourceTest {
     private DataStore dataStore;
     private ObjectMapper mapper;
     private CacheManager cacheManager;
+    private AsyncJobRegistry asyncJobRegistry;
+    private AsyncJobConfig asyncJobConfig;
 
     public FoxtrotResourceTest() throws Exception {
         getObjectMapperFactory().setSerializationInclusion(JsonInclude.Include.NON_NULL);
@@ -64,6 +69,7 @@ public abstract class FoxtrotResourceTest extends ResourceTest {
         hazelcastInstance = new TestHazelcastInstanceFactory(1).newHazelcastInstance();
         HazelcastConnection hazelcastConnection = Mockito.mock(HazelcastConnection.class);
         when(hazelcastConnection.getHazelcast()).thenReturn(hazelcastInstance);
+        when(hazelcastConnection.getHazelcastConfig()).thenReturn(new Config());
         this.cacheManager = new CacheManager(new DistributedCacheFactory(hazelcastConnection, mapper));
 
         elasticsearchServer = new MockElasticsearchServer(UUID.randomUUID().toString());
@@ -85,7 +91,10 @@ public abstract class FoxtrotResourceTest extends ResourceTest {
         analyticsLoader.start();
         TestUtils.registerActions(analyticsLoader, mapper);
         ExecutorService executorService = Executors.newFixedThreadPool(1);
-        queryExecutor = new QueryExecutor(analyticsLoader, executorService);
+        asyncJobConfig = new AsyncJobConfig();
+        asyncJobRegistry = new AsyncJobRegistry(hazelcastConnection, asyncJobConfig);
+        asyncJobRegistry.start();
+        queryExecutor = new QueryExecutor(analyticsLoader, executorService, null, asyncJobRegistry);
     }
 
     @After
@@ -119,6 +128,14 @@ public abstract class FoxtrotResourceTest extends ResourceTest {
         return cacheManager;
     }
 
+    public AsyncJobRegistry getAsyncJobRegistry() {
+        return asyncJobRegistry;
+    }
+
+    public AsyncJobConfig getAsyncJobConfig() {
+        return asyncJobConfig;
+    }
+
     public QueryStore getQueryStore() {
         return queryStore;
     }
@@ -6,6 +6,7 @@ import com.flipkart.foxtrot.common.Table;
 import com.flipkart.foxtrot.common.TableFieldMapping;
 import com.flipkart.foxtrot.core.querystore.QueryExecutor;
 import com.flipkart.foxtrot.core.querystore.QueryStore;
+import com.flipkart.foxtrot.core.querystore.scheduler.QueryPriority;
 import com.flipkart.foxtrot.core.table.TableMetadataManager;
 import com.flipkart.foxtrot.sql.query.FqlActionQuery;
 import com.flipkart.foxtrot.sql.query.FqlDescribeTable;
@@ -35,9 +36,14 @@ public class FqlEngine {
     }
 
     public FlatRepresentation parse(final String fql) throws Exception {
+        return parse(fql, QueryPriority.INTERACTIVE);
+    }
+
+    public FlatRepresentation parse(final String fql, QueryPriority priority) throws Exception {
         QueryTranslator translator = new QueryTranslator();
         FqlQuery query = translator.translate(fql);
-        FlatRepresentation response = new QueryProcessor(tableMetadataManager, queryStore, queryExecutor, mapper).process(query);
+        FlatRepresentation response = new QueryProcessor(tableMetadataManager, queryStore, queryExecutor, mapper, priority)
+                .process(query);
         logger.debug("Flat Response: " + mapper.writerWithDefaultPrettyPrinter().writeValueAsString(response));
         return response;
     }
@@ -47,14 +53,17 @@ public class FqlEngine {
         private QueryStore queryStore;
         private QueryExecutor queryExecutor;
         private ObjectMapper mapper;
+        private QueryPriority priority;
 
         private FlatRepresentation result;
 
-        private QueryProcessor(TableMetadataManager tableMetadataManager, QueryStore queryStore, QueryExecutor queryExecutor, ObjectMapper mapper) {
+        private QueryProcessor(TableMetadataManager tableMetadataManager, QueryStore queryStore, QueryExecutor queryExecutor,
+                               ObjectMapper mapper, QueryPriority priority) {
             this.tableMetadataManager = tableMetadataManager;
             this.queryStore = queryStore;
             this.queryExecutor = queryExecutor;
             this.mapper = mapper;
+            this.priority = priority;
         }
 
         public FlatRepresentation process(FqlQuery query) throws Exception {
@@ -81,7 +90,7 @@ public class FqlEngine {
         @Override
         public void visit(FqlActionQuery fqlActionQuery) throws Exception {
             logger.info("Generated query: " + mapper.writeValueAsString(fqlActionQuery.getActionRequest()));
-            ActionResponse actionResponse = queryExecutor.execute(fqlActionQuery.getActionRequest());
+            ActionResponse actionResponse = queryExecutor.execute(fqlActionQuery.getActionRequest(), priority);
             Flattener flattener = new Flattener(mapper, fqlActionQuery.getActionRequest(), fqlActionQuery.getSelectedFields());
             actionResponse.accept(flattener);
             result = flattener.getFlatRepresentation();